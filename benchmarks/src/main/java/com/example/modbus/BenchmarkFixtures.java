@@ -0,0 +1,71 @@
+package com.example.modbus;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Channel names and files shared by the benchmarks. The code under test keeps its
+ * configuration and logs in the working directory, so the benchmarks must run from an
+ * empty scratch directory; {@link #requireScratchDirectory()} refuses to run anywhere
+ * that looks like a checkout.
+ */
+final class BenchmarkFixtures {
+    /** The meter channels {@link EnergyDataLogger} derives its calculated values from. */
+    static final String[] METER_CHANNELS = {
+            "Voltage R-N", "Voltage Y-N", "Voltage B-N",
+            "Current_A", "Current_B", "Current_C",
+            "Power_A", "Power_B", "Power_C", "Apparent_Power"
+    };
+
+    private BenchmarkFixtures() {
+    }
+
+    /**
+     * Stop unless the working directory is safe to write channels.csv, logs and configs into.
+     */
+    static void requireScratchDirectory() {
+        Path cwd = Paths.get("").toAbsolutePath();
+        if (Files.exists(cwd.resolve("pom.xml")) || Files.exists(cwd.resolve("src"))) {
+            throw new IllegalStateException("Run the benchmarks from an empty scratch directory, not " + cwd
+                    + "; they overwrite channels.csv and the energy logs there");
+        }
+    }
+
+    /**
+     * {@code count} channel names, starting with the meter channels.
+     */
+    static List<String> channelNames(int count) {
+        List<String> names = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            names.add(i < METER_CHANNELS.length ? METER_CHANNELS[i] : String.format("Channel_%04d", i));
+        }
+        return names;
+    }
+
+    /**
+     * A plausible reading for channel {@code i}; {@code phase} shifts every value so
+     * consecutive samples differ.
+     */
+    static double reading(int i, int phase) {
+        return 100 + i * 0.25 + phase * 0.5;
+    }
+
+    /**
+     * Empty the energy log directory, leaving it in place.
+     */
+    static void clearEnergyLogs() {
+        File[] files = new File("energy_logs").listFiles();
+        if (files == null) return;
+        for (File file : files) {
+            if (file.isFile() && !file.delete()) {
+                throw new UncheckedIOException(new IOException("Could not delete " + file));
+            }
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package com.example.modbus;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.awt.Color;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reading channels.csv back into channel configurations.
+ */
+@State(Scope.Benchmark)
+public class ChannelRepositoryBenchmark {
+    @Param({"10", "100", "1000"})
+    int channelCount;
+
+    @Setup
+    public void setUp() {
+        BenchmarkFixtures.requireScratchDirectory();
+        List<String> names = BenchmarkFixtures.channelNames(channelCount);
+        List<ChannelConfig> configs = new ArrayList<>(channelCount);
+        for (int i = 0; i < channelCount; i++) {
+            String dataType = i % 2 == 0 ? "Float32" : "Int16";
+            configs.add(new ChannelConfig(i + 1, 30001 + i * 2, dataType, 1, 0, 0, 1000, 0, 2,
+                    new Color(i % 256, 128, 64), i % 10 == 0 ? "x * 0.1" : "", "V", names.get(i), "Line 1",
+                    ChannelConfig.SCAN_NORMAL));
+        }
+        ChannelRepository.save(configs);
+    }
+
+    @Benchmark
+    public List<ChannelConfig> load() {
+        return ChannelRepository.load();
+    }
+}
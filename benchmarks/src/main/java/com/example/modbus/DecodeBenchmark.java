@@ -0,0 +1,50 @@
+package com.example.modbus;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Decoding one poll's response bytes into channel values, as {@link ModbusPollingEngine}
+ * does for every block it reads. One operation decodes every channel once.
+ */
+@State(Scope.Thread)
+public class DecodeBenchmark {
+    @Param({"10", "100", "1000"})
+    int channelCount;
+
+    @Param({"Int16", "Float32", "Int32 (CDAB)", "Float64 (DCBA)"})
+    String dataType;
+
+    private byte[] data;
+    private int[] offsets;
+    private RegisterDecoder[] decoders;
+
+    @Setup
+    public void setUp() {
+        RegisterDecoder decoder = RegisterDecoder.of(dataType);
+        int width = decoder.getRegisterCount();
+        data = new byte[channelCount * width * 2];
+        offsets = new int[channelCount];
+        decoders = new RegisterDecoder[channelCount];
+        for (int i = 0; i < channelCount; i++) {
+            offsets[i] = i * width;
+            decoders[i] = decoder;
+            short[] registers = decoder.encode(BenchmarkFixtures.reading(i, 0));
+            for (int r = 0; r < width; r++) {
+                data[(i * width + r) * 2] = (byte) (registers[r] >> 8);
+                data[(i * width + r) * 2 + 1] = (byte) registers[r];
+            }
+        }
+    }
+
+    @Benchmark
+    public void decode(Blackhole bh) {
+        for (int i = 0; i < channelCount; i++) {
+            bh.consume(decoders[i].decode(data, offsets[i]));
+        }
+    }
+}
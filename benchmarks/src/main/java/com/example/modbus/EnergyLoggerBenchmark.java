@@ -0,0 +1,92 @@
+package com.example.modbus;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Logging one sample of every channel with {@link EnergyDataLogger}.
+ * <p>
+ * With {@code DROP_OLDEST} this is the cost to the polling thread: take the sample,
+ * filter it and hand it to the writer, dropping the oldest record if the writer is
+ * behind. With {@code BLOCK} the producer waits on a small ring whenever it is full, so
+ * the rate is what the writer thread can format, write and flush, end to end.
+ * <p>
+ * Each iteration starts a new log and deletes it afterwards, so iterations are kept
+ * short; a 1000-channel JSON log still grows by hundreds of megabytes per iteration.
+ */
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class EnergyLoggerBenchmark {
+    @Param({"10", "100", "1000"})
+    int channelCount;
+
+    @Param({"JSON", "CSV", "BINARY"})
+    String logFormat;
+
+    @Param({"DROP_OLDEST", "BLOCK"})
+    String overflowPolicy;
+
+    private final EnergyDataLogger logger = EnergyDataLogger.getInstance();
+    private Map<String, Object> even;
+    private Map<String, Object> odd;
+    private boolean flip;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        BenchmarkFixtures.requireScratchDirectory();
+        List<String> names = BenchmarkFixtures.channelNames(channelCount);
+        even = new HashMap<>();
+        odd = new HashMap<>();
+        for (int i = 0; i < names.size(); i++) {
+            even.put(names.get(i), BenchmarkFixtures.reading(i, 0));
+            odd.put(names.get(i), BenchmarkFixtures.reading(i, 1));
+        }
+    }
+
+    @Setup(Level.Iteration)
+    public void startLog() throws InterruptedException {
+        BenchmarkFixtures.clearEnergyLogs();
+        EnergyDataLogger.DataLoggerConfig config = logger.getConfig();
+        config.setEnabled(true);
+        config.setLogToFile(true);
+        config.setLogToDatabase(false);
+        config.setLogFormat(logFormat);
+        config.setIncludeCalculatedValues(true);
+        config.getChannelsToLog().clear();
+        config.setLogIntervalSeconds(3600); // the benchmark takes the samples
+        config.setBufferSize(64);
+        config.setRingCapacity(256);
+        config.setOverflowPolicy(overflowPolicy);
+        logger.startLogging();
+        // Let the sample the scheduler takes on start pass; from here on the benchmark takes them
+        TimeUnit.MILLISECONDS.sleep(200);
+        logger.updateData(even);
+    }
+
+    @TearDown(Level.Iteration)
+    public void deleteLog() {
+        logger.stopLogging();
+        BenchmarkFixtures.clearEnergyLogs();
+    }
+
+    @Benchmark
+    public void logSample() {
+        // Every value moves, so no record is held back by the deadbands
+        flip = !flip;
+        logger.updateData(flip ? odd : even);
+        logger.logCurrentData();
+    }
+}
@@ -0,0 +1,112 @@
+package com.example.modbus;
+
+import com.google.gson.Gson;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Exporting an hour of one-second records to CSV with {@link EnergyDataLogger#exportToCSV},
+ * from a JSON text log or from a binary segment. {@code exportAll} reads the whole log;
+ * {@code exportLastTenMinutes} asks for the last sixth of it.
+ */
+@State(Scope.Benchmark)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+public class ExportBenchmark {
+    static final int RECORDS = 3600;
+    static final String OUTPUT = "export.csv";
+
+    @Param({"10", "100", "1000"})
+    int channelCount;
+
+    @Param({"JSON", "BINARY"})
+    String logFormat;
+
+    private final EnergyDataLogger logger = EnergyDataLogger.getInstance();
+    private LocalDateTime start;
+    private LocalDateTime end;
+
+    @Setup
+    public void setUp() throws IOException {
+        BenchmarkFixtures.requireScratchDirectory();
+        BenchmarkFixtures.clearEnergyLogs();
+        start = LocalDateTime.now().withNano(0).minusSeconds(RECORDS);
+        end = start.plusSeconds(RECORDS);
+        List<String> names = BenchmarkFixtures.channelNames(channelCount);
+        if ("BINARY".equals(logFormat)) {
+            writeSegment(names);
+        } else {
+            writeJsonLog(names);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        BenchmarkFixtures.clearEnergyLogs();
+        new File(OUTPUT).delete();
+    }
+
+    private void writeJsonLog(List<String> names) throws IOException {
+        Gson gson = new Gson();
+        DateTimeFormatter date = DateTimeFormatter.ofPattern("yyyy-MM-dd");
+        DateTimeFormatter time = DateTimeFormatter.ofPattern("HH:mm:ss.SSS");
+        String file = "energy_logs/energy_data_" + start.format(DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss")) + ".json";
+        Files.createDirectories(Paths.get("energy_logs"));
+        try (BufferedWriter out = Files.newBufferedWriter(Paths.get(file), StandardCharsets.UTF_8)) {
+            for (int r = 0; r < RECORDS; r++) {
+                LocalDateTime at = start.plusSeconds(r);
+                Map<String, Object> data = new LinkedHashMap<>();
+                for (int i = 0; i < names.size(); i++) data.put(names.get(i), BenchmarkFixtures.reading(i, r % 2));
+                Map<String, Object> record = new LinkedHashMap<>();
+                record.put("timestamp", at.toString());
+                record.put("date", at.format(date));
+                record.put("time", at.format(time));
+                record.put("data", data);
+                out.write(gson.toJson(record));
+                out.newLine();
+            }
+        }
+    }
+
+    private void writeSegment(List<String> names) throws IOException {
+        int[] channels = new int[names.size()];
+        double[] values = new double[names.size()];
+        for (int i = 0; i < channels.length; i++) channels[i] = i;
+        long first = start.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        try (TimeSeriesWriter writer = new TimeSeriesWriter(new File("energy_logs"), "energy_data")) {
+            for (int r = 0; r < RECORDS; r++) {
+                for (int i = 0; i < values.length; i++) values[i] = BenchmarkFixtures.reading(i, r % 2);
+                writer.append(first + r * 1000L, names, channels.length, channels, values);
+            }
+        }
+    }
+
+    @Benchmark
+    public boolean exportAll() {
+        return logger.exportToCSV(OUTPUT, null, null, null);
+    }
+
+    @Benchmark
+    public boolean exportLastTenMinutes() {
+        return logger.exportToCSV(OUTPUT, end.minusMinutes(10), end, null);
+    }
+}
@@ -0,0 +1,59 @@
+package com.example.modbus;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Evaluating one channel expression against the values of every channel, through the
+ * channel maths evaluator and the math channel evaluator. Both look expressions up in
+ * their caches by text, so this measures the per-scan cost after the first parse.
+ */
+@State(Scope.Thread)
+public class ExpressionBenchmark {
+    static final String EXPRESSION = "(Power_A + Power_B + Power_C) / Apparent_Power * 100";
+
+    @Param({"10", "100", "1000"})
+    int channelCount;
+
+    private final ExpressionEvaluator channelMaths = new ExpressionEvaluator();
+    private Map<String, Double> values;
+    private ExpressionEvaluator.CompiledExpression compiled;
+    private double[] slots;
+
+    @Setup
+    public void setUp() {
+        BenchmarkFixtures.requireScratchDirectory();
+        List<String> names = BenchmarkFixtures.channelNames(channelCount);
+        values = new HashMap<>();
+        for (int i = 0; i < names.size(); i++) values.put(names.get(i), BenchmarkFixtures.reading(i, 0));
+        compiled = channelMaths.compile(EXPRESSION);
+        slots = compiled.newArguments();
+        for (int i = 0; i < slots.length; i++) {
+            Double value = values.get(compiled.getVariableName(i));
+            if (value != null) slots[i] = value; // otherwise an integer literal, already filled in
+        }
+    }
+
+    @Benchmark
+    public double expressionEvaluator() {
+        return channelMaths.evaluate(EXPRESSION, values);
+    }
+
+    /** The compiled form bound to slots, as the runtime service evaluates channel maths. */
+    @Benchmark
+    public double expressionEvaluatorCompiled() {
+        return compiled.evaluate(slots);
+    }
+
+    @Benchmark
+    public double mathExpressionEvaluator() {
+        return MathExpressionEvaluator.evaluate(EXPRESSION, values);
+    }
+}
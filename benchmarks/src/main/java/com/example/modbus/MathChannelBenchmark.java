@@ -0,0 +1,65 @@
+package com.example.modbus;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * One scan of the math channels: one math channel per ten inputs, each combining two
+ * inputs and every other one also the previous math channel, so the dependency graph
+ * has depth. {@code allInputsChanged} is a scan where every reading moved;
+ * {@code noInputsChanged} repeats the last scan and measures the skip path.
+ */
+@State(Scope.Thread)
+public class MathChannelBenchmark {
+    @Param({"10", "100", "1000"})
+    int channelCount;
+
+    private Map<String, Double> even;
+    private Map<String, Double> odd;
+    private boolean flip;
+
+    @Setup
+    public void setUp() {
+        BenchmarkFixtures.requireScratchDirectory();
+        List<String> names = BenchmarkFixtures.channelNames(channelCount);
+        even = new HashMap<>();
+        odd = new HashMap<>();
+        for (int i = 0; i < names.size(); i++) {
+            even.put(names.get(i), BenchmarkFixtures.reading(i, 0));
+            odd.put(names.get(i), BenchmarkFixtures.reading(i, 1));
+        }
+
+        MathChannelManager.clearAllConfigs();
+        int mathCount = Math.max(1, channelCount / 10);
+        for (int k = 0; k < mathCount; k++) {
+            String expression = names.get((k * 7) % channelCount) + " * 1.5 + " + names.get((k * 7 + 3) % channelCount);
+            if (k > 0 && k % 2 == 0) expression += " + Math_" + (k - 1) + " / 10";
+            MathChannelManager.addConfig(new MathChannelConfig("Math_" + k, expression, "", "", 2));
+        }
+        MathChannelManager.calculateAllValues(even); // builds the graph
+    }
+
+    @TearDown
+    public void tearDown() {
+        MathChannelManager.clearAllConfigs();
+    }
+
+    @Benchmark
+    public Map<String, Double> allInputsChanged() {
+        flip = !flip;
+        return MathChannelManager.calculateAllValues(flip ? odd : even);
+    }
+
+    @Benchmark
+    public Map<String, Double> noInputsChanged() {
+        return MathChannelManager.calculateAllValues(even);
+    }
+}
@@ -0,0 +1,101 @@
+package com.example.modbus;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Takes console output off the threads that produce it. {@link #install()} replaces
+ * System.out with a stream that hands every flushed line to a writer thread through a
+ * bounded queue, so a slow console, the Windows console in particular, no longer stalls a
+ * scan. SLF4J writes to System.out (see simplelogger.properties) and takes the same route.
+ * When the writer falls behind, new output is dropped and counted instead of blocking the
+ * caller; the count is printed once the writer catches up.
+ */
+public final class AsyncConsole extends OutputStream {
+    private static final int QUEUE_CAPACITY = 8192;
+    private static final int MAX_CHUNK = 8192;
+
+    private static AsyncConsole installed;
+
+    private final PrintStream target;
+    private final BlockingQueue<byte[]> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    private final ByteArrayOutputStream pending = new ByteArrayOutputStream(256); // guarded by this
+    private final AtomicLong dropped = new AtomicLong();
+
+    private AsyncConsole(PrintStream target) {
+        this.target = target;
+        WorkerThreads.start("console-writer", this::writeLoop);
+    }
+
+    /**
+     * Route System.out through a writer thread. Output still queued at exit is written
+     * by a shutdown hook. Calling this again does nothing.
+     */
+    public static synchronized void install() {
+        if (installed != null) return;
+        installed = new AsyncConsole(System.out);
+        PrintStream out = new PrintStream(installed, true);
+        System.setOut(out);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            out.flush();
+            installed.drain();
+        }, "console-drain"));
+    }
+
+    @Override
+    public synchronized void write(int b) {
+        pending.write(b);
+        if (pending.size() >= MAX_CHUNK) handOff();
+    }
+
+    @Override
+    public synchronized void write(byte[] b, int off, int len) {
+        pending.write(b, off, len);
+        if (pending.size() >= MAX_CHUNK) handOff();
+    }
+
+    @Override
+    public synchronized void flush() {
+        if (pending.size() > 0) handOff();
+    }
+
+    private void handOff() {
+        if (!queue.offer(pending.toByteArray())) dropped.incrementAndGet();
+        pending.reset();
+    }
+
+    private void writeLoop() {
+        List<byte[]> batch = new ArrayList<>();
+        try {
+            while (true) {
+                batch.add(queue.take());
+                queue.drainTo(batch);
+                write(batch);
+                batch.clear();
+            }
+        } catch (InterruptedException e) {
+            // shutting down, the hook writes what is left
+        }
+    }
+
+    private void drain() {
+        List<byte[]> batch = new ArrayList<>();
+        queue.drainTo(batch);
+        write(batch);
+    }
+
+    private void write(List<byte[]> batch) {
+        synchronized (target) {
+            for (byte[] chunk : batch) target.write(chunk, 0, chunk.length);
+            long lost = dropped.getAndSet(0);
+            if (lost > 0) target.println("[console fell behind, " + lost + " writes dropped]");
+            target.flush();
+        }
+    }
+}
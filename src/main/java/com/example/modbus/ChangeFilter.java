@@ -0,0 +1,76 @@
+package com.example.modbus;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Report-by-exception stage. Remembers the last value passed on for each key and only
+ * lets a new one through when it moved past the channel's deadband, or when the
+ * heartbeat interval has elapsed since the key was last passed on. Each consumer
+ * (UI, CSV log, energy log) keeps its own filter.
+ */
+public class ChangeFilter {
+    private static final class Published {
+        Object value; // null for a number, which is kept unboxed
+        double number;
+        long at;
+    }
+
+    private final Map<String, Published> published = new HashMap<>();
+
+    /**
+     * Decide whether to publish a value, using the deadband configured for the key.
+     */
+    public boolean accept(String key, Object value) {
+        return accept(key, DeadbandManager.getDeadband(key), value);
+    }
+
+    /**
+     * Decide whether to publish a value and, if so, remember it as the key's last published value.
+     */
+    public synchronized boolean accept(String key, Deadband deadband, Object value) {
+        if (value instanceof Number) return accept(key, deadband, ((Number) value).doubleValue());
+        long now = System.currentTimeMillis();
+        Published last = published.get(key);
+        if (last == null) {
+            last = new Published();
+            published.put(key, last);
+        } else if (now - last.at < DeadbandManager.getHeartbeatMillis() && Objects.equals(last.value, value)) {
+            return false;
+        }
+        last.value = value;
+        last.at = now;
+        return true;
+    }
+
+    public boolean accept(String key, double value) {
+        return accept(key, DeadbandManager.getDeadband(key), value);
+    }
+
+    /**
+     * Numeric form of {@link #accept(String, Deadband, Object)}; does not box the value.
+     */
+    public synchronized boolean accept(String key, Deadband deadband, double value) {
+        long now = System.currentTimeMillis();
+        Published last = published.get(key);
+        if (last == null) {
+            last = new Published();
+            published.put(key, last);
+        } else if (now - last.at < DeadbandManager.getHeartbeatMillis() && last.value == null
+                && !deadband.isExceeded(last.number, value)) {
+            return false;
+        }
+        last.value = null;
+        last.number = value;
+        last.at = now;
+        return true;
+    }
+
+    /**
+     * Forget every key so the next value of each is published.
+     */
+    public synchronized void reset() {
+        published.clear();
+    }
+}
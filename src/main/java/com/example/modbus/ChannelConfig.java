@@ -3,6 +3,12 @@ package com.example.modbus;
 import java.awt.*;
 
 public class ChannelConfig {
+    // Scan classes, in ms between reads
+    public static final int SCAN_FAST = 100;
+    public static final int SCAN_NORMAL = 1000;
+    public static final int SCAN_SLOW = 10000;
+    public static final int SCAN_VERY_SLOW = 60000;
+
     private final int channelNumber;
     private final int channelAddress;
     private final String dataType;
@@ -16,8 +22,14 @@ public class ChannelConfig {
     private final String channelMaths;
     private final String unit;
     private final String channelName; // Added channelName field
+    private final String line; // Serial port the device hangs off; empty for the main connection
+    private final int scanRate; // ms between reads of this channel
 
     public ChannelConfig(int channelNumber, int channelAddress, String dataType, int deviceId, double value, double low, double high, double offset, int maxDecimalDigits, Color channelColor, String channelMaths, String unit, String channelName) {
+        this(channelNumber, channelAddress, dataType, deviceId, value, low, high, offset, maxDecimalDigits, channelColor, channelMaths, unit, channelName, "", SCAN_NORMAL);
+    }
+
+    public ChannelConfig(int channelNumber, int channelAddress, String dataType, int deviceId, double value, double low, double high, double offset, int maxDecimalDigits, Color channelColor, String channelMaths, String unit, String channelName, String line, int scanRate) {
         this.channelNumber = channelNumber;
         this.channelAddress = channelAddress;
         this.dataType = dataType;
@@ -31,6 +43,8 @@ public class ChannelConfig {
         this.channelMaths = channelMaths;
         this.unit = unit;
         this.channelName = channelName; // Initialize channelName
+        this.line = line == null ? "" : line.trim();
+        this.scanRate = scanRate > 0 ? scanRate : SCAN_NORMAL;
     }
 
     // Getters
@@ -47,6 +61,8 @@ public class ChannelConfig {
     public String getChannelMaths() { return channelMaths; }
     public String getUnit() { return unit; }
     public String getChannelName() { return channelName; } // Added getChannelName
+    public String getLine() { return line; }
+    public int getScanRate() { return scanRate; }
 
     @Override
     public String toString() {
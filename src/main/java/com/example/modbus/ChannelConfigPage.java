@@ -24,11 +24,12 @@ public class ChannelConfigPage {
     private JComboBox<String> channelColorComboBox;
     private JTextField channelMathsField;
     private JTextField unitField;
+    private JComboBox<String> scanRateComboBox;
     private JTextField writeValueField;
     private JButton saveButton;
     private JButton addNewChannelButton;
     private JButton writeButton;
-    private static List<ChannelConfig> channelConfigs = new ArrayList<>();
+    private static volatile List<ChannelConfig> channelConfigs = new ArrayList<>();
     private DataPage dataPage;
 
     public ChannelConfigPage(DataPage dataPage) {
@@ -75,7 +76,8 @@ public class ChannelConfigPage {
         gbc.gridx = 0;
         gbc.gridy = 3;
         panel.add(new JLabel("Data Type:"), gbc);
-        dataTypeComboBox = new JComboBox<>(new String[]{"Float32", "Int16"});
+        dataTypeComboBox = new JComboBox<>(channelDataTypes());
+        dataTypeComboBox.setEditable(true); // for a scale or bit, e.g. "UInt16 *0.1" (see RegisterDecoder)
         gbc.gridx = 1;
         panel.add(dataTypeComboBox, gbc);
 
@@ -151,9 +153,21 @@ public class ChannelConfigPage {
         gbc.gridx = 1;
         panel.add(unitField, gbc);
 
-        // Write Value (for writable registers)
+        // Scan Rate: one of the scan classes, or any other period typed in
         gbc.gridx = 0;
         gbc.gridy = 13;
+        panel.add(new JLabel("Scan Rate (ms):"), gbc);
+        scanRateComboBox = new JComboBox<>(new String[]{
+                String.valueOf(ChannelConfig.SCAN_FAST), String.valueOf(ChannelConfig.SCAN_NORMAL),
+                String.valueOf(ChannelConfig.SCAN_SLOW), String.valueOf(ChannelConfig.SCAN_VERY_SLOW)});
+        scanRateComboBox.setEditable(true);
+        scanRateComboBox.setSelectedItem(String.valueOf(ChannelConfig.SCAN_NORMAL));
+        gbc.gridx = 1;
+        panel.add(scanRateComboBox, gbc);
+
+        // Write Value (for writable registers)
+        gbc.gridx = 0;
+        gbc.gridy = 14;
         panel.add(new JLabel("Write Value:"), gbc);
         writeValueField = new JTextField("0", 10);
         gbc.gridx = 1;
@@ -162,21 +176,21 @@ public class ChannelConfigPage {
         // Add New Channel Button
         addNewChannelButton = new JButton("Add New Channel");
         gbc.gridx = 0;
-        gbc.gridy = 14;
+        gbc.gridy = 15;
         gbc.gridwidth = 1;
         panel.add(addNewChannelButton, gbc);
 
         // Save Button
         saveButton = new JButton("Save Channel");
         gbc.gridx = 1;
-        gbc.gridy = 14;
+        gbc.gridy = 15;
         gbc.gridwidth = 1;
         panel.add(saveButton, gbc);
 
         // Write Button
         writeButton = new JButton("Write to Register");
         gbc.gridx = 0;
-        gbc.gridy = 15;
+        gbc.gridy = 16;
         gbc.gridwidth = 2;
         panel.add(writeButton, gbc);
 
@@ -197,6 +211,7 @@ public class ChannelConfigPage {
                 channelColorComboBox.setSelectedItem("Red");
                 channelMathsField.setText("x");
                 unitField.setText("°C");
+                scanRateComboBox.setSelectedItem(String.valueOf(ChannelConfig.SCAN_NORMAL));
                 writeValueField.setText("0");
             }
         });
@@ -219,6 +234,7 @@ public class ChannelConfigPage {
                     String colorName = (String) channelColorComboBox.getSelectedItem();
                     String channelMaths = channelMathsField.getText().trim();
                     String unit = unitField.getText().trim();
+                    int scanRate = Integer.parseInt(String.valueOf(scanRateComboBox.getSelectedItem()).trim());
 
                     // Check for duplicate channel name
                     for (ChannelConfig config : channelConfigs) {
@@ -244,6 +260,10 @@ public class ChannelConfigPage {
                         JOptionPane.showMessageDialog(panel, "Max Decimal Digits must be non-negative.");
                         return;
                     }
+                    if (scanRate < ChannelConfig.SCAN_FAST) {
+                        JOptionPane.showMessageDialog(panel, "Scan Rate must be at least " + ChannelConfig.SCAN_FAST + " ms.");
+                        return;
+                    }
                     if (channelMaths.isEmpty()) channelMaths = "x";
                     if (unit.isEmpty()) {
                         JOptionPane.showMessageDialog(panel, "Unit cannot be empty.");
@@ -258,19 +278,27 @@ public class ChannelConfigPage {
                     else if (colorName.equals("Orange")) channelColor = Color.ORANGE;
                     else channelColor = Color.BLACK;
 
-                    ChannelConfig config = new ChannelConfig(channelNumber, channelAddress, dataType, deviceId, value, low, high, offset, maxDecimalDigits, channelColor, channelMaths, unit, channelName);
+                    ChannelConfig config;
+                    // Replace the list rather than change it, so pollers comparing the list they
+                    // were last given see the edit
+                    List<ChannelConfig> updated = new ArrayList<>(channelConfigs);
 
                     if (channelNumber == 0) {
                         // New channel
-                        channelNumber = channelConfigs.size() + 1;
-                        config = new ChannelConfig(channelNumber, channelAddress, dataType, deviceId, value, low, high, offset, maxDecimalDigits, channelColor, channelMaths, unit, channelName);
-                        channelConfigs.add(config);
+                        channelNumber = updated.size() + 1;
+                        config = new ChannelConfig(channelNumber, channelAddress, dataType, deviceId, value, low, high, offset, maxDecimalDigits, channelColor, channelMaths, unit, channelName, "", scanRate);
+                        updated.add(config);
+                        channelConfigs = updated;
                         JOptionPane.showMessageDialog(panel, "New channel saved successfully!");
                     } else {
                         // Edit existing channel
-                        for (int i = 0; i < channelConfigs.size(); i++) {
-                            if (channelConfigs.get(i).getChannelNumber() == channelNumber) {
-                                channelConfigs.set(i, config);
+                        for (int i = 0; i < updated.size(); i++) {
+                            if (updated.get(i).getChannelNumber() == channelNumber) {
+                                // Keep the line the channel was assigned
+                                ChannelConfig existing = updated.get(i);
+                                config = new ChannelConfig(channelNumber, channelAddress, dataType, deviceId, value, low, high, offset, maxDecimalDigits, channelColor, channelMaths, unit, channelName, existing.getLine(), scanRate);
+                                updated.set(i, config);
+                                channelConfigs = updated;
                                 JOptionPane.showMessageDialog(panel, "Channel " + channelNumber + " updated successfully!");
                                 break;
                             }
@@ -318,8 +346,8 @@ public class ChannelConfigPage {
                         return;
                     }
                     
-                    // Create a temporary ChannelRuntimeService for writing
-                    ChannelRuntimeService writeService = new ChannelRuntimeService(dataPage.getSettings(), dataPage.getModbusMaster());
+                    // Write over the shared connection; no poller is started
+                    ModbusRegisterWriter writer = new ModbusRegisterWriter(dataPage.getModbusMaster());
                     
                     Object writeValue;
                     if (address >= 1 && address < 10000) {
@@ -336,11 +364,7 @@ public class ChannelConfigPage {
                     } else {
                         // Holding Register - convert to number
                         try {
-                            if ("Float32".equalsIgnoreCase(dataType)) {
-                                writeValue = Float.parseFloat(writeValueStr);
-                            } else {
-                                writeValue = Short.parseShort(writeValueStr);
-                            }
+                            writeValue = Double.parseDouble(writeValueStr);
                         } catch (NumberFormatException ex) {
                             JOptionPane.showMessageDialog(panel, "Please enter a valid number for register write.");
                             return;
@@ -348,7 +372,7 @@ public class ChannelConfigPage {
                     }
                     
                     // Perform the write operation
-                    boolean success = writeService.writeValue(deviceId, address, writeValue, dataType);
+                    boolean success = writer.writeValue(deviceId, address, writeValue, dataType);
                     
                     if (success) {
                         JOptionPane.showMessageDialog(panel, "Successfully wrote value " + writeValue + 
@@ -367,6 +391,19 @@ public class ChannelConfigPage {
         });
     }
 
+    /**
+     * Every data type the polling engine decodes, with the original "Float32" and "Int16" first.
+     */
+    private static String[] channelDataTypes() {
+        List<String> types = new ArrayList<>();
+        types.add("Float32");
+        types.add("Int16");
+        for (String type : RegisterDecoder.dataTypes()) {
+            if (!types.contains(type)) types.add(type);
+        }
+        return types.toArray(new String[0]);
+    }
+
     private void updateChannelNumberComboBox() {
         channelNumberComboBox.removeAllItems();
         channelNumberComboBox.addItem(0); // Placeholder for new channel
@@ -394,6 +431,7 @@ public class ChannelConfigPage {
                 channelColorComboBox.setSelectedItem(getColorName(config.getChannelColor()));
                 channelMathsField.setText(config.getChannelMaths());
                 unitField.setText(config.getUnit());
+                scanRateComboBox.setSelectedItem(String.valueOf(config.getScanRate()));
                 writeValueField.setText("0"); // Reset write value
                 break;
             }
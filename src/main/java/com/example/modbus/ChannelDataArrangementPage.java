@@ -41,10 +41,8 @@ public class ChannelDataArrangementPage {
             runtime.addListener(this::refreshGrid);
         }
         
-        // Add listener to ModbusDataStore for real-time updates
-        ModbusDataStore.getInstance().addListener((channelName, value) -> {
-            SwingUtilities.invokeLater(() -> refreshGrid());
-        });
+        // One grid refresh per batch of ModbusDataStore updates
+        ModbusDataStore.getInstance().subscribe(changes -> refreshGrid(), SwingUtilities::invokeLater);
         
         refreshGrid();
     }
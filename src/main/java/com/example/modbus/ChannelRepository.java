@@ -8,7 +8,7 @@ import java.util.List;
 
 public class ChannelRepository {
     private static final File FILE = new File("channels.csv");
-    private static final String HEADER = "channelNumber,channelAddress,dataType,deviceId,value,low,high,offset,maxDecimalDigits,colorR,colorG,colorB,channelMaths,unit,channelName";
+    private static final String HEADER = "channelNumber,channelAddress,dataType,deviceId,value,low,high,offset,maxDecimalDigits,colorR,colorG,colorB,channelMaths,unit,channelName,line,scanRate";
 
     public synchronized static List<ChannelConfig> load() {
         List<ChannelConfig> list = new ArrayList<>();
@@ -35,13 +35,23 @@ public class ChannelRepository {
                 String channelMaths = parts[i++];
                 String unit = parts[i++];
                 String channelName = parts[i++];
-                list.add(new ChannelConfig(channelNumber, channelAddress, dataType, deviceId, value, low, high, offset, maxDecimalDigits, new Color(r, g, b), channelMaths, unit, channelName));
+                String lineName = parts.length > i ? parts[i++] : ""; // absent in files written before multi-line polling
+                int scanRate = parts.length > i ? toInt(parts[i]) : ChannelConfig.SCAN_NORMAL; // absent before scan classes
+                list.add(new ChannelConfig(channelNumber, channelAddress, dataType, deviceId, value, low, high, offset, maxDecimalDigits, new Color(r, g, b), channelMaths, unit, channelName, lineName, scanRate));
             }
         } catch (IOException ignored) {}
         return list;
     }
 
-    public synchronized static void save(List<ChannelConfig> configs) {
+    public static void save(List<ChannelConfig> configs) {
+        write(configs);
+        // Outside the lock: the registry reloads through load()
+        ConfigRegistry.getInstance().invalidate();
+    }
+
+    static File getFile() { return FILE; }
+
+    private synchronized static void write(List<ChannelConfig> configs) {
         try (BufferedWriter bw = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(FILE), StandardCharsets.UTF_8))) {
             bw.write(HEADER);
             bw.newLine();
@@ -61,7 +71,9 @@ public class ChannelRepository {
                   .append(c.getChannelColor().getBlue()).append(',')
                   .append(escape(c.getChannelMaths())).append(',')
                   .append(escape(c.getUnit())).append(',')
-                  .append(escape(c.getChannelName()));
+                  .append(escape(c.getChannelName())).append(',')
+                  .append(escape(c.getLine())).append(',')
+                  .append(c.getScanRate());
                 bw.write(sb.toString());
                 bw.newLine();
             }
@@ -1,48 +1,57 @@
 package com.example.modbus;
 
 import com.serotonin.modbus4j.ModbusMaster;
-import com.serotonin.modbus4j.exception.ModbusTransportException;
-import com.serotonin.modbus4j.msg.ReadCoilsRequest;
-import com.serotonin.modbus4j.msg.ReadCoilsResponse;
-import com.serotonin.modbus4j.msg.ReadDiscreteInputsRequest;
-import com.serotonin.modbus4j.msg.ReadDiscreteInputsResponse;
-import com.serotonin.modbus4j.msg.ReadHoldingRegistersRequest;
-import com.serotonin.modbus4j.msg.ReadHoldingRegistersResponse;
-import com.serotonin.modbus4j.msg.ReadInputRegistersRequest;
-import com.serotonin.modbus4j.msg.ReadInputRegistersResponse;
-import com.serotonin.modbus4j.msg.WriteCoilRequest;
-import com.serotonin.modbus4j.msg.WriteCoilResponse;
-import com.serotonin.modbus4j.msg.WriteCoilsRequest;
-import com.serotonin.modbus4j.msg.WriteCoilsResponse;
-import com.serotonin.modbus4j.msg.WriteRegisterRequest;
-import com.serotonin.modbus4j.msg.WriteRegisterResponse;
-import com.serotonin.modbus4j.msg.WriteRegistersRequest;
-import com.serotonin.modbus4j.msg.WriteRegistersResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import javax.swing.SwingUtilities;
 import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
 import com.example.modbus.EnergyDataLogger;
 import com.example.modbus.ModbusConfigManager;
 import com.example.modbus.MathChannelManager;
 
 public class ChannelRuntimeService {
+    private static final Logger log = LoggerFactory.getLogger(ChannelRuntimeService.class);
+    private static final RateLimitedLog failures = new RateLimitedLog(log, 3, 60_000);
     private final ModbusSettings settings;
     private final ModbusMaster master;
     private final boolean ownsMaster;
-    private final Timer timer;
-    private final Map<Integer, Double> rawValues = new ConcurrentHashMap<>();
-    private final Map<Integer, Double> computedValues = new ConcurrentHashMap<>();
+    // Computing and publishing runs as often as the fastest scan class asks for
+    private final CycleTimer cycle = new CycleTimer("runtime-cycle", this::pollOnce);
+    private List<ChannelConfig> cycleChannels;
+    // Slots are keyed by channel number; math channels use 1000 + their index
+    private final LiveValueTable rawValues = new LiveValueTable();
+    private final LiveValueTable computedValues = new LiveValueTable();
+    private List<ChannelConfig> keyedChannels;
+    private int keyedMathCount = -1;
     private final ExpressionEvaluator evaluator = new ExpressionEvaluator();
+    private final ModbusPollingEngine pollingEngine;
+    private final Map<ExpressionEvaluator.CompiledExpression, Binding> channelMathsBindings = new WeakHashMap<>();
+    private static final int X_VARIABLE = -1;
+    // Math channels, ordered and dirty-tracked; rebuilt when the channels or math channels change
+    private MathChannelGraph mathGraph;
+    private List<ChannelConfig> mathGraphChannels;
+    private long mathGraphGeneration = -1;
+    private List<MathChannelConfig> mathGraphConfigs;
+    // For each graph input, the table and slot its value is read from; a null table has no value
+    private LiveValueTable[] mathInputTables;
+    private int[] mathInputKeys;
+    private double[] mathInputs;
+    private double[] mathResults;
     private final List<Runnable> listeners = new ArrayList<>();
+    // Math channels get their own filter; their names may repeat register channel names
+    private final ChangeFilter listenerFilter = new ChangeFilter();
+    private final ChangeFilter mathListenerFilter = new ChangeFilter();
+    private final ChangeFilter csvFilter = new ChangeFilter();
     private final EnergyDataLogger energyLogger = EnergyDataLogger.getInstance();
+    private final com.example.production.DataLogger csvLogger = new com.example.production.DataLogger("production_data.csv");
 
     public ChannelRuntimeService(ModbusSettings settings, ModbusMaster sharedMaster) {
         this.settings = settings;
         this.master = sharedMaster;
         this.ownsMaster = false;
-        this.timer = new Timer(true);
-        timer.scheduleAtFixedRate(new TimerTask() { @Override public void run() { pollOnce(); } }, 0, 1000);
+        this.pollingEngine = new ModbusPollingEngine(settings, master, rawValues);
+        scheduleCycle(0, ChannelConfig.SCAN_NORMAL);
         
         // Start energy logging
         energyLogger.startLogging();
@@ -58,8 +67,8 @@ public class ChannelRuntimeService {
         cm.open(settings);
         this.master = cm.getMaster();
         this.ownsMaster = true;
-        this.timer = new Timer(true);
-        timer.scheduleAtFixedRate(new TimerTask() { @Override public void run() { pollOnce(); } }, 0, 1000);
+        this.pollingEngine = new ModbusPollingEngine(settings, master, rawValues);
+        scheduleCycle(0, ChannelConfig.SCAN_NORMAL);
         
         // Start energy logging
         energyLogger.startLogging();
@@ -67,148 +76,99 @@ public class ChannelRuntimeService {
 
     public void pollOnce() {
         if (master == null) return;
-        List<ChannelConfig> channels = ChannelRepository.load();
+        ConfigRegistry.Snapshot config = ConfigRegistry.getInstance().current();
+        List<ChannelConfig> channels = config.getChannels();
         if (channels.isEmpty()) channels = ChannelConfigPage.getChannelConfigs();
-        if (channels.isEmpty()) {
-            // Try to load from modbus_config.json
-            try {
-                List<ModbusConfigManager.ModbusConfig> modbusConfigs = ModbusConfigManager.loadConfig();
-                if (modbusConfigs != null && !modbusConfigs.isEmpty()) {
-                    System.out.println("Loading " + modbusConfigs.size() + " channels from modbus_config.json");
-                    // Convert ModbusConfig to ChannelConfig
-                    channels = new ArrayList<>();
-                    for (int i = 0; i < modbusConfigs.size(); i++) {
-                        ModbusConfigManager.ModbusConfig config = modbusConfigs.get(i);
-                        ChannelConfig channelConfig = new ChannelConfig(
-                            i + 1, // channel number
-                            config.getAddress(), // channel address
-                            config.getDataType(), // data type
-                            config.getSlaveId(), // device id
-                            0.0, // value
-                            0.0, // low
-                            1000.0, // high
-                            0.0, // offset
-                            2, // max decimal digits
-                            new java.awt.Color(0, 0, 255), // color
-                            "", // channel maths
-                            "", // unit
-                            config.getChannelName() // channel name
-                        );
-                        channels.add(channelConfig);
-                    }
-                }
-            } catch (Exception e) {
-                System.err.println("Error loading modbus config: " + e.getMessage());
-            }
-        }
+        // Fall back to the channels defined in modbus_config.json
+        if (channels == null || channels.isEmpty()) channels = config.getModbusChannels();
         if (channels == null || channels.isEmpty()) {
-            System.out.println("No channels to poll");
+            log.debug("No channels to poll");
             return;
         }
-        System.out.println("Polling " + channels.size() + " channels");
-        try {
-            for (ChannelConfig ch : channels) {
-            try {
-                if (master == null) break; // Check if master is still valid
-                
-                // Skip channels with invalid channel numbers
-                int channelNumber = ch.getChannelNumber();
-                if (channelNumber <= 0) {
-                    System.out.println("Skipping channel with invalid channel number: " + channelNumber);
-                    continue;
-                }
-                
-                int deviceId = ch.getDeviceId();
-                int address = ch.getChannelAddress();
-                // Support 1xxxx/3xxxx/4xxxx style addressing
-                int count = "Float32".equalsIgnoreCase(ch.getDataType()) ? 2 : 1;
-                if (address >= 40001 && address < 50000) {
-                    int zero = address - 40001; // FC3 Holding
-                    ReadHoldingRegistersRequest req = new ReadHoldingRegistersRequest(deviceId, zero, count);
-                    ReadHoldingRegistersResponse resp = (ReadHoldingRegistersResponse) master.send(req);
-                    if (resp.isException()) continue;
-                    short[] data = resp.getShortData();
-                    double val = extractValue(data, ch.getDataType());
-                    val = val + ch.getOffset();
-                    rawValues.put(channelNumber, val);
-                } else if (address >= 30001 && address < 40000) {
-                    int zero = address - 30001; // FC4 Input
-                    ReadInputRegistersRequest req = new ReadInputRegistersRequest(deviceId, zero, count);
-                    ReadInputRegistersResponse resp = (ReadInputRegistersResponse) master.send(req);
-                    if (resp.isException()) {
-                        System.out.println("Exception reading channel " + channelNumber + " at " + address + ": " + resp.getExceptionMessage());
-                        continue;
-                    }
-                    short[] data = resp.getShortData();
-                    double val = extractValue(data, ch.getDataType());
-                    val = val + ch.getOffset();
-                    rawValues.put(channelNumber, val);
-                    System.out.println("Channel " + channelNumber + " (" + ch.getChannelName() + ") = " + val);
-                } else if (address >= 10001 && address < 20000) {
-                    int zero = address - 10001; // FC2 Discrete Inputs (boolean)
-                    ReadDiscreteInputsRequest req = new ReadDiscreteInputsRequest(deviceId, zero, 1);
-                    ReadDiscreteInputsResponse resp = (ReadDiscreteInputsResponse) master.send(req);
-                    if (resp.isException()) continue;
-                    boolean[] data = resp.getBooleanData();
-                    double val = (data != null && data.length > 0 && data[0]) ? 1.0 : 0.0;
-                    rawValues.put(channelNumber, val);
-                } else if (address >= 1 && address < 10000) {
-                    int zero = address - 1; // FC1 Coils
-                    ReadCoilsRequest req = new ReadCoilsRequest(deviceId, zero, 1);
-                    ReadCoilsResponse resp = (ReadCoilsResponse) master.send(req);
-                    if (resp.isException()) continue;
-                    boolean[] data = resp.getBooleanData();
-                    double val = (data != null && data.length > 0 && data[0]) ? 1.0 : 0.0;
-                    rawValues.put(channelNumber, val);
-                } else {
-                    // Treat as raw zero-based holding register address
-                    int zero = address;
-                    ReadHoldingRegistersRequest req = new ReadHoldingRegistersRequest(deviceId, zero, count);
-                    ReadHoldingRegistersResponse resp = (ReadHoldingRegistersResponse) master.send(req);
-                    if (resp.isException()) continue;
-                    short[] data = resp.getShortData();
-                    double val = extractValue(data, ch.getDataType());
-                    val = val + ch.getOffset();
-                    rawValues.put(channelNumber, val);
-                }
-            } catch (ModbusTransportException ignored) {}
-            }
-        } catch (Exception e) {
-            System.out.println("Error during channel polling: " + e.getMessage());
-            e.printStackTrace();
+        assignSlots(channels);
+        // The engine's line workers read each channel at its own scan rate; this cycle
+        // computes and publishes whatever values they have stored so far, at the rate of
+        // the fastest scan class so no class's new readings wait for a slower cycle
+        pollingEngine.setChannels(channels);
+        if (channels != cycleChannels) {
+            cycleChannels = channels;
+            int period = fastestScanRate(channels);
+            if (period != cycle.getPeriodMs()) scheduleCycle(period, period);
         }
         computeAll(channels);
-        computeMathChannels();
+        computeMathChannels(channels);
         // DO NOT call logEnergyData - FilterDataPage handles energy logging with calculated values only
         logToCSV(channels);
-        notifyListeners();
+        if (hasChanges(channels)) notifyListeners();
+    }
+
+    private static int fastestScanRate(List<ChannelConfig> channels) {
+        int fastest = Integer.MAX_VALUE;
+        for (ChannelConfig ch : channels) fastest = Math.min(fastest, ch.getScanRate());
+        return Math.max(ChannelConfig.SCAN_FAST, fastest);
+    }
+
+    /**
+     * Run the compute and publish cycle every {@code periodMs}, replacing the current schedule.
+     */
+    private void scheduleCycle(long delayMs, int periodMs) {
+        cycle.schedule(delayMs, periodMs);
+        log.debug("Runtime cycle periodMs={}", periodMs);
+    }
+
+    /**
+     * Whether any computed value moved past its deadband, or is due for its heartbeat,
+     * since listeners were last notified.
+     */
+    private boolean hasChanges(List<ChannelConfig> channels) {
+        boolean changed = false;
+        for (ChannelConfig ch : channels) {
+            String channelName = ch.getChannelName();
+            if (!computedValues.contains(ch.getChannelNumber()) || channelName == null || channelName.trim().isEmpty()) continue;
+            // No short circuit: every filter entry must advance
+            changed |= listenerFilter.accept(channelName, computedValues.get(ch.getChannelNumber()));
+        }
+        List<MathChannelConfig> mathChannels = MathChannelManager.getConfigs();
+        if (mathChannels != null) {
+            for (int i = 0; i < mathChannels.size(); i++) {
+                if (computedValues.contains(1000 + i)) {
+                    changed |= mathListenerFilter.accept(mathChannels.get(i).getChannelName(), computedValues.get(1000 + i));
+                }
+            }
+        }
+        return changed;
     }
 
-    private double extractValue(short[] data, String dataType) {
-        if (data == null || data.length == 0) return Double.NaN;
-        if (dataType == null) dataType = "Int16";
-        if ("Float32".equalsIgnoreCase(dataType)) {
-            if (data.length < 2) return Double.NaN;
-            int hi = data[0] & 0xFFFF;
-            int lo = data[1] & 0xFFFF;
-            int bits = (hi << 16) | lo;
-            return Float.intBitsToFloat(bits);
+    /**
+     * Give every channel and math channel a value slot. Only reallocates when the
+     * configuration was reloaded.
+     */
+    private void assignSlots(List<ChannelConfig> channels) {
+        List<MathChannelConfig> mathChannels = MathChannelManager.getConfigs();
+        int mathCount = mathChannels != null ? mathChannels.size() : 0;
+        if (channels == keyedChannels && mathCount == keyedMathCount) return;
+        int[] channelKeys = new int[channels.size()];
+        int[] allKeys = new int[channels.size() + mathCount];
+        for (int i = 0; i < channels.size(); i++) {
+            channelKeys[i] = channels.get(i).getChannelNumber();
+            allKeys[i] = channelKeys[i];
         }
-        // Int16 or default
-        return data[0];
+        for (int i = 0; i < mathCount; i++) allKeys[channels.size() + i] = 1000 + i;
+        rawValues.setKeys(channelKeys);
+        computedValues.setKeys(allKeys);
+        keyedChannels = channels;
+        keyedMathCount = mathCount;
     }
 
     private void computeAll(List<ChannelConfig> channels) {
-        Map<String, Double> vars = new HashMap<>();
-        for (Map.Entry<Integer, Double> e : rawValues.entrySet()) vars.put("CH" + e.getKey(), e.getValue());
         for (ChannelConfig ch : channels) {
             int channelNumber = ch.getChannelNumber();
             if (channelNumber <= 0) continue; // Skip invalid channel numbers
             
-            double x = rawValues.getOrDefault(channelNumber, Double.NaN);
-            vars.put("x", x);
-            String expr = ch.getChannelMaths();
-            double out = evaluator.evaluate(expr, vars);
+            double x = rawValues.get(channelNumber);
+            ExpressionEvaluator.CompiledExpression expr = evaluator.compile(ch.getChannelMaths());
+            Binding binding = channelMathsBindings.computeIfAbsent(expr, Binding::new);
+            double out = expr.evaluate(bindVariables(binding, x));
             if (!Double.isNaN(out)) {
                 out = Math.max(ch.getLow(), Math.min(ch.getHigh(), out));
                 out = round(out, ch.getMaxDecimalDigits());
@@ -217,14 +177,88 @@ public class ChannelRuntimeService {
         }
     }
 
+    /**
+     * The channels an expression's variables read, and the argument array it is evaluated
+     * with, reused every cycle.
+     */
+    private static final class Binding {
+        final int[] refs;
+        final double[] defaults;
+        final double[] args;
+
+        Binding(ExpressionEvaluator.CompiledExpression expr) {
+            this.refs = resolveVariableChannels(expr);
+            this.defaults = expr.newArguments();
+            this.args = expr.newArguments();
+        }
+    }
+
+    /**
+     * Fill the argument slots of a compiled expression from the latest raw values.
+     * Variables without a value get their default back.
+     */
+    private double[] bindVariables(Binding binding, double x) {
+        int[] refs = binding.refs;
+        double[] args = binding.args;
+        for (int i = 0; i < refs.length; i++) {
+            if (refs[i] == X_VARIABLE) {
+                args[i] = x;
+            } else if (refs[i] > 0 && rawValues.contains(refs[i])) {
+                args[i] = rawValues.get(refs[i]);
+            } else {
+                args[i] = binding.defaults[i];
+            }
+        }
+        return args;
+    }
+
+    /**
+     * Map each variable of an expression to the channel it reads: "x" is the channel's own
+     * value and "CHn" is channel n.
+     */
+    private static int[] resolveVariableChannels(ExpressionEvaluator.CompiledExpression expr) {
+        int[] refs = new int[expr.getVariableCount()];
+        for (int i = 0; i < refs.length; i++) {
+            String name = expr.getVariableName(i);
+            if ("x".equals(name)) {
+                refs[i] = X_VARIABLE;
+            } else {
+                refs[i] = channelReference(name);
+            }
+        }
+        return refs;
+    }
+
+    /**
+     * Channel number named by a "CHn" variable, or 0 for any other name.
+     */
+    private static int channelReference(String name) {
+        if (name.length() < 3 || !name.regionMatches(true, 0, "CH", 0, 2)) return 0;
+        try {
+            return Integer.parseInt(name.substring(2));
+        } catch (NumberFormatException e) {
+            return 0; // unknown name, stays NaN
+        }
+    }
+
     private double round(double v, int digits) { double m = Math.pow(10, digits); return Math.round(v * m) / m; }
 
-    public Map<Integer, Double> getRawValues() { return new HashMap<>(rawValues); }
-    public Map<Integer, Double> getComputedValues() { return new HashMap<>(computedValues); }
+    public Map<Integer, Double> getRawValues() { return rawValues.toMap(); }
+    public Map<Integer, Double> getComputedValues() { return computedValues.toMap(); }
+
+    /**
+     * Live raw values, read without copying; see {@link LiveValueTable#snapshot}.
+     */
+    public LiveValueTable getRawValueTable() { return rawValues; }
+    public LiveValueTable getComputedValueTable() { return computedValues; }
     
     public String getChannelName(int channelNumber) {
-        List<ChannelConfig> channels = ChannelRepository.load();
-        if (channels.isEmpty()) channels = ChannelConfigPage.getChannelConfigs();
+        ConfigRegistry.Snapshot config = ConfigRegistry.getInstance().current();
+        if (!config.getChannels().isEmpty()) {
+            ChannelConfig ch = config.findChannel(channelNumber);
+            return ch != null ? ch.getChannelName() : null;
+        }
+        List<ChannelConfig> channels = ChannelConfigPage.getChannelConfigs();
         if (channels == null || channels.isEmpty()) return null;
         
         for (ChannelConfig ch : channels) {
@@ -258,8 +292,8 @@ public class ChannelRuntimeService {
 
             String channelName = ch.getChannelName();
             if (channelName != null && !channelName.trim().isEmpty()) {
-                Double computedValue = computedValues.get(channelNumber);
-                if (computedValue != null && !Double.isNaN(computedValue)) {
+                double computedValue = computedValues.get(channelNumber);
+                if (!Double.isNaN(computedValue)) {
                     // Add computed value with a suffix to distinguish from raw
                     energyData.put(channelName + "_Computed", computedValue);
                 }
@@ -272,60 +306,91 @@ public class ChannelRuntimeService {
     }
     
     /**
-     * Get a DataLogger instance for CSV logging
+     * Compute math channels from math_channels.json through their dependency graph, so a
+     * math channel reads other math channels' results from the same cycle and only channels
+     * whose inputs changed are evaluated again. Inputs are channel names or "CHn", read from
+     * the raw values, and math channel names, read from their computed slots.
      */
-    private com.example.production.DataLogger getDataLogger() {
-        return new com.example.production.DataLogger("production_data.csv");
-    }
-    
-    /**
-     * Compute math channels from math_channels.json
-     */
-    private void computeMathChannels() {
+    private void computeMathChannels(List<ChannelConfig> channels) {
         try {
-            List<MathChannelConfig> mathChannels = MathChannelManager.getConfigs();
-            if (mathChannels == null || mathChannels.isEmpty()) {
-                System.out.println("No math channels found");
+            if (mathGraph == null || channels != mathGraphChannels || MathChannelManager.getGeneration() != mathGraphGeneration) {
+                buildMathGraph(channels);
+            }
+            if (mathGraphConfigs.isEmpty()) {
+                log.debug("No math channels configured");
                 return;
             }
-            
-            System.out.println("Computing " + mathChannels.size() + " math channels");
-            
-            for (MathChannelConfig mathChannel : mathChannels) {
+            for (int i = 0; i < mathInputs.length; i++) {
+                LiveValueTable table = mathInputTables[i];
+                mathInputs[i] = table != null && table.contains(mathInputKeys[i]) ? table.get(mathInputKeys[i]) : Double.NaN;
+            }
+            mathGraph.evaluate(mathInputs, mathResults);
+            boolean trace = log.isTraceEnabled();
+            for (int i = 0; i < mathResults.length; i++) {
+                MathChannelConfig mathChannel = mathGraphConfigs.get(i);
                 if (!mathChannel.isEnabled()) continue;
-                
-                try {
-                    // Create a context with raw values for the expression evaluator
-                    Map<String, Double> context = new HashMap<>();
-                    for (Map.Entry<Integer, Double> entry : rawValues.entrySet()) {
-                        context.put(String.valueOf(entry.getKey()), entry.getValue());
-                    }
-                    
-                    // Evaluate the math expression
-                    double result = evaluator.evaluate(mathChannel.getExpression(), context);
-                    
-                    // Store the computed value with a unique channel number
-                    int mathChannelNumber = 1000 + mathChannels.indexOf(mathChannel);
-                    computedValues.put(mathChannelNumber, result);
-                    
-                    System.out.println("Math channel " + mathChannel.getChannelName() + " = " + result);
-                    
-                } catch (Exception e) {
-                    System.err.println("Error computing math channel " + mathChannel.getChannelName() + ": " + e.getMessage());
-                }
+                // Stored under a unique channel number
+                computedValues.put(1000 + i, mathResults[i]);
+                if (trace) log.trace("Computed channel={} value={}", mathChannel.getChannelName(), mathResults[i]);
             }
         } catch (Exception e) {
-            System.err.println("Error loading math channels: " + e.getMessage());
+            failures.warn("load", "Computing math channels failed: {}", e.getMessage());
+        }
+    }
+
+    private void buildMathGraph(List<ChannelConfig> channels) {
+        long generation = MathChannelManager.getGeneration();
+        List<MathChannelConfig> mathChannels = MathChannelManager.getConfigs();
+        Map<String, Integer> channelNumbers = new HashMap<>();
+        for (ChannelConfig ch : channels) {
+            String name = ch.getChannelName();
+            if (ch.getChannelNumber() > 0 && name != null && !name.trim().isEmpty()) channelNumbers.putIfAbsent(name, ch.getChannelNumber());
+        }
+        List<String> inputNames = new ArrayList<>(channelNumbers.keySet());
+        for (ChannelConfig ch : channels) {
+            if (ch.getChannelNumber() > 0) inputNames.add("CH" + ch.getChannelNumber());
+        }
+        MathChannelGraph graph = new MathChannelGraph(mathChannels, inputNames);
+        for (Map.Entry<String, String> error : graph.getErrors().entrySet()) {
+            failures.warn(error.getKey(), "Math channel failed channel={} error={}", error.getKey(), error.getValue());
+        }
+
+        String[] names = graph.getInputNames();
+        mathInputTables = new LiveValueTable[names.length];
+        mathInputKeys = new int[names.length];
+        for (int i = 0; i < names.length; i++) {
+            int mathIndex = indexOfMathChannel(mathChannels, names[i]);
+            Integer channelNumber = channelNumbers.get(names[i]);
+            if (mathIndex >= 0) {
+                // A math channel reading itself, or a disabled math channel: its published value
+                mathInputTables[i] = computedValues;
+                mathInputKeys[i] = 1000 + mathIndex;
+            } else if (channelNumber != null || channelReference(names[i]) > 0) {
+                mathInputTables[i] = rawValues;
+                mathInputKeys[i] = channelNumber != null ? channelNumber : channelReference(names[i]);
+            }
+        }
+        mathInputs = new double[names.length];
+        mathResults = new double[mathChannels.size()];
+        mathGraph = graph;
+        mathGraphConfigs = mathChannels;
+        mathGraphChannels = channels;
+        mathGraphGeneration = generation;
+    }
+
+    private static int indexOfMathChannel(List<MathChannelConfig> mathChannels, String name) {
+        for (int i = 0; i < mathChannels.size(); i++) {
+            if (name.equals(mathChannels.get(i).getChannelName())) return i;
         }
+        return -1;
     }
     
     /**
-     * Log data to CSV file
+     * Log data to CSV file. Only samples that moved past their channel's deadband, or whose
+     * heartbeat is due, are written.
      */
     private void logToCSV(List<ChannelConfig> channels) {
         try {
-            com.example.production.DataLogger csvLogger = getDataLogger();
-            
             // Log raw channel values
             for (ChannelConfig ch : channels) {
                 int channelNumber = ch.getChannelNumber();
@@ -333,8 +398,8 @@ public class ChannelRuntimeService {
 
                 String channelName = ch.getChannelName();
                 if (channelName != null && !channelName.trim().isEmpty()) {
-                    Double rawValue = rawValues.get(channelNumber);
-                    if (rawValue != null && !Double.isNaN(rawValue)) {
+                    double rawValue = rawValues.get(channelNumber);
+                    if (!Double.isNaN(rawValue) && csvFilter.accept(channelName, rawValue)) {
                         csvLogger.appendSample(channelName, channelNumber, rawValue);
                     }
                 }
@@ -349,124 +414,30 @@ public class ChannelRuntimeService {
                         if (!mathChannel.isEnabled()) continue;
                         
                         int mathChannelNumber = 1000 + i;
-                        Double computedValue = computedValues.get(mathChannelNumber);
-                        if (computedValue != null && !Double.isNaN(computedValue)) {
-                            csvLogger.appendSample(mathChannel.getChannelName() + " (Math)", mathChannelNumber, computedValue);
+                        double computedValue = computedValues.get(mathChannelNumber);
+                        String logName = mathChannel.getChannelName() + " (Math)";
+                        if (!Double.isNaN(computedValue)
+                                && csvFilter.accept(logName, DeadbandManager.getDeadband(mathChannel.getChannelName()), computedValue)) {
+                            csvLogger.appendSample(logName, mathChannelNumber, computedValue);
                         }
                     }
                 }
             } catch (Exception e) {
-                System.err.println("Error logging math channels to CSV: " + e.getMessage());
+                failures.warn("csvMath", "Logging math channels to CSV failed: {}", e.getMessage());
             }
+            // One write for the whole scan
+            csvLogger.commit();
         } catch (Exception e) {
-            System.err.println("Error logging to CSV: " + e.getMessage());
+            failures.warn("csv", "Logging to CSV failed: {}", e.getMessage());
         }
     }
 
     /**
-     * Write a value to a Modbus register
+     * Write a value to a Modbus register; see {@link ModbusRegisterWriter}
      */
     public boolean writeValue(int deviceId, int address, Object value, String dataType) {
-        if (master == null) {
-            System.err.println("Modbus master is not available for writing");
-            return false;
-        }
-        
-        try {
-            if (address >= 40001 && address < 50000) {
-                // Holding Registers (4xxxx) - FC06/FC16
-                return writeHoldingRegister(deviceId, address, value, dataType);
-            } else if (address >= 1 && address < 10000) {
-                // Coils (0xxxx) - FC05/FC15
-                return writeCoil(deviceId, address, value);
-            } else {
-                System.err.println("Cannot write to read-only register address: " + address);
-                return false;
-            }
-        } catch (Exception e) {
-            System.err.println("Error writing to register " + address + ": " + e.getMessage());
-            return false;
-        }
-    }
-    
-    /**
-     * Write to Holding Register (4xxxx)
-     */
-    private boolean writeHoldingRegister(int deviceId, int address, Object value, String dataType) throws ModbusTransportException {
-        int zeroBasedAddress = address - 40001;
-        
-        System.out.println("DEBUG: Attempting to write to register " + address + " (zero-based: " + zeroBasedAddress + ")");
-        System.out.println("DEBUG: Device ID: " + deviceId + ", Data Type: " + dataType + ", Value: " + value + " (" + value.getClass().getSimpleName() + ")");
-        
-        if ("Float32".equalsIgnoreCase(dataType)) {
-            // Write Float32 (2 registers)
-            if (value instanceof Number) {
-                float floatValue = ((Number) value).floatValue();
-                int intBits = Float.floatToIntBits(floatValue);
-                short high = (short) (intBits >> 16);
-                short low = (short) (intBits & 0xFFFF);
-                
-                System.out.println("DEBUG: Float32 conversion - Value: " + floatValue + ", High: " + high + ", Low: " + low);
-                
-                WriteRegistersRequest req = new WriteRegistersRequest(deviceId, zeroBasedAddress, new short[]{high, low});
-                WriteRegistersResponse resp = (WriteRegistersResponse) master.send(req);
-                if (resp.isException()) {
-                    System.err.println("Exception writing Float32 to register " + address + ": " + resp.getExceptionMessage());
-                    return false;
-                }
-                System.out.println("Successfully wrote Float32 value " + floatValue + " to register " + address);
-                return true;
-            }
-        } else {
-            // Write single register (Int16, UInt16)
-            if (value instanceof Number) {
-                short shortValue = ((Number) value).shortValue();
-                System.out.println("DEBUG: Int16 conversion - Original value: " + value + ", Short value: " + shortValue);
-                
-                WriteRegisterRequest req = new WriteRegisterRequest(deviceId, zeroBasedAddress, shortValue);
-                WriteRegisterResponse resp = (WriteRegisterResponse) master.send(req);
-                if (resp.isException()) {
-                    System.err.println("Exception writing to register " + address + ": " + resp.getExceptionMessage());
-                    System.err.println("DEBUG: Modbus exception details - Code: " + resp.getExceptionCode() + ", Message: " + resp.getExceptionMessage());
-                    return false;
-                }
-                System.out.println("Successfully wrote value " + shortValue + " to register " + address);
-                return true;
-            }
-        }
-        
-        System.err.println("Invalid value type for register write: " + value.getClass().getSimpleName());
-        return false;
-    }
-    
-    /**
-     * Write to Coil (0xxxx)
-     */
-    private boolean writeCoil(int deviceId, int address, Object value) throws ModbusTransportException {
-        int zeroBasedAddress = address - 1;
-        boolean coilValue;
-        
-        if (value instanceof Boolean) {
-            coilValue = (Boolean) value;
-        } else if (value instanceof Number) {
-            coilValue = ((Number) value).doubleValue() != 0.0;
-        } else if (value instanceof String) {
-            String strValue = ((String) value).toLowerCase();
-            coilValue = "true".equals(strValue) || "1".equals(strValue) || "on".equals(strValue);
-        } else {
-            System.err.println("Invalid value type for coil write: " + value.getClass().getSimpleName());
-            return false;
-        }
-        
-        WriteCoilRequest req = new WriteCoilRequest(deviceId, zeroBasedAddress, coilValue);
-        WriteCoilResponse resp = (WriteCoilResponse) master.send(req);
-        if (resp.isException()) {
-            System.err.println("Exception writing to coil " + address + ": " + resp.getExceptionMessage());
-            return false;
-        }
-        System.out.println("Successfully wrote coil value " + coilValue + " to coil " + address);
-        return true;
+        return new ModbusRegisterWriter(master).writeValue(deviceId, address, value, dataType);
     }
 
-    public void shutdown() { timer.cancel(); if (ownsMaster && master != null) { try { master.destroy(); } catch (Exception ignored) {} } }
+    public void shutdown() { cycle.stop(); pollingEngine.shutdown(); csvLogger.flush(); if (ownsMaster && master != null) { try { master.destroy(); } catch (Exception ignored) {} } }
 }
@@ -0,0 +1,205 @@
+package com.example.modbus;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * In-memory view of channels.csv and modbus_config.json shared by the polling code.
+ * Both files are parsed once into an immutable {@link Snapshot} with name and address
+ * indexes; the snapshot is only rebuilt when a file's modification time or size
+ * changes, and subscribers are told about every new snapshot.
+ */
+public class ConfigRegistry {
+    private static final Logger log = LoggerFactory.getLogger(ConfigRegistry.class);
+    private static final RateLimitedLog failures = new RateLimitedLog(log, 3, 60_000);
+    private static final long CHECK_INTERVAL_MS = 250;
+
+    private static ConfigRegistry instance;
+
+    private final File channelsFile;
+    private final File modbusConfigFile;
+    private final List<Consumer<Snapshot>> listeners = new CopyOnWriteArrayList<>();
+    private volatile Snapshot snapshot;
+    private volatile long nextCheckNanos;
+    private long channelsStamp = Long.MIN_VALUE;
+    private long modbusConfigStamp = Long.MIN_VALUE;
+
+    private ConfigRegistry() {
+        this.channelsFile = ChannelRepository.getFile();
+        this.modbusConfigFile = ModbusConfigManager.getConfigFile();
+    }
+
+    public static synchronized ConfigRegistry getInstance() {
+        if (instance == null) {
+            instance = new ConfigRegistry();
+        }
+        return instance;
+    }
+
+    /**
+     * Current configuration. Checks the files at most every {@value #CHECK_INTERVAL_MS} ms
+     * and reloads whichever one changed.
+     */
+    public Snapshot current() {
+        Snapshot s = snapshot;
+        if (s == null || System.nanoTime() - nextCheckNanos >= 0) {
+            s = refresh(false);
+        }
+        return s;
+    }
+
+    /**
+     * Reload now. Called after this process writes one of the files, so the change is
+     * seen even when the file system's timestamp resolution hides it.
+     */
+    public void invalidate() {
+        refresh(true);
+    }
+
+    /**
+     * Subscribe to configuration changes. The listener runs on the thread that noticed
+     * the change.
+     */
+    public void addListener(Consumer<Snapshot> listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(Consumer<Snapshot> listener) {
+        listeners.remove(listener);
+    }
+
+    private Snapshot refresh(boolean force) {
+        Snapshot updated;
+        synchronized (this) {
+            nextCheckNanos = System.nanoTime() + CHECK_INTERVAL_MS * 1_000_000L;
+            Snapshot previous = snapshot;
+            long newChannelsStamp = stamp(channelsFile);
+            long newModbusConfigStamp = stamp(modbusConfigFile);
+            boolean channelsChanged = force || previous == null || newChannelsStamp != channelsStamp;
+            boolean modbusConfigChanged = force || previous == null || newModbusConfigStamp != modbusConfigStamp;
+            if (!channelsChanged && !modbusConfigChanged) {
+                return previous;
+            }
+
+            List<ChannelConfig> channels = previous != null ? previous.channels : Collections.emptyList();
+            if (channelsChanged) {
+                channels = ChannelRepository.load();
+                channelsStamp = newChannelsStamp;
+            }
+            List<ModbusConfigManager.ModbusConfig> modbusConfigs = previous != null ? previous.modbusConfigs : Collections.emptyList();
+            boolean modbusConfigLoaded = false;
+            if (modbusConfigChanged) {
+                try {
+                    modbusConfigs = ModbusConfigManager.loadConfig();
+                    modbusConfigStamp = newModbusConfigStamp;
+                    modbusConfigLoaded = true;
+                } catch (RuntimeException e) {
+                    // Most likely caught half-written; keep the previous configuration and retry next check
+                    failures.warn("modbusConfig", "Loading modbus configuration failed file={} error={}", modbusConfigFile.getName(), e.getMessage());
+                }
+            }
+            // Nothing new was loaded: keep the snapshot, so readers keyed on it stay valid
+            if (previous != null && !channelsChanged && !modbusConfigLoaded) return previous;
+            updated = new Snapshot(previous == null ? 1 : previous.version + 1, channels, modbusConfigs);
+            snapshot = updated;
+        }
+        for (Consumer<Snapshot> listener : listeners) {
+            try {
+                listener.accept(updated);
+            } catch (Exception e) {
+                log.warn("Config listener failed", e);
+            }
+        }
+        return updated;
+    }
+
+    private static long stamp(File file) {
+        if (!file.exists()) return -1;
+        return file.lastModified() * 31 + file.length();
+    }
+
+    /**
+     * One consistent, read-only copy of the channel and Modbus configuration.
+     * The Modbus config entries are shared with every reader and must not be modified.
+     */
+    public static final class Snapshot {
+        private final long version;
+        private final List<ChannelConfig> channels;
+        private final List<ModbusConfigManager.ModbusConfig> modbusConfigs;
+        private final List<ChannelConfig> modbusChannels;
+        private final List<String> modbusChannelNames;
+        private final Map<Integer, ChannelConfig> channelsByNumber = new HashMap<>();
+        private final Map<String, ModbusConfigManager.ModbusConfig> modbusByName = new HashMap<>();
+        private final Map<Integer, ModbusConfigManager.ModbusConfig> modbusByAddress = new HashMap<>();
+
+        private Snapshot(long version, List<ChannelConfig> channels, List<ModbusConfigManager.ModbusConfig> modbusConfigs) {
+            this.version = version;
+            this.channels = Collections.unmodifiableList(new ArrayList<>(channels));
+            this.modbusConfigs = Collections.unmodifiableList(new ArrayList<>(modbusConfigs));
+
+            for (ChannelConfig ch : this.channels) {
+                channelsByNumber.putIfAbsent(ch.getChannelNumber(), ch);
+            }
+            List<ChannelConfig> converted = new ArrayList<>();
+            List<String> names = new ArrayList<>();
+            for (int i = 0; i < this.modbusConfigs.size(); i++) {
+                ModbusConfigManager.ModbusConfig config = this.modbusConfigs.get(i);
+                modbusByName.putIfAbsent(config.getChannelName(), config);
+                modbusByAddress.putIfAbsent(config.getAddress(), config);
+                names.add(config.getChannelName());
+                converted.add(new ChannelConfig(
+                    i + 1, // channel number
+                    config.getAddress(),
+                    config.getDataType(),
+                    config.getSlaveId(),
+                    0.0, 0.0, 1000.0, 0.0, 2,
+                    new java.awt.Color(0, 0, 255),
+                    "", "",
+                    config.getChannelName(),
+                    config.getLine(),
+                    config.getScanRate()
+                ));
+            }
+            this.modbusChannels = Collections.unmodifiableList(converted);
+            this.modbusChannelNames = Collections.unmodifiableList(names);
+        }
+
+        /**
+         * Increases by one every time the configuration is reloaded.
+         */
+        public long getVersion() { return version; }
+
+        /** Channels from channels.csv. */
+        public List<ChannelConfig> getChannels() { return channels; }
+
+        /** Entries from modbus_config.json. */
+        public List<ModbusConfigManager.ModbusConfig> getModbusConfigs() { return modbusConfigs; }
+
+        /**
+         * The modbus_config.json entries as pollable channels, numbered from 1 in file order.
+         */
+        public List<ChannelConfig> getModbusChannels() { return modbusChannels; }
+
+        public List<String> getModbusChannelNames() { return modbusChannelNames; }
+
+        public ChannelConfig findChannel(int channelNumber) { return channelsByNumber.get(channelNumber); }
+
+        public ModbusConfigManager.ModbusConfig findByName(String channelName) { return modbusByName.get(channelName); }
+
+        public ModbusConfigManager.ModbusConfig findByAddress(int address) { return modbusByAddress.get(address); }
+
+        /**
+         * Whether the name belongs to a channel configured in modbus_config.json.
+         */
+        public boolean isConfiguredChannel(String channelName) { return modbusByName.containsKey(channelName); }
+    }
+}
@@ -0,0 +1,48 @@
+package com.example.modbus;
+
+import java.util.Timer;
+import java.util.TimerTask;
+
+/**
+ * Runs one task periodically on a daemon timer thread, for the pollers' read and publish
+ * cycles. Scheduling is fixed delay: a cycle that overruns is not followed by catch-up
+ * runs back to back. The thread only exists while a schedule is active.
+ */
+public final class CycleTimer {
+    private final String name;
+    private final Runnable task;
+    private Timer timer;
+    private TimerTask current;
+    private int periodMs;
+
+    public CycleTimer(String name, Runnable task) {
+        this.name = name;
+        this.task = task;
+    }
+
+    /**
+     * Run the task every {@code periodMs}, first after {@code delayMs}, replacing the current schedule.
+     */
+    public synchronized void schedule(long delayMs, int periodMs) {
+        if (current != null) current.cancel();
+        if (timer == null) timer = new Timer(name, true);
+        current = new TimerTask() { @Override public void run() { task.run(); } };
+        this.periodMs = periodMs;
+        timer.schedule(current, delayMs, periodMs);
+    }
+
+    /**
+     * Period of the current schedule; 0 when stopped.
+     */
+    public synchronized int getPeriodMs() { return periodMs; }
+
+    /**
+     * Cancel the schedule and end the timer thread. A cycle already running finishes.
+     */
+    public synchronized void stop() {
+        if (timer != null) timer.cancel();
+        timer = null;
+        current = null;
+        periodMs = 0;
+    }
+}
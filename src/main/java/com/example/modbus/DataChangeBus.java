@@ -0,0 +1,129 @@
+package com.example.modbus;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Delivers value updates to subscribers as change sets instead of one call per value.
+ * Each subscriber has its own executor and its own pending map holding the latest value
+ * per channel. While a delivery is queued or running, further updates are merged into
+ * the pending map, so a slow subscriber skips intermediate values but always ends up
+ * with the latest ones. Updates published between {@link #beginCycle()} and
+ * {@link #endCycle()} are held back and delivered as one change set.
+ */
+public class DataChangeBus {
+    private static final Logger log = LoggerFactory.getLogger(DataChangeBus.class);
+    private static final RateLimitedLog failures = new RateLimitedLog(log, 3, 60_000);
+    private final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+    private final AtomicInteger cycleDepth = new AtomicInteger();
+
+    /**
+     * Cancels a subscription. Deliveries already running are not interrupted.
+     */
+    public interface Subscription {
+        void cancel();
+    }
+
+    /**
+     * Subscribe to change sets.
+     *
+     * @param listener receives channel name to latest value, in first-update order
+     * @param executor runs the listener, e.g. {@code SwingUtilities::invokeLater};
+     *                 {@code Runnable::run} delivers on the publishing thread
+     */
+    public Subscription subscribe(Consumer<Map<String, Object>> listener, Executor executor) {
+        Subscriber subscriber = new Subscriber(listener, executor);
+        subscribers.add(subscriber);
+        return subscriber;
+    }
+
+    public void publish(String channelName, Object value) {
+        boolean inCycle = cycleDepth.get() > 0;
+        for (Subscriber subscriber : subscribers) {
+            subscriber.offer(channelName, value);
+            if (!inCycle) subscriber.schedule();
+        }
+    }
+
+    /**
+     * Hold back deliveries until the matching {@link #endCycle()}. Cycles may nest.
+     */
+    public void beginCycle() {
+        cycleDepth.incrementAndGet();
+    }
+
+    public void endCycle() {
+        if (cycleDepth.decrementAndGet() > 0) return;
+        for (Subscriber subscriber : subscribers) subscriber.schedule();
+    }
+
+    private final class Subscriber implements Subscription {
+        private final Consumer<Map<String, Object>> listener;
+        private final Executor executor;
+        private Map<String, Object> pending = new LinkedHashMap<>();
+        private boolean scheduled; // a delivery is queued or running
+        private volatile boolean active = true;
+
+        Subscriber(Consumer<Map<String, Object>> listener, Executor executor) {
+            this.listener = listener;
+            this.executor = executor;
+        }
+
+        synchronized void offer(String channelName, Object value) {
+            if (active) pending.put(channelName, value);
+        }
+
+        void schedule() {
+            synchronized (this) {
+                if (scheduled || pending.isEmpty() || !active) return;
+                scheduled = true;
+            }
+            try {
+                executor.execute(this::deliver);
+            } catch (RejectedExecutionException e) {
+                synchronized (this) {
+                    scheduled = false;
+                }
+                failures.warn("schedule", "Scheduling data change delivery failed: {}", e.getMessage());
+            }
+        }
+
+        private void deliver() {
+            Map<String, Object> changes;
+            synchronized (this) {
+                changes = pending;
+                pending = new LinkedHashMap<>();
+            }
+            try {
+                if (active && !changes.isEmpty()) listener.accept(Collections.unmodifiableMap(changes));
+            } catch (Exception e) {
+                failures.warn(listener, "Data change listener failed: {}", e.getMessage());
+            } finally {
+                synchronized (this) {
+                    scheduled = false;
+                }
+            }
+            // Updates that arrived during delivery were not scheduled
+            if (cycleDepth.get() == 0) schedule();
+        }
+
+        @Override
+        public void cancel() {
+            active = false;
+            subscribers.remove(this);
+            synchronized (this) {
+                pending.clear();
+            }
+        }
+    }
+}
@@ -19,6 +19,7 @@ public class DataLoggerConfigDialog extends JDialog {
     private JCheckBox logToFileCheckBox;
     private JCheckBox logToDatabaseCheckBox;
     private JComboBox<String> formatComboBox;
+    private JComboBox<String> overflowComboBox;
     private JCheckBox includeCalculatedCheckBox;
     private JList<String> channelsList;
     private DefaultListModel<String> channelsListModel;
@@ -139,16 +140,23 @@ public class DataLoggerConfigDialog extends JDialog {
         gbc.gridx = 0; gbc.gridy = 6;
         panel.add(new JLabel("Log Format:"), gbc);
         gbc.gridx = 1;
-        formatComboBox = new JComboBox<>(new String[]{"JSON", "CSV", "BOTH"});
+        formatComboBox = new JComboBox<>(new String[]{"JSON", "CSV", "BOTH", "BINARY"});
         panel.add(formatComboBox, gbc);
         
-        // Include calculated values
+        // What to do when the writer falls behind
         gbc.gridx = 0; gbc.gridy = 7;
+        panel.add(new JLabel("When Writer Falls Behind:"), gbc);
+        gbc.gridx = 1;
+        overflowComboBox = new JComboBox<>(new String[]{"DROP_OLDEST", "BLOCK", "SPILL"});
+        panel.add(overflowComboBox, gbc);
+        
+        // Include calculated values
+        gbc.gridx = 0; gbc.gridy = 8;
         includeCalculatedCheckBox = new JCheckBox("Include Calculated Values (Power, Power Factor, etc.)");
         panel.add(includeCalculatedCheckBox, gbc);
         
         // Status panel
-        gbc.gridx = 0; gbc.gridy = 8; gbc.gridwidth = 2;
+        gbc.gridx = 0; gbc.gridy = 9; gbc.gridwidth = 2;
         JPanel statusPanel = new JPanel(new BorderLayout());
         statusPanel.setBorder(new TitledBorder("Status"));
         
@@ -471,6 +479,7 @@ public class DataLoggerConfigDialog extends JDialog {
         logToFileCheckBox.setSelected(config.isLogToFile());
         logToDatabaseCheckBox.setSelected(config.isLogToDatabase());
         formatComboBox.setSelectedItem(config.getLogFormat());
+        overflowComboBox.setSelectedItem(config.getOverflowPolicy());
         includeCalculatedCheckBox.setSelected(config.isIncludeCalculatedValues());
         databaseUrlField.setText(config.getDatabaseUrl());
         databaseUsernameField.setText(config.getDatabaseUsername());
@@ -487,6 +496,7 @@ public class DataLoggerConfigDialog extends JDialog {
         config.setLogToFile(logToFileCheckBox.isSelected());
         config.setLogToDatabase(logToDatabaseCheckBox.isSelected());
         config.setLogFormat((String) formatComboBox.getSelectedItem());
+        config.setOverflowPolicy((String) overflowComboBox.getSelectedItem());
         config.setIncludeCalculatedValues(includeCalculatedCheckBox.isSelected());
         config.setDatabaseUrl(databaseUrlField.getText());
         config.setDatabaseUsername(databaseUsernameField.getText());
@@ -666,12 +676,11 @@ public class DataLoggerConfigDialog extends JDialog {
                 
                 final JLabel statusLabel = new JLabel("Exporting " + logFiles.size() + " log files to CSV...");
                 statusLabel.setHorizontalAlignment(SwingConstants.CENTER);
-                progressPanel.add(statusLabel, BorderLayout.CENTER);
+                progressPanel.add(statusLabel, BorderLayout.NORTH);
                 
-                JLabel waitLabel = new JLabel("This may take a moment for large files...");
-                waitLabel.setHorizontalAlignment(SwingConstants.CENTER);
-                waitLabel.setForeground(Color.GRAY);
-                progressPanel.add(waitLabel, BorderLayout.SOUTH);
+                final JProgressBar progressBar = new JProgressBar(0, 100);
+                progressBar.setStringPainted(true);
+                progressPanel.add(progressBar, BorderLayout.CENTER);
                 
                 // Add cancel button
                 JButton cancelButton = new JButton("Cancel");
@@ -691,17 +700,12 @@ public class DataLoggerConfigDialog extends JDialog {
                             publish("Starting export of " + fileCount + " files...");
                             System.out.println("DEBUG: Starting export of " + fileCount + " files to " + finalOutputPath);
                             
-                            // Add timeout mechanism
-                            long startTime = System.currentTimeMillis();
-                            long timeout = 60000; // 60 seconds timeout for all files
-                            
                             publish("Processing log files...");
-                            logger.exportToCSV(finalOutputPath, null, null);
-                            
-                            long endTime = System.currentTimeMillis();
-                            if (endTime - startTime > timeout) {
-                                throw new RuntimeException("Export timed out after " + timeout + "ms");
-                            }
+                            boolean completed = logger.exportToCSV(finalOutputPath, null, null, (done, total) -> {
+                                setProgress(total > 0 ? (int) (done * 100 / total) : 0);
+                                return !isCancelled();
+                            });
+                            if (!completed) return null;
                             
                             publish("All files exported successfully!");
                             System.out.println("DEBUG: All files export completed successfully");
@@ -727,6 +731,7 @@ public class DataLoggerConfigDialog extends JDialog {
                         System.out.println("DEBUG: All files export worker done() called");
                         SwingUtilities.invokeLater(() -> {
                             progressDialog.dispose();
+                            if (isCancelled()) return; // already reported by the cancel button
                             try {
                                 get(); // Check for exceptions
                                 JOptionPane.showMessageDialog(DataLoggerConfigDialog.this, 
@@ -752,7 +757,8 @@ public class DataLoggerConfigDialog extends JDialog {
                 // Cancel button action
                 cancelButton.addActionListener(e -> {
                     System.out.println("DEBUG: Cancel button clicked for all files export");
-                    exportWorker.cancel(true);
+                    // Not interrupted: the export checks for cancellation and deletes the partial file
+                    exportWorker.cancel(false);
                     progressDialog.dispose();
                     JOptionPane.showMessageDialog(DataLoggerConfigDialog.this, 
                         "Export cancelled by user.", 
@@ -760,6 +766,10 @@ public class DataLoggerConfigDialog extends JDialog {
                         JOptionPane.INFORMATION_MESSAGE);
                 });
                 
+                exportWorker.addPropertyChangeListener(event -> {
+                    if ("progress".equals(event.getPropertyName())) progressBar.setValue((Integer) event.getNewValue());
+                });
+                
                 progressDialog.setVisible(true);
                 exportWorker.execute();
                 
@@ -16,8 +16,6 @@ import javax.swing.table.DefaultTableModel;
 import java.awt.*;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
-import java.util.Timer;
-import java.util.TimerTask;
 
 public class DataPage {
     private JPanel panel;
@@ -39,7 +37,7 @@ public class DataPage {
     private JLabel validRespLabel;
     private JButton resetCountersButton;
 
-    private Timer timer;
+    private final CycleTimer cycle = new CycleTimer("data-page", this::readModbusData);
     private boolean polling;
     private long polls;
     private long validResponses;
@@ -57,7 +55,7 @@ public class DataPage {
 
     private void updateConnectionStatus() {
         if (connectionManager.isOpen()) {
-            statusLabel.setText("Status: Connected to " + settings.getPortName());
+            statusLabel.setText("Status: Connected to " + settings.getConnectionName());
         } else {
             statusLabel.setText("Status: Not connected. Use Settings -> Connect.");
         }
@@ -90,7 +88,7 @@ public class DataPage {
         gbc.gridx = 1; gbc.gridwidth = 2; top.add(pointTypeCombo, gbc);
 
         gbc.gridx = 3; gbc.gridwidth = 1; top.add(new JLabel("Data Type"), gbc);
-        dataTypeCombo = new JComboBox<>(new String[]{"Int16", "UInt16", "Float32 (ABCD)", "Float32 (BADC)"});
+        dataTypeCombo = new JComboBox<>(RegisterDecoder.dataTypes());
         dataTypeCombo.setSelectedItem("Float32 (ABCD)");
         gbc.gridx = 4; gbc.gridwidth = 2; top.add(dataTypeCombo, gbc);
         gbc.gridwidth = 1;
@@ -140,17 +138,13 @@ public class DataPage {
         }
         polling = true;
         startStopButton.setText("Stop");
-        timer = new Timer(true);
-        timer.scheduleAtFixedRate(new TimerTask() {
-            @Override
-            public void run() { readModbusData(); }
-        }, 0, 1000);
+        cycle.schedule(0, 1000);
     }
 
     private void stopPolling() {
         polling = false;
         startStopButton.setText("Start");
-        if (timer != null) { timer.cancel(); timer = null; }
+        cycle.stop();
     }
 
     private void readModbusData() {
@@ -181,16 +175,14 @@ public class DataPage {
                 ReadHoldingRegistersRequest req = new ReadHoldingRegistersRequest(slaveId, start, len);
                 ReadHoldingRegistersResponse resp = (ReadHoldingRegistersResponse) modbusMaster.send(req);
                 if (resp.isException()) return; else validResponses++;
-                short[] data = resp.getShortData();
-                updateTableRegisters(data, start);
+                updateTableRegisters(resp.getData(), start);
             } else {
                 ReadInputRegistersRequest req = new ReadInputRegistersRequest(slaveId, start, len);
                 ReadInputRegistersResponse resp = (ReadInputRegistersResponse) modbusMaster.send(req);
                 if (resp.isException()) return; else validResponses++;
-                short[] data = resp.getShortData();
-                updateTableRegisters(data, start);
+                updateTableRegisters(resp.getData(), start);
             }
-            SwingUtilities.invokeLater(() -> statusLabel.setText("Status: Reading from " + settings.getPortName()));
+            SwingUtilities.invokeLater(() -> statusLabel.setText("Status: Reading from " + settings.getConnectionName()));
         } catch (ModbusTransportException e) {
             SwingUtilities.invokeLater(() -> statusLabel.setText("Status: Transport error - " + e.getMessage()));
         } finally {
@@ -202,36 +194,14 @@ public class DataPage {
         try { return Integer.parseInt(s.trim()); } catch (Exception e) { return def; }
     }
 
-    private void updateTableRegisters(short[] data, int start) {
+    private void updateTableRegisters(byte[] data, int start) {
         SwingUtilities.invokeLater(() -> {
             tableModel.setRowCount(0);
             String ts = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss"));
-            String dtype = (String) dataTypeCombo.getSelectedItem();
-            if ("Int16".equals(dtype)) {
-                for (int i = 0; i < data.length; i++) {
-                    tableModel.addRow(new Object[]{ts, start + i, (int) data[i]});
-                }
-            } else if ("UInt16".equals(dtype)) {
-                for (int i = 0; i < data.length; i++) {
-                    int val = data[i] & 0xFFFF;
-                    tableModel.addRow(new Object[]{ts, start + i, val});
-                }
-            } else if ("Float32 (ABCD)".equals(dtype)) {
-                for (int i = 0; i + 1 < data.length; i += 2) {
-                    int hi = data[i] & 0xFFFF;
-                    int lo = data[i + 1] & 0xFFFF;
-                    int bits = (hi << 16) | lo;
-                    float f = Float.intBitsToFloat(bits);
-                    tableModel.addRow(new Object[]{ts, start + i, f});
-                }
-            } else { // Float32 (BADC) word-swapped
-                for (int i = 0; i + 1 < data.length; i += 2) {
-                    int hi = data[i + 1] & 0xFFFF;
-                    int lo = data[i] & 0xFFFF;
-                    int bits = (hi << 16) | lo;
-                    float f = Float.intBitsToFloat(bits);
-                    tableModel.addRow(new Object[]{ts, start + i, f});
-                }
+            RegisterDecoder decoder = RegisterDecoder.of((String) dataTypeCombo.getSelectedItem());
+            int step = decoder.getRegisterCount();
+            for (int i = 0; i + step <= data.length / 2; i += step) {
+                tableModel.addRow(new Object[]{ts, start + i, decoder.box(decoder.decode(data, i))});
             }
             notifyDataChange();
         });
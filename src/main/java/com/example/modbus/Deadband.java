@@ -0,0 +1,43 @@
+package com.example.modbus;
+
+/**
+ * How far a channel's value must move before it is published again.
+ * An absolute deadband is in the channel's engineering units; a percent deadband is
+ * relative to the last published value. A deadband of 0 publishes every change.
+ */
+public class Deadband {
+    private double value;
+    private boolean percent;
+
+    public Deadband() {
+    }
+
+    public Deadband(double value, boolean percent) {
+        this.value = value;
+        this.percent = percent;
+    }
+
+    public double getValue() { return value; }
+    public void setValue(double value) { this.value = value; }
+
+    public boolean isPercent() { return percent; }
+    public void setPercent(boolean percent) { this.percent = percent; }
+
+    /**
+     * Whether moving from the last published value to the new one crosses the deadband.
+     */
+    public boolean isExceeded(double published, double current) {
+        if (Double.isNaN(published) || Double.isNaN(current)) {
+            return Double.isNaN(published) != Double.isNaN(current);
+        }
+        double delta = Math.abs(current - published);
+        if (delta == 0) return false;
+        double limit = percent ? Math.abs(published) * value / 100.0 : value;
+        return delta > limit;
+    }
+
+    @Override
+    public String toString() {
+        return percent ? value + " %" : String.valueOf(value);
+    }
+}
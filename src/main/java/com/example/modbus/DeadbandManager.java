@@ -0,0 +1,92 @@
+package com.example.modbus;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Per-channel deadbands and the heartbeat interval, stored in deadbands.json.
+ * Channels without an entry use the default deadband, which publishes every change.
+ */
+public class DeadbandManager {
+    private static final String CONFIG_FILE = "deadbands.json";
+    public static final int DEFAULT_HEARTBEAT_SECONDS = 60;
+
+    private static final Gson gson = new GsonBuilder().setPrettyPrinting().create();
+    private static volatile Settings settings;
+
+    /**
+     * File layout: the heartbeat, the default deadband and one entry per channel name.
+     */
+    private static class Settings {
+        int heartbeatSeconds = DEFAULT_HEARTBEAT_SECONDS;
+        Deadband defaultDeadband = new Deadband();
+        Map<String, Deadband> channels = new HashMap<>();
+    }
+
+    private static Settings settings() {
+        Settings s = settings;
+        if (s == null) {
+            synchronized (DeadbandManager.class) {
+                if (settings == null) loadConfigs();
+                s = settings;
+            }
+        }
+        return s;
+    }
+
+    /**
+     * Deadband for a channel, or the default one if none is configured.
+     */
+    public static Deadband getDeadband(String channelName) {
+        Settings s = settings();
+        Deadband deadband = s.channels.get(channelName);
+        return deadband != null ? deadband : s.defaultDeadband;
+    }
+
+    public static synchronized void setDeadband(String channelName, Deadband deadband) {
+        settings().channels.put(channelName, deadband);
+    }
+
+    /**
+     * Longest time a channel may go unpublished, in ms, even if it never leaves its deadband.
+     */
+    public static long getHeartbeatMillis() {
+        return settings().heartbeatSeconds * 1000L;
+    }
+
+    public static synchronized void setHeartbeatSeconds(int seconds) {
+        settings().heartbeatSeconds = Math.max(1, seconds);
+    }
+
+    public static synchronized void saveConfigs() {
+        try (FileWriter writer = new FileWriter(CONFIG_FILE)) {
+            gson.toJson(settings(), writer);
+        } catch (IOException e) {
+            System.err.println("Error saving deadbands: " + e.getMessage());
+        }
+    }
+
+    public static synchronized void loadConfigs() {
+        Settings loaded = null;
+        File file = new File(CONFIG_FILE);
+        if (file.exists()) {
+            try (FileReader reader = new FileReader(file)) {
+                loaded = gson.fromJson(reader, Settings.class);
+            } catch (Exception e) {
+                System.err.println("Error loading deadbands: " + e.getMessage());
+            }
+        }
+        if (loaded == null) loaded = new Settings();
+        if (loaded.defaultDeadband == null) loaded.defaultDeadband = new Deadband();
+        if (loaded.channels == null) loaded.channels = new HashMap<>();
+        if (loaded.heartbeatSeconds <= 0) loaded.heartbeatSeconds = DEFAULT_HEARTBEAT_SECONDS;
+        settings = loaded;
+    }
+}
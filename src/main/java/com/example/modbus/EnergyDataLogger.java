@@ -3,36 +3,79 @@ package com.example.modbus;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 import com.google.gson.reflect.TypeToken;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.io.*;
 import java.lang.reflect.Type;
+import java.time.Instant;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.BiConsumer;
 
 /**
  * Energy Data Logger for monitoring and logging energy consumption data
  */
 public class EnergyDataLogger {
+    private static final Logger log = LoggerFactory.getLogger(EnergyDataLogger.class);
+    private static final RateLimitedLog failures = new RateLimitedLog(log, 3, 60_000);
     private static final String LOG_DIRECTORY = "energy_logs";
     private static final String CONFIG_FILE = "datalogger_config.json";
+    private static final String BINARY_PREFIX = "energy_data";
+    private static final String SPILL_FILE = LOG_DIRECTORY + "/pending.spill";
+    private static final long FLUSH_INTERVAL_SECONDS = 5;
+    private static final String[] CALCULATED = {"Total_Power", "Average_Voltage", "Average_Current", "Power_Factor"};
+    private static final int TOTAL_POWER = 0;
+    private static final int AVERAGE_VOLTAGE = 1;
+    private static final int AVERAGE_CURRENT = 2;
+    private static final int POWER_FACTOR = 3;
     private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd");
     private static final DateTimeFormatter TIME_FORMAT = DateTimeFormatter.ofPattern("HH:mm:ss.SSS");
+    private static final int READ_BUFFER_SIZE = 256 * 1024;
+    private static final int WRITE_BUFFER_SIZE = 1024 * 1024;
+    // Starts of the lines naming channels in text logs; see LogWriter.writeChannelRecord
+    private static final String CHANNEL_RECORD_JSON = "{\"channels\":";
+    private static final String CHANNEL_RECORD_CSV = "#channels";
     
     private static EnergyDataLogger instance;
-    private final ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(2);
+    // One thread, so two sampling tasks can never run at the same time
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+    private ScheduledFuture<?> samplingTask;
     private final Map<String, Object> currentData = new ConcurrentHashMap<>();
-    private final List<EnergyDataPoint> dataBuffer = new ArrayList<>();
-    private final Object bufferLock = new Object();
+    private final Object spillLock = new Object();
+    private final Object replayLock = new Object(); // one writer replays the spill file at a time
+    private volatile LogWriter writer; // of the current or most recent logging session
+    private volatile boolean spilling; // records go to the spill file until the writer catches up
+    private PrintWriter spillWriter;
+    private final ChangeFilter changeFilter = new ChangeFilter();
+    
+    // Channel names by id; ids are handed out as names first appear and are never reused
+    private final List<String> channelNames = new CopyOnWriteArrayList<>();
+    private final List<String> quotedNames = new CopyOnWriteArrayList<>(); // each name as a JSON string
+    private final Map<String, Integer> channelIds = new ConcurrentHashMap<>();
+    
+    // Reused by every sample, guarded by sampleLock
+    private final Object sampleLock = new Object();
+    private final EnergyDataPoint sample = new EnergyDataPoint();
+    private final double[] calculated = new double[CALCULATED.length];
+    private final Map<String, String[]> sourceNames = new HashMap<>();
+    private final BiConsumer<String, Object> addCurrentValue = this::addCurrentValue;
+    private final StringBuilder spillLine = new StringBuilder(); // guarded by spillLock
     
     private DataLoggerConfig config;
-    private boolean isLogging = false;
-    private String currentLogFile;
-    private PrintWriter currentWriter;
+    private volatile boolean isLogging = false;
+    private volatile String currentLogFile;
+    private static final Gson GSON = new Gson();
     
     private EnergyDataLogger() {
         loadConfig();
@@ -47,48 +90,78 @@ public class EnergyDataLogger {
     }
     
     /**
-     * Data point structure for energy monitoring
+     * One logged sample: a single clock reading in epoch microseconds and the value of
+     * each logged channel by channel id (see {@link #getChannelName}). Records are reused,
+     * so taking a sample allocates nothing once the arrays have grown to the channel count.
+     * Timestamps and numbers are only formatted when a record is written out.
      */
     public static class EnergyDataPoint {
-        private String timestamp;
-        private String date;
-        private String time;
-        private Map<String, Object> data;
+        private long timestampMicros;
+        private int size;
+        private int[] channels = new int[16];
+        private double[] values = new double[16];
         
-        public EnergyDataPoint() {
-            this.timestamp = LocalDateTime.now().toString();
-            this.date = LocalDateTime.now().format(DATE_FORMAT);
-            this.time = LocalDateTime.now().format(TIME_FORMAT);
-            this.data = new HashMap<>();
-        }
+        public long getTimestampMicros() { return timestampMicros; }
         
-        public EnergyDataPoint(Map<String, Object> data) {
-            this();
-            this.data = new HashMap<>(data);
-        }
+        public int size() { return size; }
         
-        // Getters and setters
-        public String getTimestamp() { return timestamp; }
-        public void setTimestamp(String timestamp) { this.timestamp = timestamp; }
+        public int getChannel(int index) { return channels[index]; }
         
-        public String getDate() { return date; }
-        public void setDate(String date) { this.date = date; }
+        public double getValue(int index) { return values[index]; }
         
-        public String getTime() { return time; }
-        public void setTime(String time) { this.time = time; }
+        /**
+         * Local date and time of the sample
+         */
+        public LocalDateTime getLocalDateTime() {
+            Instant instant = Instant.ofEpochSecond(Math.floorDiv(timestampMicros, 1_000_000L),
+                    Math.floorMod(timestampMicros, 1_000_000L) * 1000);
+            return LocalDateTime.ofInstant(instant, ZoneId.systemDefault());
+        }
         
-        public Map<String, Object> getData() { return data; }
-        public void setData(Map<String, Object> data) { this.data = data; }
+        void clear(long timestampMicros) {
+            this.timestampMicros = timestampMicros;
+            this.size = 0;
+        }
         
-        public void addData(String key, Object value) {
-            this.data.put(key, value);
+        void add(int channel, double value) {
+            if (size == channels.length) {
+                channels = Arrays.copyOf(channels, size * 2);
+                values = Arrays.copyOf(values, size * 2);
+            }
+            channels[size] = channel;
+            values[size] = value;
+            size++;
         }
         
-        public Object getDataValue(String key) {
-            return this.data.get(key);
+        void copyFrom(EnergyDataPoint other) {
+            if (channels.length < other.size) {
+                channels = new int[other.channels.length];
+                values = new double[other.values.length];
+            }
+            System.arraycopy(other.channels, 0, channels, 0, other.size);
+            System.arraycopy(other.values, 0, values, 0, other.size);
+            timestampMicros = other.timestampMicros;
+            size = other.size;
         }
     }
     
+    /**
+     * Layout of a line in a JSON log, for reading logs back
+     */
+    private static class JsonRecord {
+        String timestamp;
+        String date;
+        String time;
+        Map<String, Object> data;
+    }
+    
+    /**
+     * Layout of a channel record in a JSON log: the names first used by the records after it
+     */
+    private static class JsonChannelRecord {
+        List<String> channels;
+    }
+    
     /**
      * Configuration for data logger
      */
@@ -96,9 +169,11 @@ public class EnergyDataLogger {
         private boolean enabled = true;
         private int logIntervalSeconds = 1; // Log every 1 second
         private int bufferSize = 100; // Buffer size before writing to file
+        private int ringCapacity = 4096; // Records held while the writer is behind
+        private String overflowPolicy = "DROP_OLDEST"; // DROP_OLDEST, BLOCK or SPILL when the ring is full
         private boolean logToFile = true;
         private boolean logToDatabase = false;
-        private String logFormat = "JSON"; // JSON, CSV, or BOTH
+        private String logFormat = "JSON"; // JSON, CSV, BOTH or BINARY
         private boolean includeCalculatedValues = true;
         private List<String> channelsToLog = new ArrayList<>();
         private String databaseUrl = "";
@@ -115,6 +190,12 @@ public class EnergyDataLogger {
         public int getBufferSize() { return bufferSize; }
         public void setBufferSize(int bufferSize) { this.bufferSize = bufferSize; }
         
+        public int getRingCapacity() { return ringCapacity; }
+        public void setRingCapacity(int ringCapacity) { this.ringCapacity = ringCapacity; }
+        
+        public String getOverflowPolicy() { return overflowPolicy; }
+        public void setOverflowPolicy(String overflowPolicy) { this.overflowPolicy = overflowPolicy; }
+        
         public boolean isLogToFile() { return logToFile; }
         public void setLogToFile(boolean logToFile) { this.logToFile = logToFile; }
         
@@ -160,7 +241,7 @@ public class EnergyDataLogger {
                 }
             }
         } catch (Exception e) {
-            System.err.println("Error loading data logger config: " + e.getMessage());
+            log.warn("Loading data logger config failed: {}", e.getMessage());
             config = new DataLoggerConfig();
         }
     }
@@ -169,9 +250,9 @@ public class EnergyDataLogger {
      * Reload configuration from file (public method for external use)
      */
     public void reloadConfig() {
-        System.out.println("DEBUG: Reloading EnergyDataLogger configuration from file");
+        log.debug("Reloading data logger config");
         loadConfig();
-        System.out.println("DEBUG: Loaded " + config.getChannelsToLog().size() + " channels from configuration: " + config.getChannelsToLog());
+        log.debug("Loaded data logger config count={} channels={}", config.getChannelsToLog().size(), config.getChannelsToLog());
     }
     
     /**
@@ -182,7 +263,7 @@ public class EnergyDataLogger {
             Gson gson = new GsonBuilder().setPrettyPrinting().create();
             gson.toJson(config, writer);
         } catch (IOException e) {
-            System.err.println("Error saving data logger config: " + e.getMessage());
+            log.warn("Saving data logger config failed: {}", e.getMessage());
         }
     }
     
@@ -199,35 +280,58 @@ public class EnergyDataLogger {
     /**
      * Start data logging
      */
-    public void startLogging() {
+    public synchronized void startLogging() {
         if (isLogging || !config.isEnabled()) {
             return;
         }
         
         isLogging = true;
-        currentLogFile = LOG_DIRECTORY + "/energy_data_" + LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss")) + ".json";
+        changeFilter.reset(); // a new file starts with a full record
+        if (isBinaryFormat()) {
+            // Daily segments, appended to across restarts
+            currentLogFile = TimeSeriesWriter.segmentFile(new File(LOG_DIRECTORY), BINARY_PREFIX, LocalDate.now()).getPath();
+        } else {
+            currentLogFile = LOG_DIRECTORY + "/energy_data_" + LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss")) + ".json";
+        }
         
-        // Schedule periodic logging
-        scheduler.scheduleAtFixedRate(this::logCurrentData, 0, config.getLogIntervalSeconds(), TimeUnit.SECONDS);
+        // The writer thread drains the ring, so sampling never waits for the disk. A writer
+        // left finishing by an earlier stop keeps its own ring and files.
+        writer = new LogWriter(new SampleRing<>(Math.max(config.getBufferSize() * 2, config.getRingCapacity()), EnergyDataPoint::new),
+                currentLogFile, writer);
         
-        // Schedule buffer flush
-        scheduler.scheduleAtFixedRate(this::flushBuffer, 5, 5, TimeUnit.SECONDS);
+        // Schedule periodic logging; cancelled again by stopLogging
+        samplingTask = scheduler.scheduleAtFixedRate(this::logCurrentData, 0, config.getLogIntervalSeconds(), TimeUnit.SECONDS);
         
-        System.out.println("Energy data logging started. Log file: " + currentLogFile);
+        log.info("Energy data logging started file={}", currentLogFile);
     }
     
     /**
      * Stop data logging
      */
-    public void stopLogging() {
+    public synchronized void stopLogging() {
         if (!isLogging) {
             return;
         }
         
         isLogging = false;
-        flushBuffer();
-        closeCurrentWriter();
-        System.out.println("Energy data logging stopped.");
+        if (samplingTask != null) {
+            samplingTask.cancel(false);
+            samplingTask = null;
+        }
+        LogWriter stopping = writer;
+        stopping.running = false;
+        LockSupport.unpark(stopping.thread);
+        try {
+            stopping.thread.join(TimeUnit.SECONDS.toMillis(FLUSH_INTERVAL_SECONDS));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        // Otherwise the writer closes its files once it has caught up
+        if (!stopping.thread.isAlive()) {
+            stopping.drain(); // whatever was logged while the writer stopped
+            stopping.close();
+        }
+        log.info("Energy data logging stopped");
     }
     
     /**
@@ -247,211 +351,535 @@ public class EnergyDataLogger {
     /**
      * Log current data to buffer
      */
-    private void logCurrentData() {
+    void logCurrentData() {
         if (!isLogging || currentData.isEmpty()) {
             return;
         }
         
-        // Create a copy of current data
-        Map<String, Object> dataCopy = new HashMap<>(currentData);
+        synchronized (sampleLock) {
+            // One clock reading for the whole record
+            Instant now = Instant.now();
+            takeSample(now.getEpochSecond() * 1_000_000L + now.getNano() / 1000);
+            
+            // Report by exception: skip the record while every value stays inside its deadband
+            if (sample.size() == 0 || !hasChanges(sample)) {
+                return;
+            }
+            
+            enqueue(sample);
+        }
+    }
+    
+    /**
+     * Fill the reusable sample record from the current data, the calculated values and
+     * the channel selection.
+     */
+    private void takeSample(long timestampMicros) {
+        sample.clear(timestampMicros);
         
         // Add calculated values if enabled
-        if (config.isIncludeCalculatedValues()) {
-            addCalculatedValues(dataCopy);
-        }
+        calculateValues();
         
-        // Filter channels if specific channels are configured
-        if (!config.getChannelsToLog().isEmpty()) {
-            System.out.println("DEBUG: Filtering channels. Selected channels: " + config.getChannelsToLog());
-            System.out.println("DEBUG: Available data keys: " + dataCopy.keySet());
-            dataCopy = filterChannels(dataCopy);
-            System.out.println("DEBUG: Filtered data keys: " + dataCopy.keySet());
+        List<String> selected = config.getChannelsToLog();
+        if (selected.isEmpty()) {
+            // forEach walks the map without creating an entry per value
+            currentData.forEach(addCurrentValue);
+            for (int k = 0; k < CALCULATED.length; k++) {
+                if (!Double.isNaN(calculated[k])) sample.add(channelId(CALCULATED[k]), calculated[k]);
+            }
+            return;
         }
         
-        EnergyDataPoint dataPoint = new EnergyDataPoint(dataCopy);
+        // Filter channels: a selected math channel may be stored with or without its " (Math)" suffix
+        for (String selectedChannel : selected) {
+            String[] sources = sourceNames.computeIfAbsent(selectedChannel, name -> {
+                String baseChannelName = name.replace(" (Math)", "");
+                return new String[]{name, baseChannelName, baseChannelName + " (Math)"};
+            });
+            for (String source : sources) {
+                double value = valueOf(source);
+                if (!Double.isNaN(value)) {
+                    sample.add(channelId(selectedChannel), value);
+                    break;
+                }
+            }
+        }
+    }
+    
+    private void addCurrentValue(String name, Object current) {
+        int k = calculatedIndex(name);
+        if (k >= 0 && !Double.isNaN(calculated[k])) return; // the calculation replaces it
+        double value = toDouble(current);
+        if (!Double.isNaN(value)) sample.add(channelId(name), value);
+    }
+    
+    /**
+     * Hand a record to the writer thread. When the ring is full the overflow policy decides:
+     * DROP_OLDEST discards the oldest unwritten record, BLOCK waits for the writer and
+     * SPILL appends this and later records to a spill file until the writer catches up.
+     */
+    private void enqueue(EnergyDataPoint dataPoint) {
+        LogWriter writer = this.writer;
+        if (writer == null) return;
+        SampleRing<EnergyDataPoint> ring = writer.ring;
+        if (spilling) {
+            spill(dataPoint); // keep the records in order
+            return;
+        }
+        long seq;
+        switch (config.getOverflowPolicy()) {
+            case "BLOCK":
+                do {
+                    seq = ring.claim(1, TimeUnit.SECONDS);
+                } while (seq < 0 && isLogging && !Thread.currentThread().isInterrupted());
+                if (seq < 0) return;
+                break;
+            case "SPILL":
+                seq = ring.tryClaim();
+                if (seq < 0) {
+                    spill(dataPoint);
+                    LockSupport.unpark(writer.thread);
+                    return;
+                }
+                break;
+            default:
+                long dropped = ring.getDropped();
+                seq = ring.claimDroppingOldest();
+                if (ring.getDropped() != dropped && Long.bitCount(ring.getDropped()) == 1) {
+                    log.warn("Energy log writer is behind droppedSoFar={}", ring.getDropped());
+                }
+        }
+        ring.get(seq).copyFrom(dataPoint);
+        ring.publish(seq);
         
-        synchronized (bufferLock) {
-            dataBuffer.add(dataPoint);
-            
-            // Flush buffer if it reaches the configured size
-            if (dataBuffer.size() >= config.getBufferSize()) {
-                flushBuffer();
+        // Wake the writer once a buffer's worth is waiting
+        if (ring.size() >= config.getBufferSize()) {
+            LockSupport.unpark(writer.thread);
+        }
+    }
+    
+    private void spill(EnergyDataPoint dataPoint) {
+        synchronized (spillLock) {
+            try {
+                if (spillWriter == null) spillWriter = new PrintWriter(new FileWriter(SPILL_FILE, true));
+                spilling = true;
+                spillWriter.println(formatJson(dataPoint, dataPoint.getLocalDateTime(), spillLine));
+                spillWriter.flush();
+            } catch (IOException e) {
+                failures.warn("spill", "Writing spill file failed: {}", e.getMessage());
             }
         }
     }
     
     /**
-     * Add calculated energy values
+     * Whether any value moved past its deadband or is due for its heartbeat. Records keep
+     * every channel so exported files stay rectangular.
      */
-    private void addCalculatedValues(Map<String, Object> data) {
+    private boolean hasChanges(EnergyDataPoint dataPoint) {
+        boolean changed = false;
+        for (int i = 0; i < dataPoint.size(); i++) {
+            changed |= changeFilter.accept(channelNames.get(dataPoint.getChannel(i)), dataPoint.getValue(i));
+        }
+        return changed;
+    }
+    
+    /**
+     * Calculate energy values; a value stays NaN unless all of its inputs are present
+     */
+    private void calculateValues() {
+        Arrays.fill(calculated, Double.NaN);
+        if (!config.isIncludeCalculatedValues()) {
+            return;
+        }
         try {
-            // Calculate total power if individual phase powers are available
-            Double powerA = getDoubleValue(data, "Power_A");
-            Double powerB = getDoubleValue(data, "Power_B");
-            Double powerC = getDoubleValue(data, "Power_C");
-            
-            if (powerA != null && powerB != null && powerC != null) {
-                data.put("Total_Power", powerA + powerB + powerC);
-            }
-            
-            // Calculate average voltage
-            Double voltageRN = getDoubleValue(data, "Voltage R-N");
-            Double voltageYN = getDoubleValue(data, "Voltage Y-N");
-            Double voltageBN = getDoubleValue(data, "Voltage B-N");
+            // Total power from the individual phase powers
+            calculated[TOTAL_POWER] = valueOf("Power_A") + valueOf("Power_B") + valueOf("Power_C");
             
-            if (voltageRN != null && voltageYN != null && voltageBN != null) {
-                data.put("Average_Voltage", (voltageRN + voltageYN + voltageBN) / 3.0);
-            }
+            // Average voltage
+            calculated[AVERAGE_VOLTAGE] = (valueOf("Voltage R-N") + valueOf("Voltage Y-N") + valueOf("Voltage B-N")) / 3.0;
             
-            // Calculate average current
-            Double currentA = getDoubleValue(data, "Current_A");
-            Double currentB = getDoubleValue(data, "Current_B");
-            Double currentC = getDoubleValue(data, "Current_C");
+            // Average current
+            calculated[AVERAGE_CURRENT] = (valueOf("Current_A") + valueOf("Current_B") + valueOf("Current_C")) / 3.0;
             
-            if (currentA != null && currentB != null && currentC != null) {
-                data.put("Average_Current", (currentA + currentB + currentC) / 3.0);
-            }
-            
-            // Calculate power factor if available
-            Double activePower = getDoubleValue(data, "Total_Power");
-            Double apparentPower = getDoubleValue(data, "Apparent_Power");
-            
-            if (activePower != null && apparentPower != null && apparentPower != 0) {
-                data.put("Power_Factor", activePower / apparentPower);
+            // Power factor, using the total power calculated above if there is one
+            double activePower = valueOf("Total_Power");
+            double apparentPower = valueOf("Apparent_Power");
+            if (apparentPower != 0) {
+                calculated[POWER_FACTOR] = activePower / apparentPower;
             }
             
         } catch (Exception e) {
-            System.err.println("Error calculating energy values: " + e.getMessage());
+            failures.warn("calculate", "Calculating energy values failed: {}", e.getMessage());
+        }
+    }
+    
+    private static int calculatedIndex(String name) {
+        for (int k = 0; k < CALCULATED.length; k++) {
+            if (CALCULATED[k].equals(name)) return k;
         }
+        return -1;
     }
     
     /**
-     * Helper method to safely get double values
+     * Current value of a channel or calculated value, NaN if there is none
      */
-    private Double getDoubleValue(Map<String, Object> data, String key) {
-        Object value = data.get(key);
+    private double valueOf(String name) {
+        int k = calculatedIndex(name);
+        if (k >= 0 && !Double.isNaN(calculated[k])) {
+            return calculated[k];
+        }
+        return toDouble(currentData.get(name));
+    }
+    
+    /**
+     * Numeric form of a logged value: numbers as they are, booleans as 1 or 0, numeric
+     * strings parsed. Anything else is NaN and not logged.
+     */
+    private static double toDouble(Object value) {
         if (value instanceof Number) {
             return ((Number) value).doubleValue();
+        } else if (value instanceof Boolean) {
+            return (Boolean) value ? 1 : 0;
         } else if (value instanceof String) {
+            String text = ((String) value).trim();
+            // Text that cannot be a number is common; don't pay for an exception every sample
+            if (text.isEmpty() || "+-.0123456789".indexOf(text.charAt(0)) < 0) {
+                return Double.NaN;
+            }
             try {
-                return Double.parseDouble((String) value);
+                return Double.parseDouble(text);
             } catch (NumberFormatException e) {
-                return null;
+                return Double.NaN;
             }
         }
-        return null;
+        return Double.NaN;
     }
     
     /**
-     * Filter data to only include specified channels
+     * Id of a channel name in the records, assigned the first time the name is logged
      */
-    private Map<String, Object> filterChannels(Map<String, Object> data) {
-        Map<String, Object> filtered = new HashMap<>();
-        for (String selectedChannel : config.getChannelsToLog()) {
-            // Try exact match first
-            if (data.containsKey(selectedChannel)) {
-                filtered.put(selectedChannel, data.get(selectedChannel));
-            } else {
-                // Try to find math channel without "(Math)" suffix
-                String baseChannelName = selectedChannel.replace(" (Math)", "");
-                if (data.containsKey(baseChannelName)) {
-                    filtered.put(selectedChannel, data.get(baseChannelName));
-                } else {
-                    // Try to find math channel with "(Math)" suffix
-                    String mathChannelName = baseChannelName + " (Math)";
-                    if (data.containsKey(mathChannelName)) {
-                        filtered.put(selectedChannel, data.get(mathChannelName));
-                    }
-                }
+    private int channelId(String name) {
+        Integer id = channelIds.get(name);
+        if (id != null) {
+            return id;
+        }
+        synchronized (channelIds) {
+            id = channelIds.get(name);
+            if (id == null) {
+                // The name is in place before the id is handed out
+                quotedNames.add(GSON.toJson(name));
+                channelNames.add(name);
+                id = channelNames.size() - 1;
+                channelIds.put(name, id);
             }
+            return id;
         }
-        return filtered;
     }
     
     /**
-     * Flush data buffer to file
+     * Name of a channel id used in {@link EnergyDataPoint}
      */
-    private void flushBuffer() {
-        synchronized (bufferLock) {
-            if (dataBuffer.isEmpty()) {
-                return;
-            }
-            
-            if (config.isLogToFile()) {
-                writeToFile();
-            }
-            
-            if (config.isLogToDatabase()) {
-                writeToDatabase();
-            }
-            
-            dataBuffer.clear();
-        }
+    public String getChannelName(int id) {
+        return channelNames.get(id);
+    }
+    
+    private boolean isBinaryFormat() {
+        return "BINARY".equals(config.getLogFormat());
     }
     
     /**
-     * Write data to file
+     * A record as a JSON log line: timestamp, date, time and the values by channel name
      */
-    private void writeToFile() {
-        try {
-            if (currentWriter == null) {
-                currentWriter = new PrintWriter(new FileWriter(currentLogFile, true));
-            }
-            
-            for (EnergyDataPoint dataPoint : dataBuffer) {
-                if ("JSON".equals(config.getLogFormat()) || "BOTH".equals(config.getLogFormat())) {
-                    Gson gson = new Gson();
-                    currentWriter.println(gson.toJson(dataPoint));
-                }
-                
-                if ("CSV".equals(config.getLogFormat()) || "BOTH".equals(config.getLogFormat())) {
-                    writeCSVLine(dataPoint);
-                }
-            }
-            
-            currentWriter.flush();
-            
-        } catch (IOException e) {
-            System.err.println("Error writing to log file: " + e.getMessage());
+    private StringBuilder formatJson(EnergyDataPoint dataPoint, LocalDateTime time, StringBuilder json) {
+        json.setLength(0);
+        json.append("{\"timestamp\":\"").append(time).append("\",\"date\":\"");
+        DATE_FORMAT.formatTo(time, json);
+        json.append("\",\"time\":\"");
+        TIME_FORMAT.formatTo(time, json);
+        json.append("\",\"data\":{");
+        boolean first = true;
+        for (int i = 0; i < dataPoint.size(); i++) {
+            double value = dataPoint.getValue(i);
+            if (Double.isNaN(value) || Double.isInfinite(value)) continue; // not valid JSON
+            if (!first) json.append(',');
+            json.append(quotedNames.get(dataPoint.getChannel(i))).append(':');
+            appendNumber(json, value);
+            first = false;
         }
+        return json.append("}}");
     }
     
     /**
-     * Write CSV line
+     * Shortest form of a value: as a float if that is exact, which keeps values read as
+     * floats from the device from showing float rounding noise
      */
-    private void writeCSVLine(EnergyDataPoint dataPoint) {
-        StringBuilder csvLine = new StringBuilder();
-        csvLine.append(dataPoint.getTimestamp()).append(",");
-        csvLine.append(dataPoint.getDate()).append(",");
-        csvLine.append(dataPoint.getTime()).append(",");
-        
-        for (Map.Entry<String, Object> entry : dataPoint.getData().entrySet()) {
-            csvLine.append(entry.getKey()).append("=").append(entry.getValue()).append(",");
+    private static void appendNumber(StringBuilder out, double value) {
+        float f = (float) value;
+        if (f == value) {
+            out.append(f);
+        } else {
+            out.append(value);
         }
-        
-        // Remove trailing comma
-        if (csvLine.length() > 0) {
-            csvLine.setLength(csvLine.length() - 1);
-        }
-        
-        currentWriter.println(csvLine.toString());
+    }
+    
+    private static String formatNumber(double value) {
+        float f = (float) value;
+        return f == value ? Float.toString(f) : Double.toString(value);
     }
     
     /**
      * Write data to database (placeholder for future implementation)
      */
-    private void writeToDatabase() {
+    private void writeToDatabase(int records) {
         // TODO: Implement database logging
-        System.out.println("Database logging not yet implemented. " + dataBuffer.size() + " records would be written.");
+        log.debug("Database logging not implemented, records={} not written", records);
     }
     
     /**
-     * Close current writer
+     * One logging session's writer thread with its own ring and files. A session that is
+     * still catching up after {@link #stopLogging} keeps draining only its own ring, and the
+     * next session's writer waits for it before writing, since both may append to the same
+     * day's segment.
      */
-    private void closeCurrentWriter() {
-        if (currentWriter != null) {
-            currentWriter.close();
-            currentWriter = null;
+    private final class LogWriter {
+        final SampleRing<EnergyDataPoint> ring;
+        final Thread thread;
+        volatile boolean running = true;
+        private String logFile;
+        private PrintWriter textWriter;
+        private TimeSeriesWriter binaryWriter;
+        private final StringBuilder line = new StringBuilder();
+        private final EnergyDataPoint replayed = new EnergyDataPoint();
+        private final BitSet declared = new BitSet(); // channel ids named in the open text log
+        private LogWriter previous;
+        
+        LogWriter(SampleRing<EnergyDataPoint> ring, String logFile, LogWriter previous) {
+            this.ring = ring;
+            this.logFile = logFile;
+            this.previous = previous;
+            this.thread = WorkerThreads.start("EnergyDataLogger writer", this::run);
+        }
+        
+        private void run() {
+            if (previous != null) {
+                try {
+                    previous.thread.join(); // records wait in this session's ring meanwhile
+                } catch (InterruptedException e) {
+                    return;
+                }
+                previous = null;
+            }
+            while (running) {
+                LockSupport.parkNanos(TimeUnit.SECONDS.toNanos(FLUSH_INTERVAL_SECONDS));
+                drain();
+            }
+            drain();
+            close();
+        }
+        
+        /**
+         * Write every record in the ring, then anything spilled while it was full. Runs on
+         * the writer thread, or on the stopping thread once the writer has finished.
+         */
+        void drain() {
+            int count = 0;
+            for (long seq; (seq = ring.poll()) >= 0; ) {
+                try {
+                    if (config.isLogToFile()) writeRecord(ring.get(seq));
+                    count++;
+                } finally {
+                    ring.release(seq);
+                }
+            }
+            count += replaySpill();
+            if (count == 0) return;
+            if (config.isLogToFile()) flushFiles();
+            if (config.isLogToDatabase()) writeToDatabase(count);
+        }
+        
+        /**
+         * Write the records spilled while the ring was full. Called when the ring is empty, so
+         * they are older than anything logged from here on.
+         */
+        private int replaySpill() {
+            synchronized (replayLock) {
+                return replaySpillLocked();
+            }
+        }
+        
+        private int replaySpillLocked() {
+            File replay = new File(SPILL_FILE + ".replay");
+            synchronized (spillLock) {
+                File spill = new File(SPILL_FILE);
+                if (!spilling && !spill.exists() && !replay.exists()) return 0;
+                if (spillWriter != null) {
+                    spillWriter.close();
+                    spillWriter = null;
+                }
+                // A replay file left by a crash is written first
+                if (spill.exists() && !replay.exists() && !spill.renameTo(replay)) {
+                    log.warn("Could not replay spill file={}", spill);
+                    return 0;
+                }
+                spilling = false;
+            }
+            int count = 0;
+            try (BufferedReader reader = new BufferedReader(new FileReader(replay))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    try {
+                        JsonRecord record = GSON.fromJson(line, JsonRecord.class);
+                        if (record == null || record.data == null) continue;
+                        Instant time = LocalDateTime.parse(record.timestamp).atZone(ZoneId.systemDefault()).toInstant();
+                        replayed.clear(time.getEpochSecond() * 1_000_000L + time.getNano() / 1000);
+                        for (Map.Entry<String, Object> entry : record.data.entrySet()) {
+                            double value = toDouble(entry.getValue());
+                            if (!Double.isNaN(value)) replayed.add(channelId(entry.getKey()), value);
+                        }
+                        if (config.isLogToFile()) writeRecord(replayed);
+                        count++;
+                    } catch (Exception e) {
+                        failures.warn("replay", "Skipping invalid spilled record: {}", e.getMessage());
+                    }
+                }
+            } catch (IOException e) {
+                log.warn("Reading spill file failed: {}", e.getMessage());
+                return count;
+            }
+            replay.delete();
+            return count;
+        }
+        
+        /**
+         * Write one record to the log file
+         */
+        private void writeRecord(EnergyDataPoint dataPoint) {
+            if (isBinaryFormat()) {
+                writeBinary(dataPoint);
+                return;
+            }
+            try {
+                if (textWriter == null) {
+                    textWriter = new PrintWriter(new BufferedWriter(new FileWriter(logFile, true)));
+                    declared.clear();
+                }
+                boolean json = "JSON".equals(config.getLogFormat()) || "BOTH".equals(config.getLogFormat());
+                writeChannelRecord(dataPoint, json);
+                
+                // Formatted here, on the writer thread, rather than when the sample is taken
+                LocalDateTime time = dataPoint.getLocalDateTime();
+                if (json) {
+                    textWriter.println(formatJson(dataPoint, time, line));
+                }
+                
+                if ("CSV".equals(config.getLogFormat()) || "BOTH".equals(config.getLogFormat())) {
+                    writeCSVLine(dataPoint, time);
+                }
+                
+            } catch (IOException e) {
+                failures.warn("write", "Writing log file failed: {}", e.getMessage());
+            }
+        }
+        
+        /**
+         * Name the channels of a record that this file has not seen yet, before the record,
+         * so an export finds every column without reading the data records. JSON logs get
+         * {@code {"channels":[...]}} and CSV logs {@code #channels,name,...}.
+         */
+        private void writeChannelRecord(EnergyDataPoint dataPoint, boolean json) {
+            boolean any = false;
+            for (int i = 0; i < dataPoint.size(); i++) {
+                int id = dataPoint.getChannel(i);
+                if (declared.get(id)) continue;
+                declared.set(id);
+                if (!any) {
+                    line.setLength(0);
+                    line.append(json ? CHANNEL_RECORD_JSON + "[" : CHANNEL_RECORD_CSV);
+                } else if (json) {
+                    line.append(',');
+                }
+                if (json) {
+                    line.append(quotedNames.get(id));
+                } else {
+                    line.append(',').append(escapeCSVValue(channelNames.get(id)));
+                }
+                any = true;
+            }
+            if (!any) return;
+            if (json) line.append("]}");
+            textWriter.println(line);
+        }
+        
+        /**
+         * Push written records to the file
+         */
+        private void flushFiles() {
+            if (textWriter != null) {
+                textWriter.flush();
+            }
+            if (binaryWriter != null) {
+                try {
+                    binaryWriter.flush();
+                    if (binaryWriter.getCurrentFile() != null) {
+                        logFile = binaryWriter.getCurrentFile().getPath();
+                        if (writer == this) currentLogFile = logFile;
+                    }
+                } catch (IOException e) {
+                    failures.warn("write", "Writing log file failed: {}", e.getMessage());
+                }
+            }
+        }
+        
+        /**
+         * Append a data point to the day's binary segment
+         */
+        private void writeBinary(EnergyDataPoint dataPoint) {
+            try {
+                if (binaryWriter == null) {
+                    binaryWriter = new TimeSeriesWriter(new File(LOG_DIRECTORY), BINARY_PREFIX);
+                }
+                binaryWriter.append(Math.floorDiv(dataPoint.getTimestampMicros(), 1000L), channelNames,
+                        dataPoint.size(), dataPoint.channels, dataPoint.values);
+            } catch (IOException e) {
+                failures.warn("write", "Writing log file failed: {}", e.getMessage());
+            }
+        }
+        
+        /**
+         * Write CSV line
+         */
+        private void writeCSVLine(EnergyDataPoint dataPoint, LocalDateTime time) {
+            StringBuilder csvLine = line;
+            csvLine.setLength(0);
+            csvLine.append(time).append(",");
+            DATE_FORMAT.formatTo(time, csvLine);
+            csvLine.append(",");
+            TIME_FORMAT.formatTo(time, csvLine);
+        
+            for (int i = 0; i < dataPoint.size(); i++) {
+                csvLine.append(",").append(channelNames.get(dataPoint.getChannel(i))).append("=");
+                appendNumber(csvLine, dataPoint.getValue(i));
+            }
+        
+            textWriter.println(csvLine);
+        }
+        
+        /**
+         * Close this session's files
+         */
+        void close() {
+            if (textWriter != null) {
+                textWriter.close();
+                textWriter = null;
+            }
+            if (binaryWriter != null) {
+                try {
+                    binaryWriter.close();
+                } catch (IOException e) {
+                    log.warn("Closing log file failed: {}", e.getMessage());
+                }
+                binaryWriter = null;
+            }
         }
     }
     
@@ -492,322 +920,381 @@ public class EnergyDataLogger {
     }
     
     /**
-     * Export data to CSV file
+     * Receives the progress of a CSV export.
+     */
+    public interface ExportListener {
+        /**
+         * @param done  bytes of log data read so far
+         * @param total bytes of log data to read
+         * @return false to cancel the export
+         */
+        boolean progress(long done, long total);
+    }
+    
+    /**
+     * Export data to CSV file. A null start or end leaves that side of the range open.
      */
     public void exportToCSV(String outputFile, LocalDateTime startTime, LocalDateTime endTime) {
+        exportToCSV(outputFile, startTime, endTime, null);
+    }
+    
+    /**
+     * Export data to CSV file, parsing every record once. A null start or end leaves that side
+     * of the range open. The columns come from the channel dictionary of each binary segment
+     * and the channel records of each text log, which are found without parsing the data
+     * records, and only the current row is held in memory. Binary segments are read through
+     * their time index, so only the requested range is decoded.
+     *
+     * @param listener told about progress every few thousand rows, may be null
+     * @return false if the listener cancelled the export, in which case the partial file is deleted
+     */
+    public boolean exportToCSV(String outputFile, LocalDateTime startTime, LocalDateTime endTime, ExportListener listener) {
         try {
             File logDir = new File(LOG_DIRECTORY);
             if (!logDir.exists()) {
-                System.err.println("Log directory does not exist: " + LOG_DIRECTORY);
-                return;
+                log.warn("Log directory does not exist directory={}", LOG_DIRECTORY);
+                return true;
             }
             
-            // Get all log files (both .json and other formats)
-            File[] logFiles = logDir.listFiles((dir, name) -> name.endsWith(".json") || name.contains("energy_data_"));
-            if (logFiles == null || logFiles.length == 0) {
-                System.err.println("No log files found in directory: " + LOG_DIRECTORY);
-                return;
+            // Get all text log files (both .json and other formats) and the binary segments
+            File[] logFiles = logDir.listFiles((dir, name) -> isTextLogFile(name));
+            File[] segments = logDir.listFiles((dir, name) -> name.endsWith(TimeSeriesWriter.EXTENSION));
+            if (logFiles == null) logFiles = new File[0];
+            if (segments == null) segments = new File[0];
+            if (logFiles.length == 0 && segments.length == 0) {
+                log.warn("No log files found directory={}", LOG_DIRECTORY);
+                return true;
             }
+            Arrays.sort(logFiles);
+            Arrays.sort(segments);
             
-            System.out.println("Starting CSV export of " + logFiles.length + " files to: " + outputFile);
-            
-            // Create CSV writer
-            try (PrintWriter csvWriter = new PrintWriter(new FileWriter(outputFile))) {
-                Set<String> allColumns = new LinkedHashSet<>();
-                
-                // First pass: collect all unique column names
-                System.out.println("Collecting column names from log files...");
-                for (File logFile : logFiles) {
-                    try (BufferedReader reader = new BufferedReader(new FileReader(logFile))) {
-                        String line;
-                        while ((line = reader.readLine()) != null) {
-                            if (line.trim().isEmpty()) continue;
-                            
-                            try {
-                                Gson gson = new Gson();
-                                EnergyDataPoint dataPoint = gson.fromJson(line, EnergyDataPoint.class);
-                                if (dataPoint != null && dataPoint.getData() != null) {
-                                    allColumns.addAll(dataPoint.getData().keySet());
-                                }
-                            } catch (Exception e) {
-                                System.err.println("Warning: Skipping invalid JSON line in " + logFile.getName() + ": " + e.getMessage());
-                                continue;
-                            }
-                        }
-                    }
-                }
-                
-                System.out.println("Found " + allColumns.size() + " unique columns");
-                
-                // Write CSV header with proper escaping
-                csvWriter.print(escapeCSVValue("Timestamp"));
-                csvWriter.print("," + escapeCSVValue("Date"));
-                csvWriter.print("," + escapeCSVValue("Time"));
-                for (String column : allColumns) {
-                    csvWriter.print("," + escapeCSVValue(column));
-                }
-                csvWriter.println();
-                
-                // Second pass: write data
-                System.out.println("Writing data to CSV...");
-                int totalRecords = 0;
-                for (File logFile : logFiles) {
-                    System.out.println("Processing file: " + logFile.getName());
-                    try (BufferedReader reader = new BufferedReader(new FileReader(logFile))) {
-                        String line;
-                        int fileRecords = 0;
-                        while ((line = reader.readLine()) != null) {
-                            if (line.trim().isEmpty()) continue;
-                            
-                            try {
-                                Gson gson = new Gson();
-                                EnergyDataPoint dataPoint = gson.fromJson(line, EnergyDataPoint.class);
-                                if (dataPoint != null && dataPoint.getData() != null) {
-                                    // Write timestamp, date, time with proper escaping
-                                    csvWriter.print(escapeCSVValue(dataPoint.getTimestamp()));
-                                    csvWriter.print("," + escapeCSVValue(dataPoint.getDate()));
-                                    csvWriter.print("," + escapeCSVValue(dataPoint.getTime()));
-                                    
-                                    // Write data values in the same order as header
-                                    for (String column : allColumns) {
-                                        Object value = dataPoint.getData().get(column);
-                                        csvWriter.print("," + escapeCSVValue(value != null ? value.toString() : ""));
-                                    }
-                                    csvWriter.println();
-                                    fileRecords++;
-                                    totalRecords++;
-                                }
-                            } catch (Exception e) {
-                                System.err.println("Warning: Skipping invalid JSON line in " + logFile.getName() + ": " + e.getMessage());
-                                continue;
-                            }
-                        }
-                        System.out.println("Processed " + fileRecords + " records from " + logFile.getName());
-                    }
-                }
-                
-                System.out.println("CSV export completed successfully: " + outputFile + " (Total records: " + totalRecords + ")");
-                
-            } catch (IOException e) {
-                System.err.println("Error writing CSV file: " + e.getMessage());
-                throw e;
-            }
+            log.info("CSV export started files={} output={}", logFiles.length + segments.length, outputFile);
+            return export(outputFile, logFiles, segments, startTime, endTime, listener);
             
         } catch (Exception e) {
-            System.err.println("Error during CSV export: " + e.getMessage());
-            e.printStackTrace();
+            log.error("CSV export failed output={}", outputFile, e);
             throw new RuntimeException("Failed to export CSV", e);
         }
     }
     
     /**
-     * Export specific log file to CSV
+     * Stream text logs and binary segments into one CSV file.
      */
-    public void exportLogFileToCSV(String logFileName, String outputFile) {
-        try {
-            System.out.println("DEBUG: exportLogFileToCSV called with logFileName=" + logFileName + ", outputFile=" + outputFile);
-            
-            File logFile = new File(LOG_DIRECTORY + "/" + logFileName);
-            System.out.println("DEBUG: Looking for log file at: " + logFile.getAbsolutePath());
-            
-            if (!logFile.exists()) {
-                System.err.println("DEBUG: Log file does not exist: " + logFile.getAbsolutePath());
-                throw new FileNotFoundException("Log file not found: " + logFileName);
-            }
-            
-            System.out.println("DEBUG: Log file exists, size: " + logFile.length() + " bytes");
-            System.out.println("Starting CSV export of " + logFileName + " to: " + outputFile);
-            
-            // Create CSV writer
-            try (PrintWriter csvWriter = new PrintWriter(new FileWriter(outputFile));
-                 BufferedReader reader = new BufferedReader(new FileReader(logFile))) {
-                
-                String firstLine = reader.readLine();
-                if (firstLine == null) {
-                    System.out.println("DEBUG: Log file is empty");
-                    return;
-                }
-                
-                // Check if the file is already in CSV format or JSON format
-                boolean isCSVFormat = !firstLine.trim().startsWith("{");
-                
-                if (isCSVFormat) {
-                    System.out.println("DEBUG: Detected CSV format log file");
-                    exportCSVFormatFile(reader, csvWriter, firstLine);
-                } else {
-                    System.out.println("DEBUG: Detected JSON format log file");
-                    exportJSONFormatFile(reader, csvWriter, firstLine);
+    private boolean export(String outputFile, File[] logFiles, File[] segments, LocalDateTime startTime,
+                           LocalDateTime endTime, ExportListener listener) throws IOException {
+        long from = startTime != null ? startTime.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli() : Long.MIN_VALUE;
+        long to = endTime != null ? endTime.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli() : Long.MAX_VALUE;
+        
+        // A text log names each channel in a channel record before first using it and a
+        // segment's dictionary is in its index, so neither needs the data to be parsed
+        Set<String> columns = new LinkedHashSet<>();
+        long total = 0;
+        for (File logFile : logFiles) {
+            addTextLogColumns(logFile, columns);
+            total += logFile.length();
+        }
+        List<File> segmentsInRange = new ArrayList<>();
+        for (File segment : segments) {
+            try (TimeSeriesReader reader = TimeSeriesReader.open(segment)) {
+                if (reader.getEndTime() < from || reader.getStartTime() >= to) continue;
+                for (String name : reader.getChannelNames()) {
+                    if (name != null) columns.add(name);
                 }
-                
-                System.out.println("Log file exported to CSV successfully: " + outputFile);
-                
+                segmentsInRange.add(segment);
+                total += segment.length();
             } catch (IOException e) {
-                System.err.println("Error writing CSV file: " + e.getMessage());
-                throw e;
+                log.warn("Skipping unreadable log file={} error={}", segment.getName(), e.getMessage());
             }
-            
-        } catch (Exception e) {
-            System.err.println("Error during log file export: " + e.getMessage());
-            e.printStackTrace();
-            throw new RuntimeException("Failed to export log file to CSV", e);
         }
+        log.debug("CSV export columns={}", columns.size());
+        
+        boolean completed = true;
+        try (CsvExport csv = new CsvExport(outputFile, columns, listener, total)) {
+            long done = 0;
+            for (File logFile : logFiles) {
+                completed = exportTextLog(logFile, done, startTime, endTime, csv);
+                done += logFile.length();
+                if (completed) completed = csv.progress(done);
+                if (!completed) break;
+            }
+            for (File segment : segmentsInRange) {
+                if (!completed) break;
+                completed = exportSegment(segment, done, from, to, csv);
+                done += segment.length();
+                if (completed) completed = csv.progress(done);
+            }
+            if (!csv.unknownColumns.isEmpty()) {
+                log.warn("Columns missing from the channel records of their file were not exported columns={}", csv.unknownColumns);
+            }
+            log.info("CSV export {} output={} records={}", completed ? "completed" : "cancelled", outputFile, csv.records);
+        }
+        if (!completed) new File(outputFile).delete();
+        return completed;
     }
     
     /**
-     * Export CSV format log file
+     * Add the column names of a text log. Logs with channel records are read line by line
+     * but only the channel records are parsed; logs written before there were channel
+     * records have every record parsed for its names.
      */
-    private void exportCSVFormatFile(BufferedReader reader, PrintWriter csvWriter, String firstLine) throws IOException {
-        Set<String> allColumns = new LinkedHashSet<>();
-        List<String[]> allRows = new ArrayList<>();
-        
-        // Process first line
-        String[] firstRow = parseCSVLine(firstLine);
-        if (firstRow.length >= 4) {
-            allRows.add(firstRow);
-            // Extract column names from data part (after timestamp, date, time)
-            for (int i = 3; i < firstRow.length; i++) {
-                String[] keyValue = firstRow[i].split("=", 2);
-                if (keyValue.length == 2) {
-                    allColumns.add(keyValue[0]);
+    private void addTextLogColumns(File logFile, Set<String> columns) {
+        try (BufferedReader reader = new BufferedReader(new FileReader(logFile), READ_BUFFER_SIZE)) {
+            String line;
+            boolean hasChannelRecords = false;
+            boolean hasJson = false;
+            while ((line = reader.readLine()) != null) {
+                line = line.trim();
+                if (line.isEmpty()) continue;
+                if (line.startsWith(CHANNEL_RECORD_JSON)) {
+                    hasChannelRecords = true;
+                    JsonChannelRecord record = GSON.fromJson(line, JsonChannelRecord.class);
+                    if (record != null && record.channels != null) columns.addAll(record.channels);
+                } else if (line.startsWith(CHANNEL_RECORD_CSV)) {
+                    hasChannelRecords = true;
+                    String[] row = parseCSVLine(line);
+                    columns.addAll(Arrays.asList(row).subList(1, row.length));
+                } else if (hasChannelRecords) {
+                    continue; // channel records come before the records that use them
+                } else if (line.startsWith("{")) {
+                    hasJson = true;
+                    JsonRecord record = GSON.fromJson(line, JsonRecord.class);
+                    if (record != null && record.data != null) columns.addAll(record.data.keySet());
+                } else if (!hasJson) {
+                    String[] row = parseCSVLine(line);
+                    for (int i = 3; i < row.length; i++) {
+                        String[] keyValue = row[i].split("=", 2);
+                        if (keyValue.length == 2) columns.add(keyValue[0]);
+                    }
                 }
             }
+        } catch (Exception e) {
+            log.warn("Could not read columns file={} error={}", logFile.getName(), e.getMessage());
         }
-        
-        // Process remaining lines
-        String line;
-        int lineCount = 1;
-        while ((line = reader.readLine()) != null) {
-            lineCount++;
-            if (lineCount % 100 == 0) {
-                System.out.println("DEBUG: Processed " + lineCount + " lines...");
-            }
-            if (line.trim().isEmpty()) continue;
-            
-            String[] row = parseCSVLine(line);
-            if (row.length >= 4) {
-                allRows.add(row);
-                // Extract column names from data part
-                for (int i = 3; i < row.length; i++) {
-                    String[] keyValue = row[i].split("=", 2);
-                    if (keyValue.length == 2) {
-                        allColumns.add(keyValue[0]);
+    }
+    
+    /**
+     * Write the records of one text log within the range. A log holds JSON records,
+     * CSV records ({@code timestamp,date,time,name=value,...}) or, in the BOTH format, each
+     * record twice; the CSV copies are skipped then.
+     *
+     * @param done bytes of log data read before this file
+     * @return false if the export was cancelled
+     */
+    private boolean exportTextLog(File logFile, long done, LocalDateTime startTime, LocalDateTime endTime,
+                                  CsvExport csv) throws IOException {
+        log.debug("Exporting file={}", logFile.getName());
+        int fileRecords = 0;
+        try (BufferedReader reader = new BufferedReader(new FileReader(logFile), READ_BUFFER_SIZE)) {
+            String line;
+            long read = 0;
+            boolean hasJson = false;
+            while ((line = reader.readLine()) != null) {
+                read += line.length() + 1;
+                String trimmed = line.trim();
+                if (trimmed.isEmpty() || isChannelRecord(trimmed)) continue;
+                
+                String timestamp, date, time;
+                try {
+                    if (trimmed.startsWith("{")) {
+                        hasJson = true;
+                        JsonRecord record = GSON.fromJson(trimmed, JsonRecord.class);
+                        if (record == null || record.data == null || !isInRange(record.timestamp, startTime, endTime)) continue;
+                        for (Map.Entry<String, Object> entry : record.data.entrySet()) {
+                            Object value = entry.getValue();
+                            csv.set(entry.getKey(), value != null ? value.toString() : "");
+                        }
+                        timestamp = record.timestamp;
+                        date = record.date;
+                        time = record.time;
+                    } else {
+                        String[] row = parseCSVLine(line);
+                        if (hasJson || row.length < 3 || !isInRange(row[0], startTime, endTime)) continue;
+                        for (int i = 3; i < row.length; i++) {
+                            String[] keyValue = row[i].split("=", 2);
+                            if (keyValue.length == 2) csv.set(keyValue[0], keyValue[1]);
+                        }
+                        timestamp = row[0];
+                        date = row[1];
+                        time = row[2];
                     }
+                } catch (Exception e) {
+                    failures.warn(logFile, "Skipping invalid line file={} error={}", logFile.getName(), e.getMessage());
+                    csv.clearRow();
+                    continue;
                 }
+                fileRecords++;
+                if (!csv.endRow(timestamp, date, time, done + read)) return false;
             }
         }
-        
-        System.out.println("DEBUG: Found " + allColumns.size() + " unique columns and " + allRows.size() + " valid records");
-        
-        // Write CSV header
-        csvWriter.print(escapeCSVValue("Timestamp"));
-        csvWriter.print("," + escapeCSVValue("Date"));
-        csvWriter.print("," + escapeCSVValue("Time"));
-        for (String column : allColumns) {
-            csvWriter.print("," + escapeCSVValue(column));
-        }
-        csvWriter.println();
-        
-        // Write data rows
-        System.out.println("Writing data to CSV...");
-        for (String[] row : allRows) {
-            if (row.length >= 3) {
-                // Write timestamp, date, time
-                csvWriter.print(escapeCSVValue(row[0]));
-                csvWriter.print("," + escapeCSVValue(row[1]));
-                csvWriter.print("," + escapeCSVValue(row[2]));
-                
-                // Write data values in the same order as header
-                Map<String, String> dataMap = new HashMap<>();
-                for (int i = 3; i < row.length; i++) {
-                    String[] keyValue = row[i].split("=", 2);
-                    if (keyValue.length == 2) {
-                        dataMap.put(keyValue[0], keyValue[1]);
-                    }
+        log.debug("Exported file={} records={}", logFile.getName(), fileRecords);
+        return true;
+    }
+    
+    /**
+     * Write the samples of one binary segment within the range.
+     *
+     * @param done bytes of log data read before this segment
+     * @return false if the export was cancelled
+     */
+    private boolean exportSegment(File segment, long done, long from, long to, CsvExport csv) throws IOException {
+        try (TimeSeriesReader reader = TimeSeriesReader.open(segment)) {
+            List<String> names = reader.getChannelNames();
+            int[] columnOf = new int[names.size()];
+            for (int id = 0; id < columnOf.length; id++) columnOf[id] = csv.column(names.get(id));
+            // Progress within the segment is estimated from the time of the sample
+            long start = reader.getStartTime();
+            double bytesPerMilli = (double) segment.length() / Math.max(1, reader.getEndTime() - start);
+            int[] records = {0};
+            boolean completed = reader.query(from, to, (timestamp, count, ids, values) -> {
+                for (int i = 0; i < count; i++) {
+                    if (ids[i] < columnOf.length && columnOf[ids[i]] >= 0) csv.set(columnOf[ids[i]], formatNumber(values[i]));
                 }
-                
-                for (String column : allColumns) {
-                    String value = dataMap.get(column);
-                    csvWriter.print("," + escapeCSVValue(value != null ? value : ""));
+                LocalDateTime time = LocalDateTime.ofInstant(Instant.ofEpochMilli(timestamp), ZoneId.systemDefault());
+                records[0]++;
+                try {
+                    return csv.endRow(time.toString(), time.format(DATE_FORMAT), time.format(TIME_FORMAT),
+                            done + (long) ((timestamp - start) * bytesPerMilli));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
                 }
-                csvWriter.println();
-            }
+            });
+            log.debug("Exported file={} records={}", segment.getName(), records[0]);
+            return completed;
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
         }
     }
     
+    private static boolean isChannelRecord(String line) {
+        return line.startsWith(CHANNEL_RECORD_JSON) || line.startsWith(CHANNEL_RECORD_CSV);
+    }
+    
+    private static boolean isTextLogFile(String name) {
+        return (name.endsWith(".json") || name.contains("energy_data_"))
+                && !name.endsWith(TimeSeriesWriter.EXTENSION) && !name.endsWith(TimeSeriesWriter.INDEX_EXTENSION);
+    }
+    
+    private static boolean isInRange(String timestamp, LocalDateTime startTime, LocalDateTime endTime) {
+        if (startTime == null && endTime == null) return true;
+        LocalDateTime time = LocalDateTime.parse(timestamp);
+        return (startTime == null || !time.isBefore(startTime)) && (endTime == null || time.isBefore(endTime));
+    }
+    
     /**
-     * Export JSON format log file
+     * One CSV export in progress: a fixed set of columns, one reusable row of cells and a
+     * large write buffer.
      */
-    private void exportJSONFormatFile(BufferedReader reader, PrintWriter csvWriter, String firstLine) throws IOException {
-        Set<String> allColumns = new LinkedHashSet<>();
-        List<EnergyDataPoint> dataPoints = new ArrayList<>();
+    private static final class CsvExport implements Closeable {
+        private static final int PROGRESS_ROWS = 4096; // rows between progress reports
         
-        // Process first line
-        try {
-            Gson gson = new Gson();
-            EnergyDataPoint dataPoint = gson.fromJson(firstLine, EnergyDataPoint.class);
-            if (dataPoint != null && dataPoint.getData() != null) {
-                dataPoints.add(dataPoint);
-                allColumns.addAll(dataPoint.getData().keySet());
+        private final Writer out;
+        private final Map<String, Integer> columnIndex = new HashMap<>();
+        private final String[] cells;
+        private final ExportListener listener;
+        private final long total;
+        private final Set<String> unknownColumns = new LinkedHashSet<>();
+        private int records;
+        
+        CsvExport(String outputFile, Collection<String> columns, ExportListener listener, long total) throws IOException {
+            this.out = new BufferedWriter(new FileWriter(outputFile), WRITE_BUFFER_SIZE);
+            this.listener = listener;
+            this.total = total;
+            this.cells = new String[columns.size()];
+            Arrays.fill(cells, "");
+            out.write(escapeCSVValue("Timestamp"));
+            out.write(',');
+            out.write(escapeCSVValue("Date"));
+            out.write(',');
+            out.write(escapeCSVValue("Time"));
+            for (String column : columns) {
+                columnIndex.put(column, columnIndex.size());
+                out.write(',');
+                out.write(escapeCSVValue(column));
             }
-        } catch (Exception e) {
-            System.err.println("Warning: Skipping invalid JSON line 1: " + e.getMessage());
+            out.write(System.lineSeparator());
         }
         
-        // Process remaining lines
-        String line;
-        int lineCount = 1;
-        while ((line = reader.readLine()) != null) {
-            lineCount++;
-            if (lineCount % 100 == 0) {
-                System.out.println("DEBUG: Processed " + lineCount + " lines...");
-            }
-            if (line.trim().isEmpty()) continue;
-            
-            try {
-                Gson gson = new Gson();
-                EnergyDataPoint dataPoint = gson.fromJson(line, EnergyDataPoint.class);
-                if (dataPoint != null && dataPoint.getData() != null) {
-                    dataPoints.add(dataPoint);
-                    allColumns.addAll(dataPoint.getData().keySet());
-                }
-            } catch (Exception e) {
-                System.err.println("Warning: Skipping invalid JSON line " + lineCount + ": " + e.getMessage());
-                continue;
-            }
+        /** Index of a column, -1 if it is not exported. */
+        int column(String name) {
+            Integer index = columnIndex.get(name);
+            return index != null ? index : -1;
         }
         
-        System.out.println("DEBUG: Found " + allColumns.size() + " unique columns and " + dataPoints.size() + " valid records");
+        void set(int column, String value) {
+            cells[column] = value;
+        }
         
-        // Write CSV header with proper escaping
-        csvWriter.print(escapeCSVValue("Timestamp"));
-        csvWriter.print("," + escapeCSVValue("Date"));
-        csvWriter.print("," + escapeCSVValue("Time"));
-        for (String column : allColumns) {
-            csvWriter.print("," + escapeCSVValue(column));
+        void set(String column, String value) {
+            Integer index = columnIndex.get(column);
+            if (index != null) cells[index] = value;
+            else unknownColumns.add(column);
+        }
+        
+        void clearRow() {
+            Arrays.fill(cells, "");
+        }
+        
+        /**
+         * Write the row and clear the cells.
+         *
+         * @param done bytes of log data read so far
+         * @return false if the export was cancelled
+         */
+        boolean endRow(String timestamp, String date, String time, long done) throws IOException {
+            out.write(escapeCSVValue(timestamp));
+            out.write(',');
+            out.write(escapeCSVValue(date));
+            out.write(',');
+            out.write(escapeCSVValue(time));
+            for (String cell : cells) {
+                out.write(',');
+                out.write(escapeCSVValue(cell));
+            }
+            out.write(System.lineSeparator());
+            clearRow();
+            return ++records % PROGRESS_ROWS != 0 || progress(done);
         }
-        csvWriter.println();
         
-        // Write data rows
-        System.out.println("Writing data to CSV...");
-        for (EnergyDataPoint dataPoint : dataPoints) {
-            // Write timestamp, date, time with proper escaping
-            csvWriter.print(escapeCSVValue(dataPoint.getTimestamp()));
-            csvWriter.print("," + escapeCSVValue(dataPoint.getDate()));
-            csvWriter.print("," + escapeCSVValue(dataPoint.getTime()));
+        boolean progress(long done) {
+            return listener == null || listener.progress(Math.min(done, total), total);
+        }
+        
+        @Override
+        public void close() throws IOException {
+            out.close();
+        }
+    }
+    
+    /**
+     * Export specific log file to CSV
+     */
+    public void exportLogFileToCSV(String logFileName, String outputFile) {
+        try {
+            File logFile = new File(LOG_DIRECTORY + "/" + logFileName);
+            if (!logFile.exists()) {
+                throw new FileNotFoundException("Log file not found: " + logFileName);
+            }
+            log.info("CSV export started file={} bytes={} output={}", logFileName, logFile.length(), outputFile);
             
-            // Write data values in the same order as header
-            for (String column : allColumns) {
-                Object value = dataPoint.getData().get(column);
-                csvWriter.print("," + escapeCSVValue(value != null ? value.toString() : ""));
+            File[] none = new File[0];
+            File[] files = {logFile};
+            if (logFileName.endsWith(TimeSeriesWriter.EXTENSION)) {
+                export(outputFile, none, files, null, null, null);
+            } else {
+                export(outputFile, files, none, null, null, null);
             }
-            csvWriter.println();
+            log.info("CSV export completed output={}", outputFile);
+            
+        } catch (Exception e) {
+            log.error("CSV export failed file={} output={}", logFileName, outputFile, e);
+            throw new RuntimeException("Failed to export log file to CSV", e);
         }
     }
     
     /**
      * Parse CSV line (simple comma-separated parsing)
      */
-    private String[] parseCSVLine(String line) {
+    private static String[] parseCSVLine(String line) {
         List<String> fields = new ArrayList<>();
         StringBuilder currentField = new StringBuilder();
         boolean inQuotes = false;
@@ -835,7 +1322,8 @@ public class EnergyDataLogger {
         List<String> logFiles = new ArrayList<>();
         File logDir = new File(LOG_DIRECTORY);
         if (logDir.exists()) {
-            File[] files = logDir.listFiles((dir, name) -> name.endsWith(".json") || name.contains("energy_data_"));
+            File[] files = logDir.listFiles((dir, name) -> !name.endsWith(TimeSeriesWriter.INDEX_EXTENSION)
+                    && (name.endsWith(".json") || name.contains("energy_data_")));
             if (files != null) {
                 for (File file : files) {
                     logFiles.add(file.getName());
@@ -849,7 +1337,7 @@ public class EnergyDataLogger {
     /**
      * Escape CSV values to handle commas, quotes, and newlines properly
      */
-    private String escapeCSVValue(String value) {
+    private static String escapeCSVValue(String value) {
         if (value == null) {
             return "";
         }
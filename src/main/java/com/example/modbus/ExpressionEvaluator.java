@@ -1,74 +1,203 @@
 package com.example.modbus;
 
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.Stack;
+import java.util.concurrent.ConcurrentHashMap;
 
+/**
+ * Evaluates channel maths (+, -, *, /, parentheses) over named variables.
+ * Each expression is parsed once into a closure tree and cached by its text;
+ * variables are resolved to slots so a compiled expression evaluates against a
+ * plain double[] without building strings.
+ */
 public class ExpressionEvaluator {
+    private static final int MAX_CACHED_EXPRESSIONS = 4096;
+
+    private final Map<String, CompiledExpression> cache = new ConcurrentHashMap<>();
+
     public double evaluate(String expr, Map<String, Double> variables) {
         if (expr == null || expr.trim().isEmpty()) return Double.NaN;
-        String replaced = replaceVariables(expr, variables);
-        return evaluateSimple(replaced);
+        return compile(expr).evaluate(variables);
     }
 
-    private String replaceVariables(String expr, Map<String, Double> vars) {
-        String out = expr;
-        for (Map.Entry<String, Double> e : vars.entrySet()) {
-            String key = e.getKey();
-            String val = e.getValue() == null ? "0" : Double.toString(e.getValue());
-            out = out.replaceAll("\\b" + java.util.regex.Pattern.quote(key) + "\\b", val);
+    /**
+     * Return the compiled form of an expression, parsing it only the first time it is seen.
+     */
+    public CompiledExpression compile(String expr) {
+        String key = expr == null ? "" : expr;
+        CompiledExpression compiled = cache.get(key);
+        if (compiled == null) {
+            if (cache.size() >= MAX_CACHED_EXPRESSIONS) cache.clear();
+            compiled = new Parser(key).parse();
+            cache.put(key, compiled);
         }
-        return out;
+        return compiled;
     }
 
-    // Shunting-yard for +,-,*,/, parentheses
-    private double evaluateSimple(String s) {
-        Stack<Double> nums = new Stack<>();
-        Stack<Character> ops = new Stack<>();
-        int i = 0;
-        while (i < s.length()) {
-            char c = s.charAt(i);
-            if (Character.isWhitespace(c)) { i++; continue; }
-            if (Character.isDigit(c) || c == '.') {
-                int j = i;
-                while (j < s.length() && (Character.isDigit(s.charAt(j)) || s.charAt(j) == '.')) j++;
-                nums.push(Double.parseDouble(s.substring(i, j)));
-                i = j;
-            } else if (c == '(') {
-                ops.push(c);
-                i++;
-            } else if (c == ')') {
-                while (!ops.isEmpty() && ops.peek() != '(') applyOp(nums, ops.pop());
-                if (!ops.isEmpty() && ops.peek() == '(') ops.pop();
-                i++;
-            } else if (isOp(c)) {
-                while (!ops.isEmpty() && precedence(ops.peek()) >= precedence(c)) applyOp(nums, ops.pop());
-                ops.push(c);
-                i++;
-            } else {
-                // skip unknown
-                i++;
+    /**
+     * A parsed expression. Variable i of {@link #getVariableNames()} is read from slot i
+     * of the array passed to {@link #evaluate(double[])}.
+     */
+    public static final class CompiledExpression {
+        private final Node root;
+        private final String[] variableNames;
+        private final double[] defaults;
+
+        private CompiledExpression(Node root, String[] variableNames, double[] defaults) {
+            this.root = root;
+            this.variableNames = variableNames;
+            this.defaults = defaults;
+        }
+
+        public String[] getVariableNames() { return variableNames.clone(); }
+        public int getVariableCount() { return variableNames.length; }
+        public String getVariableName(int slot) { return variableNames[slot]; }
+
+        /**
+         * Fresh argument array pre-filled with unbound defaults: NaN for names, and the
+         * literal value for integer literals that the caller may bind as variables.
+         */
+        public double[] newArguments() { return defaults.clone(); }
+
+        public double evaluate(double[] slots) {
+            return root == null ? Double.NaN : root.eval(slots);
+        }
+
+        public double evaluate(Map<String, Double> variables) {
+            double[] slots = newArguments();
+            for (int i = 0; i < variableNames.length; i++) {
+                if (variables.containsKey(variableNames[i])) {
+                    Double v = variables.get(variableNames[i]);
+                    slots[i] = v == null ? 0.0 : v;
+                }
             }
+            return evaluate(slots);
         }
-        while (!ops.isEmpty()) applyOp(nums, ops.pop());
-        return nums.isEmpty() ? Double.NaN : nums.pop();
     }
 
-    private boolean isOp(char c) { return c=='+' || c=='-' || c=='*' || c=='/'; }
-    private int precedence(char c) { return (c=='+'||c=='-') ? 1 : (c=='*'||c=='/') ? 2 : 0; }
-
-    private void applyOp(Stack<Double> nums, char op) {
-        if (nums.size() < 2) return;
-        double b = nums.pop();
-        double a = nums.pop();
-        double r;
-        switch (op) {
-            case '+': r = a + b; break;
-            case '-': r = a - b; break;
-            case '*': r = a * b; break;
-            case '/': r = b == 0 ? Double.NaN : a / b; break;
-            default: r = Double.NaN;
+    private interface Node {
+        double eval(double[] slots);
+    }
+
+    /**
+     * Recursive-descent parser for the +, -, *, / grammar. Unknown characters are
+     * skipped and a malformed expression compiles to one that yields NaN.
+     */
+    private static final class Parser {
+        private final String s;
+        private int pos;
+        private final Map<String, Integer> slots = new LinkedHashMap<>();
+        private final List<Double> defaults = new ArrayList<>();
+
+        Parser(String s) { this.s = s; }
+
+        CompiledExpression parse() {
+            Node root;
+            try {
+                root = skipToToken() ? parseSum() : null;
+            } catch (IllegalStateException e) {
+                root = null;
+            }
+            double[] d = new double[defaults.size()];
+            for (int i = 0; i < d.length; i++) d[i] = defaults.get(i);
+            return new CompiledExpression(root, slots.keySet().toArray(new String[0]), d);
         }
-        nums.push(r);
+
+        private Node parseSum() {
+            Node left = parseProduct();
+            while (skipToToken()) {
+                char c = s.charAt(pos);
+                if (c != '+' && c != '-') break;
+                pos++;
+                Node a = left, b = parseProduct();
+                left = c == '+' ? v -> a.eval(v) + b.eval(v) : v -> a.eval(v) - b.eval(v);
+            }
+            return left;
+        }
+
+        private Node parseProduct() {
+            Node left = parseUnary();
+            while (skipToToken()) {
+                char c = s.charAt(pos);
+                if (c != '*' && c != '/') break;
+                pos++;
+                Node a = left, b = parseUnary();
+                left = c == '*' ? v -> a.eval(v) * b.eval(v) : v -> {
+                    double divisor = b.eval(v);
+                    return divisor == 0 ? Double.NaN : a.eval(v) / divisor;
+                };
+            }
+            return left;
+        }
+
+        private Node parseUnary() {
+            if (!skipToToken()) throw new IllegalStateException("Unexpected end of expression");
+            char c = s.charAt(pos);
+            if (c == '-') { pos++; Node a = parseUnary(); return v -> -a.eval(v); }
+            if (c == '+') { pos++; return parseUnary(); }
+            return parsePrimary();
+        }
+
+        private Node parsePrimary() {
+            char c = s.charAt(pos);
+            if (c == '(') {
+                pos++;
+                Node inner = parseSum();
+                if (skipToToken() && s.charAt(pos) == ')') pos++;
+                return inner;
+            }
+            if (Character.isDigit(c) || c == '.') {
+                int start = pos;
+                while (pos < s.length() && (Character.isDigit(s.charAt(pos)) || s.charAt(pos) == '.')) pos++;
+                String text = s.substring(start, pos);
+                double literal;
+                try {
+                    literal = Double.parseDouble(text);
+                } catch (NumberFormatException e) {
+                    throw new IllegalStateException("Bad number: " + text);
+                }
+                if (text.indexOf('.') < 0 && (pos >= s.length() || !isIdentifierPart(s.charAt(pos)))) {
+                    // Integer literals double as variable names (e.g. channel numbers) when bound
+                    int slot = slotFor(text, literal);
+                    return v -> v[slot];
+                }
+                return v -> literal;
+            }
+            if (isIdentifierStart(c)) {
+                int start = pos;
+                while (pos < s.length() && isIdentifierPart(s.charAt(pos))) pos++;
+                int slot = slotFor(s.substring(start, pos), Double.NaN);
+                return v -> v[slot];
+            }
+            throw new IllegalStateException("Unexpected '" + c + "'");
+        }
+
+        private int slotFor(String name, double defaultValue) {
+            Integer slot = slots.get(name);
+            if (slot == null) {
+                slot = slots.size();
+                slots.put(name, slot);
+                defaults.add(defaultValue);
+            }
+            return slot;
+        }
+
+        /**
+         * Advance past whitespace and characters the grammar does not know.
+         * Returns false at end of input.
+         */
+        private boolean skipToToken() {
+            while (pos < s.length()) {
+                char c = s.charAt(pos);
+                if (Character.isDigit(c) || c == '.' || isIdentifierStart(c) || "+-*/()".indexOf(c) >= 0) return true;
+                pos++;
+            }
+            return false;
+        }
+
+        private static boolean isIdentifierStart(char c) { return Character.isLetter(c) || c == '_'; }
+        private static boolean isIdentifierPart(char c) { return Character.isLetterOrDigit(c) || c == '_'; }
     }
 }
-
@@ -160,8 +160,8 @@ public class ExtendedModbusConfigUI extends JDialog {
         row++;
         gbc.gridx = 0; gbc.gridy = row;
         panel.add(new JLabel("Data Type:"), gbc);
-        String[] dataTypes = {"Int16", "UInt16", "Float32 (ABCD)", "Float32 (BADC)"};
-        dataTypeCombo = new JComboBox<>(dataTypes);
+        dataTypeCombo = new JComboBox<>(RegisterDecoder.dataTypes());
+        dataTypeCombo.setEditable(true); // for a scale or bit, e.g. "UInt16 *0.1" (see RegisterDecoder)
         dataTypeCombo.addActionListener(e -> updateLengthInfo());
         gbc.gridx = 1;
         panel.add(dataTypeCombo, gbc);
@@ -375,16 +375,7 @@ public class ExtendedModbusConfigUI extends JDialog {
     
     // Modbus configuration methods
     private int getLengthForDataType(String dataType) {
-        switch (dataType) {
-            case "Int16":
-            case "UInt16":
-                return 1;
-            case "Float32 (ABCD)":
-            case "Float32 (BADC)":
-                return 2;
-            default:
-                return 1;
-        }
+        return RegisterDecoder.of(dataType).getRegisterCount();
     }
     
     private void updateLengthInfo() {
@@ -711,13 +702,8 @@ public class ExtendedModbusConfigUI extends JDialog {
                     return;
                 }
             } else if (address >= 40001 && address <= 49999) {
-                // Holding Register - convert based on data type
-                String dataType = config.getDataType();
-                if ("Float32 (ABCD)".equals(dataType) || "Float32 (BADC)".equals(dataType)) {
-                    writeValue = Float.parseFloat(writeValueStr);
-                } else {
-                    writeValue = Short.parseShort(writeValueStr);
-                }
+                // Holding Register - the data type is applied when the value is encoded for writing
+                writeValue = Double.parseDouble(writeValueStr);
             } else {
                 JOptionPane.showMessageDialog(this, "This register type is not writable.", "Error", JOptionPane.ERROR_MESSAGE);
                 return;
@@ -739,7 +725,7 @@ public class ExtendedModbusConfigUI extends JDialog {
                 ModbusMaster master = connectionManager.getMaster();
                 
                 if (master != null) {
-                    ChannelRuntimeService writeService = new ChannelRuntimeService(settings, master);
+                    ModbusRegisterWriter writer = new ModbusRegisterWriter(master);
                     
                     // Try password write first (if password provided), but don't fail if it doesn't work
                     if (!passwordStr.isEmpty()) {
@@ -748,7 +734,7 @@ public class ExtendedModbusConfigUI extends JDialog {
                         
                         try {
                             // Write password to register 40000 (as per manual)
-                            boolean passwordSuccess = writeService.writeValue(config.getSlaveId(), 40000, (short) passwordValue, "Int16");
+                            boolean passwordSuccess = writer.writeValue(config.getSlaveId(), 40000, (short) passwordValue, "Int16");
                             
                             if (passwordSuccess) {
                                 System.out.println("DEBUG: Password " + passwordValue + " written to register 40000");
@@ -771,7 +757,7 @@ public class ExtendedModbusConfigUI extends JDialog {
                     
                     // Now perform the main write operation
                     System.out.println("DEBUG: Attempting to write value " + writeValue + " to register " + address + " (Slave ID: " + config.getSlaveId() + ")");
-                    boolean success = writeService.writeValue(config.getSlaveId(), address, writeValue, config.getDataType());
+                    boolean success = writer.writeValue(config.getSlaveId(), address, writeValue, config.getDataType());
                     
                     if (success) {
                         writeStatusLabel.setText("✓ Value written successfully!");
@@ -784,8 +770,7 @@ public class ExtendedModbusConfigUI extends JDialog {
                         System.out.println("DEBUG: Failed to write value " + writeValue + " to register " + address);
                         JOptionPane.showMessageDialog(this, "Failed to write value. Check connection, register address, and ensure device is unlocked.", "Error", JOptionPane.ERROR_MESSAGE);
                     }
-                    
-                    writeService.shutdown();
+
                 } else {
                     JOptionPane.showMessageDialog(this, "Could not get Modbus master from existing connection.", "Connection Error", JOptionPane.ERROR_MESSAGE);
                 }
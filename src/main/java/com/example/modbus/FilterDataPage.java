@@ -11,6 +11,9 @@ import com.serotonin.modbus4j.msg.ReadHoldingRegistersResponse;
 import com.serotonin.modbus4j.msg.ReadInputRegistersRequest;
 import com.serotonin.modbus4j.msg.ReadInputRegistersResponse;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
 import javax.swing.*;
 import javax.swing.table.DefaultTableModel;
 import java.awt.BorderLayout;
@@ -20,13 +23,16 @@ import java.awt.Frame;
 import java.awt.GridBagConstraints;
 import java.awt.GridBagLayout;
 import java.awt.Insets;
+import java.util.Arrays;
 import java.util.List;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
-import java.util.Timer;
-import java.util.TimerTask;
+import java.util.concurrent.TimeUnit;
 
 public class FilterDataPage {
+    private static final Logger log = LoggerFactory.getLogger(FilterDataPage.class);
+    private static final RateLimitedLog failures = new RateLimitedLog(log, 3, 60_000);
+
     private JPanel panel;
     private JLabel statusLabel;
     private JTable dataTable;
@@ -43,15 +49,45 @@ public class FilterDataPage {
     private JButton resetCountersButton;
     private JButton configButton;
 
-    private Timer timer;
+    private final CycleTimer cycle = new CycleTimer("filter-data-page", this::readModbusData);
+    private volatile int pollIntervalMs = ChannelConfig.SCAN_NORMAL; // fastest scan class of the entries
     private boolean polling;
     private long polls;
     private long validResponses;
     
     // Two-dimensional array with 3 entries: [slaveId, start, length]
-    private int[][] modbusConfigArray; // Will be loaded from file
-    private String[] dataTypes; // Data types for each configuration entry
-    private String[] channelNames; // Channel names for each configuration entry
+    // Loaded from file on the EDT and read by the timer thread; replaced as a whole
+    private volatile ReadPlan readPlan = new ReadPlan(new int[0][], new RegisterDecoder[0], new String[0], new int[0]);
+
+    /**
+     * Everything the read cycle needs per configuration entry, with one element per entry
+     * in every array. A reload publishes a new plan, so a cycle that already started keeps
+     * reading the plan it began with.
+     */
+    private static final class ReadPlan {
+        final int[][] entries; // device id, address, register count
+        final RegisterDecoder[] decoders;
+        final String[] channelNames;
+        final int[] scanRates; // ms between reads of each entry
+        // Touched only by the read cycle
+        final long[] nextReadAt; // when each entry is next due
+        final java.util.List<java.util.List<Object[]>> lastRows; // table rows from each entry's last read
+
+        ReadPlan(int[][] entries, RegisterDecoder[] decoders, String[] channelNames, int[] scanRates) {
+            int n = entries.length;
+            this.entries = entries;
+            this.decoders = new RegisterDecoder[n];
+            this.channelNames = new String[n];
+            this.scanRates = new int[n];
+            this.nextReadAt = new long[n];
+            this.lastRows = new java.util.ArrayList<>(java.util.Collections.nCopies(n, null));
+            for (int i = 0; i < n; i++) {
+                this.decoders[i] = i < decoders.length && decoders[i] != null ? decoders[i] : RegisterDecoder.of("Float32 (ABCD)");
+                this.channelNames[i] = i < channelNames.length && channelNames[i] != null ? channelNames[i] : "Channel_" + entries[i][1];
+                this.scanRates[i] = i < scanRates.length && scanRates[i] > 0 ? scanRates[i] : ChannelConfig.SCAN_NORMAL;
+            }
+        }
+    }
 
     public FilterDataPage(ModbusSettings settings) {
         this(settings, new ModbusConnectionManager());
@@ -149,17 +185,25 @@ public class FilterDataPage {
         // Start data logging if it's enabled in configuration
         startDataLogging();
         
-        timer = new Timer(true);
-        timer.scheduleAtFixedRate(new TimerTask() {
-            @Override
-            public void run() { readModbusData(); }
-        }, 0, 1000);
+        scheduleCycle();
+    }
+
+    /**
+     * (Re)start the read cycle at the fastest scan class among the configured entries;
+     * slower entries are skipped until they are due.
+     */
+    private void scheduleCycle() {
+        int fastest = Integer.MAX_VALUE;
+        for (int rate : readPlan.scanRates) fastest = Math.min(fastest, rate);
+        pollIntervalMs = fastest == Integer.MAX_VALUE ? ChannelConfig.SCAN_NORMAL : Math.max(ChannelConfig.SCAN_FAST, fastest);
+        cycle.schedule(0, pollIntervalMs);
+        log.debug("Read cycle periodMs={}", pollIntervalMs);
     }
 
     private void stopPolling() {
         polling = false;
         startStopButton.setText("Start");
-        if (timer != null) { timer.cancel(); timer = null; }
+        cycle.stop();
         
         // Stop data logging
         stopDataLogging();
@@ -174,97 +218,107 @@ public class FilterDataPage {
             }
             
             polls++;
-            System.out.println("=== FilterData Polling Cycle #" + polls + " ===");
+            long cycleStart = System.nanoTime();
+            boolean trace = log.isTraceEnabled();
+            log.debug("Scan cycle={} started", polls);
             
             // Collect all data first, then update UI once
             java.util.List<Object[]> tableData = new java.util.ArrayList<>();
             String timestamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss"));
         
-        // Use the two-dimensional array instead of UI fields
-        for (int i = 0; i < modbusConfigArray.length; i++) {
-            int[] config = modbusConfigArray[i];
-            String dataType = (i < dataTypes.length) ? dataTypes[i] : "Float32 (ABCD)"; // Default fallback
-            String channelName = (i < channelNames.length) ? channelNames[i] : "Channel_" + config[1]; // Default fallback
+        // One plan for the whole cycle, even if the configuration is reloaded meanwhile
+        ReadPlan plan = readPlan;
+        for (int i = 0; i < plan.entries.length; i++) {
+            int[] config = plan.entries[i];
+            RegisterDecoder decoder = plan.decoders[i];
+            String channelName = plan.channelNames[i];
             int slaveId = config[0];
             int address = config[1];
             int len = Math.max(1, config[2]);
             
+            // Entries on a slower scan class than this page's cycle show their last reading until due
+            long now = System.currentTimeMillis();
+            if (now < plan.nextReadAt[i] && plan.lastRows.get(i) != null) {
+                tableData.addAll(plan.lastRows.get(i));
+                continue;
+            }
+            int rowsBefore = tableData.size();
+            
             try {
                 // Determine function code based on address
                 if (address >= 30001 && address < 40000) {
                     // Input Registers (FC04) - addresses 30001-39999
                     int zeroBasedAddress = address - 30001;
                     ReadInputRegistersRequest req = new ReadInputRegistersRequest(slaveId, zeroBasedAddress, len);
-                    System.out.println("Request: FC04 Read Input Registers - Slave:" + slaveId + ", Address:" + address + " (zero-based:" + zeroBasedAddress + "), Length:" + len);
+                    if (trace) log.trace("Request fc={} device={} address={} count={}", 4, slaveId, address, len);
                     ReadInputRegistersResponse resp = (ReadInputRegistersResponse) modbusMaster.send(req);
                     if (resp.isException()) {
-                        System.err.println("Modbus exception for address " + address + ": " + resp.getExceptionMessage());
+                        failures.warn(address, "Exception response device={} address={} exception={}", slaveId, address, resp.getExceptionMessage());
                         continue;
                     }
                     validResponses++;
-                    short[] data = resp.getShortData();
-                    System.out.println("Response: " + java.util.Arrays.toString(data));
-                    addDataToCollection(tableData, data, address, timestamp, dataType, channelName);
+                    if (trace) log.trace("Response device={} address={} data={}", slaveId, address, Arrays.toString(resp.getShortData()));
+                    addDataToCollection(tableData, resp.getData(), address, timestamp, decoder, channelName);
                 } else if (address >= 40001 && address < 50000) {
                     // Holding Registers (FC03) - addresses 40001-49999
                     int zeroBasedAddress = address - 40001;
                     ReadHoldingRegistersRequest req = new ReadHoldingRegistersRequest(slaveId, zeroBasedAddress, len);
-                    System.out.println("Request: FC03 Read Holding Registers - Slave:" + slaveId + ", Address:" + address + " (zero-based:" + zeroBasedAddress + "), Length:" + len);
+                    if (trace) log.trace("Request fc={} device={} address={} count={}", 3, slaveId, address, len);
                     ReadHoldingRegistersResponse resp = (ReadHoldingRegistersResponse) modbusMaster.send(req);
                     if (resp.isException()) {
-                        System.err.println("Modbus exception for address " + address + ": " + resp.getExceptionMessage());
+                        failures.warn(address, "Exception response device={} address={} exception={}", slaveId, address, resp.getExceptionMessage());
                         continue;
                     }
                     validResponses++;
-                    short[] data = resp.getShortData();
-                    System.out.println("Response: " + java.util.Arrays.toString(data));
-                    addDataToCollection(tableData, data, address, timestamp, dataType, channelName);
+                    if (trace) log.trace("Response device={} address={} data={}", slaveId, address, Arrays.toString(resp.getShortData()));
+                    addDataToCollection(tableData, resp.getData(), address, timestamp, decoder, channelName);
                 } else if (address >= 10001 && address < 20000) {
                     // Discrete Inputs (FC02) - addresses 10001-19999
                     int zeroBasedAddress = address - 10001;
                     ReadDiscreteInputsRequest req = new ReadDiscreteInputsRequest(slaveId, zeroBasedAddress, len);
-                    System.out.println("Request: FC02 Read Discrete Inputs - Slave:" + slaveId + ", Address:" + address + " (zero-based:" + zeroBasedAddress + "), Length:" + len);
+                    if (trace) log.trace("Request fc={} device={} address={} count={}", 2, slaveId, address, len);
                     ReadDiscreteInputsResponse resp = (ReadDiscreteInputsResponse) modbusMaster.send(req);
                     if (resp.isException()) {
-                        System.err.println("Modbus exception for address " + address + ": " + resp.getExceptionMessage());
+                        failures.warn(address, "Exception response device={} address={} exception={}", slaveId, address, resp.getExceptionMessage());
                         continue;
                     }
                     validResponses++;
                     boolean[] data = resp.getBooleanData();
-                    System.out.println("Response: " + java.util.Arrays.toString(data));
+                    if (trace) log.trace("Response device={} address={} data={}", slaveId, address, Arrays.toString(data));
                     addBooleanDataToCollection(tableData, data, address, timestamp, channelName);
                 } else if (address >= 1 && address < 10000) {
                     // Coils (FC01) - addresses 1-9999
                     int zeroBasedAddress = address - 1;
                     ReadCoilsRequest req = new ReadCoilsRequest(slaveId, zeroBasedAddress, len);
-                    System.out.println("Request: FC01 Read Coils - Slave:" + slaveId + ", Address:" + address + " (zero-based:" + zeroBasedAddress + "), Length:" + len);
+                    if (trace) log.trace("Request fc={} device={} address={} count={}", 1, slaveId, address, len);
                     ReadCoilsResponse resp = (ReadCoilsResponse) modbusMaster.send(req);
                     if (resp.isException()) {
-                        System.err.println("Modbus exception for address " + address + ": " + resp.getExceptionMessage());
+                        failures.warn(address, "Exception response device={} address={} exception={}", slaveId, address, resp.getExceptionMessage());
                         continue;
                     }
                     validResponses++;
                     boolean[] data = resp.getBooleanData();
-                    System.out.println("Response: " + java.util.Arrays.toString(data));
+                    if (trace) log.trace("Response device={} address={} data={}", slaveId, address, Arrays.toString(data));
                     addBooleanDataToCollection(tableData, data, address, timestamp, channelName);
                 } else {
                     // Treat as raw zero-based holding register address
                     ReadHoldingRegistersRequest req = new ReadHoldingRegistersRequest(slaveId, address, len);
-                    System.out.println("Request: FC03 Read Holding Registers (raw) - Slave:" + slaveId + ", Address:" + address + ", Length:" + len);
+                    if (trace) log.trace("Request fc={} device={} address={} count={}", 3, slaveId, address, len);
                     ReadHoldingRegistersResponse resp = (ReadHoldingRegistersResponse) modbusMaster.send(req);
                     if (resp.isException()) {
-                        System.err.println("Modbus exception for address " + address + ": " + resp.getExceptionMessage());
+                        failures.warn(address, "Exception response device={} address={} exception={}", slaveId, address, resp.getExceptionMessage());
                         continue;
                     }
                     validResponses++;
-                    short[] data = resp.getShortData();
-                    System.out.println("Response: " + java.util.Arrays.toString(data));
-                    addDataToCollection(tableData, data, address, timestamp, dataType, channelName);
+                    if (trace) log.trace("Response device={} address={} data={}", slaveId, address, Arrays.toString(resp.getShortData()));
+                    addDataToCollection(tableData, resp.getData(), address, timestamp, decoder, channelName);
                 }
+                plan.lastRows.set(i, new java.util.ArrayList<>(tableData.subList(rowsBefore, tableData.size())));
+                plan.nextReadAt[i] = now + plan.scanRates[i];
                 SwingUtilities.invokeLater(() -> statusLabel.setText("Status: Reading from " + settings.getPortName()));
             } catch (ModbusTransportException e) {
                 SwingUtilities.invokeLater(() -> statusLabel.setText("Status: Transport error - " + e.getMessage()));
-                System.err.println("Transport error for address " + address + ": " + e.getMessage());
+                failures.warn(address, "Transport error device={} address={} error={}", slaveId, address, e.getMessage());
             }
         }
         
@@ -275,21 +329,31 @@ public class FilterDataPage {
                     tableModel.addRow(row);
                 }
                 
-                // Calculate math channel values BEFORE sending to logger
-                calculateMathChannels();
-                
-                // Store only calculated/formatted values in ModbusDataStore (NO raw data)
-                storeCalculatedValuesToDataStore(tableData);
+                // Publish this cycle's updates to ModbusDataStore subscribers as one change set
+                ModbusDataStore.getInstance().beginCycle();
+                try {
+                    // Calculate math channel values BEFORE sending to logger
+                    calculateMathChannels();
+                    
+                    // Store only calculated/formatted values in ModbusDataStore (NO raw data)
+                    storeCalculatedValuesToDataStore(tableData);
+                } finally {
+                    ModbusDataStore.getInstance().endCycle();
+                }
                 
                 // Send ONLY calculated/formatted data to energy logger (NO raw data)
                 sendDataToLogger();
             });
             
-            System.out.println("=== End of Polling Cycle #" + polls + " ===");
+            long cycleNanos = System.nanoTime() - cycleStart;
+            PollMetrics.Line metrics = PollMetrics.getShared().line(settings.getConnectionName());
+            int interval = pollIntervalMs;
+            metrics.recordScan(interval, cycleNanos);
+            if (cycleNanos > TimeUnit.MILLISECONDS.toNanos(interval)) metrics.recordOverrun(interval);
+            log.debug("Scan cycle={} finished durationMs={}", polls, TimeUnit.NANOSECONDS.toMillis(cycleNanos));
             
         } catch (Exception e) {
-            System.err.println("Critical error in readModbusData: " + e.getMessage());
-            e.printStackTrace();
+            log.error("Scan cycle={} failed", polls, e);
             
             // Only attempt to reconnect if we're not already in a reconnection process
             if (!statusLabel.getText().contains("attempting to reconnect")) {
@@ -304,7 +368,7 @@ public class FilterDataPage {
                         
                         // Check if connection is still needed
                         if (polling) {
-                            System.out.println("Attempting to reconnect...");
+                            log.info("Reconnecting line={}", settings.getConnectionName());
                             SwingUtilities.invokeLater(() -> {
                                 statusLabel.setText("Status: Reconnecting...");
                             });
@@ -316,20 +380,19 @@ public class FilterDataPage {
                             
                             // Verify connection is actually working
                             if (connectionManager.isOpen()) {
-                                System.out.println("Reconnection successful");
+                                log.info("Reconnected line={}", settings.getConnectionName());
                                 SwingUtilities.invokeLater(() -> {
                                     statusLabel.setText("Status: Connected to " + settings.getPortName());
                                 });
                             } else {
-                                System.out.println("Reconnection failed - connection not open");
+                                log.warn("Reconnect failed line={}, connection not open", settings.getConnectionName());
                                 SwingUtilities.invokeLater(() -> {
                                     statusLabel.setText("Status: Reconnection failed");
                                 });
                             }
                         }
                     } catch (Exception reconnectException) {
-                        System.err.println("Failed to reconnect: " + reconnectException.getMessage());
-                        reconnectException.printStackTrace();
+                        log.error("Reconnect failed line={}", settings.getConnectionName(), reconnectException);
                         SwingUtilities.invokeLater(() -> {
                             statusLabel.setText("Status: Connection failed - " + reconnectException.getMessage());
                         });
@@ -370,25 +433,21 @@ public class FilterDataPage {
                     }
                     
                     if (!calculatedData.isEmpty()) {
-                        System.out.println("DEBUG: Sending " + calculatedData.size() + " calculated values to energy logger:");
-                        for (java.util.Map.Entry<String, Object> entry : calculatedData.entrySet()) {
-                            System.out.println("  " + entry.getKey() + " = " + entry.getValue());
-                        }
+                        log.debug("Sending count={} values={} to energy logger", calculatedData.size(), calculatedData);
                         
                         // Send only calculated values to logger
                         logger.updateData(calculatedData);
                     } else {
-                        System.out.println("DEBUG: No calculated data available to send to energy logger");
+                        log.debug("No calculated values to send to energy logger");
                     }
                 } else {
-                    System.out.println("DEBUG: No data available to send to energy logger");
+                    log.debug("No values to send to energy logger");
                 }
             } else {
-                System.out.println("DEBUG: Energy logger is not active");
+                log.debug("Energy logger is not active");
             }
         } catch (Exception e) {
-            System.err.println("Error sending data to logger: " + e.getMessage());
-            e.printStackTrace();
+            log.error("Sending values to energy logger failed", e);
             
             // Try to restart the energy logger if it fails
             try {
@@ -396,9 +455,9 @@ public class FilterDataPage {
                 logger.stopLogging();
                 Thread.sleep(1000);
                 logger.startLogging();
-                System.out.println("Energy logger restarted successfully");
+                log.info("Energy logger restarted");
             } catch (Exception restartException) {
-                System.err.println("Failed to restart energy logger: " + restartException.getMessage());
+                log.error("Restarting energy logger failed: {}", restartException.getMessage());
             }
         }
     }
@@ -409,8 +468,8 @@ public class FilterDataPage {
      */
     private void storeCalculatedValuesToDataStore(java.util.List<Object[]> tableData) {
         try {
-            // Get all configured channels from modbus_config.json
-            List<ModbusConfigManager.ModbusConfig> modbusConfigs = ModbusConfigManager.loadConfig();
+            // Configured channels from modbus_config.json
+            ConfigRegistry.Snapshot config = ConfigRegistry.getInstance().current();
             
             for (Object[] row : tableData) {
                 if (row.length >= 4) {
@@ -418,25 +477,19 @@ public class FilterDataPage {
                     Object value = row[3]; // Value
                     
                     // Check if this is a properly configured channel (not raw data)
-                    boolean isConfiguredChannel = false;
-                    for (ModbusConfigManager.ModbusConfig config : modbusConfigs) {
-                        if (config.getChannelName().equals(channelName)) {
-                            isConfiguredChannel = true;
-                            break;
-                        }
-                    }
+                    boolean isConfiguredChannel = config.isConfiguredChannel(channelName);
                     
                     // Only store configured channels (formatted values)
                     if (isConfiguredChannel) {
                         ModbusDataStore.getInstance().updateValue(channelName, value);
-                        System.out.println("DEBUG: Stored calculated value: " + channelName + " = " + value);
+                        log.trace("Stored channel={} value={}", channelName, value);
                     } else {
-                        System.out.println("DEBUG: Skipped raw data: " + channelName + " = " + value);
+                        log.trace("Skipped raw channel={} value={}", channelName, value);
                     }
                 }
             }
         } catch (Exception e) {
-            System.err.println("Error storing calculated values to data store: " + e.getMessage());
+            log.warn("Storing calculated values failed: {}", e.getMessage());
         }
     }
     
@@ -451,15 +504,8 @@ public class FilterDataPage {
         }
         
         // Include channels that are configured in ModbusConfig (these are formatted)
-        try {
-            List<ModbusConfigManager.ModbusConfig> modbusConfigs = ModbusConfigManager.loadConfig();
-            for (ModbusConfigManager.ModbusConfig config : modbusConfigs) {
-                if (config.getChannelName().equals(channelName)) {
-                    return true; // This is a configured channel, not raw data
-                }
-            }
-        } catch (Exception e) {
-            System.err.println("Error checking channel configuration: " + e.getMessage());
+        if (ConfigRegistry.getInstance().current().isConfiguredChannel(channelName)) {
+            return true; // This is a configured channel, not raw data
         }
         
         // Exclude raw register data (Channel_XXXXX format without proper names)
@@ -475,17 +521,7 @@ public class FilterDataPage {
      * Check if a channel is properly configured (has a meaningful name)
      */
     private boolean isConfiguredChannel(String channelName) {
-        try {
-            List<ModbusConfigManager.ModbusConfig> modbusConfigs = ModbusConfigManager.loadConfig();
-            for (ModbusConfigManager.ModbusConfig config : modbusConfigs) {
-                if (config.getChannelName().equals(channelName)) {
-                    return true;
-                }
-            }
-        } catch (Exception e) {
-            // Ignore errors
-        }
-        return false;
+        return ConfigRegistry.getInstance().current().isConfiguredChannel(channelName);
     }
     
     private void calculateMathChannels() {
@@ -526,37 +562,12 @@ public class FilterDataPage {
         }
     }
     
-    private void addDataToCollection(java.util.List<Object[]> tableData, short[] data, int start, String timestamp, String dataType, String channelName) {
-        if ("Int16".equals(dataType)) {
-            for (int i = 0; i < data.length; i++) {
-                int value = (int) data[i];
-                tableData.add(new Object[]{timestamp, channelName, start + i, value});
-                // DO NOT store raw values in ModbusDataStore - only calculated/formatted values
-            }
-        } else if ("UInt16".equals(dataType)) {
-            for (int i = 0; i < data.length; i++) {
-                int val = data[i] & 0xFFFF;
-                tableData.add(new Object[]{timestamp, channelName, start + i, val});
-                // DO NOT store raw values in ModbusDataStore - only calculated/formatted values
-            }
-        } else if ("Float32 (ABCD)".equals(dataType)) {
-            for (int i = 0; i + 1 < data.length; i += 2) {
-                int hi = data[i] & 0xFFFF;
-                int lo = data[i + 1] & 0xFFFF;
-                int bits = (hi << 16) | lo;
-                float f = Float.intBitsToFloat(bits);
-                tableData.add(new Object[]{timestamp, channelName, start + i, f});
-                // DO NOT store raw values in ModbusDataStore - only calculated/formatted values
-            }
-        } else { // Float32 (BADC) word-swapped
-            for (int i = 0; i + 1 < data.length; i += 2) {
-                int hi = data[i + 1] & 0xFFFF;
-                int lo = data[i] & 0xFFFF;
-                int bits = (hi << 16) | lo;
-                float f = Float.intBitsToFloat(bits);
-                tableData.add(new Object[]{timestamp, channelName, start + i, f});
-                // DO NOT store raw values in ModbusDataStore - only calculated/formatted values
-            }
+    private void addDataToCollection(java.util.List<Object[]> tableData, byte[] data, int start, String timestamp, RegisterDecoder decoder, String channelName) {
+        // One row per value the block holds; DO NOT store raw values in ModbusDataStore - only calculated/formatted values
+        int step = decoder.getRegisterCount();
+        int registers = data.length / 2;
+        for (int i = 0; i + step <= registers; i += step) {
+            tableData.add(new Object[]{timestamp, channelName, start + i, decoder.box(decoder.decode(data, i))});
         }
     }
     
@@ -619,7 +630,7 @@ public class FilterDataPage {
                 JOptionPane.showMessageDialog(panel, 
                     "Export failed: " + e.getMessage(), 
                     "Export Error", JOptionPane.ERROR_MESSAGE);
-                e.printStackTrace();
+                log.error("Table export failed", e);
             }
         }
     }
@@ -652,29 +663,37 @@ public class FilterDataPage {
     }
     
     public void setModbusConfigArray(int[][] configArray) {
-        this.modbusConfigArray = configArray;
+        ReadPlan current = readPlan;
+        this.readPlan = new ReadPlan(configArray, current.decoders, current.channelNames, current.scanRates);
     }
     
     public int[][] getModbusConfigArray() {
-        return this.modbusConfigArray;
+        return readPlan.entries;
     }
     
     private void loadModbusConfig() {
         List<ModbusConfigManager.ModbusConfig> configs = ModbusConfigManager.loadConfig();
-        this.modbusConfigArray = ModbusConfigManager.convertToArray(configs);
-        this.dataTypes = ModbusConfigManager.getDataTypes(configs);
-        this.channelNames = ModbusConfigManager.getChannelNames(configs);
+        String[] dataTypes = ModbusConfigManager.getDataTypes(configs);
+        RegisterDecoder[] decoders = new RegisterDecoder[dataTypes.length];
+        for (int i = 0; i < decoders.length; i++) {
+            if (dataTypes[i] != null) decoders[i] = RegisterDecoder.of(dataTypes[i]);
+        }
+        int[] rates = new int[configs.size()];
+        for (int i = 0; i < rates.length; i++) rates[i] = configs.get(i).getScanRate();
+        this.readPlan = new ReadPlan(ModbusConfigManager.convertToArray(configs), decoders, ModbusConfigManager.getChannelNames(configs), rates);
     }
     
     private void openConfigDialog() {
         ExtendedModbusConfigUI configDialog = new ExtendedModbusConfigUI((Frame) SwingUtilities.getWindowAncestor(panel), connectionManager, settings);
         configDialog.setVisible(true);
         
-        // Reload configuration after dialog closes
+        // Reload configuration after dialog closes; the cycle follows changed scan rates
         loadModbusConfig();
-        System.out.println("Modbus configuration reloaded. Current config:");
-        for (int[] config : modbusConfigArray) {
-            System.out.println("Slave: " + config[0] + ", Address: " + config[1] + ", Length: " + config[2]);
+        if (polling) scheduleCycle();
+        int[][] entries = readPlan.entries;
+        log.info("Modbus configuration reloaded entries={}", entries.length);
+        if (log.isDebugEnabled()) {
+            for (int[] config : entries) log.debug("Entry device={} address={} count={}", config[0], config[1], config[2]);
         }
     }
     
@@ -713,10 +732,10 @@ public class FilterDataPage {
             
             if (config.isEnabled() && !logger.isLogging()) {
                 logger.startLogging();
-                System.out.println("Data logging started automatically with polling");
+                log.info("Data logging started with polling");
             }
         } catch (Exception e) {
-            System.err.println("Error starting data logging: " + e.getMessage());
+            log.error("Starting data logging failed: {}", e.getMessage());
         }
     }
     
@@ -729,10 +748,10 @@ public class FilterDataPage {
             
             if (logger.isLogging()) {
                 logger.stopLogging();
-                System.out.println("Data logging stopped automatically with polling");
+                log.info("Data logging stopped with polling");
             }
         } catch (Exception e) {
-            System.err.println("Error stopping data logging: " + e.getMessage());
+            log.error("Stopping data logging failed: {}", e.getMessage());
         }
     }
 }
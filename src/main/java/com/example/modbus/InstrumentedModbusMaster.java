@@ -0,0 +1,79 @@
+package com.example.modbus;
+
+import com.serotonin.modbus4j.ModbusMaster;
+import com.serotonin.modbus4j.exception.ModbusInitException;
+import com.serotonin.modbus4j.exception.ModbusTransportException;
+import com.serotonin.modbus4j.msg.ModbusRequest;
+import com.serotonin.modbus4j.msg.ModbusResponse;
+import com.serotonin.modbus4j.sero.messaging.MessagingExceptionHandler;
+
+/**
+ * A master that sends through another one and records every request in a
+ * {@link PollMetrics.Line}. Timeouts are retried here instead of inside modbus4j, which
+ * gets no retries of its own, so every attempt is timed and counted separately. Frames
+ * modbus4j discards for a bad CRC are counted from its exception handler.
+ */
+public class InstrumentedModbusMaster extends ModbusMaster {
+    private final ModbusMaster delegate;
+    private final PollMetrics.Line metrics;
+
+    /**
+     * Wrap a master that has not been initialised yet. Set the timeout and retries on
+     * this master, then call {@link #init()}.
+     */
+    public InstrumentedModbusMaster(ModbusMaster delegate, PollMetrics.Line metrics) {
+        this.delegate = delegate;
+        this.metrics = metrics;
+        MessagingExceptionHandler handler = delegate.getExceptionHandler();
+        delegate.setExceptionHandler(e -> {
+            if (e.getMessage() != null && e.getMessage().startsWith("CRC mismatch")) metrics.recordCrcError();
+            if (handler != null) handler.receivedException(e);
+        });
+    }
+
+    @Override
+    public void init() throws ModbusInitException {
+        delegate.setTimeout(getTimeout());
+        delegate.setRetries(0);
+        delegate.init();
+        initialized = true;
+    }
+
+    @Override
+    public boolean isInitialized() {
+        return delegate.isInitialized();
+    }
+
+    @Override
+    public boolean isConnected() {
+        return delegate.isConnected();
+    }
+
+    @Override
+    public void destroy() {
+        initialized = false;
+        delegate.destroy();
+    }
+
+    @Override
+    public ModbusResponse sendImpl(ModbusRequest request) throws ModbusTransportException {
+        int deviceId = request.getSlaveId();
+        int functionCode = request.getFunctionCode() & 0xFF;
+        for (int attempt = 0; ; attempt++) {
+            long start = System.nanoTime();
+            try {
+                ModbusResponse response = delegate.send(request);
+                metrics.recordResponse(deviceId, functionCode, System.nanoTime() - start, response.isException());
+                return response;
+            } catch (ModbusTransportException e) {
+                if (!PollMetrics.isTimeout(e)) {
+                    metrics.recordError(deviceId, functionCode);
+                    throw e;
+                }
+                metrics.recordTimeout(deviceId, functionCode);
+                if (attempt >= getRetries()) throw e;
+                metrics.recordRetry(deviceId, functionCode);
+            }
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.example.modbus;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Histogram of durations with a fixed relative precision, laid out like HdrHistogram:
+ * values up to {@value #SUB_BUCKETS} µs get a bucket each, larger ones fall into
+ * {@value #HALF_BUCKETS} buckets per power of two, so every recorded value is known to
+ * within about 3% however long it is. Recording is a few atomic adds and never allocates,
+ * so it can sit on every request path and be read from any thread while being written.
+ */
+public class LatencyHistogram {
+    private static final int SUB_BITS = 6;
+    private static final int SUB_BUCKETS = 1 << SUB_BITS;
+    private static final int HALF_BUCKETS = SUB_BUCKETS / 2;
+    private static final int MAX_MAGNITUDE = 36; // 2^36 µs, about 19 hours
+    private static final int BUCKETS = SUB_BUCKETS + (MAX_MAGNITUDE - SUB_BITS) * HALF_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final LongAdder total = new LongAdder();
+    private final LongAdder sumMicros = new LongAdder();
+    private final AtomicLong maxMicros = new AtomicLong();
+
+    public void record(long nanos) {
+        long micros = Math.max(0, TimeUnit.NANOSECONDS.toMicros(nanos));
+        counts.incrementAndGet(bucketOf(micros));
+        total.increment();
+        sumMicros.add(micros);
+        maxMicros.accumulateAndGet(micros, Math::max);
+    }
+
+    public long getCount() {
+        return total.sum();
+    }
+
+    public double getMeanMillis() {
+        long n = total.sum();
+        return n == 0 ? 0 : sumMicros.sum() / 1000.0 / n;
+    }
+
+    public double getMaxMillis() {
+        return maxMicros.get() / 1000.0;
+    }
+
+    /**
+     * The value at or below which the given share of recordings fall, in ms, reported as
+     * the top of its bucket. 0 when nothing was recorded.
+     */
+    public double getPercentileMillis(double percentile) {
+        long n = 0;
+        for (int i = 0; i < BUCKETS; i++) n += counts.get(i);
+        if (n == 0) return 0;
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100.0 * n));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts.get(i);
+            if (seen >= rank) return Math.min(highestInBucket(i), maxMicros.get()) / 1000.0;
+        }
+        return getMaxMillis();
+    }
+
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++) counts.set(i, 0);
+        total.reset();
+        sumMicros.reset();
+        maxMicros.set(0);
+    }
+
+    static int bucketOf(long micros) {
+        if (micros < SUB_BUCKETS) return (int) micros;
+        int magnitude = 63 - Long.numberOfLeadingZeros(micros);
+        if (magnitude >= MAX_MAGNITUDE) return BUCKETS - 1;
+        int shift = magnitude - SUB_BITS + 1;
+        int sub = (int) (micros >>> shift); // HALF_BUCKETS to SUB_BUCKETS - 1
+        return SUB_BUCKETS + (shift - 1) * HALF_BUCKETS + sub - HALF_BUCKETS;
+    }
+
+    static long highestInBucket(int bucket) {
+        if (bucket < SUB_BUCKETS) return bucket;
+        int k = bucket - SUB_BUCKETS;
+        int shift = k / HALF_BUCKETS + 1;
+        long sub = k % HALF_BUCKETS + HALF_BUCKETS;
+        return ((sub + 1) << shift) - 1;
+    }
+}
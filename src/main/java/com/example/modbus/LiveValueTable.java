@@ -0,0 +1,207 @@
+package com.example.modbus;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Latest value of every channel, kept in parallel primitive arrays.
+ * Each key (a channel number) gets a fixed slot when the key set is installed with
+ * {@link #setKeys}; updates then go straight into the slot without boxing or allocating.
+ * Every slot carries a sequence counter, so readers never block the writer and a
+ * {@link #snapshot} always pairs a value with its own timestamp and flags.
+ * A key must only be written by one thread at a time.
+ */
+public class LiveValueTable {
+    public static final int QUALITY_NONE = 0; // never written
+    public static final int QUALITY_GOOD = 1;
+    public static final int QUALITY_BAD = 2; // last read failed, the value is the last good one
+    /** Low bits of the flags hold the quality; owners may use the rest for their own tags. */
+    public static final int QUALITY_MASK = 0xFF;
+
+    private static final class Layout {
+        final int[] keys; // sorted
+        final AtomicLongArray sequence;
+        final AtomicLongArray values;
+        final AtomicLongArray timestamps;
+        final AtomicIntegerArray flags;
+
+        Layout(int[] keys) {
+            this.keys = keys;
+            this.sequence = new AtomicLongArray(keys.length);
+            this.values = new AtomicLongArray(keys.length);
+            this.timestamps = new AtomicLongArray(keys.length);
+            this.flags = new AtomicIntegerArray(keys.length);
+            long nan = Double.doubleToRawLongBits(Double.NaN);
+            for (int i = 0; i < keys.length; i++) values.set(i, nan);
+        }
+
+        int slot(int key) {
+            int i = Arrays.binarySearch(keys, key);
+            return i < 0 ? -1 : i;
+        }
+
+        // Odd sequence while the slot is being written
+        void write(int slot, double value, long timestamp, int slotFlags) {
+            long seq = sequence.get(slot);
+            sequence.set(slot, seq + 1);
+            values.set(slot, Double.doubleToRawLongBits(value));
+            timestamps.set(slot, timestamp);
+            flags.set(slot, slotFlags);
+            sequence.set(slot, seq + 2);
+        }
+    }
+
+    private volatile Layout layout = new Layout(new int[0]);
+
+    /**
+     * Install the set of keys. Keys that were already present keep their value; writes
+     * racing with the switch may be lost and show up again with the next update.
+     */
+    public synchronized void setKeys(int[] keys) {
+        int[] sorted = Arrays.stream(keys).distinct().sorted().toArray();
+        Layout previous = layout;
+        if (Arrays.equals(sorted, previous.keys)) return;
+        Layout next = new Layout(sorted);
+        for (int i = 0; i < sorted.length; i++) {
+            int old = previous.slot(sorted[i]);
+            if (old < 0) continue;
+            next.values.set(i, previous.values.get(old));
+            next.timestamps.set(i, previous.timestamps.get(old));
+            next.flags.set(i, previous.flags.get(old));
+        }
+        layout = next;
+    }
+
+    public int[] getKeys() { return layout.keys.clone(); }
+
+    public boolean hasKey(int key) { return layout.slot(key) >= 0; }
+
+    /**
+     * Store a good value. Returns false if the key has no slot.
+     */
+    public boolean put(int key, double value) {
+        return put(key, value, QUALITY_GOOD);
+    }
+
+    public boolean put(int key, double value, int flags) {
+        Layout l = layout;
+        int slot = l.slot(key);
+        if (slot < 0) return false;
+        l.write(slot, value, System.currentTimeMillis(), flags);
+        return true;
+    }
+
+    /**
+     * Change a key's quality and keep its value and timestamp, e.g. to mark a failed read.
+     */
+    public void setQuality(int key, int quality) {
+        Layout l = layout;
+        int slot = l.slot(key);
+        if (slot < 0) return;
+        int flags = l.flags.get(slot);
+        if ((flags & QUALITY_MASK) == QUALITY_NONE) return; // nothing to qualify yet
+        l.write(slot, Double.longBitsToDouble(l.values.get(slot)), l.timestamps.get(slot), (flags & ~QUALITY_MASK) | quality);
+    }
+
+    /**
+     * Latest value, NaN if the key has no slot or was never written.
+     */
+    public double get(int key) {
+        Layout l = layout;
+        int slot = l.slot(key);
+        return slot < 0 ? Double.NaN : Double.longBitsToDouble(l.values.get(slot));
+    }
+
+    /**
+     * Whether the key has been written since it got its slot.
+     */
+    public boolean contains(int key) {
+        return (getFlags(key) & QUALITY_MASK) != QUALITY_NONE;
+    }
+
+    public int getFlags(int key) {
+        Layout l = layout;
+        int slot = l.slot(key);
+        return slot < 0 ? QUALITY_NONE : l.flags.get(slot);
+    }
+
+    /**
+     * Time of the last update in epoch ms, 0 if never written.
+     */
+    public long getTimestamp(int key) {
+        Layout l = layout;
+        int slot = l.slot(key);
+        return slot < 0 ? 0 : l.timestamps.get(slot);
+    }
+
+    /**
+     * Reset every slot to unwritten. Keys keep their slots.
+     */
+    public synchronized void clear() {
+        layout = new Layout(layout.keys);
+    }
+
+    /**
+     * Copy every slot into a snapshot. Pass the previous snapshot back in to reuse its
+     * arrays, which makes repeated snapshots allocation-free.
+     */
+    public Snapshot snapshot(Snapshot reuse) {
+        Layout l = layout;
+        int n = l.keys.length;
+        Snapshot s = reuse != null && reuse.keys.length >= n ? reuse : new Snapshot(n);
+        s.size = n;
+        System.arraycopy(l.keys, 0, s.keys, 0, n);
+        for (int i = 0; i < n; i++) {
+            long seq;
+            do {
+                seq = l.sequence.get(i);
+                s.values[i] = Double.longBitsToDouble(l.values.get(i));
+                s.timestamps[i] = l.timestamps.get(i);
+                s.flags[i] = l.flags.get(i);
+            } while ((seq & 1) != 0 || l.sequence.get(i) != seq);
+        }
+        return s;
+    }
+
+    /**
+     * Written values keyed by key. Allocates; for code that still works with maps.
+     */
+    public Map<Integer, Double> toMap() {
+        Layout l = layout;
+        Map<Integer, Double> map = new HashMap<>();
+        for (int i = 0; i < l.keys.length; i++) {
+            if ((l.flags.get(i) & QUALITY_MASK) != QUALITY_NONE) {
+                map.put(l.keys[i], Double.longBitsToDouble(l.values.get(i)));
+            }
+        }
+        return map;
+    }
+
+    /**
+     * Consistent copy of a table, indexed by slot.
+     */
+    public static final class Snapshot {
+        private int size;
+        private final int[] keys;
+        private final double[] values;
+        private final long[] timestamps;
+        private final int[] flags;
+
+        private Snapshot(int capacity) {
+            keys = new int[capacity];
+            values = new double[capacity];
+            timestamps = new long[capacity];
+            flags = new int[capacity];
+        }
+
+        public int size() { return size; }
+        public int getKey(int slot) { return keys[slot]; }
+        public double getValue(int slot) { return values[slot]; }
+        public long getTimestamp(int slot) { return timestamps[slot]; }
+        public int getFlags(int slot) { return flags[slot]; }
+        public int getQuality(int slot) { return flags[slot] & QUALITY_MASK; }
+    }
+}
@@ -0,0 +1,272 @@
+package com.example.modbus;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Dependency graph over the enabled math channels.
+ * Expressions are compiled once, ordered topologically so a math channel can use
+ * another math channel's result from the same scan, and only channels whose
+ * inputs changed since the previous scan are re-evaluated. Channels using
+ * counter or timer functions are evaluated every scan. A channel that refers to
+ * its own name reads its previous result; longer cycles are reported and yield NaN.
+ */
+public class MathChannelGraph {
+    private static final Logger log = LoggerFactory.getLogger(MathChannelGraph.class);
+    private static final RateLimitedLog failures = new RateLimitedLog(log, 3, 60_000);
+
+    private final List<MathChannelConfig> configs;
+    private final Set<String> inputNames;
+    private final Node[] order; // topological order, cyclic channels excluded
+    private final Map<String, Node> byName = new LinkedHashMap<>();
+    private final Map<String, String> errors = new LinkedHashMap<>();
+    private final Node[] byConfig; // per configuration; null when disabled or not evaluable
+
+    // One slot per external input name read by any expression
+    private final String[] inputSlotNames;
+    private final double[] inputValues;
+    private final boolean[] inputPresent;
+    private final Node[][] inputReaders;
+    private boolean firstScan = true;
+
+    private static final class Node {
+        final MathChannelConfig config;
+        final MathExpressionEvaluator.CompiledExpression expression;
+        final boolean alwaysEvaluate;
+        final double[] args;
+        // For each expression variable: >= 0 is an input slot, < 0 is -(index + 1) into order[]
+        int[] argSources;
+        final List<Node> dependents = new ArrayList<>();
+        boolean dirty;
+        double value = Double.NaN;
+
+        Node(MathChannelConfig config, MathExpressionEvaluator.CompiledExpression expression) {
+            this.config = config;
+            this.expression = expression;
+            this.alwaysEvaluate = config.usesCounters() || config.usesTimers();
+            this.args = new double[expression.getVariableCount()];
+        }
+    }
+
+    /**
+     * Build the graph for the given math channels.
+     *
+     * @param configs    math channel configurations; disabled ones are ignored
+     * @param inputNames names of the non-math channels values will be supplied for
+     */
+    public MathChannelGraph(List<MathChannelConfig> configs, Collection<String> inputNames) {
+        this.configs = new ArrayList<>(configs);
+        this.inputNames = new HashSet<>(inputNames);
+
+        Set<String> knownNames = new HashSet<>(inputNames);
+        for (MathChannelConfig config : configs) {
+            if (config.isEnabled()) knownNames.add(config.getChannelName());
+        }
+
+        // Compile every enabled channel once
+        List<Node> nodes = new ArrayList<>();
+        for (MathChannelConfig config : configs) {
+            if (!config.isEnabled()) continue;
+            try {
+                MathExpressionEvaluator.CompiledExpression expression = MathExpressionEvaluator.compile(config.getExpression(), knownNames);
+                Node node = new Node(config, expression);
+                nodes.add(node);
+                byName.put(config.getChannelName(), node);
+            } catch (IllegalArgumentException e) {
+                errors.put(config.getChannelName(), e.getMessage());
+                log.warn("Math channel does not compile channel={} error={}", config.getChannelName(), e.getMessage());
+            }
+        }
+
+        // Edges from each math channel to the math channels that read it
+        Map<Node, Integer> inDegree = new HashMap<>();
+        for (Node node : nodes) inDegree.put(node, 0);
+        for (Node node : nodes) {
+            Set<Node> upstream = new LinkedHashSet<>();
+            for (String name : node.expression.getVariableNames()) {
+                Node source = byName.get(name);
+                if (source != null && source != node) upstream.add(source);
+            }
+            for (Node source : upstream) {
+                source.dependents.add(node);
+                inDegree.put(node, inDegree.get(node) + 1);
+            }
+        }
+
+        // Kahn's algorithm; whatever is left over sits on a cycle
+        List<Node> sorted = new ArrayList<>();
+        Deque<Node> ready = new ArrayDeque<>();
+        for (Node node : nodes) if (inDegree.get(node) == 0) ready.add(node);
+        while (!ready.isEmpty()) {
+            Node node = ready.poll();
+            sorted.add(node);
+            for (Node dependent : node.dependents) {
+                int remaining = inDegree.get(dependent) - 1;
+                inDegree.put(dependent, remaining);
+                if (remaining == 0) ready.add(dependent);
+            }
+        }
+        for (Node node : nodes) {
+            if (inDegree.get(node) > 0) {
+                String name = node.config.getChannelName();
+                errors.put(name, "Circular reference between math channels");
+                log.warn("Math channel is on or depends on a circular reference and will not be evaluated channel={}", name);
+            }
+        }
+        this.order = sorted.toArray(new Node[0]);
+
+        // Resolve every expression variable to an input slot or an upstream math channel
+        Map<Node, Integer> position = new HashMap<>();
+        for (int i = 0; i < order.length; i++) position.put(order[i], i);
+        Map<String, Integer> inputSlots = new LinkedHashMap<>();
+        for (Node node : order) {
+            String[] names = node.expression.getVariableNames();
+            node.argSources = new int[names.length];
+            for (int i = 0; i < names.length; i++) {
+                Node source = byName.get(names[i]);
+                if (source != null && source != node && position.containsKey(source)) {
+                    node.argSources[i] = -(position.get(source) + 1);
+                } else {
+                    // External input, or the channel's own previous value as published last scan
+                    Integer slot = inputSlots.get(names[i]);
+                    if (slot == null) {
+                        slot = inputSlots.size();
+                        inputSlots.put(names[i], slot);
+                    }
+                    node.argSources[i] = slot;
+                }
+            }
+        }
+        this.inputSlotNames = inputSlots.keySet().toArray(new String[0]);
+        this.inputValues = new double[inputSlotNames.length];
+        this.inputPresent = new boolean[inputSlotNames.length];
+        this.inputReaders = new Node[inputSlotNames.length][];
+        for (int slot = 0; slot < inputReaders.length; slot++) {
+            List<Node> readers = new ArrayList<>();
+            for (Node node : order) {
+                for (int source : node.argSources) {
+                    if (source == slot) {
+                        readers.add(node);
+                        break;
+                    }
+                }
+            }
+            inputReaders[slot] = readers.toArray(new Node[0]);
+        }
+        this.byConfig = new Node[this.configs.size()];
+        for (int i = 0; i < byConfig.length; i++) {
+            MathChannelConfig config = this.configs.get(i);
+            if (config.isEnabled() && !errors.containsKey(config.getChannelName())) byConfig[i] = byName.get(config.getChannelName());
+        }
+    }
+
+    /**
+     * Whether this graph was built for the given configurations and input names.
+     */
+    public boolean isBuiltFor(List<MathChannelConfig> configs, Collection<String> inputNames) {
+        return this.configs.equals(configs) && this.inputNames.size() == inputNames.size() && this.inputNames.containsAll(inputNames);
+    }
+
+    /**
+     * Evaluate one scan. Returns the value of every enabled math channel, in configuration order.
+     */
+    public synchronized Map<String, Double> evaluate(Map<String, Double> channelValues) {
+        // Mark channels whose external inputs changed
+        for (int slot = 0; slot < inputSlotNames.length; slot++) {
+            Double value = channelValues.get(inputSlotNames[slot]);
+            setInput(slot, value != null, value != null ? value : Double.NaN);
+        }
+        evaluateDirty();
+
+        Map<String, Double> results = new LinkedHashMap<>();
+        for (MathChannelConfig config : configs) {
+            if (!config.isEnabled()) continue;
+            Node node = byName.get(config.getChannelName());
+            results.put(config.getChannelName(), node != null && !errors.containsKey(config.getChannelName()) ? node.value : Double.NaN);
+        }
+        return results;
+    }
+
+    /**
+     * Evaluate one scan without building maps, for callers that keep values in slots.
+     *
+     * @param inputs  value of each input named by {@link #getInputNames()}; NaN when it has none
+     * @param results receives each configuration's value, in configuration order; NaN for
+     *                disabled channels and channels that cannot be evaluated
+     */
+    public synchronized void evaluate(double[] inputs, double[] results) {
+        for (int slot = 0; slot < inputSlotNames.length; slot++) {
+            setInput(slot, !Double.isNaN(inputs[slot]), inputs[slot]);
+        }
+        evaluateDirty();
+        for (int i = 0; i < byConfig.length; i++) {
+            results[i] = byConfig[i] != null ? byConfig[i].value : Double.NaN;
+        }
+    }
+
+    /**
+     * Names of the external inputs read by the expressions, in the order
+     * {@link #evaluate(double[], double[])} takes their values. A channel that reads its own
+     * name is listed too and should be given its previous result.
+     */
+    public String[] getInputNames() { return inputSlotNames.clone(); }
+
+    private void setInput(int slot, boolean present, double v) {
+        if (firstScan || present != inputPresent[slot] || Double.doubleToLongBits(v) != Double.doubleToLongBits(inputValues[slot])) {
+            inputValues[slot] = v;
+            inputPresent[slot] = present;
+            for (Node reader : inputReaders[slot]) reader.dirty = true;
+        }
+    }
+
+    private void evaluateDirty() {
+        firstScan = false;
+        for (Node node : order) {
+            if (!node.dirty && !node.alwaysEvaluate) continue;
+            node.dirty = false;
+            double previous = node.value;
+            node.value = evaluateNode(node);
+            if (Double.doubleToLongBits(previous) != Double.doubleToLongBits(node.value)) {
+                for (Node dependent : node.dependents) dependent.dirty = true;
+            }
+        }
+    }
+
+    private double evaluateNode(Node node) {
+        for (int i = 0; i < node.args.length; i++) {
+            int source = node.argSources[i];
+            if (source >= 0) {
+                if (!inputPresent[source]) {
+                    return Double.NaN; // referenced channel has no value yet
+                }
+                node.args[i] = inputValues[source];
+            } else {
+                node.args[i] = order[-source - 1].value;
+            }
+        }
+        try {
+            return node.expression.evaluate(node.args);
+        } catch (Exception e) {
+            failures.warn(node.config.getChannelName(), "Calculating math channel failed channel={} error={}",
+                    node.config.getChannelName(), e.getMessage());
+            return Double.NaN;
+        }
+    }
+
+    /**
+     * Compile and cycle errors keyed by math channel name.
+     */
+    public Map<String, String> getErrors() { return new LinkedHashMap<>(errors); }
+}
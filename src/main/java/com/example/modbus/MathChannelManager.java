@@ -7,6 +7,7 @@ import com.google.gson.reflect.TypeToken;
 import java.io.*;
 import java.lang.reflect.Type;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.HashMap;
@@ -18,6 +19,10 @@ public class MathChannelManager {
     private static final String CONFIG_FILE = "math_channels.json";
     private static final Gson gson = new GsonBuilder().setPrettyPrinting().create();
     private static List<MathChannelConfig> mathChannels = new ArrayList<>();
+    // Compiled, topologically ordered view of mathChannels; rebuilt whenever the configs or input names change
+    private static MathChannelGraph graph;
+    // Bumped whenever the math channel list changes, so cached compilations can tell they are stale
+    private static volatile long generation;
     
     /**
      * Load math channel configurations from file
@@ -28,6 +33,7 @@ public class MathChannelManager {
             if (!file.exists()) {
                 System.out.println("Math channels config file not found, using defaults");
                 mathChannels = new ArrayList<>();
+                generation++;
                 return;
             }
             
@@ -37,7 +43,9 @@ public class MathChannelManager {
                 if (mathChannels == null) {
                     mathChannels = new ArrayList<>();
                 }
+                generation++;
                 System.out.println("Math channels loaded from " + CONFIG_FILE + " (" + mathChannels.size() + " channels)");
+                rebuildGraph(ConfigRegistry.getInstance().current().getModbusChannelNames());
             } catch (IOException e) {
                 System.err.println("Error loading math channels: " + e.getMessage());
                 mathChannels = new ArrayList<>();
@@ -54,6 +62,8 @@ public class MathChannelManager {
      */
     public static void clearCache() {
         mathChannels = new ArrayList<>();
+        graph = null;
+        generation++;
         System.out.println("Math channel cache cleared");
     }
     
@@ -69,6 +79,13 @@ public class MathChannelManager {
         }
     }
     
+    /**
+     * Increases every time math channels are loaded, added, changed or removed.
+     */
+    public static long getGeneration() {
+        return generation;
+    }
+    
     /**
      * Get all math channel configurations
      */
@@ -81,6 +98,8 @@ public class MathChannelManager {
      */
     public static void addConfig(MathChannelConfig config) {
         mathChannels.add(config);
+        graph = null;
+        generation++;
         // Don't auto-save here - let the caller decide when to save
     }
     
@@ -90,6 +109,8 @@ public class MathChannelManager {
     public static void updateConfig(int index, MathChannelConfig config) {
         if (index >= 0 && index < mathChannels.size()) {
             mathChannels.set(index, config);
+            graph = null;
+            generation++;
             // Don't auto-save here - let the caller decide when to save
         }
     }
@@ -100,6 +121,8 @@ public class MathChannelManager {
     public static void removeConfig(int index) {
         if (index >= 0 && index < mathChannels.size()) {
             mathChannels.remove(index);
+            graph = null;
+            generation++;
             // Don't auto-save here - let the caller decide when to save
         }
     }
@@ -127,24 +150,25 @@ public class MathChannelManager {
     }
     
     /**
-     * Calculate values for all enabled math channels
+     * Calculate values for all enabled math channels.
+     * Only channels whose inputs changed since the last call are re-evaluated, and math
+     * channels may reference each other by name.
      */
-    public static Map<String, Double> calculateAllValues(Map<String, Double> channelValues) {
-        Map<String, Double> mathValues = new HashMap<>();
-        
-        for (MathChannelConfig config : mathChannels) {
-            if (config.isEnabled()) {
-                try {
-                    double result = MathExpressionEvaluator.evaluate(config.getExpression(), channelValues);
-                    mathValues.put(config.getChannelName(), result);
-                } catch (Exception e) {
-                    System.err.println("Error calculating math channel '" + config.getChannelName() + "': " + e.getMessage());
-                    mathValues.put(config.getChannelName(), Double.NaN);
-                }
-            }
+    public static synchronized Map<String, Double> calculateAllValues(Map<String, Double> channelValues) {
+        MathChannelGraph current = graph;
+        if (current == null || !current.isBuiltFor(mathChannels, channelValues.keySet())) {
+            current = rebuildGraph(channelValues.keySet());
         }
-        
-        return mathValues;
+        return current.evaluate(channelValues);
+    }
+    
+    /**
+     * Compile and order the math channels against the given input channel names,
+     * reporting expression errors and circular references.
+     */
+    private static synchronized MathChannelGraph rebuildGraph(Collection<String> inputNames) {
+        graph = new MathChannelGraph(mathChannels, new ArrayList<>(inputNames));
+        return graph;
     }
     
     /**
@@ -175,6 +199,8 @@ public class MathChannelManager {
      */
     public static void clearAllConfigs() {
         mathChannels.clear();
+        graph = null;
+        generation++;
         // Don't auto-save here - let the caller decide when to save
     }
     
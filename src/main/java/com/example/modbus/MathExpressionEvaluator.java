@@ -1,10 +1,14 @@
 package com.example.modbus;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Map;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.regex.Pattern;
-import java.util.regex.Matcher;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.math.BigDecimal;
 import java.math.RoundingMode;
 
@@ -146,6 +150,12 @@ public class MathExpressionEvaluator {
         double apply(double... args);
     }
     
+    // Compiled expressions cached by text, see evaluate(String, Map)
+    private static final Map<String, CacheEntry> CACHE = new ConcurrentHashMap<>();
+    // Compiled against a caller's own names when the configured ones don't fit, by text
+    private static final Map<String, FallbackEntry> FALLBACK_CACHE = new ConcurrentHashMap<>();
+    private static final int MAX_CACHED_EXPRESSIONS = 4096;
+    
     /**
      * Evaluate a mathematical expression with channel values
      */
@@ -155,16 +165,17 @@ public class MathExpressionEvaluator {
         }
         
         try {
-            // First, evaluate functions (including counter and timer functions)
-            String processedExpression = evaluateFunctions(expression);
-            
-            // Then replace channel names with their values
-            processedExpression = replaceChannelNames(processedExpression, channelValues);
-            
-            // Finally, evaluate the mathematical expression
-            double result = evaluateExpression(processedExpression);
-            
-            return result;
+            CompiledExpression compiled;
+            try {
+                compiled = compileCached(expression);
+            } catch (IllegalArgumentException e) {
+                compiled = null;
+            }
+            if (compiled == null || !compiled.canEvaluate(channelValues)) {
+                // Names outside the configuration, e.g. test values; resolve against the caller's names
+                compiled = compileFallback(expression, channelValues.keySet());
+            }
+            return compiled.evaluate(channelValues);
         } catch (Exception e) {
             System.err.println("Error evaluating expression '" + expression + "': " + e.getMessage());
             return Double.NaN;
@@ -172,347 +183,450 @@ public class MathExpressionEvaluator {
     }
     
     /**
-     * Replace channel names and register addresses in expression with their numeric values
+     * Parse an expression once into a reusable evaluator. Channel names (which may
+     * contain spaces and hyphens) are matched against the given names, longest first;
+     * 5-digit numbers are register references resolved through modbus_config.json.
+     *
+     * @throws IllegalArgumentException if the expression is malformed or references an unknown register
      */
-    private static String replaceChannelNames(String expression, Map<String, Double> channelValues) {
-        String result = expression;
-        
-        // First, replace register addresses (like 30001, 40001, etc.)
-        Pattern registerPattern = Pattern.compile("\\b(\\d{5})\\b");
-        Matcher registerMatcher = registerPattern.matcher(result);
-        
-        while (registerMatcher.find()) {
-            String registerAddress = registerMatcher.group(1);
-            
-            // Find the channel name that corresponds to this register address
-            String channelName = findChannelNameByAddress(registerAddress, channelValues);
-            if (channelName != null) {
-                Double value = channelValues.get(channelName);
-                if (value != null) {
-                    // Replace the register address with its actual value
-                    result = result.replaceAll("\\b" + Pattern.quote(registerAddress) + "\\b", value.toString());
-                } else {
-                    throw new IllegalArgumentException("No value found for register address " + registerAddress + " (channel: " + channelName + ")");
-                }
-            } else {
-                throw new IllegalArgumentException("No channel found for register address " + registerAddress);
-            }
-        }
-        
-        // Then, try to replace exact channel names (including those with spaces and special characters)
-        for (String channelName : channelValues.keySet()) {
-            // Skip if it's a mathematical function
-            if (FUNCTIONS.containsKey(channelName.toLowerCase())) {
-                continue;
-            }
-            
-            // Skip if it's a mathematical constant
-            if (isMathConstant(channelName)) {
-                continue;
-            }
-            
-            // Skip if it's a function call (contains parentheses)
-            if (result.contains(channelName + "(")) {
-                continue;
-            }
-            
-            // Replace exact channel name with its value
-            Double value = channelValues.get(channelName);
-            if (value != null) {
-                // For channel names with spaces or special characters, use direct replacement
-                if (channelName.contains(" ") || channelName.contains("-")) {
-                    // Complex name with spaces/special chars - replace directly
-                    result = result.replace(Pattern.quote(channelName), value.toString());
-                } else {
-                    // Simple name - use word boundaries
-                    result = result.replaceAll("\\b" + Pattern.quote(channelName) + "\\b", value.toString());
-                }
-            }
+    public static CompiledExpression compile(String expression, Collection<String> channelNames) {
+        if (expression == null || expression.trim().isEmpty()) {
+            return new CompiledExpression(expression, vars -> 0.0, new String[0]);
         }
-        
-        // Finally, find any remaining unmatched identifiers and check if they're valid
-        Pattern identifierPattern = Pattern.compile("\\b([a-zA-Z_][a-zA-Z0-9_\\s\\-]*)\\b");
-        Matcher matcher = identifierPattern.matcher(result);
-        
-        while (matcher.find()) {
-            String identifier = matcher.group(1).trim();
-            
-            // Skip if it's a mathematical function
-            if (FUNCTIONS.containsKey(identifier.toLowerCase())) {
-                continue;
-            }
-            
-            // Skip if it's a mathematical constant
-            if (isMathConstant(identifier)) {
-                continue;
-            }
-            
-            // Skip if it's already a number
+        return new Parser(expression, channelNames).parse();
+    }
+    
+    /**
+     * Drop all cached compiled expressions, e.g. after the register configuration changed.
+     */
+    public static void clearCache() {
+        CACHE.clear();
+        FALLBACK_CACHE.clear();
+    }
+    
+    /**
+     * Compiled form of an expression against the configured channel and math channel names.
+     * Entries stay valid until the configuration snapshot or the math channel list changes,
+     * so a cache hit does not depend on how many channels there are.
+     */
+    private static CompiledExpression compileCached(String expression) {
+        KnownNames known = knownNames();
+        CacheEntry entry = CACHE.get(expression);
+        if (entry == null || entry.names != known) {
+            if (CACHE.size() >= MAX_CACHED_EXPRESSIONS) CACHE.clear();
             try {
-                Double.parseDouble(identifier);
-                continue;
-            } catch (NumberFormatException e) {
-                // Not a number, continue checking
-            }
-            
-            // If we find an identifier that's not in our channel values, it's an error
-            if (!channelValues.containsKey(identifier)) {
-                throw new IllegalArgumentException("Channel '" + identifier + "' not found in values");
+                entry = new CacheEntry(known, compile(expression, known.names), null);
+            } catch (IllegalArgumentException e) {
+                entry = new CacheEntry(known, null, e);
             }
+            CACHE.put(expression, entry);
         }
-        
-        return result;
+        if (entry.error != null) throw entry.error;
+        return entry.compiled;
     }
     
     /**
-     * Find channel name by register address
+     * Compiled form of an expression against the given names. Kept until it is asked for
+     * with a different set of names, so a caller that keeps passing the same map keys
+     * parses the expression once.
      */
-    private static String findChannelNameByAddress(String registerAddress, Map<String, Double> channelValues) {
-        // Load Modbus configurations to find the channel name for this address
-        try {
-            List<ModbusConfigManager.ModbusConfig> configs = ModbusConfigManager.loadConfig();
-            for (ModbusConfigManager.ModbusConfig config : configs) {
-                if (String.valueOf(config.getAddress()).equals(registerAddress)) {
-                    return config.getChannelName();
-                }
+    private static CompiledExpression compileFallback(String expression, Set<String> names) {
+        FallbackEntry entry = FALLBACK_CACHE.get(expression);
+        if (entry == null || !entry.names.equals(names)) {
+            if (FALLBACK_CACHE.size() >= MAX_CACHED_EXPRESSIONS) FALLBACK_CACHE.clear();
+            Set<String> copy = new HashSet<>(names);
+            try {
+                entry = new FallbackEntry(copy, compile(expression, copy), null);
+            } catch (IllegalArgumentException e) {
+                entry = new FallbackEntry(copy, null, e);
             }
-        } catch (Exception e) {
-            // If we can't load configs, return null
+            FALLBACK_CACHE.put(expression, entry);
         }
-        return null;
+        if (entry.error != null) throw entry.error;
+        return entry.compiled;
     }
     
-    /**
-     * Check if a string is a mathematical constant
-     */
-    private static boolean isMathConstant(String name) {
-        return name.equals("pi") || name.equals("e");
+    private static KnownNames knownNames() {
+        ConfigRegistry.Snapshot snapshot = ConfigRegistry.getInstance().current();
+        long mathGeneration = MathChannelManager.getGeneration();
+        KnownNames known = knownNames;
+        if (known == null || known.snapshot != snapshot || known.mathGeneration != mathGeneration) {
+            List<String> names = new ArrayList<>(snapshot.getModbusChannelNames());
+            names.addAll(MathChannelManager.getChannelNames());
+            known = new KnownNames(snapshot, mathGeneration, names);
+            knownNames = known;
+        }
+        return known;
+    }
+    
+    // Names expressions are compiled against, for one configuration snapshot and math channel generation
+    private static volatile KnownNames knownNames;
+    
+    private static final class KnownNames {
+        final ConfigRegistry.Snapshot snapshot;
+        final long mathGeneration;
+        final List<String> names;
+        
+        KnownNames(ConfigRegistry.Snapshot snapshot, long mathGeneration, List<String> names) {
+            this.snapshot = snapshot;
+            this.mathGeneration = mathGeneration;
+            this.names = names;
+        }
+    }
+    
+    private static final class CacheEntry {
+        final KnownNames names;
+        final CompiledExpression compiled;
+        final IllegalArgumentException error;
+        
+        CacheEntry(KnownNames names, CompiledExpression compiled, IllegalArgumentException error) {
+            this.names = names;
+            this.compiled = compiled;
+            this.error = error;
+        }
+    }
+    
+    private static final class FallbackEntry {
+        final Set<String> names;
+        final CompiledExpression compiled;
+        final IllegalArgumentException error;
+        
+        FallbackEntry(Set<String> names, CompiledExpression compiled, IllegalArgumentException error) {
+            this.names = names;
+            this.compiled = compiled;
+            this.error = error;
+        }
     }
     
     /**
-     * Evaluate a mathematical expression (simplified parser)
+     * A parsed math channel expression. Values stay doubles end to end; channel i of
+     * {@link #getVariableNames()} is read from slot i of the array given to {@link #evaluate(double[])}.
      */
-    private static double evaluateExpression(String expression) {
-        // Replace mathematical constants
-        expression = expression.replaceAll("\\bpi\\b", String.valueOf(Math.PI));
-        expression = expression.replaceAll("\\be\\b", String.valueOf(Math.E));
-        
-        // Handle parentheses first
-        expression = evaluateParentheses(expression);
-        
-        // Handle power operations (^)
-        expression = evaluatePower(expression);
+    public static final class CompiledExpression {
+        private final String expression;
+        private final Node root;
+        private final String[] variableNames;
+        
+        private CompiledExpression(String expression, Node root, String[] variableNames) {
+            this.expression = expression;
+            this.root = root;
+            this.variableNames = variableNames;
+        }
         
-        // Handle multiplication and division
-        expression = evaluateMultiplicationDivision(expression);
+        public String getExpression() { return expression; }
+        public String[] getVariableNames() { return variableNames.clone(); }
+        public int getVariableCount() { return variableNames.length; }
+        public String getVariableName(int slot) { return variableNames[slot]; }
         
-        // Handle addition and subtraction
-        expression = evaluateAdditionSubtraction(expression);
+        public double evaluate(double[] values) {
+            return root.eval(values);
+        }
         
-        // Handle logical operations
-        expression = evaluateLogicalOperations(expression);
+        /**
+         * Whether every channel the expression reads has a value in the map.
+         */
+        public boolean canEvaluate(Map<String, Double> channelValues) {
+            for (String name : variableNames) {
+                if (!channelValues.containsKey(name)) return false;
+            }
+            return true;
+        }
         
-        return Double.parseDouble(expression);
+        /**
+         * Evaluate with values looked up by channel name.
+         *
+         * @throws IllegalArgumentException if a referenced channel has no value
+         */
+        public double evaluate(Map<String, Double> channelValues) {
+            double[] values = new double[variableNames.length];
+            for (int i = 0; i < values.length; i++) {
+                Double value = channelValues.get(variableNames[i]);
+                if (value == null) {
+                    throw new IllegalArgumentException("Channel '" + variableNames[i] + "' not found in values");
+                }
+                values[i] = value;
+            }
+            return root.eval(values);
+        }
+    }
+    
+    private interface Node {
+        double eval(double[] vars);
     }
     
     /**
-     * Evaluate mathematical functions in the expression
+     * Single-pass recursive-descent parser. Precedence from lowest to highest:
+     * ||, &&, comparisons, + -, * /, unary - + !, ^ (right associative), primaries.
      */
-    private static String evaluateFunctions(String expression) {
-        Pattern functionPattern = Pattern.compile("([a-zA-Z_][a-zA-Z0-9_]*)\\s*\\(([^)]*)\\)");
-        Matcher matcher = functionPattern.matcher(expression);
+    private static final class Parser {
+        private final String src;
+        private final Collection<String> allNames;
+        private final List<String> names;
+        private final Map<String, Integer> slots = new LinkedHashMap<>();
+        private int pos;
+        
+        Parser(String src, Collection<String> channelNames) {
+            this.src = src;
+            this.allNames = channelNames;
+            this.names = new ArrayList<>();
+            for (String name : channelNames) {
+                if (name != null && !name.isEmpty() && isIdentifierStart(name.charAt(0))) names.add(name);
+            }
+            // Longest first so "Voltage R-N" wins over "Voltage"
+            this.names.sort((a, b) -> b.length() - a.length());
+        }
         
-        while (matcher.find()) {
-            String functionName = matcher.group(1).toLowerCase();
-            String args = matcher.group(2);
-            
-            if (FUNCTIONS.containsKey(functionName)) {
-                MathFunction func = FUNCTIONS.get(functionName);
-                String[] argArray = args.isEmpty() ? new String[0] : args.split(",");
-                
-                try {
-                    double result;
-                    if (argArray.length == 0) {
-                        // No arguments (like counter(), timer())
-                        result = func.apply();
-                    } else if (argArray.length == 1) {
-                        // Single argument
-                        double arg = Double.parseDouble(argArray[0].trim());
-                        result = func.apply(arg);
-                    } else if (argArray.length == 2) {
-                        // Two arguments
-                        double arg1 = Double.parseDouble(argArray[0].trim());
-                        double arg2 = Double.parseDouble(argArray[1].trim());
-                        result = func.apply(arg1, arg2);
-                    } else if (argArray.length == 3) {
-                        // Three arguments (like if function)
-                        double arg1 = Double.parseDouble(argArray[0].trim());
-                        double arg2 = Double.parseDouble(argArray[1].trim());
-                        double arg3 = Double.parseDouble(argArray[2].trim());
-                        result = func.apply(arg1, arg2, arg3);
-                    } else {
-                        throw new IllegalArgumentException("Too many arguments for function " + functionName);
-                    }
-                    expression = expression.replace(matcher.group(0), String.valueOf(result));
-                } catch (NumberFormatException e) {
-                    throw new IllegalArgumentException("Invalid argument for function " + functionName + ": " + e.getMessage());
-                }
+        CompiledExpression parse() {
+            Node root = parseOr();
+            skipWhitespace();
+            if (pos < src.length()) {
+                throw new IllegalArgumentException("Unexpected '" + src.charAt(pos) + "' at position " + pos);
             }
+            return new CompiledExpression(src, root, slots.keySet().toArray(new String[0]));
         }
         
-        return expression;
-    }
-    
-    /**
-     * Evaluate power operations (^)
-     */
-    private static String evaluatePower(String expression) {
-        Pattern powerPattern = Pattern.compile("([0-9.]+)\\s*\\^\\s*([0-9.]+)");
-        Matcher matcher = powerPattern.matcher(expression);
+        private Node parseOr() {
+            Node left = parseAnd();
+            while (match("||")) {
+                Node a = left, b = parseAnd();
+                left = v -> (a.eval(v) != 0.0 || b.eval(v) != 0.0) ? 1.0 : 0.0;
+            }
+            return left;
+        }
         
-        while (matcher.find()) {
-            double base = Double.parseDouble(matcher.group(1));
-            double exponent = Double.parseDouble(matcher.group(2));
-            double result = Math.pow(base, exponent);
-            expression = expression.replace(matcher.group(0), String.valueOf(result));
+        private Node parseAnd() {
+            Node left = parseComparison();
+            while (match("&&")) {
+                Node a = left, b = parseComparison();
+                left = v -> (a.eval(v) != 0.0 && b.eval(v) != 0.0) ? 1.0 : 0.0;
+            }
+            return left;
         }
         
-        return expression;
-    }
-    
-    /**
-     * Evaluate multiplication and division
-     */
-    private static String evaluateMultiplicationDivision(String expression) {
-        Pattern mdPattern = Pattern.compile("([0-9.]+)\\s*([*/])\\s*([0-9.]+)");
-        Matcher matcher = mdPattern.matcher(expression);
-        
-        while (matcher.find()) {
-            double left = Double.parseDouble(matcher.group(1));
-            String operator = matcher.group(2);
-            double right = Double.parseDouble(matcher.group(3));
-            
-            double result = operator.equals("*") ? left * right : left / right;
-            expression = expression.replace(matcher.group(0), String.valueOf(result));
+        private Node parseComparison() {
+            Node left = parseAdditive();
+            while (true) {
+                Node a = left;
+                if (match("==")) { Node b = parseAdditive(); left = v -> a.eval(v) == b.eval(v) ? 1.0 : 0.0; }
+                else if (match("!=")) { Node b = parseAdditive(); left = v -> a.eval(v) != b.eval(v) ? 1.0 : 0.0; }
+                else if (match("<=")) { Node b = parseAdditive(); left = v -> a.eval(v) <= b.eval(v) ? 1.0 : 0.0; }
+                else if (match(">=")) { Node b = parseAdditive(); left = v -> a.eval(v) >= b.eval(v) ? 1.0 : 0.0; }
+                else if (match("<")) { Node b = parseAdditive(); left = v -> a.eval(v) < b.eval(v) ? 1.0 : 0.0; }
+                else if (match(">")) { Node b = parseAdditive(); left = v -> a.eval(v) > b.eval(v) ? 1.0 : 0.0; }
+                else return left;
+            }
         }
         
-        return expression;
-    }
-    
-    /**
-     * Evaluate addition and subtraction
-     */
-    private static String evaluateAdditionSubtraction(String expression) {
-        Pattern asPattern = Pattern.compile("([0-9.]+)\\s*([+-])\\s*([0-9.]+)");
-        Matcher matcher = asPattern.matcher(expression);
-        
-        while (matcher.find()) {
-            double left = Double.parseDouble(matcher.group(1));
-            String operator = matcher.group(2);
-            double right = Double.parseDouble(matcher.group(3));
-            
-            double result = operator.equals("+") ? left + right : left - right;
-            expression = expression.replace(matcher.group(0), String.valueOf(result));
+        private Node parseAdditive() {
+            Node left = parseMultiplicative();
+            while (true) {
+                Node a = left;
+                if (match("+")) { Node b = parseMultiplicative(); left = v -> a.eval(v) + b.eval(v); }
+                else if (match("-")) { Node b = parseMultiplicative(); left = v -> a.eval(v) - b.eval(v); }
+                else return left;
+            }
         }
         
-        return expression;
-    }
-    
-    /**
-     * Evaluate logical operations (==, !=, <, >, <=, >=, &&, ||, !)
-     */
-    private static String evaluateLogicalOperations(String expression) {
-        // Handle comparison operators first (higher precedence)
-        expression = evaluateComparisonOperators(expression);
+        private Node parseMultiplicative() {
+            Node left = parseUnary();
+            while (true) {
+                Node a = left;
+                if (match("*")) { Node b = parseUnary(); left = v -> a.eval(v) * b.eval(v); }
+                else if (match("/")) { Node b = parseUnary(); left = v -> a.eval(v) / b.eval(v); }
+                else return left;
+            }
+        }
         
-        // Handle logical AND (&&)
-        expression = evaluateLogicalAnd(expression);
+        private Node parseUnary() {
+            if (match("-")) { Node a = parseUnary(); return v -> -a.eval(v); }
+            if (match("+")) { return parseUnary(); }
+            if (peek() == '!' && peek(1) != '=') { pos++; Node a = parseUnary(); return v -> a.eval(v) == 0.0 ? 1.0 : 0.0; }
+            return parsePower();
+        }
         
-        // Handle logical OR (||)
-        expression = evaluateLogicalOr(expression);
+        private Node parsePower() {
+            Node base = parsePrimary();
+            if (match("^")) {
+                Node exponent = parseUnary();
+                return v -> Math.pow(base.eval(v), exponent.eval(v));
+            }
+            return base;
+        }
         
-        return expression;
-    }
-    
-    /**
-     * Evaluate comparison operators (==, !=, <, >, <=, >=)
-     */
-    private static String evaluateComparisonOperators(String expression) {
-        // Handle == and !=
-        Pattern eqPattern = Pattern.compile("([0-9.]+)\\s*(==|!=)\\s*([0-9.]+)");
-        Matcher matcher = eqPattern.matcher(expression);
-        
-        while (matcher.find()) {
-            double left = Double.parseDouble(matcher.group(1));
-            String operator = matcher.group(2);
-            double right = Double.parseDouble(matcher.group(3));
-            
-            double result;
-            if (operator.equals("==")) {
-                result = (left == right) ? 1.0 : 0.0;
-            } else { // !=
-                result = (left != right) ? 1.0 : 0.0;
+        private Node parsePrimary() {
+            skipWhitespace();
+            if (pos >= src.length()) throw new IllegalArgumentException("Unexpected end of expression");
+            char c = src.charAt(pos);
+            if (c == '(') {
+                pos++;
+                Node inner = parseOr();
+                expect(')');
+                return inner;
+            }
+            if (Character.isDigit(c) || c == '.') {
+                return parseNumber();
+            }
+            if (isIdentifierStart(c)) {
+                // Configured channel names take precedence; they may contain spaces and hyphens
+                for (String name : names) {
+                    if (src.startsWith(name, pos) && isBoundary(pos + name.length())
+                            && !FUNCTIONS.containsKey(name.toLowerCase()) && !isMathConstant(name)) {
+                        int nameEnd = pos + name.length();
+                        if (nextNonWhitespace(nameEnd) == '(') continue; // function call, not a channel
+                        pos = nameEnd;
+                        return variable(name);
+                    }
+                }
+                int start = pos;
+                while (pos < src.length() && isIdentifierPart(src.charAt(pos))) pos++;
+                String identifier = src.substring(start, pos);
+                if (nextNonWhitespace(pos) == '(') {
+                    return parseCall(identifier);
+                }
+                if (identifier.equals("pi")) return v -> Math.PI;
+                if (identifier.equals("e")) return v -> Math.E;
+                return variable(identifier);
             }
-            expression = expression.replace(matcher.group(0), String.valueOf(result));
+            throw new IllegalArgumentException("Unexpected '" + c + "' at position " + pos);
         }
         
-        // Handle <, >, <=, >=
-        Pattern compPattern = Pattern.compile("([0-9.]+)\\s*(<|>|<=|>=)\\s*([0-9.]+)");
-        matcher = compPattern.matcher(expression);
+        private Node parseNumber() {
+            int start = pos;
+            while (pos < src.length() && (Character.isDigit(src.charAt(pos)) || src.charAt(pos) == '.')) pos++;
+            String text = src.substring(start, pos);
+            if (text.length() == 5 && text.indexOf('.') < 0 && isBoundary(pos)) {
+                // Register address such as 30001 or 40001
+                return variable(resolveRegister(text));
+            }
+            if (pos < src.length() && (src.charAt(pos) == 'e' || src.charAt(pos) == 'E')) {
+                int expStart = pos + 1;
+                if (expStart < src.length() && (src.charAt(expStart) == '+' || src.charAt(expStart) == '-')) expStart++;
+                if (expStart < src.length() && Character.isDigit(src.charAt(expStart))) {
+                    pos = expStart;
+                    while (pos < src.length() && Character.isDigit(src.charAt(pos))) pos++;
+                    text = src.substring(start, pos);
+                }
+            }
+            try {
+                double value = Double.parseDouble(text);
+                return v -> value;
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid number '" + text + "'");
+            }
+        }
         
-        while (matcher.find()) {
-            double left = Double.parseDouble(matcher.group(1));
-            String operator = matcher.group(2);
-            double right = Double.parseDouble(matcher.group(3));
+        private Node parseCall(String identifier) {
+            String functionName = identifier.toLowerCase();
+            MathFunction func = FUNCTIONS.get(functionName);
+            if (func == null) {
+                throw new IllegalArgumentException("Unknown function '" + identifier + "'");
+            }
+            expect('(');
+            List<Node> args = new ArrayList<>();
+            skipWhitespace();
+            if (peek() != ')') {
+                do {
+                    args.add(parseOr());
+                } while (match(","));
+            }
+            expect(')');
+            if (args.size() > 3) {
+                throw new IllegalArgumentException("Too many arguments for function " + functionName);
+            }
             
-            double result;
-            switch (operator) {
-                case "<": result = (left < right) ? 1.0 : 0.0; break;
-                case ">": result = (left > right) ? 1.0 : 0.0; break;
-                case "<=": result = (left <= right) ? 1.0 : 0.0; break;
-                case ">=": result = (left >= right) ? 1.0 : 0.0; break;
-                default: result = 0.0;
+            if (functionName.equals("if")) {
+                if (args.size() != 3) throw new IllegalArgumentException("if requires 3 arguments: if(condition, then, else)");
+                // Only the selected branch runs, so counter/timer side effects follow the condition
+                Node cond = args.get(0), then = args.get(1), otherwise = args.get(2);
+                return v -> cond.eval(v) != 0.0 ? then.eval(v) : otherwise.eval(v);
+            }
+            
+            Node[] argNodes = args.toArray(new Node[0]);
+            switch (argNodes.length) {
+                case 0: return v -> func.apply();
+                case 1: { Node a = argNodes[0]; return v -> func.apply(a.eval(v)); }
+                case 2: { Node a = argNodes[0], b = argNodes[1]; return v -> func.apply(a.eval(v), b.eval(v)); }
+                default: { Node a = argNodes[0], b = argNodes[1], c = argNodes[2]; return v -> func.apply(a.eval(v), b.eval(v), c.eval(v)); }
+            }
+        }
+        
+        private String resolveRegister(String registerAddress) {
+            // A value keyed by the address itself wins over the configured channel name
+            if (allNames.contains(registerAddress)) return registerAddress;
+            String channelName = findChannelNameByAddress(registerAddress);
+            if (channelName == null) {
+                throw new IllegalArgumentException("No channel found for register address " + registerAddress);
             }
-            expression = expression.replace(matcher.group(0), String.valueOf(result));
+            return channelName;
         }
         
-        return expression;
+        private Node variable(String name) {
+            Integer slot = slots.get(name);
+            if (slot == null) {
+                slot = slots.size();
+                slots.put(name, slot);
+            }
+            int index = slot;
+            return v -> v[index];
+        }
+        
+        private boolean match(String token) {
+            skipWhitespace();
+            if (!src.startsWith(token, pos)) return false;
+            pos += token.length();
+            return true;
+        }
+        
+        private void expect(char c) {
+            skipWhitespace();
+            if (pos >= src.length() || src.charAt(pos) != c) {
+                throw new IllegalArgumentException("Expected '" + c + "' at position " + pos);
+            }
+            pos++;
+        }
+        
+        private char peek() { return peek(0); }
+        
+        private char peek(int offset) {
+            int i = pos + offset;
+            return i < src.length() ? src.charAt(i) : '\0';
+        }
+        
+        private char nextNonWhitespace(int from) {
+            int i = from;
+            while (i < src.length() && Character.isWhitespace(src.charAt(i))) i++;
+            return i < src.length() ? src.charAt(i) : '\0';
+        }
+        
+        private void skipWhitespace() {
+            while (pos < src.length() && Character.isWhitespace(src.charAt(pos))) pos++;
+        }
+        
+        private boolean isBoundary(int i) {
+            return i >= src.length() || !isIdentifierPart(src.charAt(i));
+        }
+        
+        private static boolean isIdentifierStart(char c) { return Character.isLetter(c) || c == '_'; }
+        private static boolean isIdentifierPart(char c) { return Character.isLetterOrDigit(c) || c == '_'; }
     }
     
     /**
-     * Evaluate logical AND (&&)
+     * Find channel name by register address
      */
-    private static String evaluateLogicalAnd(String expression) {
-        Pattern andPattern = Pattern.compile("([0-9.]+)\\s*&&\\s*([0-9.]+)");
-        Matcher matcher = andPattern.matcher(expression);
-        
-        while (matcher.find()) {
-            double left = Double.parseDouble(matcher.group(1));
-            double right = Double.parseDouble(matcher.group(2));
-            
-            double result = (left != 0.0 && right != 0.0) ? 1.0 : 0.0;
-            expression = expression.replace(matcher.group(0), String.valueOf(result));
+    private static String findChannelNameByAddress(String registerAddress) {
+        try {
+            ModbusConfigManager.ModbusConfig config = ConfigRegistry.getInstance().current().findByAddress(Integer.parseInt(registerAddress));
+            return config != null ? config.getChannelName() : null;
+        } catch (NumberFormatException e) {
+            return null;
         }
-        
-        return expression;
     }
     
     /**
-     * Evaluate logical OR (||)
+     * Check if a string is a mathematical constant
      */
-    private static String evaluateLogicalOr(String expression) {
-        Pattern orPattern = Pattern.compile("([0-9.]+)\\s*\\|\\|\\s*([0-9.]+)");
-        Matcher matcher = orPattern.matcher(expression);
-        
-        while (matcher.find()) {
-            double left = Double.parseDouble(matcher.group(1));
-            double right = Double.parseDouble(matcher.group(2));
-            
-            double result = (left != 0.0 || right != 0.0) ? 1.0 : 0.0;
-            expression = expression.replace(matcher.group(0), String.valueOf(result));
-        }
-        
-        return expression;
+    private static boolean isMathConstant(String name) {
+        return name.equals("pi") || name.equals("e");
     }
     
     /**
@@ -550,41 +664,4 @@ public class MathExpressionEvaluator {
         }
     }
     
-    /**
-     * Evaluate parentheses in the expression
-     */
-    private static String evaluateParentheses(String expression) {
-        while (expression.contains("(")) {
-            int start = expression.lastIndexOf("(");
-            int end = findMatchingParenthesis(expression, start);
-            
-            if (end == -1) {
-                throw new IllegalArgumentException("Unmatched parentheses in expression: " + expression);
-            }
-            
-            String innerExpression = expression.substring(start + 1, end);
-            double result = evaluateExpression(innerExpression); // Recursive call
-            expression = expression.substring(0, start) + result + expression.substring(end + 1);
-        }
-        
-        return expression;
-    }
-    
-    /**
-     * Find the matching closing parenthesis for an opening parenthesis
-     */
-    private static int findMatchingParenthesis(String expression, int start) {
-        int count = 1;
-        for (int i = start + 1; i < expression.length(); i++) {
-            if (expression.charAt(i) == '(') {
-                count++;
-            } else if (expression.charAt(i) == ')') {
-                count--;
-                if (count == 0) {
-                    return i;
-                }
-            }
-        }
-        return -1; // No matching parenthesis found
-    }
 }
@@ -19,6 +19,8 @@ public class ModbusConfigManager {
         private int length;
         private String dataType;
         private String channelName;
+        private String line; // Serial port of the device; empty or absent for the main connection
+        private int scanRate; // ms between reads; 0 or absent means ChannelConfig.SCAN_NORMAL
         
         public ModbusConfig() {}
         
@@ -62,6 +64,12 @@ public class ModbusConfigManager {
         public String getChannelName() { return channelName; }
         public void setChannelName(String channelName) { this.channelName = channelName; }
         
+        public String getLine() { return line; }
+        public void setLine(String line) { this.line = line; }
+        
+        public int getScanRate() { return scanRate > 0 ? scanRate : ChannelConfig.SCAN_NORMAL; }
+        public void setScanRate(int scanRate) { this.scanRate = scanRate; }
+        
         @Override
         public String toString() {
             return String.format("Slave: %d, Address: %d, Length: %d, DataType: %s, Channel: %s", slaveId, address, length, dataType, channelName);
@@ -75,8 +83,11 @@ public class ModbusConfigManager {
         } catch (IOException e) {
             System.err.println("Error saving modbus configuration: " + e.getMessage());
         }
+        ConfigRegistry.getInstance().invalidate();
     }
     
+    static File getConfigFile() { return new File(CONFIG_FILE); }
+    
     public static List<ModbusConfig> loadConfig() {
         File file = new File(CONFIG_FILE);
         if (!file.exists()) {
@@ -26,16 +26,7 @@ public class ModbusConfigUI extends JDialog {
     }
     
     private int getLengthForDataType(String dataType) {
-        switch (dataType) {
-            case "Int16":
-            case "UInt16":
-                return 1; // 1 register (16 bits)
-            case "Float32 (ABCD)":
-            case "Float32 (BADC)":
-                return 2; // 2 registers (32 bits)
-            default:
-                return 1; // Default fallback
-        }
+        return RegisterDecoder.of(dataType).getRegisterCount();
     }
     
     private void updateLengthInfo() {
@@ -74,7 +65,8 @@ public class ModbusConfigUI extends JDialog {
         // Data Type
         gbc.gridx = 0; gbc.gridy = 1;
         inputPanel.add(new JLabel("Data Type:"), gbc);
-        dataTypeCombo = new JComboBox<>(new String[]{"Int16", "UInt16", "Float32 (ABCD)", "Float32 (BADC)"});
+        dataTypeCombo = new JComboBox<>(RegisterDecoder.dataTypes());
+        dataTypeCombo.setEditable(true); // for a scale or bit, e.g. "UInt16 *0.1" (see RegisterDecoder)
         dataTypeCombo.setSelectedItem("Float32 (ABCD)");
         dataTypeCombo.addActionListener(e -> updateLengthInfo());
         gbc.gridx = 1; gbc.gridwidth = 2;
@@ -2,31 +2,49 @@ package com.example.modbus;
 
 import com.serotonin.modbus4j.ModbusFactory;
 import com.serotonin.modbus4j.ModbusMaster;
+import com.serotonin.modbus4j.ip.IpParameters;
 
 public class ModbusConnectionManager {
     private SimpleSerialPortWrapper wrapper;
     private ModbusMaster master;
     private boolean opened;
+    private String transport;
+    private String connectionName;
 
     public synchronized void open(ModbusSettings settings) throws Exception {
-        // Don't close existing connection if it's the same port
-        if (opened && wrapper != null && wrapper.getPortName().equals(settings.getPortName())) {
-            return; // Already connected to the same port
+        // Don't close existing connection if it's the same port or endpoint
+        if (opened && settings.getTransport().equals(transport) && settings.getConnectionName().equals(connectionName)) {
+            return; // Already connected
         }
-        
+
         close();
-        
+
         try {
-            wrapper = new SimpleSerialPortWrapper();
-            wrapper.openPort(settings);
             ModbusFactory factory = new ModbusFactory();
-            master = factory.createRtuMaster(wrapper);
-            // Increase timeout and retries for better reliability
-            master.setTimeout(3000);
-            master.setRetries(2);
+            ModbusMaster transportMaster;
+            if (settings.isSimulated()) {
+                transportMaster = factory.createRtuMaster(new SimulatedSerialPort(SimulatedSlave.getShared()));
+            } else if (settings.isNetwork()) {
+                IpParameters params = new IpParameters();
+                params.setHost(settings.getHost());
+                params.setPort(settings.getTcpPort());
+                // RTU frames with CRC passed through a serial gateway instead of MBAP framing
+                params.setEncapsulated(ModbusSettings.TRANSPORT_RTU_OVER_TCP.equals(settings.getTransport()));
+                // Keep the socket open between requests instead of reconnecting for every poll
+                transportMaster = factory.createTcpMaster(params, true);
+            } else {
+                wrapper = new SimpleSerialPortWrapper();
+                wrapper.openPort(settings);
+                transportMaster = factory.createRtuMaster(wrapper);
+            }
+            master = new InstrumentedModbusMaster(transportMaster, PollMetrics.getShared().line(settings.getConnectionName()));
+            master.setTimeout(settings.getTimeout());
+            master.setRetries(settings.getRetries());
             master.init();
             opened = true;
-            System.out.println("Modbus connection established successfully");
+            transport = settings.getTransport();
+            connectionName = settings.getConnectionName();
+            System.out.println("Modbus " + transport + " connection to " + connectionName + " established successfully");
         } catch (Exception e) {
             System.err.println("Failed to establish Modbus connection: " + e.getMessage());
             close(); // Clean up on failure
@@ -40,6 +58,16 @@ public class ModbusConnectionManager {
 
     public synchronized boolean isOpen() { return opened && master != null; }
 
+    /**
+     * Whether the connection is open and the master is still initialised.
+     */
+    public synchronized boolean isHealthy() { return isOpen() && master.isInitialized(); }
+
+    /**
+     * Port name or host:port of the open connection, null when closed.
+     */
+    public synchronized String getConnectionName() { return opened ? connectionName : null; }
+
     public synchronized void close() {
         try {
             if (master != null) master.destroy();
@@ -50,6 +78,7 @@ public class ModbusConnectionManager {
         master = null;
         wrapper = null;
         opened = false;
+        transport = null;
+        connectionName = null;
     }
 }
-
@@ -1,22 +1,42 @@
 package com.example.modbus;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.List;
-import java.util.ArrayList;
+import java.util.concurrent.Executor;
 import java.util.function.BiConsumer;
+import java.util.function.Consumer;
 
 /**
- * Singleton data store to share Modbus data between different components
+ * Singleton data store to share Modbus data between different components.
+ * Numeric and boolean values live in a {@link LiveValueTable}; the configured channels and
+ * math channels get their slots whenever the configuration is loaded, other names the
+ * first time they are stored, after which updates don't allocate. Other values are kept
+ * as objects.
  */
 public class ModbusDataStore {
+    // Value type of a slot, kept above the quality bits so getValue returns what was stored
+    private static final int TYPE_DOUBLE = 0;
+    private static final int TYPE_FLOAT = 1 << 8;
+    private static final int TYPE_INTEGER = 2 << 8;
+    private static final int TYPE_LONG = 3 << 8;
+    private static final int TYPE_BOOLEAN = 4 << 8;
+    private static final int TYPE_MASK = 0xFF << 8;
+
     private static ModbusDataStore instance;
-    private final Map<String, Object> dataMap;
-    private final List<BiConsumer<String, Object>> listeners;
+    private final Map<String, Integer> slots = new ConcurrentHashMap<>();
+    private final LiveValueTable values = new LiveValueTable();
+    private final Map<String, Object> otherValues = new ConcurrentHashMap<>();
+    private final DataChangeBus bus = new DataChangeBus();
+    private final Map<BiConsumer<String, Object>, DataChangeBus.Subscription> listeners = new ConcurrentHashMap<>();
+    private final ChangeFilter changeFilter = new ChangeFilter();
+    private int capacity; // keys installed in the table; those past slots.size() are spare
     
     private ModbusDataStore() {
-        this.dataMap = new ConcurrentHashMap<>();
-        this.listeners = new ArrayList<>();
+        ConfigRegistry registry = ConfigRegistry.getInstance();
+        registry.addListener(this::assignSlots);
+        assignSlots(registry.current());
     }
     
     public static synchronized ModbusDataStore getInstance() {
@@ -27,17 +47,101 @@ public class ModbusDataStore {
     }
     
     /**
-     * Update a value in the data store and notify all listeners
+     * Update a value in the data store. Subscribers are only told about values that moved
+     * past the channel's deadband or whose heartbeat is due.
      */
     public void updateValue(String channelName, Object value) {
-        dataMap.put(channelName, value);
-        // Notify all listeners
-        for (BiConsumer<String, Object> listener : listeners) {
-            try {
-                listener.accept(channelName, value);
-            } catch (Exception e) {
-                System.err.println("Error notifying listener: " + e.getMessage());
-            }
+        int slot = slotOf(channelName);
+        if (value instanceof Number || value instanceof Boolean) {
+            values.put(slot, toDouble(value), LiveValueTable.QUALITY_GOOD | typeOf(value));
+            if (!otherValues.isEmpty()) otherValues.remove(channelName);
+        } else {
+            otherValues.put(channelName, value);
+            values.put(slot, Double.NaN, LiveValueTable.QUALITY_NONE);
+        }
+        if (changeFilter.accept(channelName, value)) bus.publish(channelName, value);
+    }
+
+    /**
+     * Start a scan cycle. Updates until {@link #endCycle()} reach subscribers as one change set.
+     */
+    public void beginCycle() {
+        bus.beginCycle();
+    }
+
+    public void endCycle() {
+        bus.endCycle();
+    }
+
+    /**
+     * Receive changed values as change sets, at most one per scan cycle, on the given executor.
+     */
+    public DataChangeBus.Subscription subscribe(Consumer<Map<String, Object>> listener, Executor executor) {
+        return bus.subscribe(listener, executor);
+    }
+
+    private int slotOf(String channelName) {
+        Integer slot = slots.get(channelName);
+        return slot != null ? slot : addSlot(channelName);
+    }
+
+    private synchronized int addSlot(String channelName) {
+        Integer slot = slots.get(channelName);
+        if (slot != null) return slot;
+        ensureCapacity(slots.size() + 1);
+        slots.put(channelName, slots.size());
+        return slots.size() - 1;
+    }
+
+    /**
+     * Give every configured channel and math channel a slot with one layout change, so
+     * the first scan after a configuration load doesn't rebuild the table name by name.
+     */
+    private synchronized void assignSlots(ConfigRegistry.Snapshot config) {
+        List<String> names = new ArrayList<>(config.getModbusChannelNames());
+        for (String name : MathChannelManager.getChannelNames()) {
+            if (name == null) continue;
+            names.add(name);
+            names.add(name + " (Math)");
+        }
+        names.removeIf(name -> name == null || slots.containsKey(name));
+        if (names.isEmpty()) return;
+        ensureCapacity(slots.size() + names.size());
+        for (String name : names) slots.putIfAbsent(name, slots.size());
+    }
+
+    /**
+     * Install at least the given number of keys, growing by doubling so names stored
+     * one at a time rarely change the layout.
+     */
+    private void ensureCapacity(int needed) {
+        if (needed <= capacity) return;
+        capacity = Math.max(needed, Math.max(16, capacity * 2));
+        int[] keys = new int[capacity];
+        for (int i = 0; i < keys.length; i++) keys[i] = i;
+        values.setKeys(keys);
+    }
+
+    private static double toDouble(Object value) {
+        if (value instanceof Boolean) return (Boolean) value ? 1.0 : 0.0;
+        return ((Number) value).doubleValue();
+    }
+
+    private static int typeOf(Object value) {
+        if (value instanceof Float) return TYPE_FLOAT;
+        if (value instanceof Integer) return TYPE_INTEGER;
+        if (value instanceof Long) return TYPE_LONG;
+        if (value instanceof Boolean) return TYPE_BOOLEAN;
+        return TYPE_DOUBLE;
+    }
+
+    private static Object box(double value, int flags) {
+        switch (flags & TYPE_MASK) {
+            case TYPE_FLOAT: return (float) value;
+            case TYPE_INTEGER: return (int) value;
+            case TYPE_LONG: return (long) value;
+            case TYPE_BOOLEAN: return value != 0;
+            default: return value;
         }
     }
     
@@ -45,42 +149,68 @@ public class ModbusDataStore {
      * Get a value from the data store
      */
     public Object getValue(String channelName) {
-        return dataMap.get(channelName);
+        Integer slot = slots.get(channelName);
+        if (slot == null) return null;
+        int flags = values.getFlags(slot);
+        if ((flags & LiveValueTable.QUALITY_MASK) == LiveValueTable.QUALITY_NONE) return otherValues.get(channelName);
+        return box(values.get(slot), flags);
+    }
+
+    /**
+     * Numeric value of a channel without boxing, NaN if it has none.
+     */
+    public double getNumericValue(String channelName) {
+        Integer slot = slots.get(channelName);
+        return slot == null ? Double.NaN : values.get(slot);
     }
     
     /**
      * Get all values as a map
      */
     public Map<String, Object> getAllValues() {
-        return new ConcurrentHashMap<>(dataMap);
+        Map<String, Object> all = new ConcurrentHashMap<>(otherValues);
+        for (Map.Entry<String, Integer> entry : slots.entrySet()) {
+            int flags = values.getFlags(entry.getValue());
+            if ((flags & LiveValueTable.QUALITY_MASK) != LiveValueTable.QUALITY_NONE) {
+                all.put(entry.getKey(), box(values.get(entry.getValue()), flags));
+            }
+        }
+        return all;
     }
     
     /**
-     * Add a listener to be notified when values change
+     * Add a listener to be notified when values change. It is called once per changed
+     * value on the publishing thread, after the scan cycle ends.
      */
     public void addListener(BiConsumer<String, Object> listener) {
-        listeners.add(listener);
+        listeners.computeIfAbsent(listener, l -> bus.subscribe(changes -> changes.forEach(l), Runnable::run));
     }
     
     /**
      * Remove a listener
      */
     public void removeListener(BiConsumer<String, Object> listener) {
-        listeners.remove(listener);
+        DataChangeBus.Subscription subscription = listeners.remove(listener);
+        if (subscription != null) subscription.cancel();
     }
     
     /**
-     * Clear all data
+     * Clear all data. Channel names keep their slots.
      */
     public void clear() {
-        dataMap.clear();
+        values.clear();
+        otherValues.clear();
+        changeFilter.reset();
     }
     
     /**
      * Get the number of stored values
      */
     public int size() {
-        return dataMap.size();
+        int count = otherValues.size();
+        for (Integer slot : slots.values()) {
+            if (values.contains(slot)) count++;
+        }
+        return count;
     }
 }
-
@@ -14,6 +14,7 @@ public class ModbusGUI {
     private ModbusSettings settings;
     private ChannelRuntimeService channelRuntimeService;
     private ChannelDataArrangementPage channelDataArrangementPage;
+    private PollMetricsPage pollMetricsPage;
     private final ModbusConnectionManager connectionManager = new ModbusConnectionManager();
 
     public ModbusGUI() {
@@ -84,6 +85,9 @@ public class ModbusGUI {
         PowerConsumptionTab powerConsumptionTab = new PowerConsumptionTab();
         tabbedPane.addTab("Reports", powerConsumptionTab);
 
+        pollMetricsPage = new PollMetricsPage();
+        tabbedPane.addTab("Poll Metrics", pollMetricsPage.getPanel());
+
         settingsPage = new SettingsPage(
                 updatedSettings -> {
                     settings = updatedSettings;
@@ -92,7 +96,7 @@ public class ModbusGUI {
                 connectSettings -> {
                     try {
                         connectionManager.open(connectSettings);
-                        JOptionPane.showMessageDialog(mainFrame, "Connected to " + connectSettings.getPortName());
+                        JOptionPane.showMessageDialog(mainFrame, "Connected to " + connectSettings.getConnectionName());
                         settings = connectSettings;
 
                         if (dataPage != null) dataPage.shutdown();
@@ -135,6 +139,7 @@ public class ModbusGUI {
                 if (dataPage != null) dataPage.shutdown();
                 if (filterDataPage != null) filterDataPage.shutdown();
                 if (channelRuntimeService != null) channelRuntimeService.shutdown();
+                if (pollMetricsPage != null) pollMetricsPage.shutdown();
                 connectionManager.close();
             }
         });
@@ -143,6 +148,8 @@ public class ModbusGUI {
     }
 
     public static void main(String[] args) {
+        // Console output, log lines included, is written by a background thread so polling never waits for it
+        AsyncConsole.install();
         SwingUtilities.invokeLater(() -> new ModbusGUI());
     }
 }
\ No newline at end of file
@@ -0,0 +1,627 @@
+package com.example.modbus;
+
+import com.serotonin.modbus4j.ModbusMaster;
+import com.serotonin.modbus4j.exception.ModbusTransportException;
+import com.serotonin.modbus4j.msg.ModbusResponse;
+import com.serotonin.modbus4j.msg.ReadResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Polls channels spread over several serial lines and network endpoints at the same time.
+ * Channels are grouped by {@link ChannelConfig#getLine()} and each line gets its own
+ * worker thread, connection and read plan, so a slow or silent line does not hold up
+ * the others. Every TCP device is its own line, and workers run on virtual threads where
+ * the runtime has them (see {@link WorkerThreads}), so hundreds of devices can be polled
+ * with plain blocking reads. Values from every line are merged into one shared table keyed
+ * by channel number. Channels without a line, or on the main port, use the main connection.
+ * <p>
+ * Each worker schedules its reads by scan class: channels are planned into read blocks per
+ * {@link ChannelConfig#getScanRate() scan rate}, blocks of one class are spread evenly over
+ * its period, and when several blocks are due the one with the earliest deadline is read
+ * first. Slow classes therefore fill the gaps between fast reads instead of delaying them.
+ * <p>
+ * Workers also time every request. Every {@value #ADAPT_WINDOW_MS} ms a worker compares the
+ * share of time its line was busy with the line's target utilisation and stretches or
+ * shrinks all of its scan periods by a common factor to meet it, so an overloaded line
+ * slows down evenly instead of running reads back to back. Round trips, failures, scan
+ * durations and skipped reads are also recorded in {@link PollMetrics}.
+ */
+public class ModbusPollingEngine {
+    private static final Logger log = LoggerFactory.getLogger(ModbusPollingEngine.class);
+    private static final RateLimitedLog failures = new RateLimitedLog(log, 3, 60_000);
+    private static final long RECONNECT_INTERVAL_MS = 5000;
+    private static final long ADAPT_WINDOW_MS = 5000;
+    private static final double MAX_STRETCH = 20.0;
+    private static final double RTT_SMOOTHING = 0.2;
+    private static final String MAIN_LINE = "";
+
+    private final ModbusSettings mainSettings;
+    private final ModbusMaster mainMaster;
+    private final LiveValueTable values;
+    private final Map<String, ModbusSettings> lineSettings = new HashMap<>();
+    private final Map<String, LineWorker> workers = new LinkedHashMap<>();
+    private final Map<Integer, Double> achievedRates = new ConcurrentHashMap<>();
+    private List<ChannelConfig> splitChannels; // channel list the workers were last given
+
+    /**
+     * @param mainSettings settings of the main connection; also the template for lines without saved settings
+     * @param mainMaster   the already opened main connection, shared with the rest of the application
+     * @param values       store every line writes its values into
+     */
+    public ModbusPollingEngine(ModbusSettings mainSettings, ModbusMaster mainMaster, LiveValueTable values) {
+        this.mainSettings = mainSettings;
+        this.mainMaster = mainMaster;
+        this.values = values;
+        for (ModbusSettings line : new SettingsManager().loadLineSettings()) {
+            lineSettings.put(line.getConnectionName(), line);
+        }
+        PollMetrics.getShared().attach(this);
+    }
+
+    /**
+     * Set the channels to poll. Workers start for new lines, pick up changed scan lists
+     * and keep their schedule when nothing changed; lines left without channels are shut
+     * down with their connection. The same list as last time, as handed out by an
+     * unchanged configuration snapshot, is not split again, so this is cheap to call
+     * every cycle.
+     */
+    public void setChannels(List<ChannelConfig> channels) {
+        synchronized (workers) {
+            if (channels == splitChannels) return;
+            splitChannels = channels;
+            Map<String, List<ChannelConfig>> byLine = new LinkedHashMap<>();
+            Set<Integer> polled = new HashSet<>();
+            for (ChannelConfig ch : channels) {
+                byLine.computeIfAbsent(lineOf(ch), k -> new ArrayList<>()).add(ch);
+                polled.add(ch.getChannelNumber());
+            }
+            for (Iterator<Map.Entry<String, LineWorker>> it = workers.entrySet().iterator(); it.hasNext(); ) {
+                Map.Entry<String, LineWorker> entry = it.next();
+                if (byLine.containsKey(entry.getKey())) continue;
+                log.info("Stopping line={}, no channels left", entry.getValue().settings.getConnectionName());
+                entry.getValue().shutdown();
+                it.remove();
+            }
+            for (Map.Entry<String, List<ChannelConfig>> entry : byLine.entrySet()) {
+                workers.computeIfAbsent(entry.getKey(), LineWorker::new).setScanList(entry.getValue());
+            }
+            achievedRates.keySet().retainAll(polled);
+        }
+    }
+
+    /**
+     * Names of the lines polled so far, the main connection being the empty string.
+     */
+    public List<String> getLines() {
+        synchronized (workers) {
+            return new ArrayList<>(workers.keySet());
+        }
+    }
+
+    /**
+     * Reads per second each channel actually got over the last measuring window.
+     */
+    public Map<Integer, Double> getAchievedRates() {
+        return new HashMap<>(achievedRates);
+    }
+
+    /**
+     * Measured load of every line.
+     */
+    public List<LineStatus> getLineStatus() {
+        List<LineStatus> status = new ArrayList<>();
+        synchronized (workers) {
+            for (LineWorker worker : workers.values()) status.add(worker.status());
+        }
+        return status;
+    }
+
+    /**
+     * Utilisation, period stretch and device round-trip times of one line.
+     */
+    public static final class LineStatus {
+        private final String connectionName;
+        private final double utilisation;
+        private final double stretch;
+        private final Map<Integer, Double> roundTripMillis;
+
+        LineStatus(String connectionName, double utilisation, double stretch, Map<Integer, Double> roundTripMillis) {
+            this.connectionName = connectionName;
+            this.utilisation = utilisation;
+            this.stretch = stretch;
+            this.roundTripMillis = roundTripMillis;
+        }
+
+        public String getConnectionName() { return connectionName; }
+
+        /** Share of the last measuring window the line spent on requests, 0 to 1. */
+        public double getUtilisation() { return utilisation; }
+
+        /** Factor every configured scan period on the line is currently multiplied by. */
+        public double getStretch() { return stretch; }
+
+        /** Smoothed request round-trip time per device id, in ms. */
+        public Map<Integer, Double> getRoundTripMillis() { return roundTripMillis; }
+
+        @Override
+        public String toString() {
+            return String.format("%s: %.0f%% busy, periods x%.2f, RTT %s", connectionName, utilisation * 100, stretch, roundTripMillis);
+        }
+    }
+
+    /**
+     * Stop every worker and close the connections the engine opened itself.
+     */
+    public void shutdown() {
+        PollMetrics.getShared().detach(this);
+        synchronized (workers) {
+            for (LineWorker worker : workers.values()) worker.shutdown();
+            workers.clear();
+            splitChannels = null;
+        }
+    }
+
+    private String lineOf(ChannelConfig ch) {
+        String line = ch.getLine();
+        if (line.isEmpty() || line.equals(mainSettings.getConnectionName())) return MAIN_LINE;
+        return line;
+    }
+
+    private ModbusSettings settingsFor(String line) {
+        ModbusSettings saved = lineSettings.get(line);
+        if (saved != null) return saved;
+        // Same parameters as the main connection; "host:port" means a Modbus TCP device and
+        // "Simulator" the simulated slaves
+        ModbusSettings settings = new ModbusSettings(line, mainSettings.getBaudRate(), mainSettings.getDataBits(),
+                mainSettings.getStopBits(), mainSettings.getParity(), mainSettings.getDeviceId());
+        settings.setReadGapTolerance(mainSettings.getReadGapTolerance());
+        settings.setTimeout(mainSettings.getTimeout());
+        settings.setRetries(mainSettings.getRetries());
+        if (ModbusSettings.TRANSPORT_SIMULATOR.equals(line)) {
+            settings.setTransport(ModbusSettings.TRANSPORT_SIMULATOR);
+            return settings;
+        }
+        int colon = line.lastIndexOf(':');
+        if (colon > 0) {
+            try {
+                settings.setTcpPort(Integer.parseInt(line.substring(colon + 1)));
+                settings.setHost(line.substring(0, colon));
+                settings.setTransport(ModbusSettings.TRANSPORT_TCP);
+            } catch (NumberFormatException ignored) {
+                // Not host:port, treat as a serial port name
+            }
+        }
+        return settings;
+    }
+
+    /**
+     * A read block with its scan period and the time it is next due.
+     */
+    private static final class ScheduledBlock {
+        final ModbusReadPlanner.ReadBlock block;
+        final ScanCycle cycle;
+        final long periodNanos;
+        long dueNanos;
+        int reads; // in the current measuring window
+
+        ScheduledBlock(ModbusReadPlanner.ReadBlock block, ScanCycle cycle, long dueNanos) {
+            this.block = block;
+            this.cycle = cycle;
+            this.periodNanos = TimeUnit.MILLISECONDS.toNanos(cycle.periodMillis);
+            this.dueNanos = dueNanos;
+        }
+
+        long deadline(double stretch) { return dueNanos + (long) (periodNanos * stretch); }
+    }
+
+    /**
+     * Bus time spent on the blocks of one scan class since the class was last read through.
+     */
+    private static final class ScanCycle {
+        final int periodMillis;
+        final int blocks;
+        int blocksRead;
+        long busyNanos;
+
+        ScanCycle(int periodMillis, int blocks) {
+            this.periodMillis = periodMillis;
+            this.blocks = blocks;
+        }
+    }
+
+    /**
+     * One serial line or TCP endpoint, served by a single thread so requests on the line
+     * never overlap. Pipelined Modbus TCP lines send every due block before collecting
+     * the responses; other lines read one block at a time, most urgent first.
+     */
+    private final class LineWorker {
+        private final String line;
+        private final ModbusSettings settings;
+        private final ModbusConnectionManager connection; // null for the main line and pipelined lines
+        private final PipelinedTcpClient pipelinedClient; // null unless the line is pipelined
+        private final ModbusReadPlanner readPlanner;
+        private final Thread thread;
+        // A lock rather than monitors so an idle virtual thread worker doesn't pin its carrier
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Condition changed = lock.newCondition();
+        private volatile boolean running = true;
+        private List<ChannelConfig> scanList = Collections.emptyList();
+        private List<ChannelConfig> plannedChannels;
+        private List<ScheduledBlock> schedule = Collections.emptyList();
+        // Reused by every wait; only the worker thread touches it
+        private final List<ScheduledBlock> due = new ArrayList<>();
+        private final Comparator<ScheduledBlock> byDeadline = Comparator.comparingLong(sb -> sb.deadline(this.stretch));
+        private long nextConnectAttempt;
+        private final Map<Integer, Double> roundTripMillis = new ConcurrentHashMap<>();
+        private volatile double stretch = 1.0;
+        private volatile double utilisation;
+        private long windowStart = System.nanoTime();
+        private long busyNanos;
+        private final PollMetrics.Line metrics;
+
+        LineWorker(String line) {
+            this.line = line;
+            this.settings = MAIN_LINE.equals(line) ? mainSettings : settingsFor(line);
+            this.metrics = PollMetrics.getShared().line(settings.getConnectionName());
+            if (settings.isPipelined()) {
+                // The main line gets its own socket too, next to the shared master
+                this.pipelinedClient = new PipelinedTcpClient(settings.getHost(), settings.getTcpPort(), settings.getMaxInFlight(), settings.getTimeout());
+                this.connection = null;
+            } else {
+                this.pipelinedClient = null;
+                this.connection = MAIN_LINE.equals(line) ? null : new ModbusConnectionManager();
+            }
+            this.readPlanner = new ModbusReadPlanner(settings.getReadGapTolerance());
+            this.thread = WorkerThreads.start("modbus-line-" + settings.getConnectionName(), this::run);
+        }
+
+        void setScanList(List<ChannelConfig> channels) {
+            lock.lock();
+            try {
+                if (channels.equals(scanList)) return;
+                scanList = channels;
+                changed.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void run() {
+            try {
+                while (running) {
+                    List<ScheduledBlock> due = nextDue();
+                    if (due == null) return;
+                    long start = System.nanoTime();
+                    if (pipelinedClient != null) {
+                        if (!readPipelined(due)) pause(RECONNECT_INTERVAL_MS);
+                    } else {
+                        ModbusMaster master = master();
+                        if (master == null) {
+                            pause(RECONNECT_INTERVAL_MS);
+                            continue;
+                        }
+                        readSequential(master, due.get(0));
+                    }
+                    reschedule(due, System.nanoTime() - start);
+                }
+            } catch (InterruptedException e) {
+                // shutting down
+            }
+        }
+
+        /**
+         * Wait until at least one block is due. Returns the due blocks by deadline, only the
+         * most urgent one unless the line is pipelined, or null once the worker is stopped.
+         */
+        private List<ScheduledBlock> nextDue() throws InterruptedException {
+            lock.lock();
+            try {
+                return awaitDue();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private List<ScheduledBlock> awaitDue() throws InterruptedException {
+            while (running) {
+                if (scanList != plannedChannels) replan();
+                long now = System.nanoTime();
+                long wait = Long.MAX_VALUE;
+                due.clear();
+                ScheduledBlock first = null;
+                for (ScheduledBlock sb : schedule) {
+                    long until = sb.dueNanos - now;
+                    if (until > 0) {
+                        wait = Math.min(wait, until);
+                    } else if (pipelinedClient != null) {
+                        due.add(sb);
+                    } else if (first == null || sb.deadline(stretch) < first.deadline(stretch)) {
+                        first = sb;
+                    }
+                }
+                if (first != null) due.add(first);
+                if (!due.isEmpty()) {
+                    if (due.size() > 1) due.sort(byDeadline);
+                    return due;
+                }
+                if (wait == Long.MAX_VALUE) changed.await(); // nothing to poll on this line
+                else changed.awaitNanos(wait);
+            }
+            return null;
+        }
+
+        /**
+         * Plan each scan class separately and spread its blocks evenly over its period.
+         */
+        private void replan() {
+            plannedChannels = scanList;
+            Map<Integer, List<ChannelConfig>> byRate = new TreeMap<>();
+            for (ChannelConfig ch : scanList) {
+                byRate.computeIfAbsent(ch.getScanRate(), k -> new ArrayList<>()).add(ch);
+            }
+            List<ScheduledBlock> planned = new ArrayList<>();
+            long now = System.nanoTime();
+            StringBuilder classes = new StringBuilder();
+            for (Map.Entry<Integer, List<ChannelConfig>> entry : byRate.entrySet()) {
+                long period = TimeUnit.MILLISECONDS.toNanos(entry.getKey());
+                List<ModbusReadPlanner.ReadBlock> blocks = readPlanner.plan(entry.getValue());
+                ScanCycle cycle = new ScanCycle(entry.getKey(), blocks.size());
+                for (int i = 0; i < blocks.size(); i++) {
+                    planned.add(new ScheduledBlock(blocks.get(i), cycle, now + period * i / blocks.size()));
+                }
+                classes.append(classes.length() == 0 ? "" : ", ").append(entry.getKey()).append(" ms: ").append(blocks.size());
+            }
+            schedule = planned;
+            if (scanList.isEmpty()) return;
+            log.info("Polling line={} channels={} requests={} pipelined={} scanClasses=[{}]", settings.getConnectionName(),
+                    scanList.size(), planned.size(), pipelinedClient != null, classes);
+        }
+
+        private void reschedule(List<ScheduledBlock> done, long elapsedNanos) {
+            lock.lock();
+            try {
+                advance(done, elapsedNanos);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void advance(List<ScheduledBlock> done, long elapsedNanos) {
+            long now = System.nanoTime();
+            for (ScheduledBlock sb : done) {
+                long period = (long) (sb.periodNanos * stretch);
+                sb.dueNanos += period;
+                // Fell behind by more than a period: skip the missed reads rather than bunch them up
+                if (sb.dueNanos - now < 0) {
+                    sb.dueNanos = now + period;
+                    metrics.recordOverrun(sb.cycle.periodMillis);
+                }
+                sb.reads++;
+                completeScan(sb.cycle, elapsedNanos / done.size());
+            }
+            busyNanos += elapsedNanos;
+            if (now - windowStart >= TimeUnit.MILLISECONDS.toNanos(ADAPT_WINDOW_MS)) adapt(now);
+        }
+
+        /**
+         * End of a measuring window: publish the achieved rates and rescale the scan
+         * periods so the line's busy share moves to its target.
+         */
+        private void adapt(long now) {
+            double window = now - windowStart;
+            utilisation = Math.min(1.0, busyNanos / window);
+            double target = settings.getTargetUtilisation() / 100.0;
+            // Utilisation scales with 1 / stretch, so this stretch would have hit the target
+            double wanted = Math.max(1.0, Math.min(MAX_STRETCH, stretch * utilisation / target));
+            if (Math.abs(wanted - stretch) > 0.1 * stretch) {
+                log.info("Rescaling line={} busy={}% target={}% stretch={}", settings.getConnectionName(),
+                        Math.round(utilisation * 100), Math.round(target * 100), String.format("%.2f", wanted));
+                stretch = wanted;
+            }
+            for (ScheduledBlock sb : schedule) {
+                double rate = sb.reads * 1e9 / window;
+                for (ChannelConfig ch : sb.block.getChannels()) achievedRates.put(ch.getChannelNumber(), rate);
+                sb.reads = 0;
+            }
+            busyNanos = 0;
+            windowStart = now;
+        }
+
+        /**
+         * Count a block's share of a pass towards its scan class and record the class's
+         * bus time once every one of its blocks has been read.
+         */
+        private void completeScan(ScanCycle cycle, long nanos) {
+            cycle.busyNanos += nanos;
+            if (++cycle.blocksRead < cycle.blocks) return;
+            metrics.recordScan(cycle.periodMillis, cycle.busyNanos);
+            cycle.blocksRead = 0;
+            cycle.busyNanos = 0;
+        }
+
+        private void recordRoundTrip(int deviceId, long nanos) {
+            double ms = nanos / 1e6;
+            roundTripMillis.merge(deviceId, ms, (old, latest) -> old + RTT_SMOOTHING * (latest - old));
+        }
+
+        LineStatus status() {
+            return new LineStatus(settings.getConnectionName(), utilisation, stretch, new HashMap<>(roundTripMillis));
+        }
+
+        private void pause(long ms) throws InterruptedException {
+            lock.lock();
+            try {
+                if (running) changed.await(ms, TimeUnit.MILLISECONDS);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void readSequential(ModbusMaster master, ScheduledBlock sb) {
+            ModbusReadPlanner.ReadBlock block = sb.block;
+            long start = System.nanoTime();
+            try {
+                boolean accepted = readBlock(master, block);
+                recordRoundTrip(block.getDeviceId(), System.nanoTime() - start);
+                if (!accepted && block.getChannels().size() > 1) {
+                    // The slave rejected the merged range (e.g. a gap covers an unmapped register),
+                    // fall back to reading each channel on its own
+                    for (ChannelConfig ch : block.getChannels()) {
+                        ModbusReadPlanner.ReadBlock single = ModbusReadPlanner.ReadBlock.single(ch);
+                        try {
+                            if (!readBlock(master, single)) markBad(single);
+                        } catch (ModbusTransportException e) {
+                            markBad(single);
+                        }
+                    }
+                } else if (!accepted) {
+                    markBad(block);
+                }
+            } catch (ModbusTransportException e) {
+                markBad(block);
+            }
+        }
+
+        /**
+         * Send every due block, then store the responses in order. Merged blocks the slave
+         * rejected are retried channel by channel in a second pass. Returns false if the
+         * connection could not be used.
+         */
+        private boolean readPipelined(List<ScheduledBlock> due) throws InterruptedException {
+            if (!pipelinedClient.isConnected() && System.currentTimeMillis() < nextConnectAttempt) return false;
+            List<ModbusReadPlanner.ReadBlock> blocks = new ArrayList<>(due.size());
+            for (ScheduledBlock sb : due) blocks.add(sb.block);
+            List<ModbusReadPlanner.ReadBlock> rejected = new ArrayList<>();
+            if (!readPipelined(blocks, rejected)) return false;
+            return rejected.isEmpty() || readPipelined(rejected, null);
+        }
+
+        private boolean readPipelined(List<ModbusReadPlanner.ReadBlock> blocks, List<ModbusReadPlanner.ReadBlock> rejected) throws InterruptedException {
+            List<CompletableFuture<ModbusResponse>> responses = new ArrayList<>(blocks.size());
+            long[] sentAt = new long[blocks.size()];
+            long[] answeredAt = new long[blocks.size()];
+            for (int i = 0; i < blocks.size(); i++) {
+                ModbusReadPlanner.ReadBlock block = blocks.get(i);
+                try {
+                    sentAt[i] = System.nanoTime();
+                    int index = i;
+                    responses.add(pipelinedClient.send(block.createRequest()).whenComplete((r, e) -> answeredAt[index] = System.nanoTime()));
+                } catch (ModbusTransportException e) {
+                    responses.add(CompletableFuture.failedFuture(e));
+                } catch (IOException e) {
+                    failures.warn(line, "Line unavailable line={} retryInSeconds={}", settings.getConnectionName(), RECONNECT_INTERVAL_MS / 1000);
+                    nextConnectAttempt = System.currentTimeMillis() + RECONNECT_INTERVAL_MS;
+                    return false;
+                }
+            }
+            for (int i = 0; i < blocks.size(); i++) {
+                ModbusReadPlanner.ReadBlock block = blocks.get(i);
+                int functionCode = block.getFunctionCode();
+                try {
+                    ReadResponse response = (ReadResponse) responses.get(i).join();
+                    recordRoundTrip(block.getDeviceId(), answeredAt[i] - sentAt[i]);
+                    metrics.recordResponse(block.getDeviceId(), functionCode, answeredAt[i] - sentAt[i], response.isException());
+                    if (store(block, response)) continue;
+                    if (rejected != null && block.getChannels().size() > 1) {
+                        for (ChannelConfig ch : block.getChannels()) rejected.add(ModbusReadPlanner.ReadBlock.single(ch));
+                    } else {
+                        markBad(block);
+                    }
+                } catch (CompletionException e) {
+                    // Timed out or connection lost; the channels keep their previous values
+                    if (PollMetrics.isTimeout(e)) metrics.recordTimeout(block.getDeviceId(), functionCode);
+                    else metrics.recordError(block.getDeviceId(), functionCode);
+                    markBad(block);
+                }
+            }
+            return true;
+        }
+
+        private ModbusMaster master() {
+            if (connection == null) return mainMaster;
+            if (connection.isOpen()) return connection.getMaster();
+            if (System.currentTimeMillis() < nextConnectAttempt) return null;
+            try {
+                connection.open(settings);
+                return connection.getMaster();
+            } catch (Exception e) {
+                failures.warn(line, "Line unavailable line={} retryInSeconds={} error={}", line, RECONNECT_INTERVAL_MS / 1000, e.getMessage());
+                nextConnectAttempt = System.currentTimeMillis() + RECONNECT_INTERVAL_MS;
+                return null;
+            }
+        }
+
+        void shutdown() {
+            running = false;
+            thread.interrupt();
+            if (connection != null) connection.close();
+            if (pipelinedClient != null) pipelinedClient.close();
+        }
+    }
+
+    /**
+     * Send one planned read request and store the value of every channel it covers.
+     * Returns false if the slave answered with an exception response.
+     */
+    private boolean readBlock(ModbusMaster master, ModbusReadPlanner.ReadBlock block) throws ModbusTransportException {
+        return store(block, (ReadResponse) master.send(block.createRequest()));
+    }
+
+    /**
+     * Store the value of every channel covered by a block's response.
+     * Returns false for an exception response.
+     */
+    private boolean store(ModbusReadPlanner.ReadBlock block, ReadResponse resp) {
+        if (resp.isException()) {
+            failures.warn(block.getDeviceId(), "Exception response block={} exception={}", block, resp.getExceptionMessage());
+            return false;
+        }
+        List<ChannelConfig> blockChannels = block.getChannels();
+        if (block.isBitAccess()) {
+            boolean[] data = resp.getBooleanData();
+            for (int i = 0; i < blockChannels.size(); i++) {
+                int pos = block.getChannelOffset(i);
+                double val = (data != null && pos < data.length && data[pos]) ? 1.0 : 0.0;
+                values.put(blockChannels.get(i).getChannelNumber(), val);
+            }
+        } else {
+            // Decoders were chosen when the block was planned; read straight from the PDU bytes
+            byte[] data = resp.getData();
+            boolean trace = log.isTraceEnabled();
+            for (int i = 0; i < blockChannels.size(); i++) {
+                ChannelConfig ch = blockChannels.get(i);
+                double val = block.getDecoder(i).decode(data, block.getChannelOffset(i)) + block.getValueOffset(i);
+                values.put(ch.getChannelNumber(), val);
+                if (trace) log.trace("Read channel={} name={} value={}", ch.getChannelNumber(), ch.getChannelName(), val);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Flag the channels of a block whose read failed. They keep their last good value.
+     */
+    private void markBad(ModbusReadPlanner.ReadBlock block) {
+        for (ChannelConfig ch : block.getChannels()) values.setQuality(ch.getChannelNumber(), LiveValueTable.QUALITY_BAD);
+    }
+}
@@ -0,0 +1,198 @@
+package com.example.modbus;
+
+import com.serotonin.modbus4j.exception.ModbusTransportException;
+import com.serotonin.modbus4j.msg.ModbusRequest;
+import com.serotonin.modbus4j.msg.ReadCoilsRequest;
+import com.serotonin.modbus4j.msg.ReadDiscreteInputsRequest;
+import com.serotonin.modbus4j.msg.ReadHoldingRegistersRequest;
+import com.serotonin.modbus4j.msg.ReadInputRegistersRequest;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Groups channels into multi-register read requests.
+ * Channels on the same device and function code whose address ranges are
+ * contiguous, or separated by no more than the gap tolerance, are merged into
+ * a single request that stays within the Modbus PDU limits.
+ */
+public class ModbusReadPlanner {
+    public static final int MAX_REGISTERS_PER_READ = 125;
+    public static final int MAX_BITS_PER_READ = 2000;
+    public static final int DEFAULT_GAP_TOLERANCE = 8;
+
+    private final int gapTolerance;
+
+    public ModbusReadPlanner() {
+        this(DEFAULT_GAP_TOLERANCE);
+    }
+
+    /**
+     * @param gapTolerance number of unused registers (or bits) that may be read
+     *                     between two channels to keep them in the same request
+     */
+    public ModbusReadPlanner(int gapTolerance) {
+        this.gapTolerance = Math.max(0, gapTolerance);
+    }
+
+    public int getGapTolerance() { return gapTolerance; }
+
+    /**
+     * Build the list of read blocks for the given channels. Channels with an
+     * invalid channel number are left out, the same as the polling loop does.
+     */
+    public List<ReadBlock> plan(List<ChannelConfig> channels) {
+        Map<Integer, List<ChannelConfig>> groups = new LinkedHashMap<>();
+        for (ChannelConfig ch : channels) {
+            if (ch.getChannelNumber() <= 0) continue;
+            int key = (ch.getDeviceId() << 8) | functionCodeFor(ch.getChannelAddress());
+            groups.computeIfAbsent(key, k -> new ArrayList<>()).add(ch);
+        }
+
+        List<ReadBlock> blocks = new ArrayList<>();
+        for (List<ChannelConfig> group : groups.values()) {
+            group.sort(Comparator.comparingInt(ch -> zeroBasedOffset(ch.getChannelAddress())));
+            ReadBlock current = null;
+            for (ChannelConfig ch : group) {
+                int offset = zeroBasedOffset(ch.getChannelAddress());
+                int count = registerCount(ch);
+                if (current == null || !current.canAppend(offset, count, gapTolerance)) {
+                    current = new ReadBlock(ch.getDeviceId(), functionCodeFor(ch.getChannelAddress()), offset);
+                    blocks.add(current);
+                }
+                current.append(ch, offset, count);
+            }
+        }
+        return blocks;
+    }
+
+    /**
+     * Modbus function code implied by 0xxxx/1xxxx/3xxxx/4xxxx style addressing.
+     * Addresses outside those ranges are read as raw zero-based holding registers.
+     */
+    public static int functionCodeFor(int address) {
+        if (address >= 40001 && address < 50000) return 3;
+        if (address >= 30001 && address < 40000) return 4;
+        if (address >= 10001 && address < 20000) return 2;
+        if (address >= 1 && address < 10000) return 1;
+        return 3;
+    }
+
+    public static int zeroBasedOffset(int address) {
+        if (address >= 40001 && address < 50000) return address - 40001;
+        if (address >= 30001 && address < 40000) return address - 30001;
+        if (address >= 10001 && address < 20000) return address - 10001;
+        if (address >= 1 && address < 10000) return address - 1;
+        return address;
+    }
+
+    /**
+     * Number of registers (or bits, for coils and discrete inputs) a channel occupies.
+     */
+    public static int registerCount(ChannelConfig ch) {
+        if (isBitFunction(functionCodeFor(ch.getChannelAddress()))) return 1;
+        return registerCount(ch.getDataType());
+    }
+
+    public static int registerCount(String dataType) {
+        return RegisterDecoder.of(dataType).getRegisterCount();
+    }
+
+    public static boolean isBitFunction(int functionCode) {
+        return functionCode == 1 || functionCode == 2;
+    }
+
+    /**
+     * A single read request covering one or more channels.
+     */
+    public static class ReadBlock {
+        private final int deviceId;
+        private final int functionCode;
+        private final int startOffset;
+        private int count;
+        private final List<ChannelConfig> channels = new ArrayList<>();
+        // Filled in as channels are appended, so a response decodes without any lookups
+        private int[] channelOffsets = new int[4];
+        private RegisterDecoder[] decoders = new RegisterDecoder[4];
+        private double[] valueOffsets = new double[4];
+
+        ReadBlock(int deviceId, int functionCode, int startOffset) {
+            this.deviceId = deviceId;
+            this.functionCode = functionCode;
+            this.startOffset = startOffset;
+        }
+
+        /**
+         * Block holding just one channel, used when a merged read is rejected by the slave.
+         */
+        public static ReadBlock single(ChannelConfig ch) {
+            int offset = zeroBasedOffset(ch.getChannelAddress());
+            ReadBlock block = new ReadBlock(ch.getDeviceId(), functionCodeFor(ch.getChannelAddress()), offset);
+            block.append(ch, offset, registerCount(ch));
+            return block;
+        }
+
+        boolean canAppend(int offset, int channelCount, int gapTolerance) {
+            int end = startOffset + count;
+            if (offset - end > gapTolerance) return false;
+            int newCount = Math.max(count, offset + channelCount - startOffset);
+            int limit = isBitAccess() ? MAX_BITS_PER_READ : MAX_REGISTERS_PER_READ;
+            return newCount <= limit;
+        }
+
+        void append(ChannelConfig ch, int offset, int channelCount) {
+            int i = channels.size();
+            if (i == channelOffsets.length) {
+                channelOffsets = Arrays.copyOf(channelOffsets, i * 2);
+                decoders = Arrays.copyOf(decoders, i * 2);
+                valueOffsets = Arrays.copyOf(valueOffsets, i * 2);
+            }
+            channels.add(ch);
+            channelOffsets[i] = offset - startOffset;
+            decoders[i] = RegisterDecoder.of(ch.getDataType());
+            valueOffsets[i] = ch.getOffset();
+            count = Math.max(count, offset + channelCount - startOffset);
+        }
+
+        public int getDeviceId() { return deviceId; }
+        public int getFunctionCode() { return functionCode; }
+        public int getStartOffset() { return startOffset; }
+        public int getCount() { return count; }
+        public boolean isBitAccess() { return isBitFunction(functionCode); }
+        public List<ChannelConfig> getChannels() { return Collections.unmodifiableList(channels); }
+
+        /**
+         * Position of the i-th channel inside this block's response data.
+         */
+        public int getChannelOffset(int i) { return channelOffsets[i]; }
+
+        /**
+         * Decoder for the i-th channel's data type.
+         */
+        public RegisterDecoder getDecoder(int i) { return decoders[i]; }
+
+        /**
+         * Offset added to the i-th channel's decoded value.
+         */
+        public double getValueOffset(int i) { return valueOffsets[i]; }
+
+        public ModbusRequest createRequest() throws ModbusTransportException {
+            switch (functionCode) {
+                case 1: return new ReadCoilsRequest(deviceId, startOffset, count);
+                case 2: return new ReadDiscreteInputsRequest(deviceId, startOffset, count);
+                case 4: return new ReadInputRegistersRequest(deviceId, startOffset, count);
+                default: return new ReadHoldingRegistersRequest(deviceId, startOffset, count);
+            }
+        }
+
+        @Override
+        public String toString() {
+            return String.format("FC%02d slave %d offset %d count %d (%d channels)", functionCode, deviceId, startOffset, count, channels.size());
+        }
+    }
+}
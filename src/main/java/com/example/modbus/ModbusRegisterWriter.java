@@ -0,0 +1,138 @@
+package com.example.modbus;
+
+import com.serotonin.modbus4j.ModbusMaster;
+import com.serotonin.modbus4j.exception.ModbusTransportException;
+import com.serotonin.modbus4j.msg.ReadHoldingRegistersRequest;
+import com.serotonin.modbus4j.msg.ReadHoldingRegistersResponse;
+import com.serotonin.modbus4j.msg.WriteCoilRequest;
+import com.serotonin.modbus4j.msg.WriteCoilResponse;
+import com.serotonin.modbus4j.msg.WriteRegisterRequest;
+import com.serotonin.modbus4j.msg.WriteRegisterResponse;
+import com.serotonin.modbus4j.msg.WriteRegistersRequest;
+import com.serotonin.modbus4j.msg.WriteRegistersResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Arrays;
+
+/**
+ * Writes single values to coils and holding registers over an already open master.
+ * Holds no threads or connections of its own, so the configuration pages can write
+ * a value without starting a poller.
+ */
+public class ModbusRegisterWriter {
+    private static final Logger log = LoggerFactory.getLogger(ModbusRegisterWriter.class);
+    private final ModbusMaster master;
+
+    public ModbusRegisterWriter(ModbusMaster master) {
+        this.master = master;
+    }
+
+    /**
+     * Write a value to a Modbus register
+     */
+    public boolean writeValue(int deviceId, int address, Object value, String dataType) {
+        if (master == null) {
+            log.warn("Write failed, no Modbus master device={} address={}", deviceId, address);
+            return false;
+        }
+        
+        try {
+            if (address >= 40001 && address < 50000) {
+                // Holding Registers (4xxxx) - FC06/FC16
+                return writeHoldingRegister(deviceId, address, value, dataType);
+            } else if (address >= 1 && address < 10000) {
+                // Coils (0xxxx) - FC05/FC15
+                return writeCoil(deviceId, address, value);
+            } else {
+                log.warn("Write refused, read-only address={}", address);
+                return false;
+            }
+        } catch (Exception e) {
+            log.warn("Write failed device={} address={} error={}", deviceId, address, e.getMessage());
+            return false;
+        }
+    }
+    
+    /**
+     * Write to Holding Register (4xxxx)
+     */
+    private boolean writeHoldingRegister(int deviceId, int address, Object value, String dataType) throws ModbusTransportException {
+        int zeroBasedAddress = address - 40001;
+        
+        if (log.isDebugEnabled()) {
+            log.debug("Writing device={} address={} offset={} dataType={} value={} valueType={}", deviceId, address, zeroBasedAddress,
+                    dataType, value, value.getClass().getSimpleName());
+        }
+        
+        if (value instanceof Number) {
+            // Encoded the same way the channel is decoded when it is read back
+            RegisterDecoder decoder = RegisterDecoder.of(dataType);
+            short[] current = null;
+            if (decoder.isBit()) {
+                // Read-modify-write, so the register's other bits keep their state
+                ReadHoldingRegistersResponse read = (ReadHoldingRegistersResponse) master.send(
+                        new ReadHoldingRegistersRequest(deviceId, zeroBasedAddress, decoder.getRegisterCount()));
+                if (read.isException()) {
+                    log.warn("Write refused, reading the register failed device={} address={} exception={}", deviceId, address,
+                            read.getExceptionMessage());
+                    return false;
+                }
+                current = read.getShortData();
+            }
+            short[] registers = decoder.encode(((Number) value).doubleValue(), current);
+            if (log.isDebugEnabled()) log.debug("Encoded dataType={} value={} registers={}", dataType, value, Arrays.toString(registers));
+            
+            if (registers.length > 1) {
+                WriteRegistersRequest req = new WriteRegistersRequest(deviceId, zeroBasedAddress, registers);
+                WriteRegistersResponse resp = (WriteRegistersResponse) master.send(req);
+                if (resp.isException()) {
+                    log.warn("Write exception device={} address={} exception={}", deviceId, address, resp.getExceptionMessage());
+                    return false;
+                }
+            } else {
+                WriteRegisterRequest req = new WriteRegisterRequest(deviceId, zeroBasedAddress, registers[0]);
+                WriteRegisterResponse resp = (WriteRegisterResponse) master.send(req);
+                if (resp.isException()) {
+                    log.warn("Write exception device={} address={} code={} exception={}", deviceId, address, resp.getExceptionCode(),
+                            resp.getExceptionMessage());
+                    return false;
+                }
+            }
+            log.info("Wrote device={} address={} value={}", deviceId, address, value);
+            return true;
+        }
+        
+        log.warn("Write refused, unsupported valueType={}", value.getClass().getSimpleName());
+        return false;
+    }
+    
+    /**
+     * Write to Coil (0xxxx)
+     */
+    private boolean writeCoil(int deviceId, int address, Object value) throws ModbusTransportException {
+        int zeroBasedAddress = address - 1;
+        boolean coilValue;
+        
+        if (value instanceof Boolean) {
+            coilValue = (Boolean) value;
+        } else if (value instanceof Number) {
+            coilValue = ((Number) value).doubleValue() != 0.0;
+        } else if (value instanceof String) {
+            String strValue = ((String) value).toLowerCase();
+            coilValue = "true".equals(strValue) || "1".equals(strValue) || "on".equals(strValue);
+        } else {
+            log.warn("Coil write refused, unsupported valueType={}", value.getClass().getSimpleName());
+            return false;
+        }
+        
+        WriteCoilRequest req = new WriteCoilRequest(deviceId, zeroBasedAddress, coilValue);
+        WriteCoilResponse resp = (WriteCoilResponse) master.send(req);
+        if (resp.isException()) {
+            log.warn("Coil write exception device={} address={} exception={}", deviceId, address, resp.getExceptionMessage());
+            return false;
+        }
+        log.info("Wrote coil device={} address={} value={}", deviceId, address, coilValue);
+        return true;
+    }
+}
@@ -1,12 +1,30 @@
 package com.example.modbus;
 
 public class ModbusSettings {
+    public static final String TRANSPORT_RTU = "RTU";
+    public static final String TRANSPORT_TCP = "TCP";
+    public static final String TRANSPORT_RTU_OVER_TCP = "RTU over TCP";
+    public static final String TRANSPORT_SIMULATOR = "Simulator"; // in-process simulated slaves, see SimulatedSlave
+    public static final int DEFAULT_TCP_PORT = 502;
+    public static final int DEFAULT_TIMEOUT = 3000;
+    public static final int DEFAULT_RETRIES = 2;
+    public static final int DEFAULT_MAX_IN_FLIGHT = 1;
+    public static final int DEFAULT_TARGET_UTILISATION = 70;
+
+    private String transport = TRANSPORT_RTU;
     private String portName;
     private int baudRate;
     private int dataBits;
     private int stopBits;
     private int parity;
     private int deviceId;
+    private int readGapTolerance = ModbusReadPlanner.DEFAULT_GAP_TOLERANCE; // Unused registers allowed inside one merged read
+    private String host = "";
+    private int tcpPort = DEFAULT_TCP_PORT;
+    private int timeout = DEFAULT_TIMEOUT; // ms per request
+    private int retries = DEFAULT_RETRIES;
+    private int maxInFlight = DEFAULT_MAX_IN_FLIGHT; // Modbus TCP requests awaiting a response at once
+    private int targetUtilisation = DEFAULT_TARGET_UTILISATION; // % of the time the line may be busy polling
 
     public ModbusSettings() {
         this.portName = "COM1";
@@ -26,17 +44,59 @@ public class ModbusSettings {
         this.deviceId = deviceId;
     }
 
+    public String getTransport() { return transport; }
     public String getPortName() { return portName; }
     public int getBaudRate() { return baudRate; }
     public int getDataBits() { return dataBits; }
     public int getStopBits() { return stopBits; }
     public int getParity() { return parity; }
     public int getDeviceId() { return deviceId; }
+    public int getReadGapTolerance() { return readGapTolerance; }
+    public String getHost() { return host; }
+    public int getTcpPort() { return tcpPort; }
+    public int getTimeout() { return timeout; }
+    public int getRetries() { return retries; }
+    public int getMaxInFlight() { return maxInFlight; }
+    public int getTargetUtilisation() { return targetUtilisation; }
+
+    /**
+     * Whether reads should go through the pipelined client rather than one request at a time.
+     */
+    public boolean isPipelined() {
+        return TRANSPORT_TCP.equals(transport) && maxInFlight > 1;
+    }
+
+    /**
+     * Whether the connection goes over a socket (Modbus TCP or a serial gateway) rather than a local serial port.
+     */
+    public boolean isNetwork() {
+        return TRANSPORT_TCP.equals(transport) || TRANSPORT_RTU_OVER_TCP.equals(transport);
+    }
+
+    public boolean isSimulated() {
+        return TRANSPORT_SIMULATOR.equals(transport);
+    }
+
+    /**
+     * Port name for serial connections, host:port for network ones.
+     */
+    public String getConnectionName() {
+        if (isSimulated()) return TRANSPORT_SIMULATOR;
+        return isNetwork() ? host + ":" + tcpPort : portName;
+    }
 
+    public void setTransport(String transport) { this.transport = transport; }
     public void setPortName(String portName) { this.portName = portName; }
     public void setBaudRate(int baudRate) { this.baudRate = baudRate; }
     public void setDataBits(int dataBits) { this.dataBits = dataBits; }
     public void setStopBits(int stopBits) { this.stopBits = stopBits; }
     public void setParity(int parity) { this.parity = parity; }
     public void setDeviceId(int deviceId) { this.deviceId = deviceId; }
+    public void setReadGapTolerance(int readGapTolerance) { this.readGapTolerance = readGapTolerance; }
+    public void setHost(String host) { this.host = host; }
+    public void setTcpPort(int tcpPort) { this.tcpPort = tcpPort; }
+    public void setTimeout(int timeout) { this.timeout = timeout; }
+    public void setRetries(int retries) { this.retries = retries; }
+    public void setMaxInFlight(int maxInFlight) { this.maxInFlight = maxInFlight; }
+    public void setTargetUtilisation(int targetUtilisation) { this.targetUtilisation = Math.max(1, Math.min(100, targetUtilisation)); }
 }
\ No newline at end of file
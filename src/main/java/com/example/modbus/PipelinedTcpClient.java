@@ -0,0 +1,169 @@
+package com.example.modbus;
+
+import com.serotonin.modbus4j.exception.ModbusTransportException;
+import com.serotonin.modbus4j.msg.ModbusRequest;
+import com.serotonin.modbus4j.msg.ModbusResponse;
+import com.serotonin.modbus4j.sero.util.queue.ByteQueue;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Modbus TCP client that keeps several requests in flight on one socket.
+ * Requests are written back to back and each response is matched to its request by
+ * the MBAP transaction ID, so a scan costs roughly one network round trip instead of
+ * one per request. PDUs are encoded and decoded with modbus4j's message classes.
+ */
+public class PipelinedTcpClient {
+    private static final Logger log = LoggerFactory.getLogger(PipelinedTcpClient.class);
+    private static final RateLimitedLog connectionLog = new RateLimitedLog(log, 3, 60_000);
+    private static final int MBAP_HEADER_LENGTH = 7;
+    private static final int MAX_PDU_LENGTH = 253;
+
+    private final String host;
+    private final int port;
+    private final int timeout;
+    private final Semaphore window;
+    private final Map<Integer, CompletableFuture<ModbusResponse>> pending = new ConcurrentHashMap<>();
+    private int nextTransactionId;
+
+    private Socket socket;
+    private OutputStream out;
+    private volatile boolean connected;
+
+    /**
+     * @param maxInFlight requests that may wait for a response at the same time
+     * @param timeout     ms to wait for each response
+     */
+    public PipelinedTcpClient(String host, int port, int maxInFlight, int timeout) {
+        this.host = host;
+        this.port = port;
+        this.timeout = timeout;
+        this.window = new Semaphore(Math.max(1, maxInFlight));
+    }
+
+    public synchronized void connect() throws IOException {
+        if (connected) return;
+        Socket s = new Socket();
+        s.setTcpNoDelay(true);
+        s.setKeepAlive(true);
+        s.connect(new InetSocketAddress(host, port), timeout);
+        socket = s;
+        out = new BufferedOutputStream(s.getOutputStream());
+        connected = true;
+        DataInputStream in = new DataInputStream(s.getInputStream());
+        WorkerThreads.start("modbus-tcp-reader-" + host + ":" + port, () -> readLoop(s, in));
+        log.info("Pipelined Modbus TCP connected host={} port={}", host, port);
+    }
+
+    public boolean isConnected() { return connected; }
+
+    /**
+     * Send a request without waiting for its response. Blocks while the in-flight window
+     * is full. The future fails with a {@link java.util.concurrent.TimeoutException} if no
+     * response arrives in time, or with an {@link IOException} if the connection drops.
+     */
+    public CompletableFuture<ModbusResponse> send(ModbusRequest request) throws IOException, InterruptedException {
+        if (!connected) connect();
+        window.acquire();
+        CompletableFuture<ModbusResponse> future = new CompletableFuture<>();
+        int transactionId = -1;
+        try {
+            synchronized (this) {
+                if (!connected) throw new IOException("Connection to " + host + ":" + port + " closed");
+                do {
+                    transactionId = nextTransactionId;
+                    nextTransactionId = (nextTransactionId + 1) & 0xFFFF;
+                } while (pending.containsKey(transactionId));
+                pending.put(transactionId, future);
+                write(transactionId, request);
+            }
+        } catch (IOException e) {
+            // Never handed out, so nothing else will complete or remove it
+            if (transactionId >= 0) pending.remove(transactionId, future);
+            future.completeExceptionally(e);
+            window.release();
+            disconnect(e);
+            throw e;
+        }
+        int tid = transactionId;
+        future.orTimeout(timeout, TimeUnit.MILLISECONDS).whenComplete((response, error) -> {
+            pending.remove(tid, future);
+            window.release();
+        });
+        return future;
+    }
+
+    // Called with the monitor held so frames are never interleaved
+    private void write(int transactionId, ModbusRequest request) throws IOException {
+        ByteQueue pdu = new ByteQueue();
+        request.write(pdu); // unit id, function code, data
+        byte[] body = pdu.popAll();
+        out.write(transactionId >> 8);
+        out.write(transactionId);
+        out.write(0); // protocol id
+        out.write(0);
+        out.write(body.length >> 8);
+        out.write(body.length);
+        out.write(body);
+        out.flush();
+    }
+
+    private void readLoop(Socket s, DataInputStream in) {
+        byte[] header = new byte[MBAP_HEADER_LENGTH];
+        try {
+            while (true) {
+                in.readFully(header);
+                int transactionId = ((header[0] & 0xFF) << 8) | (header[1] & 0xFF);
+                int length = ((header[4] & 0xFF) << 8) | (header[5] & 0xFF);
+                if (length < 2 || length > MAX_PDU_LENGTH + 1) {
+                    throw new IOException("Invalid MBAP length " + length);
+                }
+                byte[] body = new byte[length];
+                body[0] = header[6]; // unit id
+                in.readFully(body, 1, length - 1);
+                CompletableFuture<ModbusResponse> future = pending.get(transactionId);
+                if (future == null) continue; // timed out already
+                try {
+                    future.complete(ModbusResponse.createModbusResponse(new ByteQueue(body)));
+                } catch (ModbusTransportException e) {
+                    future.completeExceptionally(e);
+                }
+            }
+        } catch (IOException e) {
+            synchronized (this) {
+                if (socket != s) return; // replaced by a newer connection
+            }
+            disconnect(e);
+        }
+    }
+
+    private void disconnect(IOException cause) {
+        synchronized (this) {
+            if (!connected) return;
+            connected = false;
+            try {
+                socket.close();
+            } catch (IOException ignored) {}
+        }
+        connectionLog.warn(this, "Pipelined Modbus TCP connection lost host={} port={} error={}", host, port, cause.getMessage());
+        for (CompletableFuture<ModbusResponse> future : pending.values()) {
+            future.completeExceptionally(cause);
+        }
+    }
+
+    public void close() {
+        disconnect(new IOException("Connection closed"));
+    }
+}
@@ -0,0 +1,377 @@
+package com.example.modbus;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.net.SocketTimeoutException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Request and scan statistics of every line, collected while polling: a round-trip
+ * {@link LatencyHistogram} and timeout, exception, error and retry counts per device and
+ * function code, CRC errors per line, and the duration and overruns of each scan class.
+ * Requests sent through a {@link ModbusConnectionManager} are recorded by
+ * {@link InstrumentedModbusMaster}; pipelined lines and scans are recorded by
+ * {@link ModbusPollingEngine} and the polling pages. Running engines also attach themselves,
+ * so their measured line load and achieved channel rates are served next to the counts.
+ * <p>
+ * The shared instance is published as the MXBean {@value #OBJECT_NAME}, so JConsole or any
+ * JMX client can read it next to the Poll Metrics tab.
+ */
+public class PollMetrics implements PollMetricsMXBean {
+    public static final String OBJECT_NAME = "com.example.modbus:type=PollMetrics";
+
+    private static PollMetrics shared;
+
+    private final Map<String, Line> lines = new ConcurrentHashMap<>();
+    private final Set<ModbusPollingEngine> engines = ConcurrentHashMap.newKeySet();
+
+    public static synchronized PollMetrics getShared() {
+        if (shared == null) {
+            shared = new PollMetrics();
+            try {
+                ManagementFactory.getPlatformMBeanServer().registerMBean(shared, new ObjectName(OBJECT_NAME));
+            } catch (JMException e) {
+                System.err.println("Poll metrics not published over JMX: " + e.getMessage());
+            }
+        }
+        return shared;
+    }
+
+    /**
+     * Metrics of one line, keyed by its connection name.
+     */
+    public Line line(String connectionName) {
+        return lines.computeIfAbsent(connectionName, Line::new);
+    }
+
+    /**
+     * Serve the line status and achieved rates of an engine until it is detached.
+     */
+    public void attach(ModbusPollingEngine engine) {
+        engines.add(engine);
+    }
+
+    public void detach(ModbusPollingEngine engine) {
+        engines.remove(engine);
+    }
+
+    /**
+     * Whether a failed request timed out rather than failed outright. modbus4j and the
+     * pipelined client both wrap the timeout in another exception.
+     */
+    public static boolean isTimeout(Throwable e) {
+        for (Throwable t = e; t != null; t = t.getCause()) {
+            if (t instanceof com.serotonin.modbus4j.sero.messaging.TimeoutException
+                    || t instanceof java.util.concurrent.TimeoutException
+                    || t instanceof SocketTimeoutException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public List<LineStats> getLines() {
+        List<LineStats> stats = new ArrayList<>();
+        for (Line line : lines.values()) stats.add(line.stats());
+        stats.sort(Comparator.comparing(LineStats::getLine));
+        return stats;
+    }
+
+    @Override
+    public List<DeviceStats> getDevices() {
+        List<DeviceStats> stats = new ArrayList<>();
+        for (Line line : lines.values()) {
+            for (Device device : line.devices.values()) stats.add(device.stats(line.name));
+        }
+        stats.sort(Comparator.comparing(DeviceStats::getLine).thenComparingInt(DeviceStats::getDeviceId)
+                .thenComparingInt(DeviceStats::getFunctionCode));
+        return stats;
+    }
+
+    @Override
+    public List<ScanStats> getScans() {
+        List<ScanStats> stats = new ArrayList<>();
+        for (Line line : lines.values()) {
+            for (ScanClass scan : line.scans.values()) stats.add(scan.stats(line.name));
+        }
+        stats.sort(Comparator.comparing(ScanStats::getLine).thenComparingInt(ScanStats::getPeriodMillis));
+        return stats;
+    }
+
+    @Override
+    public List<ModbusPollingEngine.LineStatus> getLineStatus() {
+        List<ModbusPollingEngine.LineStatus> status = new ArrayList<>();
+        for (ModbusPollingEngine engine : engines) status.addAll(engine.getLineStatus());
+        status.sort(Comparator.comparing(ModbusPollingEngine.LineStatus::getConnectionName));
+        return status;
+    }
+
+    @Override
+    public Map<Integer, Double> getAchievedRates() {
+        Map<Integer, Double> rates = new TreeMap<>();
+        for (ModbusPollingEngine engine : engines) rates.putAll(engine.getAchievedRates());
+        return rates;
+    }
+
+    @Override
+    public void reset() {
+        for (Line line : lines.values()) line.reset();
+    }
+
+    /**
+     * Recorder for one line. Every method is safe to call from any thread.
+     */
+    public static final class Line {
+        private final String name;
+        private final Map<Integer, Device> devices = new ConcurrentHashMap<>();
+        private final Map<Integer, ScanClass> scans = new ConcurrentHashMap<>();
+        private final LongAdder crcErrors = new LongAdder();
+
+        private Line(String name) {
+            this.name = name;
+        }
+
+        private Device device(int deviceId, int functionCode) {
+            return devices.computeIfAbsent(deviceId << 8 | functionCode, k -> new Device(deviceId, functionCode));
+        }
+
+        private ScanClass scan(int periodMillis) {
+            return scans.computeIfAbsent(periodMillis, ScanClass::new);
+        }
+
+        /** A response arrived, normal or exception, after the given round trip. */
+        public void recordResponse(int deviceId, int functionCode, long nanos, boolean exception) {
+            Device device = device(deviceId, functionCode);
+            device.roundTrips.record(nanos);
+            if (exception) device.exceptions.increment();
+        }
+
+        public void recordTimeout(int deviceId, int functionCode) {
+            device(deviceId, functionCode).timeouts.increment();
+        }
+
+        /** The request failed without a response or a timeout, e.g. the connection dropped. */
+        public void recordError(int deviceId, int functionCode) {
+            device(deviceId, functionCode).errors.increment();
+        }
+
+        public void recordRetry(int deviceId, int functionCode) {
+            device(deviceId, functionCode).retries.increment();
+        }
+
+        /** A frame was thrown away for a bad CRC; its device cannot be told. */
+        public void recordCrcError() {
+            crcErrors.increment();
+        }
+
+        /** Bus time spent reading every block of a scan class once. */
+        public void recordScan(int periodMillis, long nanos) {
+            scan(periodMillis).durations.record(nanos);
+        }
+
+        /** A scan of the class could not keep up with its period. */
+        public void recordOverrun(int periodMillis) {
+            scan(periodMillis).overruns.increment();
+        }
+
+        LineStats stats() {
+            long responses = 0, exceptions = 0, timeouts = 0, errors = 0, retries = 0;
+            for (Device device : devices.values()) {
+                responses += device.roundTrips.getCount();
+                exceptions += device.exceptions.sum();
+                timeouts += device.timeouts.sum();
+                errors += device.errors.sum();
+                retries += device.retries.sum();
+            }
+            return new LineStats(name, responses + timeouts + errors, exceptions, timeouts, crcErrors.sum(), errors, retries);
+        }
+
+        void reset() {
+            devices.clear();
+            scans.clear();
+            crcErrors.reset();
+        }
+    }
+
+    private static final class Device {
+        final int deviceId;
+        final int functionCode;
+        final LatencyHistogram roundTrips = new LatencyHistogram();
+        final LongAdder exceptions = new LongAdder();
+        final LongAdder timeouts = new LongAdder();
+        final LongAdder errors = new LongAdder();
+        final LongAdder retries = new LongAdder();
+
+        Device(int deviceId, int functionCode) {
+            this.deviceId = deviceId;
+            this.functionCode = functionCode;
+        }
+
+        DeviceStats stats(String line) {
+            return new DeviceStats(line, deviceId, functionCode, roundTrips.getCount(), roundTrips.getMeanMillis(),
+                    roundTrips.getPercentileMillis(50), roundTrips.getPercentileMillis(99), roundTrips.getMaxMillis(),
+                    exceptions.sum(), timeouts.sum(), errors.sum(), retries.sum());
+        }
+    }
+
+    private static final class ScanClass {
+        final int periodMillis;
+        final LatencyHistogram durations = new LatencyHistogram();
+        final LongAdder overruns = new LongAdder();
+
+        ScanClass(int periodMillis) {
+            this.periodMillis = periodMillis;
+        }
+
+        ScanStats stats(String line) {
+            return new ScanStats(line, periodMillis, durations.getCount(), durations.getMeanMillis(),
+                    durations.getPercentileMillis(99), durations.getMaxMillis(), overruns.sum());
+        }
+    }
+
+    /**
+     * Request totals of one line.
+     */
+    public static final class LineStats {
+        private final String line;
+        private final long requests;
+        private final long exceptions;
+        private final long timeouts;
+        private final long crcErrors;
+        private final long errors;
+        private final long retries;
+
+        LineStats(String line, long requests, long exceptions, long timeouts, long crcErrors, long errors, long retries) {
+            this.line = line;
+            this.requests = requests;
+            this.exceptions = exceptions;
+            this.timeouts = timeouts;
+            this.crcErrors = crcErrors;
+            this.errors = errors;
+            this.retries = retries;
+        }
+
+        public String getLine() { return line; }
+
+        /** Attempts sent, retries included. */
+        public long getRequests() { return requests; }
+
+        /** Exception responses. */
+        public long getExceptions() { return exceptions; }
+
+        public long getTimeouts() { return timeouts; }
+
+        public long getCrcErrors() { return crcErrors; }
+
+        /** Requests that failed without a response or a timeout. */
+        public long getErrors() { return errors; }
+
+        public long getRetries() { return retries; }
+    }
+
+    /**
+     * Round trips and failures of one function code on one device.
+     */
+    public static final class DeviceStats {
+        private final String line;
+        private final int deviceId;
+        private final int functionCode;
+        private final long responses;
+        private final double meanMillis;
+        private final double p50Millis;
+        private final double p99Millis;
+        private final double maxMillis;
+        private final long exceptions;
+        private final long timeouts;
+        private final long errors;
+        private final long retries;
+
+        DeviceStats(String line, int deviceId, int functionCode, long responses, double meanMillis, double p50Millis,
+                    double p99Millis, double maxMillis, long exceptions, long timeouts, long errors, long retries) {
+            this.line = line;
+            this.deviceId = deviceId;
+            this.functionCode = functionCode;
+            this.responses = responses;
+            this.meanMillis = meanMillis;
+            this.p50Millis = p50Millis;
+            this.p99Millis = p99Millis;
+            this.maxMillis = maxMillis;
+            this.exceptions = exceptions;
+            this.timeouts = timeouts;
+            this.errors = errors;
+            this.retries = retries;
+        }
+
+        public String getLine() { return line; }
+
+        public int getDeviceId() { return deviceId; }
+
+        public int getFunctionCode() { return functionCode; }
+
+        /** Responses received, exception responses included. */
+        public long getResponses() { return responses; }
+
+        public double getMeanMillis() { return meanMillis; }
+
+        public double getP50Millis() { return p50Millis; }
+
+        public double getP99Millis() { return p99Millis; }
+
+        public double getMaxMillis() { return maxMillis; }
+
+        public long getExceptions() { return exceptions; }
+
+        public long getTimeouts() { return timeouts; }
+
+        public long getErrors() { return errors; }
+
+        public long getRetries() { return retries; }
+    }
+
+    /**
+     * Durations and overruns of one scan class on one line.
+     */
+    public static final class ScanStats {
+        private final String line;
+        private final int periodMillis;
+        private final long scans;
+        private final double meanMillis;
+        private final double p99Millis;
+        private final double maxMillis;
+        private final long overruns;
+
+        ScanStats(String line, int periodMillis, long scans, double meanMillis, double p99Millis, double maxMillis, long overruns) {
+            this.line = line;
+            this.periodMillis = periodMillis;
+            this.scans = scans;
+            this.meanMillis = meanMillis;
+            this.p99Millis = p99Millis;
+            this.maxMillis = maxMillis;
+            this.overruns = overruns;
+        }
+
+        public String getLine() { return line; }
+
+        /** Configured scan period of the class. */
+        public int getPeriodMillis() { return periodMillis; }
+
+        public long getScans() { return scans; }
+
+        public double getMeanMillis() { return meanMillis; }
+
+        public double getP99Millis() { return p99Millis; }
+
+        public double getMaxMillis() { return maxMillis; }
+
+        public long getOverruns() { return overruns; }
+    }
+}
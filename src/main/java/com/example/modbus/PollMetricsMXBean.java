@@ -0,0 +1,27 @@
+package com.example.modbus;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * JMX view of {@link PollMetrics}, registered as {@value PollMetrics#OBJECT_NAME}.
+ */
+public interface PollMetricsMXBean {
+    /** Request totals per line. */
+    List<PollMetrics.LineStats> getLines();
+
+    /** Round-trip percentiles and failure counts per line, device and function code. */
+    List<PollMetrics.DeviceStats> getDevices();
+
+    /** Scan durations and overruns per line and scan class. */
+    List<PollMetrics.ScanStats> getScans();
+
+    /** Utilisation, period stretch and smoothed device round trips of every polled line. */
+    List<ModbusPollingEngine.LineStatus> getLineStatus();
+
+    /** Reads per second each polled channel got over its line's last measuring window, by channel number. */
+    Map<Integer, Double> getAchievedRates();
+
+    /** Start every count and histogram again from zero. */
+    void reset();
+}
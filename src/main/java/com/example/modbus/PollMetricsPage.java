@@ -0,0 +1,144 @@
+package com.example.modbus;
+
+import javax.swing.*;
+import javax.swing.table.DefaultTableModel;
+import java.awt.BorderLayout;
+import java.awt.FlowLayout;
+import java.awt.GridLayout;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Shows {@link PollMetrics}: round-trip percentiles and failures per device and function
+ * code, request totals per line, scan durations per scan class, and from the polling
+ * engine each line's load, period stretch and smoothed device round trips and the read
+ * rate each channel achieved, refreshed every second. Sort the device table by p99 or
+ * timeouts to find the meter that holds up a bus, and the rates by reads per second to
+ * find channels a stretched line no longer reads as often as configured.
+ */
+public class PollMetricsPage {
+    private static final int REFRESH_MS = 1000;
+
+    private final PollMetrics metrics;
+    private JPanel panel;
+    private DefaultTableModel deviceModel;
+    private DefaultTableModel lineModel;
+    private DefaultTableModel scanModel;
+    private DefaultTableModel loadModel;
+    private DefaultTableModel rateModel;
+    private final Timer refreshTimer;
+
+    public PollMetricsPage() {
+        this(PollMetrics.getShared());
+    }
+
+    public PollMetricsPage(PollMetrics metrics) {
+        this.metrics = metrics;
+        initializeUI();
+        refreshTimer = new Timer(REFRESH_MS, e -> refresh());
+        refreshTimer.start();
+    }
+
+    private void initializeUI() {
+        panel = new JPanel(new BorderLayout());
+
+        JPanel top = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        top.add(new JLabel("Published over JMX as " + PollMetrics.OBJECT_NAME));
+        JButton resetButton = new JButton("Reset");
+        resetButton.addActionListener(e -> {
+            metrics.reset();
+            refresh();
+        });
+        top.add(resetButton);
+        panel.add(top, BorderLayout.NORTH);
+
+        deviceModel = new MetricsTableModel("Line", "Device", "Function", "Responses", "Mean ms", "p50 ms", "p99 ms", "Max ms",
+                "Exceptions", "Timeouts", "Errors", "Retries");
+        lineModel = new MetricsTableModel("Line", "Requests", "Exceptions", "Timeouts", "CRC Errors", "Errors", "Retries");
+        scanModel = new MetricsTableModel("Line", "Scan ms", "Scans", "Mean ms", "p99 ms", "Max ms", "Overruns");
+        loadModel = new MetricsTableModel("Line", "Busy %", "Stretch", "Device", "RTT ms");
+        rateModel = new MetricsTableModel("Channel", "Reads/s");
+
+        JPanel bottom = new JPanel(new GridLayout(2, 2));
+        bottom.add(titled("Lines", lineModel));
+        bottom.add(titled("Scan Classes", scanModel));
+        bottom.add(titled("Line Load", loadModel));
+        bottom.add(titled("Achieved Rates", rateModel));
+        JSplitPane split = new JSplitPane(JSplitPane.VERTICAL_SPLIT, titled("Devices", deviceModel), bottom);
+        split.setResizeWeight(0.6);
+        panel.add(split, BorderLayout.CENTER);
+    }
+
+    private static JComponent titled(String title, DefaultTableModel model) {
+        JTable table = new JTable(model);
+        table.setAutoCreateRowSorter(true);
+        JScrollPane scrollPane = new JScrollPane(table);
+        scrollPane.setBorder(BorderFactory.createTitledBorder(title));
+        return scrollPane;
+    }
+
+    private void refresh() {
+        deviceModel.setRowCount(0);
+        for (PollMetrics.DeviceStats d : metrics.getDevices()) {
+            deviceModel.addRow(new Object[]{d.getLine(), d.getDeviceId(), d.getFunctionCode(), d.getResponses(),
+                    millis(d.getMeanMillis()), millis(d.getP50Millis()), millis(d.getP99Millis()), millis(d.getMaxMillis()),
+                    d.getExceptions(), d.getTimeouts(), d.getErrors(), d.getRetries()});
+        }
+        lineModel.setRowCount(0);
+        for (PollMetrics.LineStats l : metrics.getLines()) {
+            lineModel.addRow(new Object[]{l.getLine(), l.getRequests(), l.getExceptions(), l.getTimeouts(), l.getCrcErrors(),
+                    l.getErrors(), l.getRetries()});
+        }
+        scanModel.setRowCount(0);
+        for (PollMetrics.ScanStats s : metrics.getScans()) {
+            scanModel.addRow(new Object[]{s.getLine(), s.getPeriodMillis(), s.getScans(), millis(s.getMeanMillis()),
+                    millis(s.getP99Millis()), millis(s.getMaxMillis()), s.getOverruns()});
+        }
+        loadModel.setRowCount(0);
+        for (ModbusPollingEngine.LineStatus l : metrics.getLineStatus()) {
+            Double busy = millis(l.getUtilisation() * 100);
+            Double stretch = Math.round(l.getStretch() * 100) / 100.0;
+            if (l.getRoundTripMillis().isEmpty()) {
+                loadModel.addRow(new Object[]{l.getConnectionName(), busy, stretch, null, null});
+            }
+            for (Map.Entry<Integer, Double> rtt : new TreeMap<>(l.getRoundTripMillis()).entrySet()) {
+                loadModel.addRow(new Object[]{l.getConnectionName(), busy, stretch, rtt.getKey(), millis(rtt.getValue())});
+            }
+        }
+        rateModel.setRowCount(0);
+        for (Map.Entry<Integer, Double> rate : metrics.getAchievedRates().entrySet()) {
+            rateModel.addRow(new Object[]{rate.getKey(), Math.round(rate.getValue() * 100) / 100.0});
+        }
+    }
+
+    private static Double millis(double ms) {
+        return Math.round(ms * 10) / 10.0;
+    }
+
+    public JPanel getPanel() {
+        return panel;
+    }
+
+    public void shutdown() {
+        refreshTimer.stop();
+    }
+
+    /**
+     * Read-only rows whose columns sort by number, not as text.
+     */
+    private static final class MetricsTableModel extends DefaultTableModel {
+        MetricsTableModel(String... columns) {
+            super(columns, 0);
+        }
+
+        @Override
+        public boolean isCellEditable(int row, int column) {
+            return false;
+        }
+
+        @Override
+        public Class<?> getColumnClass(int column) {
+            return getRowCount() > 0 && getValueAt(0, column) != null ? getValueAt(0, column).getClass() : Object.class;
+        }
+    }
+}
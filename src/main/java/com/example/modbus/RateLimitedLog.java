@@ -0,0 +1,84 @@
+package com.example.modbus;
+
+import org.slf4j.Logger;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Logs through an SLF4J logger but lets only a few messages of each category through per
+ * window. Anything that can fail on every cycle of a loop (a device on every poll, a disk
+ * on every record, an endpoint on every reconnect, a listener on every change set) logs
+ * through one of these, so it writes a handful of lines a minute instead of one per cycle.
+ * The first message let through after others were held back says how many. The level is
+ * checked first, so a disabled level costs neither the limiter nor the message.
+ */
+public final class RateLimitedLog {
+    private final Logger log;
+    private final int permits;
+    private final long windowNanos;
+    private final Map<Object, Window> windows = new ConcurrentHashMap<>();
+
+    private static final class Window {
+        long start;
+        int used;
+        long suppressed;
+    }
+
+    /**
+     * @param permits      messages each category may log per window
+     * @param windowMillis length of the window
+     */
+    public RateLimitedLog(Logger log, int permits, long windowMillis) {
+        this.log = log;
+        this.permits = permits;
+        this.windowNanos = TimeUnit.MILLISECONDS.toNanos(windowMillis);
+    }
+
+    public void info(Object category, String format, Object... args) {
+        if (!log.isInfoEnabled()) return;
+        long suppressed = acquire(category);
+        if (suppressed >= 0) log.info(withCount(format, suppressed), withCount(args, suppressed));
+    }
+
+    public void warn(Object category, String format, Object... args) {
+        if (!log.isWarnEnabled()) return;
+        long suppressed = acquire(category);
+        if (suppressed >= 0) log.warn(withCount(format, suppressed), withCount(args, suppressed));
+    }
+
+    /**
+     * Number of messages held back since the last one let through, or -1 to hold this one back.
+     */
+    private long acquire(Object category) {
+        Window window = windows.computeIfAbsent(category, k -> new Window());
+        synchronized (window) {
+            long now = System.nanoTime();
+            if (window.used == 0 || now - window.start >= windowNanos) {
+                window.start = now;
+                window.used = 0;
+            }
+            if (window.used >= permits) {
+                window.suppressed++;
+                return -1;
+            }
+            window.used++;
+            long suppressed = window.suppressed;
+            window.suppressed = 0;
+            return suppressed;
+        }
+    }
+
+    private static String withCount(String format, long suppressed) {
+        return suppressed == 0 ? format : format + " suppressed={}";
+    }
+
+    private static Object[] withCount(Object[] args, long suppressed) {
+        if (suppressed == 0) return args;
+        Object[] all = Arrays.copyOf(args, args.length + 1);
+        all[args.length] = suppressed;
+        return all;
+    }
+}
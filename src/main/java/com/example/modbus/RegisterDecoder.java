@@ -0,0 +1,223 @@
+package com.example.modbus;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Turns the registers of a read response into a channel value. A decoder is built once
+ * per data type, when channels are planned or a configuration is loaded, and
+ * {@link #decode} then reads straight from the response bytes ({@code ReadResponse.getData()},
+ * two bytes per register, high byte first) without a {@code short[]} or boxing.
+ *
+ * <p>A data type is written {@code Type [(Order)] [*scale] [bit n]}, for example
+ * {@code Int32 (CDAB)}, {@code UInt16 *0.1} or {@code UInt16 bit 3}:
+ * <ul>
+ * <li><b>Type</b>: Int16, UInt16, Int32, UInt32, Float32, Int64 or Float64.</li>
+ * <li><b>Order</b>: where the bytes of the value sit in the registers, A being the most
+ * significant. ABCD (the default) is high word and high byte first, BADC swaps the bytes
+ * of each register, CDAB swaps the words and DCBA does both. They may also be written
+ * big-endian, byte swap, word swap and little-endian. For 16-bit types only the byte swap
+ * matters.</li>
+ * <li><b>*scale</b>: multiplies the value, for meters that report tenths or hundredths.
+ * It must be a finite number other than 0.</li>
+ * <li><b>bit n</b>: the value is bit n of the registers, 0 being the least significant,
+ * and decodes to 0 or 1.</li>
+ * </ul>
+ * "Float32 (BADC)" has always meant word-swapped in this application, so for Float32 the
+ * name BADC keeps decoding as CDAB; a byte-swapped float is "Float32 (byte swap)".
+ * Anything that cannot be read decodes as a plain Int16, as unknown data types always have.
+ */
+public final class RegisterDecoder {
+    private enum Type {
+        INT16(1), UINT16(1), INT32(2), UINT32(2), FLOAT32(2), INT64(4), FLOAT64(4);
+
+        final int registers;
+
+        Type(int registers) {
+            this.registers = registers;
+        }
+    }
+
+    /** The data types offered when configuring a channel. */
+    private static final String[] DATA_TYPES = {
+            "Int16", "UInt16",
+            "Int32 (ABCD)", "Int32 (CDAB)", "Int32 (BADC)", "Int32 (DCBA)",
+            "UInt32 (ABCD)", "UInt32 (CDAB)", "UInt32 (BADC)", "UInt32 (DCBA)",
+            "Float32 (ABCD)", "Float32 (CDAB)", "Float32 (byte swap)", "Float32 (DCBA)",
+            "Int64 (ABCD)", "Int64 (CDAB)", "Int64 (BADC)", "Int64 (DCBA)",
+            "Float64 (ABCD)", "Float64 (CDAB)", "Float64 (BADC)", "Float64 (DCBA)"};
+
+    private static final Pattern SPEC = Pattern.compile(
+            "\\s*(\\w+)\\s*(?:\\(([^)]*)\\))?\\s*(?:\\*\\s*([-+0-9.eE]+))?\\s*(?:(?i:bit)\\s*(\\d+))?\\s*");
+    private static final RegisterDecoder INT16 = new RegisterDecoder(Type.INT16, false, false, 1.0, -1);
+    private static final Map<String, RegisterDecoder> CACHE = new ConcurrentHashMap<>();
+
+    private final Type type;
+    private final int[] byteIndex; // position of each byte of the value, most significant first
+    private final double scale;
+    private final int bit; // -1 for the whole value
+
+    private RegisterDecoder(Type type, boolean byteSwap, boolean wordSwap, double scale, int bit) {
+        this.type = type;
+        this.scale = scale;
+        this.bit = bit;
+        int registers = type.registers;
+        byteIndex = new int[registers * 2];
+        for (int k = 0; k < byteIndex.length; k++) {
+            int register = wordSwap ? registers - 1 - k / 2 : k / 2;
+            int half = byteSwap ? 1 - (k & 1) : k & 1;
+            byteIndex[k] = register * 2 + half;
+        }
+    }
+
+    /**
+     * Decoder for a data type, shared by every channel of that type.
+     */
+    public static RegisterDecoder of(String dataType) {
+        if (dataType == null) return INT16;
+        return CACHE.computeIfAbsent(dataType, RegisterDecoder::parse);
+    }
+
+    /**
+     * The data types to offer in a data type list, plain Int16 first.
+     */
+    public static String[] dataTypes() {
+        return DATA_TYPES.clone();
+    }
+
+    private static RegisterDecoder parse(String dataType) {
+        Matcher m = SPEC.matcher(dataType);
+        if (!m.matches()) return INT16;
+        Type type;
+        try {
+            type = Type.valueOf(m.group(1).toUpperCase());
+        } catch (IllegalArgumentException e) {
+            return INT16;
+        }
+        String order = m.group(2) == null ? "ABCD" : m.group(2).trim().toUpperCase();
+        if (type == Type.FLOAT32 && "BADC".equals(order)) order = "CDAB"; // see the class comment
+        boolean byteSwap;
+        boolean wordSwap;
+        switch (order) {
+            case "BADC": case "BYTE SWAP": byteSwap = true; wordSwap = false; break;
+            case "CDAB": case "WORD SWAP": byteSwap = false; wordSwap = true; break;
+            case "DCBA": case "LITTLE-ENDIAN": byteSwap = true; wordSwap = true; break;
+            default: byteSwap = false; wordSwap = false;
+        }
+        double scale;
+        int bit;
+        try {
+            scale = m.group(3) == null ? 1.0 : Double.parseDouble(m.group(3));
+            bit = m.group(4) == null ? -1 : Integer.parseInt(m.group(4));
+        } catch (NumberFormatException e) {
+            return INT16; // e.g. "*e" or a bit number past int range
+        }
+        // A zero or non-finite scale cannot be written back
+        if (scale == 0 || Double.isNaN(scale) || Double.isInfinite(scale)) return INT16;
+        if (bit >= type.registers * 16) return INT16;
+        return new RegisterDecoder(type, byteSwap, wordSwap, scale, bit);
+    }
+
+    /**
+     * Number of registers a value of this type occupies.
+     */
+    public int getRegisterCount() {
+        return type.registers;
+    }
+
+    /**
+     * Decode the value whose first register is {@code register} registers into a
+     * response's data bytes, or NaN if the data is too short to hold it.
+     */
+    public double decode(byte[] data, int register) {
+        int base = register * 2;
+        if (data == null || base < 0 || base + byteIndex.length > data.length) return Double.NaN;
+        long raw = 0;
+        for (int index : byteIndex) raw = raw << 8 | data[base + index] & 0xFF;
+        if (bit >= 0) return raw >>> bit & 1;
+        double value;
+        switch (type) {
+            case INT16: value = (short) raw; break;
+            case INT32: value = (int) raw; break;
+            case FLOAT32: value = Float.intBitsToFloat((int) raw); break;
+            case INT64: value = raw; break;
+            case FLOAT64: value = Double.longBitsToDouble(raw); break;
+            default: value = raw; // UInt16 and UInt32 are read zero-extended
+        }
+        return value * scale;
+    }
+
+    /**
+     * Registers that decode to {@code value}, in the order they are sent. Integer types
+     * round and clamp to their range. A bit type sets or clears its bit in otherwise zero
+     * registers; use {@link #encode(double, short[])} to keep the register's other bits.
+     */
+    public short[] encode(double value) {
+        return encode(value, null);
+    }
+
+    /**
+     * Registers that decode to {@code value}, for a read-modify-write. A bit type sets or
+     * clears its bit in {@code current}, the registers as last read, and leaves every other
+     * bit as it was; other types ignore {@code current}.
+     */
+    public short[] encode(double value, short[] current) {
+        long raw;
+        if (bit >= 0) {
+            raw = 0;
+            if (current != null && current.length >= type.registers) {
+                byte[] data = new byte[type.registers * 2];
+                for (int i = 0; i < type.registers; i++) {
+                    data[i * 2] = (byte) (current[i] >> 8);
+                    data[i * 2 + 1] = (byte) current[i];
+                }
+                for (int index : byteIndex) raw = raw << 8 | data[index] & 0xFF;
+            }
+            raw = value != 0 ? raw | 1L << bit : raw & ~(1L << bit);
+        } else {
+            double unscaled = value / scale;
+            switch (type) {
+                case INT16: raw = clamp(unscaled, Short.MIN_VALUE, Short.MAX_VALUE); break;
+                case UINT16: raw = clamp(unscaled, 0, 0xFFFF); break;
+                case INT32: raw = clamp(unscaled, Integer.MIN_VALUE, Integer.MAX_VALUE); break;
+                case UINT32: raw = clamp(unscaled, 0, 0xFFFFFFFFL); break;
+                case FLOAT32: raw = Float.floatToIntBits((float) unscaled); break;
+                case FLOAT64: raw = Double.doubleToLongBits(unscaled); break;
+                default: raw = Math.round(unscaled);
+            }
+        }
+        byte[] bytes = new byte[byteIndex.length];
+        for (int k = byteIndex.length - 1; k >= 0; k--) {
+            bytes[byteIndex[k]] = (byte) raw;
+            raw >>>= 8;
+        }
+        short[] registers = new short[type.registers];
+        for (int i = 0; i < registers.length; i++) {
+            registers[i] = (short) ((bytes[i * 2] & 0xFF) << 8 | bytes[i * 2 + 1] & 0xFF);
+        }
+        return registers;
+    }
+
+    /** Whether the type is a single bit of its registers, so writes must keep the other bits. */
+    public boolean isBit() { return bit >= 0; }
+
+    private static long clamp(double value, long min, long max) {
+        return Math.max(min, Math.min(max, Math.round(value)));
+    }
+
+    /**
+     * Box a decoded value for display: Long for unscaled integers and bits, Float for an
+     * unscaled Float32, so a table shows what the device sent; Double otherwise.
+     */
+    public Number box(double value) {
+        if (scale != 1.0 || Double.isNaN(value)) return value;
+        if (bit >= 0) return (long) value;
+        switch (type) {
+            case FLOAT32: return (float) value;
+            case FLOAT64: return value;
+            default: return (long) value;
+        }
+    }
+}
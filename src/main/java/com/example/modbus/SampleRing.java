@@ -0,0 +1,135 @@
+package com.example.modbus;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
+
+/**
+ * Bounded ring of preallocated records between producers and one consumer. Nothing is
+ * allocated or locked after construction: a producer claims the next slot with a CAS,
+ * fills the record in place and publishes it; the consumer reads published records in
+ * order and releases each slot for reuse. Every slot carries a sequence number that says
+ * whose turn it is, so producers never wait for each other's I/O, only for a free slot.
+ * <pre>
+ *   long seq = ring.tryClaim();
+ *   if (seq >= 0) { fill(ring.get(seq)); ring.publish(seq); }
+ *   ...
+ *   for (long seq; (seq = ring.poll()) >= 0; ) { write(ring.get(seq)); ring.release(seq); }
+ * </pre>
+ */
+public class SampleRing<T> {
+    private final Object[] records;
+    private final AtomicLongArray sequences; // slot's turn: claim at n, read at n + 1
+    private final int mask;
+    private final AtomicLong head = new AtomicLong(); // next to read
+    private final AtomicLong tail = new AtomicLong(); // next to claim
+    private final AtomicLong dropped = new AtomicLong();
+
+    /**
+     * @param capacity rounded up to a power of two
+     * @param factory  creates the records, once per slot
+     */
+    public SampleRing(int capacity, Supplier<T> factory) {
+        int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+        records = new Object[size];
+        sequences = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            records[i] = factory.get();
+            sequences.set(i, i);
+        }
+        mask = size - 1;
+    }
+
+    public int capacity() { return records.length; }
+
+    /** Records published or being written and not yet read. */
+    public int size() {
+        return (int) Math.max(0, tail.get() - head.get());
+    }
+
+    /** Records discarded by {@link #claimDroppingOldest()} so far. */
+    public long getDropped() { return dropped.get(); }
+
+    /**
+     * Claim the next slot. Returns its sequence, or -1 if the ring is full.
+     */
+    public long tryClaim() {
+        while (true) {
+            long pos = tail.get();
+            long turn = sequences.get((int) pos & mask);
+            if (turn == pos) {
+                if (tail.compareAndSet(pos, pos + 1)) return pos;
+            } else if (turn < pos) {
+                return -1; // still holds a record from the previous lap
+            }
+        }
+    }
+
+    /**
+     * Claim the next slot, waiting up to the timeout for the consumer to free one.
+     * Returns -1 on timeout or interrupt.
+     */
+    public long claim(long timeout, TimeUnit unit) {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        long seq;
+        while ((seq = tryClaim()) < 0) {
+            if (System.nanoTime() - deadline >= 0 || Thread.currentThread().isInterrupted()) return -1;
+            LockSupport.parkNanos(100_000);
+        }
+        return seq;
+    }
+
+    /**
+     * Claim the next slot; if the ring is full, discard the oldest unread record to make room.
+     */
+    public long claimDroppingOldest() {
+        long seq;
+        while ((seq = tryClaim()) < 0) {
+            long oldest = poll();
+            if (oldest >= 0) {
+                release(oldest);
+                dropped.incrementAndGet();
+            } else {
+                Thread.yield(); // the oldest slot is claimed but not published yet
+            }
+        }
+        return seq;
+    }
+
+    @SuppressWarnings("unchecked")
+    public T get(long sequence) {
+        return (T) records[(int) sequence & mask];
+    }
+
+    /**
+     * Hand a filled record to the consumer.
+     */
+    public void publish(long sequence) {
+        sequences.set((int) sequence & mask, sequence + 1);
+    }
+
+    /**
+     * Take the oldest published record. Returns its sequence, or -1 if there is none.
+     * The record stays valid until {@link #release}.
+     */
+    public long poll() {
+        while (true) {
+            long pos = head.get();
+            long turn = sequences.get((int) pos & mask);
+            if (turn == pos + 1) {
+                if (head.compareAndSet(pos, pos + 1)) return pos;
+            } else if (turn < pos + 1) {
+                return -1; // empty, or the next record is still being written
+            }
+        }
+    }
+
+    /**
+     * Give a read slot back to the producers.
+     */
+    public void release(long sequence) {
+        sequences.set((int) sequence & mask, sequence + records.length);
+    }
+}
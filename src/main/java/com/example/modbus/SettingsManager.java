@@ -1,14 +1,18 @@
 package com.example.modbus;
 
 import com.fazecast.jSerialComm.SerialPort;
+import org.json.JSONArray;
 import org.json.JSONObject;
 
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
 
 public class SettingsManager {
     private static final String SETTINGS_FILE = "modbus_settings.json";
+    private static final String LINES_FILE = "modbus_lines.json";
 
     public void saveSettings(ModbusSettings settings) {
         JSONObject json = new JSONObject();
@@ -16,28 +20,9 @@ public class SettingsManager {
         json.put("baudRate", settings.getBaudRate());
         json.put("dataBits", settings.getDataBits());
         json.put("stopBits", settings.getStopBits());
-        // Convert numeric parity to string
-        String parityStr;
-        switch (settings.getParity()) {
-            case SerialPort.NO_PARITY:
-                parityStr = "None";
-                break;
-            case SerialPort.ODD_PARITY:
-                parityStr = "Odd";
-                break;
-            case SerialPort.EVEN_PARITY:
-                parityStr = "Even";
-                break;
-            case SerialPort.MARK_PARITY:
-                parityStr = "Mark";
-                break;
-            case SerialPort.SPACE_PARITY:
-                parityStr = "Space";
-                break;
-            default:
-                parityStr = "None";
-        }
-        json.put("parity", parityStr);
+        json.put("parity", parityToString(settings.getParity()));
+        json.put("readGapTolerance", settings.getReadGapTolerance());
+        putConnection(json, settings);
         // Device ID is no longer stored in settings - it's configured per register
 
         try {
@@ -57,29 +42,9 @@ public class SettingsManager {
                 settings.setBaudRate(json.getInt("baudRate"));
                 settings.setDataBits(json.getInt("dataBits"));
                 settings.setStopBits(json.getInt("stopBits"));
-                // Convert string parity back to numeric
-                String parityStr = json.getString("parity");
-                int parity;
-                switch (parityStr) {
-                    case "None":
-                        parity = SerialPort.NO_PARITY;
-                        break;
-                    case "Odd":
-                        parity = SerialPort.ODD_PARITY;
-                        break;
-                    case "Even":
-                        parity = SerialPort.EVEN_PARITY;
-                        break;
-                    case "Mark":
-                        parity = SerialPort.MARK_PARITY;
-                        break;
-                    case "Space":
-                        parity = SerialPort.SPACE_PARITY;
-                        break;
-                    default:
-                        parity = SerialPort.NO_PARITY;
-                }
-                settings.setParity(parity);
+                settings.setParity(parityFromString(json.getString("parity")));
+                settings.setReadGapTolerance(json.optInt("readGapTolerance", ModbusReadPlanner.DEFAULT_GAP_TOLERANCE));
+                readConnection(json, settings);
                 // Device ID is no longer loaded from settings - it's configured per register
             }
         } catch (IOException e) {
@@ -87,4 +52,97 @@ public class SettingsManager {
         }
         return settings;
     }
-}
\ No newline at end of file
+
+    /**
+     * Save the settings of the additional lines polled next to the main connection.
+     * Each line is identified by its port name, or host:port for network lines.
+     */
+    public void saveLineSettings(List<ModbusSettings> lines) {
+        JSONArray array = new JSONArray();
+        for (ModbusSettings line : lines) {
+            JSONObject json = new JSONObject();
+            json.put("portName", line.getPortName());
+            json.put("baudRate", line.getBaudRate());
+            json.put("dataBits", line.getDataBits());
+            json.put("stopBits", line.getStopBits());
+            json.put("parity", parityToString(line.getParity()));
+            json.put("readGapTolerance", line.getReadGapTolerance());
+            putConnection(json, line);
+            array.put(json);
+        }
+        try {
+            Files.writeString(Paths.get(LINES_FILE), array.toString(2));
+        } catch (IOException e) {
+            System.err.println("Error saving line settings: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Load the additional line settings. Missing values fall back to the defaults of
+     * {@link ModbusSettings}; no file means no additional lines are configured.
+     */
+    public List<ModbusSettings> loadLineSettings() {
+        List<ModbusSettings> lines = new ArrayList<>();
+        try {
+            if (Files.exists(Paths.get(LINES_FILE))) {
+                JSONArray array = new JSONArray(Files.readString(Paths.get(LINES_FILE)));
+                for (int i = 0; i < array.length(); i++) {
+                    JSONObject json = array.getJSONObject(i);
+                    ModbusSettings line = new ModbusSettings();
+                    line.setPortName(json.optString("portName", ""));
+                    line.setBaudRate(json.optInt("baudRate", line.getBaudRate()));
+                    line.setDataBits(json.optInt("dataBits", line.getDataBits()));
+                    line.setStopBits(json.optInt("stopBits", line.getStopBits()));
+                    line.setParity(parityFromString(json.optString("parity", "None")));
+                    line.setReadGapTolerance(json.optInt("readGapTolerance", ModbusReadPlanner.DEFAULT_GAP_TOLERANCE));
+                    readConnection(json, line);
+                    lines.add(line);
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Error loading line settings: " + e.getMessage());
+        }
+        return lines;
+    }
+
+    private static void putConnection(JSONObject json, ModbusSettings settings) {
+        json.put("transport", settings.getTransport());
+        json.put("host", settings.getHost());
+        json.put("tcpPort", settings.getTcpPort());
+        json.put("timeout", settings.getTimeout());
+        json.put("retries", settings.getRetries());
+        json.put("maxInFlight", settings.getMaxInFlight());
+        json.put("targetUtilisation", settings.getTargetUtilisation());
+    }
+
+    // Absent in files written before network transports and adaptive polling were supported
+    private static void readConnection(JSONObject json, ModbusSettings settings) {
+        settings.setTransport(json.optString("transport", ModbusSettings.TRANSPORT_RTU));
+        settings.setHost(json.optString("host", ""));
+        settings.setTcpPort(json.optInt("tcpPort", ModbusSettings.DEFAULT_TCP_PORT));
+        settings.setTimeout(json.optInt("timeout", ModbusSettings.DEFAULT_TIMEOUT));
+        settings.setRetries(json.optInt("retries", ModbusSettings.DEFAULT_RETRIES));
+        settings.setMaxInFlight(json.optInt("maxInFlight", ModbusSettings.DEFAULT_MAX_IN_FLIGHT));
+        settings.setTargetUtilisation(json.optInt("targetUtilisation", ModbusSettings.DEFAULT_TARGET_UTILISATION));
+    }
+
+    private static String parityToString(int parity) {
+        switch (parity) {
+            case SerialPort.ODD_PARITY: return "Odd";
+            case SerialPort.EVEN_PARITY: return "Even";
+            case SerialPort.MARK_PARITY: return "Mark";
+            case SerialPort.SPACE_PARITY: return "Space";
+            default: return "None";
+        }
+    }
+
+    private static int parityFromString(String parity) {
+        switch (parity) {
+            case "Odd": return SerialPort.ODD_PARITY;
+            case "Even": return SerialPort.EVEN_PARITY;
+            case "Mark": return SerialPort.MARK_PARITY;
+            case "Space": return SerialPort.SPACE_PARITY;
+            default: return SerialPort.NO_PARITY;
+        }
+    }
+}
@@ -1,12 +1,20 @@
 package com.example.modbus;
 
 import javax.swing.*;
+import javax.swing.table.DefaultTableModel;
 import java.awt.*;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.function.Consumer;
 import javax.swing.border.EmptyBorder;
 
 public class SettingsPage {
     private JPanel panel;
+    private JComboBox<String> transportComboBox;
+    private JTextField hostField;
+    private JTextField tcpPortField;
+    private JTextField timeoutField;
+    private JTextField maxInFlightField;
     private JTextField portNameField;
     private JTextField baudRateField;
     private JTextField dataBitsField;
@@ -14,6 +22,8 @@ public class SettingsPage {
     private JComboBox<String> parityComboBox;
     private JButton saveButton;
     private JButton connectButton;
+    private DefaultTableModel linesModel;
+    private JTable linesTable;
     private Consumer<ModbusSettings> onSettingsSaved;
     private Consumer<ModbusSettings> onConnectRequested;
 
@@ -37,6 +47,48 @@ public class SettingsPage {
 
         int row = 0;
 
+        // Connection Type
+        gbc.gridx = 0; gbc.gridy = row; gbc.weightx = 0.0;
+        form.add(new JLabel("Connection Type:"), gbc);
+        transportComboBox = new JComboBox<>(new String[]{ModbusSettings.TRANSPORT_RTU, ModbusSettings.TRANSPORT_TCP, ModbusSettings.TRANSPORT_RTU_OVER_TCP, ModbusSettings.TRANSPORT_SIMULATOR});
+        transportComboBox.setSelectedIndex(0);
+        transportComboBox.addActionListener(e -> updateTransportFields());
+        gbc.gridx = 1; gbc.weightx = 1.0;
+        form.add(transportComboBox, gbc);
+        row++;
+
+        // Host
+        gbc.gridx = 0; gbc.gridy = row; gbc.weightx = 0.0;
+        form.add(new JLabel("Host:"), gbc);
+        hostField = new JTextField("", 20);
+        gbc.gridx = 1; gbc.weightx = 1.0;
+        form.add(hostField, gbc);
+        row++;
+
+        // TCP Port
+        gbc.gridx = 0; gbc.gridy = row; gbc.weightx = 0.0;
+        form.add(new JLabel("TCP Port:"), gbc);
+        tcpPortField = new JTextField(String.valueOf(ModbusSettings.DEFAULT_TCP_PORT), 20);
+        gbc.gridx = 1; gbc.weightx = 1.0;
+        form.add(tcpPortField, gbc);
+        row++;
+
+        // Timeout
+        gbc.gridx = 0; gbc.gridy = row; gbc.weightx = 0.0;
+        form.add(new JLabel("Timeout (ms):"), gbc);
+        timeoutField = new JTextField(String.valueOf(ModbusSettings.DEFAULT_TIMEOUT), 20);
+        gbc.gridx = 1; gbc.weightx = 1.0;
+        form.add(timeoutField, gbc);
+        row++;
+
+        // Requests in flight (Modbus TCP only)
+        gbc.gridx = 0; gbc.gridy = row; gbc.weightx = 0.0;
+        form.add(new JLabel("Requests in Flight:"), gbc);
+        maxInFlightField = new JTextField(String.valueOf(ModbusSettings.DEFAULT_MAX_IN_FLIGHT), 20);
+        gbc.gridx = 1; gbc.weightx = 1.0;
+        form.add(maxInFlightField, gbc);
+        row++;
+
         // Port Name
         gbc.gridx = 0; gbc.gridy = row; gbc.weightx = 0.0;
         form.add(new JLabel("Port Name:"), gbc);
@@ -88,8 +140,69 @@ public class SettingsPage {
         connectButton.addActionListener(e -> connect());
         buttons.add(connectButton);
 
-        panel.add(form, BorderLayout.CENTER);
+        JPanel content = new JPanel(new BorderLayout());
+        content.add(form, BorderLayout.NORTH);
+        content.add(createLinesPanel(), BorderLayout.CENTER);
+        panel.add(content, BorderLayout.CENTER);
         panel.add(buttons, BorderLayout.SOUTH);
+        updateTransportFields();
+    }
+
+    /**
+     * Additional lines polled next to the main connection, one row each. A channel is
+     * polled on a line when its line name is the line's port name, or host:port for
+     * network lines; lines without a row here use the main connection's parameters.
+     */
+    private JPanel createLinesPanel() {
+        linesModel = new DefaultTableModel(new String[]{"Connection Type", "Port / Host", "TCP Port", "Baud Rate", "Data Bits",
+                "Stop Bits", "Parity", "Timeout (ms)", "Requests in Flight", "Target Busy %"}, 0);
+        linesTable = new JTable(linesModel);
+        linesTable.getColumnModel().getColumn(0).setCellEditor(new DefaultCellEditor(new JComboBox<>(new String[]{
+                ModbusSettings.TRANSPORT_RTU, ModbusSettings.TRANSPORT_TCP, ModbusSettings.TRANSPORT_RTU_OVER_TCP})));
+        linesTable.getColumnModel().getColumn(6).setCellEditor(new DefaultCellEditor(new JComboBox<>(new String[]{"None", "Even", "Odd"})));
+        for (ModbusSettings line : new SettingsManager().loadLineSettings()) {
+            linesModel.addRow(new Object[]{line.getTransport(), line.isNetwork() ? line.getHost() : line.getPortName(), line.getTcpPort(),
+                    line.getBaudRate(), line.getDataBits(), line.getStopBits(), PARITY_NAMES[getParityIndex(line.getParity())],
+                    line.getTimeout(), line.getMaxInFlight(), line.getTargetUtilisation()});
+        }
+
+        JPanel lineButtons = new JPanel(new FlowLayout(FlowLayout.RIGHT));
+        JButton addLineButton = new JButton("Add Line");
+        addLineButton.addActionListener(e -> linesModel.addRow(new Object[]{ModbusSettings.TRANSPORT_RTU, "", ModbusSettings.DEFAULT_TCP_PORT,
+                19200, 8, 1, "None", ModbusSettings.DEFAULT_TIMEOUT, ModbusSettings.DEFAULT_MAX_IN_FLIGHT,
+                ModbusSettings.DEFAULT_TARGET_UTILISATION}));
+        lineButtons.add(addLineButton);
+        JButton removeLineButton = new JButton("Remove Line");
+        removeLineButton.addActionListener(e -> {
+            int selected = linesTable.getSelectedRow();
+            if (selected >= 0) linesModel.removeRow(linesTable.convertRowIndexToModel(selected));
+        });
+        lineButtons.add(removeLineButton);
+        JButton saveLinesButton = new JButton("Save Lines");
+        saveLinesButton.addActionListener(e -> saveLines());
+        lineButtons.add(saveLinesButton);
+
+        JPanel linesPanel = new JPanel(new BorderLayout());
+        linesPanel.setBorder(BorderFactory.createCompoundBorder(new EmptyBorder(0, 16, 0, 16),
+                BorderFactory.createTitledBorder("Additional Lines")));
+        linesPanel.add(new JScrollPane(linesTable), BorderLayout.CENTER);
+        linesPanel.add(lineButtons, BorderLayout.SOUTH);
+        return linesPanel;
+    }
+
+    private void updateTransportFields() {
+        Object transport = transportComboBox.getSelectedItem();
+        boolean simulated = ModbusSettings.TRANSPORT_SIMULATOR.equals(transport); // configured in simulator.json
+        boolean network = !simulated && !ModbusSettings.TRANSPORT_RTU.equals(transport);
+        boolean serial = ModbusSettings.TRANSPORT_RTU.equals(transport);
+        hostField.setEnabled(network);
+        tcpPortField.setEnabled(network);
+        maxInFlightField.setEnabled(ModbusSettings.TRANSPORT_TCP.equals(transport));
+        portNameField.setEnabled(serial);
+        baudRateField.setEnabled(serial);
+        dataBitsField.setEnabled(serial);
+        stopBitsField.setEnabled(serial);
+        parityComboBox.setEnabled(serial);
     }
 
     public void setInitialSettings(ModbusSettings settings) {
@@ -99,10 +212,24 @@ public class SettingsPage {
             dataBitsField.setText(String.valueOf(settings.getDataBits()));
             stopBitsField.setText(String.valueOf(settings.getStopBits()));
             parityComboBox.setSelectedIndex(getParityIndex(settings.getParity()));
+            transportComboBox.setSelectedItem(settings.getTransport());
+            hostField.setText(settings.getHost());
+            tcpPortField.setText(String.valueOf(settings.getTcpPort()));
+            timeoutField.setText(String.valueOf(settings.getTimeout()));
+            maxInFlightField.setText(String.valueOf(settings.getMaxInFlight()));
+            updateTransportFields();
         }
     }
 
-    private int getParityIndex(int parity) {
+    private static final String[] PARITY_NAMES = {"None", "Even", "Odd"};
+
+    private static int parityFromName(Object name) {
+        return "Even".equals(name) ? com.fazecast.jSerialComm.SerialPort.EVEN_PARITY :
+                "Odd".equals(name) ? com.fazecast.jSerialComm.SerialPort.ODD_PARITY :
+                        com.fazecast.jSerialComm.SerialPort.NO_PARITY;
+    }
+
+    private static int getParityIndex(int parity) {
         switch (parity) {
             case com.fazecast.jSerialComm.SerialPort.EVEN_PARITY: return 1;
             case com.fazecast.jSerialComm.SerialPort.ODD_PARITY: return 2;
@@ -116,10 +243,12 @@ public class SettingsPage {
         settings.setBaudRate(Integer.parseInt(baudRateField.getText().trim()));
         settings.setDataBits(Integer.parseInt(dataBitsField.getText().trim()));
         settings.setStopBits(Integer.parseInt(stopBitsField.getText().trim()));
-        String parityStr = (String) parityComboBox.getSelectedItem();
-        settings.setParity(parityStr.equals("Even") ? com.fazecast.jSerialComm.SerialPort.EVEN_PARITY :
-                parityStr.equals("Odd") ? com.fazecast.jSerialComm.SerialPort.ODD_PARITY :
-                        com.fazecast.jSerialComm.SerialPort.NO_PARITY);
+        settings.setParity(parityFromName(parityComboBox.getSelectedItem()));
+        settings.setTransport((String) transportComboBox.getSelectedItem());
+        settings.setHost(hostField.getText().trim());
+        settings.setTcpPort(Integer.parseInt(tcpPortField.getText().trim()));
+        settings.setTimeout(Integer.parseInt(timeoutField.getText().trim()));
+        settings.setMaxInFlight(Integer.parseInt(maxInFlightField.getText().trim()));
         // Device ID is no longer needed - it's configured per register in the config page
         return settings;
     }
@@ -139,6 +268,45 @@ public class SettingsPage {
         }
     }
 
+    private List<ModbusSettings> readLinesFromTable() throws NumberFormatException {
+        if (linesTable.isEditing()) linesTable.getCellEditor().stopCellEditing();
+        List<ModbusSettings> lines = new ArrayList<>();
+        for (int row = 0; row < linesModel.getRowCount(); row++) {
+            String name = String.valueOf(linesModel.getValueAt(row, 1)).trim();
+            if (name.isEmpty()) continue;
+            ModbusSettings line = new ModbusSettings();
+            line.setTransport(String.valueOf(linesModel.getValueAt(row, 0)));
+            if (line.isNetwork()) {
+                line.setHost(name);
+            } else {
+                line.setPortName(name);
+            }
+            line.setTcpPort(intAt(row, 2));
+            line.setBaudRate(intAt(row, 3));
+            line.setDataBits(intAt(row, 4));
+            line.setStopBits(intAt(row, 5));
+            line.setParity(parityFromName(linesModel.getValueAt(row, 6)));
+            line.setTimeout(intAt(row, 7));
+            line.setMaxInFlight(intAt(row, 8));
+            line.setTargetUtilisation(intAt(row, 9));
+            lines.add(line);
+        }
+        return lines;
+    }
+
+    private int intAt(int row, int column) {
+        return Integer.parseInt(String.valueOf(linesModel.getValueAt(row, column)).trim());
+    }
+
+    private void saveLines() {
+        try {
+            new SettingsManager().saveLineSettings(readLinesFromTable());
+            JOptionPane.showMessageDialog(panel, "Lines saved. They are used from the next Connect.");
+        } catch (NumberFormatException e) {
+            JOptionPane.showMessageDialog(panel, "Please enter valid numeric values.", "Error", JOptionPane.ERROR_MESSAGE);
+        }
+    }
+
     private void connect() {
         try {
             ModbusSettings settings = readSettingsFromForm();
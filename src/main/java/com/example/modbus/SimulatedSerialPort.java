@@ -0,0 +1,161 @@
+package com.example.modbus;
+
+import com.serotonin.modbus4j.serial.SerialPortWrapper;
+import com.serotonin.modbus4j.serial.rtu.RtuMessageParser;
+import com.serotonin.modbus4j.serial.rtu.RtuMessageRequest;
+import com.serotonin.modbus4j.serial.rtu.RtuMessageResponse;
+import com.serotonin.modbus4j.sero.util.queue.ByteQueue;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A serial port with a {@link SimulatedSlave} on the other end, for an RTU master in
+ * the same process. Request frames written by the master are answered straight away,
+ * but each response only becomes readable once its latency and transmission time have
+ * passed, so the master's timeouts and retries behave as on a real line.
+ */
+public class SimulatedSerialPort implements SerialPortWrapper {
+    private final SimulatedSlave slave;
+    private final RtuMessageParser parser = new RtuMessageParser(false);
+    private final ByteQueue request = new ByteQueue(); // bytes of a frame still being written
+    private final ArrayDeque<Frame> responses = new ArrayDeque<>(); // guarded by this
+    private boolean open;
+
+    private static final class Frame {
+        final byte[] data;
+        final long dueNanos;
+        int position;
+
+        Frame(byte[] data, long dueNanos) {
+            this.data = data;
+            this.dueNanos = dueNanos;
+        }
+    }
+
+    private final InputStream in = new InputStream() {
+        @Override
+        public int read() throws IOException {
+            byte[] one = new byte[1];
+            return read(one, 0, 1) < 0 ? -1 : one[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) return 0;
+            synchronized (SimulatedSerialPort.this) {
+                while (true) {
+                    if (!open) return -1;
+                    Frame frame = responses.peek();
+                    long wait = frame == null ? TimeUnit.SECONDS.toNanos(1) : frame.dueNanos - System.nanoTime();
+                    if (wait <= 0) {
+                        int n = Math.min(len, frame.data.length - frame.position);
+                        System.arraycopy(frame.data, frame.position, b, off, n);
+                        frame.position += n;
+                        if (frame.position == frame.data.length) responses.poll();
+                        return n;
+                    }
+                    try {
+                        TimeUnit.NANOSECONDS.timedWait(SimulatedSerialPort.this, wait);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new IOException("Interrupted reading the simulated port");
+                    }
+                }
+            }
+        }
+
+        @Override
+        public int available() {
+            synchronized (SimulatedSerialPort.this) {
+                Frame frame = responses.peek();
+                return frame != null && frame.dueNanos - System.nanoTime() <= 0 ? frame.data.length - frame.position : 0;
+            }
+        }
+    };
+
+    private final OutputStream out = new OutputStream() {
+        @Override
+        public void write(int b) {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            received(b, off, len);
+        }
+    };
+
+    public SimulatedSerialPort(SimulatedSlave slave) {
+        this.slave = slave;
+    }
+
+    private synchronized void received(byte[] b, int off, int len) {
+        if (!open) return;
+        request.push(b, off, len);
+        while (request.size() > 0) {
+            int before = request.size();
+            RtuMessageRequest message;
+            try {
+                message = (RtuMessageRequest) parser.parseMessage(request);
+            } catch (Exception e) {
+                // Garbled frame, e.g. a bad CRC: a real slave ignores it and the master times out
+                request.pop(request.size());
+                return;
+            }
+            if (message == null) return; // the rest of the frame is still to come
+            SimulatedSlave.Reply reply = slave.handle(message.getModbusRequest(), before - request.size(), System.nanoTime());
+            if (reply.response != null) {
+                responses.add(new Frame(new RtuMessageResponse(reply.response).getMessageData(), reply.dueNanos));
+                notifyAll();
+            }
+        }
+    }
+
+    @Override
+    public synchronized void open() {
+        open = true;
+        request.pop(request.size());
+        responses.clear();
+    }
+
+    @Override
+    public synchronized void close() {
+        open = false;
+        notifyAll();
+    }
+
+    @Override
+    public InputStream getInputStream() {
+        return in;
+    }
+
+    @Override
+    public OutputStream getOutputStream() {
+        return out;
+    }
+
+    @Override
+    public int getBaudRate() {
+        int baud = slave.getBaudRate();
+        return baud > 0 ? baud : 115200;
+    }
+
+    @Override
+    public int getDataBits() {
+        return 8;
+    }
+
+    @Override
+    public int getStopBits() {
+        return 1;
+    }
+
+    @Override
+    public int getParity() {
+        return 0;
+    }
+}
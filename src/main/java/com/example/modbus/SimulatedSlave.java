@@ -0,0 +1,330 @@
+package com.example.modbus;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.serotonin.modbus4j.BasicProcessImage;
+import com.serotonin.modbus4j.exception.ModbusTransportException;
+import com.serotonin.modbus4j.msg.ModbusRequest;
+import com.serotonin.modbus4j.msg.ModbusResponse;
+import com.serotonin.modbus4j.sero.util.queue.ByteQueue;
+
+import java.io.File;
+import java.io.FileReader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Simulated Modbus slaves for exercising the polling code without hardware. A register
+ * map of signals (constants and waveforms) is computed from the clock whenever a request
+ * arrives; registers without a signal read 0 and keep whatever the master writes.
+ * <p>
+ * Faults are tunable while running: a fixed latency plus random jitter per request, the
+ * transmission time of the request and response at a given baud rate, injected exception
+ * responses and silently dropped requests. The same slave serves
+ * {@link SimulatedSerialPort} in process and {@link SimulatedTcpSlave} on a local socket.
+ */
+public class SimulatedSlave {
+    public static final String CONFIG_FILE = "simulator.json";
+    private static final Gson GSON = new GsonBuilder().setPrettyPrinting().create();
+    private static final int BITS_PER_CHARACTER = 11; // start, 8 data, parity or second stop, stop
+    private static SimulatedSlave shared;
+
+    private final Map<Integer, BasicProcessImage> images = new HashMap<>();
+    private final List<Signal> signals;
+    private final long startNanos = System.nanoTime();
+    private final Random random;
+    private volatile long latencyNanos;
+    private volatile long jitterNanos;
+    private volatile int baudRate;
+    private volatile double exceptionRate;
+    private volatile byte exceptionCode;
+    private volatile double dropRate;
+    private long busFreeNanos; // when the emulated line finishes its last frame
+    private long requests;
+    private long exceptions;
+    private long drops;
+
+    /**
+     * One simulated point. {@code address} uses the channel addressing (00001 coils,
+     * 10001 discrete inputs, 30001 input registers, 40001 holding registers).
+     */
+    public static class Signal {
+        private int deviceId = 1;
+        private int address;
+        private String dataType = "Int16"; // any RegisterDecoder data type; coils and discrete inputs are on when the value is non-zero
+        private String waveform = "constant"; // constant, sine, ramp, square, noise or counter
+        private double offset;
+        private double amplitude;
+        private double periodSeconds = 60;
+
+        public Signal() {
+        }
+
+        public Signal(int deviceId, int address, String dataType, String waveform, double offset, double amplitude, double periodSeconds) {
+            this.deviceId = deviceId;
+            this.address = address;
+            this.dataType = dataType;
+            this.waveform = waveform;
+            this.offset = offset;
+            this.amplitude = amplitude;
+            this.periodSeconds = periodSeconds;
+        }
+
+        public int getDeviceId() { return deviceId; }
+        public int getAddress() { return address; }
+        public String getDataType() { return dataType; }
+        public String getWaveform() { return waveform; }
+        public double getOffset() { return offset; }
+        public double getAmplitude() { return amplitude; }
+        public double getPeriodSeconds() { return periodSeconds; }
+
+        /**
+         * Value at {@code seconds} since the simulator started.
+         */
+        double valueAt(double seconds, Random random) {
+            double period = periodSeconds > 0 ? periodSeconds : 1;
+            double phase = (seconds % period) / period;
+            switch (waveform == null ? "constant" : waveform.toLowerCase()) {
+                case "sine": return offset + amplitude * Math.sin(2 * Math.PI * phase);
+                case "ramp": return offset + amplitude * phase;
+                case "square": return phase < 0.5 ? offset + amplitude : offset - amplitude;
+                case "noise": return offset + amplitude * random.nextGaussian();
+                case "counter": return offset + amplitude * Math.floor(seconds / period);
+                default: return offset;
+            }
+        }
+    }
+
+    /**
+     * Contents of {@value #CONFIG_FILE}.
+     */
+    public static class SimulatorConfig {
+        private int latencyMillis = 5;
+        private int jitterMillis = 0;
+        private int baudRate = 0; // 0 transmits instantly
+        private double exceptionRate = 0; // fraction of requests answered with an exception
+        private int exceptionCode = 4; // slave device failure
+        private double dropRate = 0; // fraction of requests never answered
+        private long seed = 1;
+        private List<Signal> signals = new ArrayList<>();
+
+        public int getLatencyMillis() { return latencyMillis; }
+        public void setLatencyMillis(int latencyMillis) { this.latencyMillis = latencyMillis; }
+
+        public int getJitterMillis() { return jitterMillis; }
+        public void setJitterMillis(int jitterMillis) { this.jitterMillis = jitterMillis; }
+
+        public int getBaudRate() { return baudRate; }
+        public void setBaudRate(int baudRate) { this.baudRate = baudRate; }
+
+        public double getExceptionRate() { return exceptionRate; }
+        public void setExceptionRate(double exceptionRate) { this.exceptionRate = exceptionRate; }
+
+        public int getExceptionCode() { return exceptionCode; }
+        public void setExceptionCode(int exceptionCode) { this.exceptionCode = exceptionCode; }
+
+        public double getDropRate() { return dropRate; }
+        public void setDropRate(double dropRate) { this.dropRate = dropRate; }
+
+        public long getSeed() { return seed; }
+        public void setSeed(long seed) { this.seed = seed; }
+
+        public List<Signal> getSignals() { return signals; }
+        public void setSignals(List<Signal> signals) { this.signals = signals; }
+    }
+
+    /**
+     * The reply to one request and when it is due on the wire.
+     */
+    static final class Reply {
+        final ModbusResponse response; // null when the request is dropped or not for a simulated slave
+        final long dueNanos;
+
+        Reply(ModbusResponse response, long dueNanos) {
+            this.response = response;
+            this.dueNanos = dueNanos;
+        }
+    }
+
+    public SimulatedSlave(SimulatorConfig config) {
+        this.signals = new ArrayList<>(config.getSignals());
+        this.random = new Random(config.getSeed());
+        for (Signal signal : signals) image(signal.getDeviceId());
+        if (images.isEmpty()) image(1); // an empty map still answers, with zeros
+        setLatency(config.getLatencyMillis(), config.getJitterMillis());
+        setBaudRate(config.getBaudRate());
+        setExceptionRate(config.getExceptionRate(), config.getExceptionCode());
+        setDropRate(config.getDropRate());
+    }
+
+    /**
+     * The simulator behind the "Simulator" transport: {@value #CONFIG_FILE} if there is one,
+     * otherwise a sine wave for every configured channel.
+     */
+    public static synchronized SimulatedSlave getShared() {
+        if (shared == null) {
+            SimulatorConfig config = load(new File(CONFIG_FILE));
+            if (config == null) config = configFor(ChannelRepository.load());
+            shared = new SimulatedSlave(config);
+            System.out.println("Simulated Modbus slave with " + config.getSignals().size() + " signals");
+        }
+        return shared;
+    }
+
+    /**
+     * Read a simulator configuration, or null if the file is missing or unreadable.
+     */
+    public static SimulatorConfig load(File file) {
+        if (!file.exists()) return null;
+        try (FileReader reader = new FileReader(file)) {
+            SimulatorConfig config = GSON.fromJson(reader, SimulatorConfig.class);
+            if (config != null && config.getSignals() == null) config.setSignals(new ArrayList<>());
+            return config;
+        } catch (Exception e) {
+            System.err.println("Error loading simulator config " + file + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * A sine wave at every channel's address, centred between its low and high limits, with
+     * periods spread so neighbouring channels differ.
+     */
+    public static SimulatorConfig configFor(List<ChannelConfig> channels) {
+        SimulatorConfig config = new SimulatorConfig();
+        for (ChannelConfig ch : channels) {
+            double low = ch.getLow();
+            double high = ch.getHigh() > low ? ch.getHigh() : low + 100;
+            config.getSignals().add(new Signal(ch.getDeviceId(), ch.getChannelAddress(), ch.getDataType(), "sine",
+                    (low + high) / 2, (high - low) / 2, 30 + ch.getChannelNumber() % 60));
+        }
+        return config;
+    }
+
+    public void setLatency(int latencyMillis, int jitterMillis) {
+        latencyNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, latencyMillis));
+        jitterNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, jitterMillis));
+    }
+
+    /**
+     * Emulate a serial line at this speed: frames take their transmission time and the line
+     * carries one frame at a time. 0 transmits instantly.
+     */
+    public void setBaudRate(int baudRate) { this.baudRate = Math.max(0, baudRate); }
+
+    public int getBaudRate() { return baudRate; }
+
+    /**
+     * Answer this fraction of requests with the given Modbus exception code instead.
+     */
+    public void setExceptionRate(double rate, int code) {
+        exceptionRate = rate;
+        exceptionCode = (byte) code;
+    }
+
+    /**
+     * Never answer this fraction of requests, so the master times out.
+     */
+    public void setDropRate(double rate) { dropRate = rate; }
+
+    public synchronized long getRequestCount() { return requests; }
+    public synchronized long getExceptionCount() { return exceptions; }
+    public synchronized long getDropCount() { return drops; }
+
+    /**
+     * Handle one request that finished arriving at {@code receivedNanos}.
+     *
+     * @param frameBytes size of the request frame on the emulated line
+     */
+    synchronized Reply handle(ModbusRequest request, int frameBytes, long receivedNanos) {
+        requests++;
+        long delay = latencyNanos + (jitterNanos > 0 ? (long) (random.nextDouble() * jitterNanos) : 0);
+        BasicProcessImage image = images.get(request.getSlaveId());
+        if (image == null || random.nextDouble() < dropRate) {
+            // A slave that isn't there and a lost frame look the same to the master
+            drops++;
+            return new Reply(null, receivedNanos + delay);
+        }
+        ModbusResponse response;
+        try {
+            if (random.nextDouble() < exceptionRate) {
+                exceptions++;
+                response = exceptionResponse(request, exceptionCode);
+            } else {
+                refresh(request.getSlaveId());
+                response = request.handle(image);
+            }
+        } catch (ModbusTransportException e) {
+            System.err.println("Simulated slave could not answer " + request + ": " + e.getMessage());
+            drops++;
+            return new Reply(null, receivedNanos + delay);
+        }
+        return new Reply(response, transmit(frameBytes, receivedNanos, delay, response));
+    }
+
+    // The emulated line carries the request once it is free, then after the delay the
+    // response; returns when the response has been transmitted
+    private long transmit(int requestBytes, long receivedNanos, long delay, ModbusResponse response) {
+        int baud = baudRate;
+        if (baud <= 0) return receivedNanos + delay;
+        ByteQueue pdu = new ByteQueue();
+        response.write(pdu);
+        int responseBytes = pdu.size() + 2; // plus CRC
+        long requestSent = Math.max(receivedNanos, busFreeNanos) + characterNanos(requestBytes, baud);
+        busFreeNanos = requestSent + delay + characterNanos(responseBytes, baud);
+        return busFreeNanos;
+    }
+
+    private static long characterNanos(double characters, int baud) {
+        // 3.5 characters of silence end every RTU frame
+        return (long) ((characters + 3.5) * BITS_PER_CHARACTER * 1_000_000_000L / baud);
+    }
+
+    private static ModbusResponse exceptionResponse(ModbusRequest request, byte code) throws ModbusTransportException {
+        ByteQueue frame = new ByteQueue();
+        frame.push((byte) request.getSlaveId());
+        frame.push((byte) (request.getFunctionCode() | 0x80));
+        frame.push(code);
+        return ModbusResponse.createModbusResponse(frame);
+    }
+
+    private BasicProcessImage image(int deviceId) {
+        return images.computeIfAbsent(deviceId, id -> {
+            BasicProcessImage image = new BasicProcessImage(id);
+            // Merged reads span the unused registers between channels
+            image.setAllowInvalidAddress(true);
+            image.setInvalidAddressValue((short) 0);
+            return image;
+        });
+    }
+
+    // Write every signal of the slave at the current time into its process image
+    private void refresh(int deviceId) {
+        BasicProcessImage image = images.get(deviceId);
+        double seconds = (System.nanoTime() - startNanos) / 1e9;
+        for (Signal signal : signals) {
+            if (signal.getDeviceId() != deviceId) continue;
+            double value = signal.valueAt(seconds, random);
+            int offset = ModbusReadPlanner.zeroBasedOffset(signal.getAddress());
+            switch (ModbusReadPlanner.functionCodeFor(signal.getAddress())) {
+                case 1: image.setCoil(offset, value != 0); break;
+                case 2: image.setInput(offset, value != 0); break;
+                case 4: setRegisters(image, false, offset, signal.getDataType(), value); break;
+                default: setRegisters(image, true, offset, signal.getDataType(), value);
+            }
+        }
+    }
+
+    private static void setRegisters(BasicProcessImage image, boolean holding, int offset, String dataType, double value) {
+        short[] words = RegisterDecoder.of(dataType).encode(value); // laid out the way the poller decodes it
+        if (holding) {
+            image.setHoldingRegister(offset, words);
+        } else {
+            image.setInputRegister(offset, words);
+        }
+    }
+}
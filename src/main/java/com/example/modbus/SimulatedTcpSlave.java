@@ -0,0 +1,219 @@
+package com.example.modbus;
+
+import com.serotonin.modbus4j.exception.ModbusTransportException;
+import com.serotonin.modbus4j.msg.ModbusRequest;
+import com.serotonin.modbus4j.serial.rtu.RtuMessageParser;
+import com.serotonin.modbus4j.serial.rtu.RtuMessageRequest;
+import com.serotonin.modbus4j.serial.rtu.RtuMessageResponse;
+import com.serotonin.modbus4j.sero.util.queue.ByteQueue;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A {@link SimulatedSlave} listening on a local TCP port, speaking Modbus TCP or, for
+ * the "RTU over TCP" transport, RTU frames as a serial gateway would pass them on.
+ * Requests on one connection may be pipelined; each response is sent when its
+ * simulated latency has passed.
+ * <p>
+ * Run on its own with
+ * {@code java -cp <app jar and libs> com.example.modbus.SimulatedTcpSlave [port] [--rtu-over-tcp]},
+ * using {@value SimulatedSlave#CONFIG_FILE} or, without one, channels.csv.
+ */
+public class SimulatedTcpSlave implements AutoCloseable {
+    public static final int DEFAULT_PORT = 1502;
+    private static final int MBAP_HEADER_LENGTH = 7;
+    private static final int MAX_PDU_LENGTH = 253;
+
+    private final SimulatedSlave slave;
+    private final boolean encapsulated;
+    private final ServerSocket server;
+    private final List<Socket> connections = new CopyOnWriteArrayList<>();
+    private volatile boolean running = true;
+
+    /**
+     * A response waiting for its due time.
+     */
+    private static final class Outgoing implements Delayed {
+        final byte[] frame;
+        final long dueNanos;
+
+        Outgoing(byte[] frame, long dueNanos) {
+            this.frame = frame;
+            this.dueNanos = dueNanos;
+        }
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(dueNanos - System.nanoTime(), TimeUnit.NANOSECONDS);
+        }
+
+        @Override
+        public int compareTo(Delayed other) {
+            return Long.compare(dueNanos, ((Outgoing) other).dueNanos);
+        }
+    }
+
+    /**
+     * Listen on the loopback interface. Port 0 picks a free port, see {@link #getPort()}.
+     */
+    public SimulatedTcpSlave(SimulatedSlave slave, int port, boolean encapsulated) throws IOException {
+        this.slave = slave;
+        this.encapsulated = encapsulated;
+        this.server = new ServerSocket(port, 50, InetAddress.getLoopbackAddress());
+        WorkerThreads.start("modbus-simulator-accept-" + getPort(), this::acceptLoop);
+        System.out.println("Simulated Modbus " + (encapsulated ? "RTU over TCP" : "TCP") + " slave listening on port " + getPort());
+    }
+
+    public int getPort() {
+        return server.getLocalPort();
+    }
+
+    public SimulatedSlave getSlave() {
+        return slave;
+    }
+
+    private void acceptLoop() {
+        while (running) {
+            try {
+                Socket socket = server.accept();
+                socket.setTcpNoDelay(true);
+                connections.add(socket);
+                DelayQueue<Outgoing> outgoing = new DelayQueue<>();
+                String name = "modbus-simulator-" + socket.getPort();
+                WorkerThreads.start(name + "-writer", () -> writeLoop(socket, outgoing));
+                WorkerThreads.start(name + "-reader", () -> readLoop(socket, outgoing));
+            } catch (IOException e) {
+                if (running) System.err.println("Simulated slave stopped accepting connections: " + e.getMessage());
+                return;
+            }
+        }
+    }
+
+    private void readLoop(Socket socket, DelayQueue<Outgoing> outgoing) {
+        try {
+            if (encapsulated) {
+                readRtuFrames(socket.getInputStream(), outgoing);
+            } else {
+                readMbapFrames(new DataInputStream(socket.getInputStream()), outgoing);
+            }
+        } catch (IOException e) {
+            // The master disconnected
+        } finally {
+            disconnect(socket);
+        }
+    }
+
+    private void readMbapFrames(DataInputStream in, DelayQueue<Outgoing> outgoing) throws IOException {
+        byte[] header = new byte[MBAP_HEADER_LENGTH];
+        while (true) {
+            in.readFully(header);
+            int length = ((header[4] & 0xFF) << 8) | (header[5] & 0xFF);
+            if (length < 2 || length > MAX_PDU_LENGTH + 1) throw new IOException("Invalid MBAP length " + length);
+            byte[] body = new byte[length];
+            body[0] = header[6]; // unit id
+            in.readFully(body, 1, length - 1);
+            ModbusRequest request;
+            try {
+                request = ModbusRequest.createModbusRequest(new ByteQueue(body));
+            } catch (ModbusTransportException e) {
+                continue; // unsupported function: no answer, like a device that ignores it
+            }
+            SimulatedSlave.Reply reply = slave.handle(request, length + 2, System.nanoTime());
+            if (reply.response == null) continue;
+            ByteQueue pdu = new ByteQueue();
+            reply.response.write(pdu); // unit id, function code, data
+            byte[] data = pdu.popAll();
+            byte[] frame = new byte[6 + data.length];
+            frame[0] = header[0]; // transaction id
+            frame[1] = header[1];
+            frame[4] = (byte) (data.length >> 8);
+            frame[5] = (byte) data.length;
+            System.arraycopy(data, 0, frame, 6, data.length);
+            outgoing.add(new Outgoing(frame, reply.dueNanos));
+        }
+    }
+
+    private void readRtuFrames(InputStream in, DelayQueue<Outgoing> outgoing) throws IOException {
+        RtuMessageParser parser = new RtuMessageParser(false);
+        ByteQueue received = new ByteQueue();
+        byte[] buffer = new byte[512];
+        long lastDue = 0;
+        while (true) {
+            int n = in.read(buffer);
+            if (n < 0) return;
+            received.push(buffer, 0, n);
+            while (received.size() > 0) {
+                int before = received.size();
+                RtuMessageRequest message;
+                try {
+                    message = (RtuMessageRequest) parser.parseMessage(received);
+                } catch (Exception e) {
+                    received.pop(received.size()); // garbled, wait for the next frame
+                    break;
+                }
+                if (message == null) break;
+                SimulatedSlave.Reply reply = slave.handle(message.getModbusRequest(), before - received.size(), System.nanoTime());
+                if (reply.response == null) continue;
+                // RTU frames carry no transaction id, so responses must leave in order
+                lastDue = Math.max(lastDue + 1, reply.dueNanos);
+                outgoing.add(new Outgoing(new RtuMessageResponse(reply.response).getMessageData(), lastDue));
+            }
+        }
+    }
+
+    private void writeLoop(Socket socket, DelayQueue<Outgoing> outgoing) {
+        try {
+            OutputStream out = socket.getOutputStream();
+            while (!socket.isClosed()) {
+                Outgoing next = outgoing.poll(1, TimeUnit.SECONDS);
+                if (next == null) continue;
+                out.write(next.frame);
+                out.flush();
+            }
+        } catch (IOException | InterruptedException e) {
+            disconnect(socket);
+        }
+    }
+
+    private void disconnect(Socket socket) {
+        connections.remove(socket);
+        try {
+            socket.close();
+        } catch (IOException ignored) {}
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        try {
+            server.close();
+        } catch (IOException ignored) {}
+        for (Socket socket : connections) disconnect(socket);
+    }
+
+    public static void main(String[] args) throws Exception {
+        int port = DEFAULT_PORT;
+        boolean encapsulated = false;
+        for (String arg : args) {
+            if ("--rtu-over-tcp".equals(arg)) {
+                encapsulated = true;
+            } else {
+                port = Integer.parseInt(arg);
+            }
+        }
+        SimulatedTcpSlave tcpSlave = new SimulatedTcpSlave(SimulatedSlave.getShared(), port, encapsulated);
+        Runtime.getRuntime().addShutdownHook(new Thread(tcpSlave::close, "modbus-simulator-close"));
+        Thread.currentThread().join();
+    }
+}
@@ -0,0 +1,262 @@
+package com.example.modbus;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static com.example.modbus.TimeSeriesWriter.*;
+
+/**
+ * Reads a segment written by {@link TimeSeriesWriter} through a memory mapping.
+ * Opening loads the sparse time index and scans only the part of the segment written
+ * after the last index entry. A range query binary-searches the index for the last
+ * block starting at or before the range and decodes records from there, so its cost
+ * depends on the size of the range rather than of the segment. If the clock stepped back
+ * while the segment was written, queries fall back to decoding it from the start. The
+ * reader sees the segment as it was when opened.
+ */
+public class TimeSeriesReader implements AutoCloseable {
+    /**
+     * Receives the samples of a query. The arrays are reused between calls and hold
+     * {@code count} channel ids and values.
+     */
+    public interface SampleVisitor {
+        /** @return false to stop the query */
+        boolean sample(long timestamp, int count, int[] channelIds, double[] values);
+    }
+
+    private final File file;
+    private final FileChannel channel;
+    private final MappedByteBuffer data;
+    private final List<String> channelNames = new ArrayList<>();
+    private long[] blockTimes = new long[16];
+    private long[] blockOffsets = new long[16];
+    private long[] blockPrevious = new long[16];
+    private int blockCount;
+    private boolean ordered = true; // false once the clock stepped back within the segment
+    private long lastIndexed = Long.MIN_VALUE;
+    private long startTime = Long.MIN_VALUE;
+    private long endTime = Long.MIN_VALUE;
+    private int[] ids = new int[64];
+    private double[] values = new double[64];
+
+    private TimeSeriesReader(File file) throws IOException {
+        this.file = file;
+        this.channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        try {
+            this.data = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            byte[] magic = new byte[MAGIC.length];
+            if (data.remaining() < HEADER_LENGTH || !Arrays.equals(get(data, magic), MAGIC) || data.get() != VERSION) {
+                throw new IOException(file + " is not a time series segment");
+            }
+            loadIndex();
+            scanTail();
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    public static TimeSeriesReader open(File segment) throws IOException {
+        return new TimeSeriesReader(segment);
+    }
+
+    /**
+     * Run a query over every daily segment in a directory that overlaps the range.
+     *
+     * @param from first time included, epoch ms
+     * @param to   first time excluded, epoch ms
+     */
+    public static void query(File directory, String prefix, long from, long to, SampleVisitor visitor) throws IOException {
+        ZoneId zone = ZoneId.systemDefault();
+        LocalDate last = Instant.ofEpochMilli(to - 1).atZone(zone).toLocalDate();
+        for (LocalDate day = Instant.ofEpochMilli(from).atZone(zone).toLocalDate(); !day.isAfter(last); day = day.plusDays(1)) {
+            File segment = segmentFile(directory, prefix, day);
+            if (!segment.exists()) continue;
+            try (TimeSeriesReader reader = open(segment)) {
+                if (!reader.query(from, to, visitor)) return;
+            }
+        }
+    }
+
+    public File getFile() { return file; }
+
+    /** Channel names by id. */
+    public List<String> getChannelNames() { return Collections.unmodifiableList(channelNames); }
+
+    public String getChannelName(int id) { return channelNames.get(id); }
+
+    /** Time of the first sample, Long.MIN_VALUE if there are none. */
+    public long getStartTime() { return startTime; }
+
+    /** Time of the last sample, Long.MIN_VALUE if there are none. */
+    public long getEndTime() { return endTime; }
+
+    /**
+     * Visit the samples taken from {@code from} (inclusive) to {@code to} (exclusive).
+     * Returns false if the visitor stopped the query.
+     */
+    public boolean query(long from, long to, SampleVisitor visitor) {
+        if (blockCount == 0 || from >= to || endTime < from || startTime >= to) return true;
+        // Last block starting at or before the range; samples before it are older
+        int block = 0;
+        if (ordered) {
+            block = Arrays.binarySearch(blockTimes, 0, blockCount, from);
+            if (block < 0) block = Math.max(0, -block - 2);
+            while (block > 0 && blockTimes[block - 1] == from) block--;
+        }
+        ByteBuffer in = data.duplicate();
+        in.position((int) blockOffsets[block]);
+        long timestamp = blockPrevious[block];
+        try {
+            while (in.hasRemaining()) {
+                byte type = in.get();
+                if (type == RECORD_CHANNEL) {
+                    getVarLong(in);
+                    in.position(in.position() + (int) getVarLong(in));
+                    continue;
+                }
+                if (type != RECORD_SAMPLE) return true;
+                timestamp += unZigZag(getVarLong(in));
+                int count = (int) getVarLong(in);
+                if (count > ids.length) {
+                    ids = new int[count];
+                    values = new double[count];
+                }
+                for (int i = 0; i < count; i++) {
+                    long tagged = getVarLong(in);
+                    ids[i] = (int) (tagged >>> 1);
+                    values[i] = (tagged & 1) != 0 ? in.getFloat() : in.getDouble();
+                }
+                if (timestamp >= to) {
+                    if (ordered) return true;
+                    continue;
+                }
+                if (timestamp >= from && !visitor.sample(timestamp, count, ids, values)) return false;
+            }
+        } catch (BufferUnderflowException | IllegalArgumentException | IllegalStateException e) {
+            // partial record at the end
+        }
+        return true;
+    }
+
+    private void loadIndex() {
+        File index = indexFile(file);
+        if (!index.exists()) return;
+        try (FileChannel indexChannel = FileChannel.open(index.toPath(), StandardOpenOption.READ)) {
+            ByteBuffer in = indexChannel.map(FileChannel.MapMode.READ_ONLY, 0, indexChannel.size());
+            byte[] magic = new byte[INDEX_MAGIC.length];
+            if (in.remaining() < HEADER_LENGTH || !Arrays.equals(get(in, magic), INDEX_MAGIC) || in.get() != VERSION) return;
+            while (in.hasRemaining()) {
+                byte type = in.get();
+                if (type == RECORD_CHANNEL) {
+                    int id = (int) getVarLong(in);
+                    byte[] name = get(in, new byte[(int) getVarLong(in)]);
+                    defineChannel(id, new String(name, StandardCharsets.UTF_8));
+                } else if (type == RECORD_BLOCK) {
+                    long time = in.getLong();
+                    long offset = in.getLong();
+                    long previous = in.getLong();
+                    if (offset >= data.capacity()) break; // written ahead of data that never made it
+                    addBlock(time, offset, previous);
+                } else {
+                    break;
+                }
+            }
+        } catch (IOException | BufferUnderflowException | IllegalStateException | NegativeArraySizeException e) {
+            // Keep whatever was read; the scan picks up the rest
+        }
+    }
+
+    /**
+     * Decode the segment from the last indexed block (or the start) to the end to pick up
+     * channels and blocks the index does not have yet.
+     */
+    private void scanTail() {
+        ByteBuffer in = data.duplicate();
+        long timestamp = 0;
+        if (blockCount > 0) {
+            in.position((int) blockOffsets[blockCount - 1]);
+            timestamp = blockPrevious[blockCount - 1];
+        } else {
+            in.position(HEADER_LENGTH);
+        }
+        try {
+            while (in.hasRemaining()) {
+                int offset = in.position();
+                byte type = in.get();
+                if (type == RECORD_CHANNEL) {
+                    int id = (int) getVarLong(in);
+                    long length = getVarLong(in);
+                    if (length > in.remaining()) break;
+                    byte[] name = get(in, new byte[(int) length]);
+                    defineChannel(id, new String(name, StandardCharsets.UTF_8));
+                } else if (type == RECORD_SAMPLE) {
+                    long previous = timestamp;
+                    timestamp += unZigZag(getVarLong(in));
+                    long count = getVarLong(in);
+                    for (long i = 0; i < count; i++) {
+                        long tagged = getVarLong(in);
+                        in.position(in.position() + ((tagged & 1) != 0 ? 4 : 8));
+                    }
+                    if (blockCount == 0 || offset > blockOffsets[blockCount - 1]) {
+                        if (startsBlock(timestamp, lastIndexed)) addBlock(timestamp, offset, previous);
+                    }
+                    endTime = Math.max(endTime, timestamp);
+                } else {
+                    break;
+                }
+            }
+        } catch (BufferUnderflowException | IllegalArgumentException | IllegalStateException e) {
+            // partial record at the end
+        }
+        if (blockCount > 0) {
+            startTime = blockTimes[0];
+            for (int b = 0; b < blockCount; b++) {
+                startTime = Math.min(startTime, blockTimes[b]);
+                endTime = Math.max(endTime, blockTimes[b]);
+            }
+        }
+    }
+
+    private void defineChannel(int id, String name) {
+        while (channelNames.size() <= id) channelNames.add(null);
+        channelNames.set(id, name);
+    }
+
+    private void addBlock(long time, long offset, long previous) {
+        if (blockCount == blockTimes.length) {
+            blockTimes = Arrays.copyOf(blockTimes, blockCount * 2);
+            blockOffsets = Arrays.copyOf(blockOffsets, blockCount * 2);
+            blockPrevious = Arrays.copyOf(blockPrevious, blockCount * 2);
+        }
+        blockTimes[blockCount] = time;
+        blockOffsets[blockCount] = offset;
+        blockPrevious[blockCount] = previous;
+        if (blockCount > 0 && time < blockTimes[blockCount - 1]) ordered = false;
+        blockCount++;
+        lastIndexed = time;
+    }
+
+    private static byte[] get(ByteBuffer in, byte[] into) {
+        in.get(into);
+        return into;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
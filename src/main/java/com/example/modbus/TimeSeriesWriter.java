@@ -0,0 +1,359 @@
+package com.example.modbus;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Appends logged samples to binary segment files, one per day.
+ * <p>
+ * A segment starts with the magic {@code MTSD} and a version byte, followed by records
+ * that each begin with a type byte:
+ * <ul>
+ * <li>{@code CHANNEL}: varint id, varint length, UTF-8 channel name. Written the first
+ * time a channel appears in the segment.</li>
+ * <li>{@code SAMPLE}: zigzag varint time in ms since the previous sample (since the epoch
+ * for the first one), varint value count, then per value a varint {@code id << 1 | float}
+ * and the value as a 4-byte float when that is exact, otherwise an 8-byte double.</li>
+ * </ul>
+ * Records go through a buffer to a {@link FileChannel}. Reopening a segment replays its
+ * channel dictionary and drops a record left incomplete by a crash.
+ * <p>
+ * Next to each segment is a sparse time index ({@code .idx}): the magic {@code MTSI} and a
+ * version byte, then the channel records copied from the segment and a {@code BLOCK}
+ * entry (8-byte time of the sample, 8-byte offset of its record, 8-byte time of the
+ * sample before it) for the first sample of every {@value #INDEX_INTERVAL_MS} ms.
+ * {@link TimeSeriesReader} uses it to start a range query near its first sample. The
+ * index is rewritten whenever a segment is reopened.
+ */
+public class TimeSeriesWriter implements AutoCloseable {
+    private static final Logger log = LoggerFactory.getLogger(TimeSeriesWriter.class);
+    static final byte[] MAGIC = {'M', 'T', 'S', 'D'};
+    static final byte VERSION = 1;
+    static final byte RECORD_CHANNEL = 1;
+    static final byte RECORD_SAMPLE = 2;
+    static final byte[] INDEX_MAGIC = {'M', 'T', 'S', 'I'};
+    static final byte RECORD_BLOCK = 3;
+    static final long INDEX_INTERVAL_MS = 60_000;
+    static final int HEADER_LENGTH = MAGIC.length + 1;
+    static final String EXTENSION = ".mts";
+    static final String INDEX_EXTENSION = ".idx";
+    static final DateTimeFormatter FILE_DATE = DateTimeFormatter.ofPattern("yyyyMMdd");
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final File directory;
+    private final String prefix;
+    private final ZoneId zone = ZoneId.systemDefault();
+    private final Map<String, Integer> channelIds = new HashMap<>();
+    private ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+    private FileChannel channel;
+    private long position; // file offset of the first byte in the buffer
+    private FileChannel indexChannel;
+    private final ByteBuffer indexBuffer = ByteBuffer.allocate(4096);
+    private long lastIndexed;
+    private LocalDate segmentDate;
+    private File segmentFile;
+    private long lastTimestamp;
+
+    /**
+     * @param directory where the segments go
+     * @param prefix    start of each segment's file name, followed by the date
+     */
+    public TimeSeriesWriter(File directory, String prefix) {
+        this.directory = directory;
+        this.prefix = prefix;
+    }
+
+    /**
+     * Segment file for one day.
+     */
+    public static File segmentFile(File directory, String prefix, LocalDate date) {
+        return new File(directory, prefix + "_" + date.format(FILE_DATE) + EXTENSION);
+    }
+
+    /**
+     * Sparse time index of a segment.
+     */
+    public static File indexFile(File segment) {
+        String name = segment.getName();
+        return new File(segment.getParentFile(), name.substring(0, name.length() - EXTENSION.length()) + INDEX_EXTENSION);
+    }
+
+    /**
+     * Whether an index entry starts at a sample taken at this time.
+     */
+    static boolean startsBlock(long timestamp, long lastIndexed) {
+        return lastIndexed == Long.MIN_VALUE || timestamp - lastIndexed >= INDEX_INTERVAL_MS || timestamp < lastIndexed;
+    }
+
+    /**
+     * Append one sample of every numeric value in the map. Other values are skipped.
+     */
+    public synchronized void append(long epochMillis, Map<String, ?> values) throws IOException {
+        LocalDate date = Instant.ofEpochMilli(epochMillis).atZone(zone).toLocalDate();
+        if (!date.equals(segmentDate)) roll(date);
+
+        int count = 0;
+        for (Map.Entry<String, ?> entry : values.entrySet()) {
+            if (!(entry.getValue() instanceof Number)) continue;
+            if (!channelIds.containsKey(entry.getKey())) defineChannel(entry.getKey());
+            count++;
+        }
+        if (count == 0) return;
+
+        beginSample(epochMillis, count);
+        for (Map.Entry<String, ?> entry : values.entrySet()) {
+            if (!(entry.getValue() instanceof Number)) continue;
+            putValue(channelIds.get(entry.getKey()), ((Number) entry.getValue()).doubleValue());
+        }
+        lastTimestamp = epochMillis;
+    }
+
+    /**
+     * Append one sample held in parallel arrays, without boxing.
+     *
+     * @param names    channel name for each number in {@code channels}
+     * @param channels indexes into {@code names}
+     */
+    public synchronized void append(long epochMillis, List<String> names, int count, int[] channels, double[] values) throws IOException {
+        LocalDate date = Instant.ofEpochMilli(epochMillis).atZone(zone).toLocalDate();
+        if (!date.equals(segmentDate)) roll(date);
+        if (count == 0) return;
+        for (int i = 0; i < count; i++) {
+            String name = names.get(channels[i]);
+            if (!channelIds.containsKey(name)) defineChannel(name);
+        }
+
+        beginSample(epochMillis, count);
+        for (int i = 0; i < count; i++) {
+            putValue(channelIds.get(names.get(channels[i])), values[i]);
+        }
+        lastTimestamp = epochMillis;
+    }
+
+    private void beginSample(long epochMillis, int count) throws IOException {
+        // 1 type + 2 varints of at most 10 bytes + 5 bytes id and 8 bytes value each
+        ensureRoom(21 + count * 13);
+        if (startsBlock(epochMillis, lastIndexed)) indexBlock(epochMillis, position + buffer.position(), lastTimestamp);
+        buffer.put(RECORD_SAMPLE);
+        putVarLong(buffer, zigZag(epochMillis - lastTimestamp));
+        putVarLong(buffer, count);
+    }
+
+    private void putValue(int id, double value) {
+        float f = (float) value;
+        if (f == value || Double.isNaN(value)) {
+            putVarLong(buffer, (long) id << 1 | 1);
+            buffer.putFloat(f);
+        } else {
+            putVarLong(buffer, (long) id << 1);
+            buffer.putDouble(value);
+        }
+    }
+
+    private void defineChannel(String name) throws IOException {
+        int id = channelIds.size();
+        byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+        ensureRoom(11 + bytes.length);
+        buffer.put(RECORD_CHANNEL);
+        putVarLong(buffer, id);
+        putVarLong(buffer, bytes.length);
+        buffer.put(bytes);
+        channelIds.put(name, id);
+        indexChannel(id, bytes);
+    }
+
+    private void indexChannel(int id, byte[] name) throws IOException {
+        ensureIndexRoom(11 + name.length);
+        indexBuffer.put(RECORD_CHANNEL);
+        putVarLong(indexBuffer, id);
+        putVarLong(indexBuffer, name.length);
+        indexBuffer.put(name);
+    }
+
+    private void indexBlock(long timestamp, long offset, long previousTimestamp) throws IOException {
+        ensureIndexRoom(25);
+        indexBuffer.put(RECORD_BLOCK).putLong(timestamp).putLong(offset).putLong(previousTimestamp);
+        lastIndexed = timestamp;
+    }
+
+    private void ensureIndexRoom(int bytes) throws IOException {
+        if (indexBuffer.remaining() >= bytes) return;
+        flushIndex();
+        if (indexBuffer.remaining() < bytes) throw new IOException("Channel name too long for the index");
+    }
+
+    private void flushIndex() throws IOException {
+        indexBuffer.flip();
+        while (indexBuffer.hasRemaining()) indexChannel.write(indexBuffer);
+        indexBuffer.clear();
+    }
+
+    private void ensureRoom(int bytes) throws IOException {
+        if (buffer.remaining() >= bytes) return;
+        flush();
+        if (buffer.capacity() < bytes) buffer = ByteBuffer.allocate(bytes);
+    }
+
+    /**
+     * Write buffered records to the file.
+     */
+    public synchronized void flush() throws IOException {
+        if (channel == null) return;
+        buffer.flip();
+        while (buffer.hasRemaining()) position += channel.write(buffer);
+        buffer.clear();
+        // After the data, so index entries never point past the end of the segment
+        flushIndex();
+    }
+
+    /**
+     * Segment currently written to, or null before the first sample.
+     */
+    public synchronized File getCurrentFile() {
+        return segmentFile;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (channel == null) return;
+        try {
+            flush();
+            channel.force(false);
+        } finally {
+            channel.close();
+            indexChannel.close();
+            channel = null;
+            indexChannel = null;
+            segmentDate = null;
+        }
+    }
+
+    private void roll(LocalDate date) throws IOException {
+        close();
+        channelIds.clear();
+        lastTimestamp = 0;
+        lastIndexed = Long.MIN_VALUE;
+        buffer.clear();
+        indexBuffer.clear();
+        if (!directory.exists()) directory.mkdirs();
+        File file = segmentFile(directory, prefix, date);
+        channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            indexChannel = FileChannel.open(indexFile(file).toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING);
+            indexBuffer.put(INDEX_MAGIC).put(VERSION);
+            if (channel.size() < HEADER_LENGTH) {
+                channel.truncate(0); // new, or the header itself was cut short
+                position = 0;
+                buffer.put(MAGIC).put(VERSION);
+            } else {
+                recover(file);
+            }
+        } catch (IOException e) {
+            channel.close();
+            if (indexChannel != null) indexChannel.close();
+            channel = null;
+            indexChannel = null;
+            throw e;
+        }
+        segmentDate = date;
+        segmentFile = file;
+    }
+
+    /**
+     * Rebuild the dictionary, last timestamp and index of an existing segment and cut off
+     * a trailing partial record.
+     */
+    private void recover(File file) throws IOException {
+        long end = HEADER_LENGTH;
+        MappedByteBuffer in = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        byte[] magic = new byte[MAGIC.length];
+        if (!Arrays.equals(get(in, magic), MAGIC) || in.get() != VERSION) {
+            throw new IOException(file + " is not a time series segment");
+        }
+        try {
+            while (in.hasRemaining()) {
+                byte type = in.get();
+                if (type == RECORD_CHANNEL) {
+                    int id = (int) getVarLong(in);
+                    long length = getVarLong(in);
+                    if (length > in.remaining()) break;
+                    byte[] name = get(in, new byte[(int) length]);
+                    channelIds.put(new String(name, StandardCharsets.UTF_8), id);
+                    indexChannel(id, name);
+                } else if (type == RECORD_SAMPLE) {
+                    long timestamp = lastTimestamp + unZigZag(getVarLong(in));
+                    long count = getVarLong(in);
+                    for (long i = 0; i < count; i++) {
+                        long tagged = getVarLong(in);
+                        if ((tagged & 1) != 0) in.getFloat();
+                        else in.getDouble();
+                    }
+                    // end is still the start of this record
+                    if (startsBlock(timestamp, lastIndexed)) indexBlock(timestamp, end, lastTimestamp);
+                    lastTimestamp = timestamp;
+                } else {
+                    break; // garbage after a crash
+                }
+                end = in.position();
+            }
+        } catch (BufferUnderflowException | IllegalStateException e) {
+            // partial record at the end
+        }
+        if (end < channel.size()) {
+            log.warn("Truncating incomplete data bytes={} file={}", channel.size() - end, file);
+            channel.truncate(end);
+        }
+        channel.position(end);
+        position = end;
+    }
+
+    private static byte[] get(ByteBuffer in, byte[] into) {
+        in.get(into);
+        return into;
+    }
+
+    static long zigZag(long v) {
+        return (v << 1) ^ (v >> 63);
+    }
+
+    static long unZigZag(long v) {
+        return (v >>> 1) ^ -(v & 1);
+    }
+
+    static void putVarLong(ByteBuffer out, long v) {
+        while ((v & ~0x7FL) != 0) {
+            out.put((byte) ((v & 0x7F) | 0x80));
+            v >>>= 7;
+        }
+        out.put((byte) v);
+    }
+
+    static long getVarLong(ByteBuffer in) {
+        long result = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = in.get();
+            result |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) return result;
+        }
+        throw new IllegalStateException("Malformed varint");
+    }
+}
@@ -0,0 +1,64 @@
+package com.example.modbus;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.reflect.Method;
+
+/**
+ * Starts the polling engine's long-running workers. On Java 21 and later each worker is
+ * a virtual thread, so one blocking worker per device costs a few KB instead of a
+ * platform thread; older runtimes get daemon platform threads. The module still
+ * compiles for Java 11, so the virtual thread API is looked up at runtime.
+ * Set the system property {@code modbus.virtualThreads=false} to force platform threads.
+ */
+public final class WorkerThreads {
+    private static final Logger log = LoggerFactory.getLogger(WorkerThreads.class);
+    private static final RateLimitedLog failures = new RateLimitedLog(log, 3, 60_000);
+    private static final Method OF_VIRTUAL;
+    private static final Method BUILDER_NAME;
+    private static final Method BUILDER_START;
+
+    static {
+        Method ofVirtual = null, name = null, start = null;
+        if (!"false".equalsIgnoreCase(System.getProperty("modbus.virtualThreads"))) {
+            try {
+                Class<?> builder = Class.forName("java.lang.Thread$Builder");
+                ofVirtual = Thread.class.getMethod("ofVirtual");
+                name = builder.getMethod("name", String.class);
+                start = builder.getMethod("start", Runnable.class);
+            } catch (ReflectiveOperationException e) {
+                ofVirtual = null; // before Java 21
+            }
+        }
+        OF_VIRTUAL = ofVirtual;
+        BUILDER_NAME = name;
+        BUILDER_START = start;
+    }
+
+    private WorkerThreads() {
+    }
+
+    public static boolean isVirtual() {
+        return OF_VIRTUAL != null;
+    }
+
+    /**
+     * Start a worker that must not keep the JVM alive.
+     */
+    public static Thread start(String name, Runnable task) {
+        if (OF_VIRTUAL != null) {
+            try {
+                Object builder = BUILDER_NAME.invoke(OF_VIRTUAL.invoke(null), name);
+                return (Thread) BUILDER_START.invoke(builder, task);
+            } catch (ReflectiveOperationException e) {
+                failures.warn("virtualThread", "Could not start virtual thread, using a platform thread name={} error={}",
+                        name, e.getMessage());
+            }
+        }
+        Thread thread = new Thread(task, name);
+        thread.setDaemon(true);
+        thread.start();
+        return thread;
+    }
+}
@@ -1,6 +1,11 @@
 package com.example.production;
 
+import com.example.modbus.WorkerThreads;
+
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
@@ -9,10 +14,49 @@ import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
 
+/**
+ * Appends samples to a production CSV file and reads them back.
+ * <p>
+ * Samples are not written when they are appended. They wait in a bounded queue until
+ * {@link #commit()} is called at the end of a scan, or for at most
+ * {@value #MAX_COMMIT_DELAY_MS} ms. A background flusher then writes everything queued
+ * with a single write call and syncs the file according to the {@link FsyncPolicy}.
+ * All loggers for the same file share one queue and one flusher. Appending never waits:
+ * when the queue is full the sample is dropped and counted.
+ */
 public class DataLogger {
+    /**
+     * When committed rows are forced to the storage device.
+     */
+    public enum FsyncPolicy {
+        /** After every write; survives power loss but costs a device flush per scan. */
+        PER_BATCH,
+        /** At most once per fsync interval. */
+        INTERVAL,
+        /** Left to the operating system. */
+        OS
+    }
+
+    static final int QUEUE_CAPACITY = 16 * 1024;
+    static final long MAX_COMMIT_DELAY_MS = 1000;
+    private static final String HEADER = "timestamp,channel,register,value\n";
+    private static final Map<Path, BatchWriter> WRITERS = new ConcurrentHashMap<>();
+
     private final Path filePath;
+    private final BatchWriter writer;
     private final DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    private final StringBuilder line = new StringBuilder(64);
+    private long stampSecond = -1; // the timestamp only changes once a second
+    private String stamp;
 
     public DataLogger() {
         this("production_data.csv");
@@ -20,25 +64,53 @@ public class DataLogger {
 
     public DataLogger(String filename) {
         this.filePath = Path.of(filename);
-        ensureHeader();
+        this.writer = WRITERS.computeIfAbsent(filePath.toAbsolutePath().normalize(), BatchWriter::new);
     }
 
-    private void ensureHeader() {
-        if (!Files.exists(filePath)) {
-            try {
-                Files.writeString(filePath, "timestamp,channel,register,value\n", StandardCharsets.UTF_8, StandardOpenOption.CREATE);
-            } catch (IOException ignored) {}
+    /**
+     * Queue one sample. It is written with the next commit, or dropped if the queue is full.
+     */
+    public synchronized void appendSample(String channelName, int register, double value) {
+        long second = System.currentTimeMillis() / 1000;
+        if (second != stampSecond) {
+            stampSecond = second;
+            stamp = LocalDateTime.now().format(formatter);
         }
+        line.setLength(0);
+        line.append(stamp).append(',').append(sanitize(channelName))
+                .append(',').append(register).append(',').append(value).append('\n');
+        writer.add(line.toString());
     }
 
-    public synchronized void appendSample(String channelName, int register, double value) {
-        String line = String.format("%s,%s,%d,%s\n", LocalDateTime.now().format(formatter), sanitize(channelName), register, Double.toString(value));
-        try {
-            Files.writeString(filePath, line, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
-        } catch (IOException ignored) {}
+    /**
+     * Write the queued samples in the background, e.g. at the end of a scan.
+     */
+    public void commit() {
+        writer.requestCommit();
+    }
+
+    /**
+     * Write the queued samples now and sync them if the policy asks for it.
+     */
+    public void flush() {
+        writer.flush();
+    }
+
+    /**
+     * Change how committed rows reach the storage device, for every logger of this file.
+     * The default comes from the system properties {@code production.fsync}
+     * ({@code per_batch}, {@code interval} or {@code os}) and {@code production.fsyncIntervalMs}.
+     */
+    public void setFsyncPolicy(FsyncPolicy policy, long intervalMillis) {
+        writer.setFsyncPolicy(policy, intervalMillis);
+    }
+
+    public FsyncPolicy getFsyncPolicy() {
+        return writer.fsyncPolicy;
     }
 
     public synchronized List<String[]> readAll() {
+        flush();
         List<String[]> rows = new ArrayList<>();
         try (BufferedReader br = Files.newBufferedReader(filePath, StandardCharsets.UTF_8)) {
             String line;
@@ -52,12 +124,239 @@ public class DataLogger {
         return rows;
     }
 
+    /**
+     * Rows whose timestamp lies between {@code from} and {@code to}. Both bounds are
+     * compared as prefixes of the timestamp, so "2024-05-01" as {@code to} includes the
+     * whole day. The file is memory-mapped and the first row is found by binary search,
+     * which relies on rows being appended in time order.
+     */
+    public synchronized List<String[]> readRange(String from, String to) {
+        flush();
+        List<String[]> rows = new ArrayList<>();
+        try (FileChannel channel = FileChannel.open(filePath, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) return readRangeByScan(from, to);
+            MappedByteBuffer data = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            byte[] lower = from.getBytes(StandardCharsets.UTF_8);
+            byte[] upper = to.getBytes(StandardCharsets.UTF_8);
+            int firstRow = Math.min(lineEnd(data, 0) + 1, (int) size); // after the header
+            for (int pos = firstRowAtOrAfter(data, firstRow, lower); pos < size; ) {
+                int end = lineEnd(data, pos);
+                if (comparePrefix(data, pos, upper) > 0) break;
+                byte[] line = new byte[end - pos];
+                data.position(pos);
+                data.get(line);
+                rows.add(new String(line, StandardCharsets.UTF_8).split(","));
+                pos = end + 1;
+            }
+        } catch (IOException ignored) {}
+        return rows;
+    }
+
+    private List<String[]> readRangeByScan(String from, String to) {
+        List<String[]> rows = new ArrayList<>();
+        for (String[] r : readAll()) {
+            String ts = r[0];
+            if (!ts.startsWith(from) && ts.compareTo(from) < 0) continue;
+            if (!ts.startsWith(to) && ts.compareTo(to) > 0) continue;
+            rows.add(r);
+        }
+        return rows;
+    }
+
+    // Start of the first row whose timestamp is not before the key
+    private static int firstRowAtOrAfter(ByteBuffer data, int lo, byte[] key) {
+        int hi = data.limit();
+        while (lo < hi) {
+            int mid = lo + (hi - lo) / 2;
+            int start = mid;
+            while (start > lo && data.get(start - 1) != '\n') start--;
+            if (comparePrefix(data, start, key) < 0) {
+                lo = lineEnd(data, start) + 1;
+            } else {
+                hi = start;
+            }
+        }
+        return Math.min(lo, data.limit());
+    }
+
+    private static int lineEnd(ByteBuffer data, int pos) {
+        while (pos < data.limit() && data.get(pos) != '\n') pos++;
+        return pos;
+    }
+
+    // Compares the row's timestamp with the key; 0 if the timestamp starts with the key
+    private static int comparePrefix(ByteBuffer data, int pos, byte[] key) {
+        for (int i = 0; i < key.length; i++) {
+            if (pos + i >= data.limit()) return -1;
+            byte b = data.get(pos + i);
+            if (b == ',' || b == '\n') return -1;
+            if (b != key[i]) return Byte.compare(b, key[i]);
+        }
+        return 0;
+    }
+
     private String sanitize(String s) {
         return s == null ? "" : s.replace(",", " ").trim();
     }
 
     public Path getFilePath() {
+        flush(); // callers copy the file
         return filePath;
     }
+
+    /**
+     * Queue and flusher shared by every logger of one file. The file stays open for
+     * appending; each flush drains the queue into one buffer and writes it with one call.
+     */
+    private static final class BatchWriter {
+        private final Path path;
+        private final BlockingQueue<String> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Condition commitRequested = lock.newCondition();
+        private final Object writeLock = new Object();
+        private final List<String> batch = new ArrayList<>();
+        private final StringBuilder text = new StringBuilder(64 * 1024);
+        private boolean pending;
+        private FileChannel channel;
+        private volatile FsyncPolicy fsyncPolicy;
+        private volatile long fsyncIntervalMillis;
+        private long lastSync = System.currentTimeMillis();
+        private boolean unsynced;
+        private final AtomicLong dropped = new AtomicLong();
+
+        BatchWriter(Path path) {
+            this.path = path;
+            this.fsyncPolicy = parsePolicy(System.getProperty("production.fsync"));
+            this.fsyncIntervalMillis = Long.getLong("production.fsyncIntervalMs", 5000);
+            open();
+            WorkerThreads.start("DataLogger flusher " + path.getFileName(), this::run);
+            Runtime.getRuntime().addShutdownHook(new Thread(this::close, "DataLogger close " + path.getFileName()));
+        }
+
+        private static FsyncPolicy parsePolicy(String name) {
+            if (name == null) return FsyncPolicy.INTERVAL;
+            try {
+                return FsyncPolicy.valueOf(name.trim().toUpperCase());
+            } catch (IllegalArgumentException e) {
+                System.err.println("Unknown fsync policy " + name + ", using INTERVAL");
+                return FsyncPolicy.INTERVAL;
+            }
+        }
+
+        void setFsyncPolicy(FsyncPolicy policy, long intervalMillis) {
+            fsyncPolicy = policy;
+            fsyncIntervalMillis = intervalMillis;
+        }
+
+        // Called from scans and from the EDT, so a full queue drops the row instead of waiting
+        void add(String row) {
+            if (queue.offer(row)) return;
+            dropped.incrementAndGet();
+            requestCommit(); // the flusher is behind, wake it
+        }
+
+        void requestCommit() {
+            lock.lock();
+            try {
+                pending = true;
+                commitRequested.signal();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void run() {
+            while (true) {
+                lock.lock();
+                try {
+                    if (!pending) commitRequested.await(MAX_COMMIT_DELAY_MS, TimeUnit.MILLISECONDS);
+                    pending = false;
+                } catch (InterruptedException e) {
+                    return;
+                } finally {
+                    lock.unlock();
+                }
+                flush();
+            }
+        }
+
+        void flush() {
+            synchronized (writeLock) {
+                queue.drainTo(batch);
+                long lost = dropped.getAndSet(0);
+                if (lost > 0) {
+                    System.err.println("Production log queue full, dropped " + lost + " samples");
+                }
+                boolean wrote = false;
+                if (!batch.isEmpty()) {
+                    text.setLength(0);
+                    for (String row : batch) text.append(row);
+                    batch.clear();
+                    wrote = write(text.toString().getBytes(StandardCharsets.UTF_8));
+                }
+                sync(wrote);
+            }
+        }
+
+        private boolean write(byte[] bytes) {
+            try {
+                if (channel == null) open();
+                if (channel == null) return false;
+                ByteBuffer buffer = ByteBuffer.wrap(bytes);
+                while (buffer.hasRemaining()) channel.write(buffer);
+                return true;
+            } catch (IOException e) {
+                System.err.println("Error writing " + path + ": " + e.getMessage());
+                closeChannel(); // reopened by the next write
+                return false;
+            }
+        }
+
+        private void sync(boolean wrote) {
+            unsynced |= wrote;
+            if (channel == null || !unsynced) return;
+            long now = System.currentTimeMillis();
+            FsyncPolicy policy = fsyncPolicy;
+            boolean due = policy == FsyncPolicy.PER_BATCH
+                    || policy == FsyncPolicy.INTERVAL && now - lastSync >= fsyncIntervalMillis;
+            if (!due) return;
+            try {
+                channel.force(false);
+                unsynced = false;
+            } catch (IOException e) {
+                System.err.println("Error syncing " + path + ": " + e.getMessage());
+            }
+            lastSync = now;
+        }
+
+        private void open() {
+            try {
+                channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+                if (channel.size() == 0) channel.write(ByteBuffer.wrap(HEADER.getBytes(StandardCharsets.UTF_8)));
+            } catch (IOException e) {
+                System.err.println("Error opening " + path + ": " + e.getMessage());
+                closeChannel();
+            }
+        }
+
+        private void closeChannel() {
+            if (channel == null) return;
+            try {
+                channel.close();
+            } catch (IOException ignored) {}
+            channel = null;
+        }
+
+        private void close() {
+            synchronized (writeLock) {
+                flush();
+                try {
+                    if (channel != null) channel.force(false);
+                } catch (IOException ignored) {}
+                closeChannel();
+            }
+        }
+    }
 }
 
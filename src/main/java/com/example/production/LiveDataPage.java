@@ -93,6 +93,7 @@ public class LiveDataPage {
                     dataLogger.appendSample("R" + register, register, value);
                     if (onSample != null) onSample.accept(register, value);
                 }
+                dataLogger.commit();
                 statusLabel.setText("Status: Reading from " + settings.getPortName());
             });
         } catch (ModbusTransportException ignored) {}
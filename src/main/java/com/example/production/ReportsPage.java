@@ -52,14 +52,11 @@ public class ReportsPage {
 
     private void refresh() {
         model.setRowCount(0);
-        List<String[]> rows = logger.readAll();
         String from = fromField.getText().trim();
         String to = toField.getText().trim();
+        List<String[]> rows = logger.readRange(from, to);
         for (String[] r : rows) {
             if (r.length < 4) continue;
-            String ts = r[0];
-            if (!ts.startsWith(from) && ts.compareTo(from) < 0) continue;
-            if (!ts.startsWith(to) && ts.compareTo(to) > 0) continue;
             model.addRow(new Object[]{r[0], r[1], r[2], r[3]});
         }
     }